@@ -0,0 +1,313 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <david.parker@comlab.ox.ac.uk> (University of Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package explicit;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import prism.ModelType;
+
+/**
+ * Sparse matrix (non-mutable) explicit-state representation of a CTMC,
+ * stored in compressed sparse row (CSR) form (see {@link DTMCSparse}).
+ * The embedded and uniformised DTMCs are also built in sparse form,
+ * rather than implicitly, so that computations on them use the same tight loops.
+ */
+public class CTMCSparse extends DTMCSparse implements CTMC
+{
+	// Constructors
+
+	/**
+	 * Constructor: empty CTMC.
+	 */
+	public CTMCSparse()
+	{
+		super();
+	}
+
+	/**
+	 * Copy constructor (from CTMCSimple).
+	 */
+	public CTMCSparse(CTMCSimple ctmc)
+	{
+		super(ctmc);
+	}
+
+	/**
+	 * Copy constructor (from CTMCSimple). Optionally, transitions
+	 * are sorted (by ascending order of column index).
+	 * @param ctmc The CTMC to copy
+	 * @param sort Whether or not to sort column indices
+	 */
+	public CTMCSparse(CTMCSimple ctmc, boolean sort)
+	{
+		super(ctmc, sort);
+	}
+
+	/**
+	 * Copy constructor (from CTMCSimple). Optionally, transitions
+	 * are sorted (by ascending order of column index). Also, optionally, a state
+	 * index permutation can be provided, i.e. old state index i becomes index permut[i].
+	 * Note: a states list, if present, will not be permuted and should be set
+	 * separately afterwards if required.
+	 * @param ctmc The CTMC to copy
+	 * @param sort Whether or not to sort column indices
+	 * @param permut State space permutation
+	 */
+	public CTMCSparse(CTMCSimple ctmc, boolean sort, int permut[])
+	{
+		super(ctmc, sort, permut);
+	}
+
+	// Accessors (for Model, overrides DTMCSparse)
+
+	@Override
+	public ModelType getModelType()
+	{
+		return ModelType.CTMC;
+	}
+
+	// Accessors (for CTMC)
+
+	@Override
+	public double getExitRate(int i)
+	{
+		int k, h;
+		double d = 0.0;
+		h = rowStarts[i + 1];
+		for (k = rowStarts[i]; k < h; k++) {
+			d += nonZeros[k];
+		}
+		return d;
+	}
+
+	@Override
+	public double getMaxExitRate()
+	{
+		int i;
+		double d, max = Double.NEGATIVE_INFINITY;
+		for (i = 0; i < numStates; i++) {
+			d = getExitRate(i);
+			if (d > max)
+				max = d;
+		}
+		return max;
+	}
+
+	@Override
+	public double getMaxExitRate(BitSet subset)
+	{
+		int i;
+		double d, max = Double.NEGATIVE_INFINITY;
+		for (i = subset.nextSetBit(0); i >= 0; i = subset.nextSetBit(i + 1)) {
+			d = getExitRate(i);
+			if (d > max)
+				max = d;
+		}
+		return max;
+	}
+
+	@Override
+	public double getDefaultUniformisationRate()
+	{
+		return 1.02 * getMaxExitRate();
+	}
+
+	@Override
+	public double getDefaultUniformisationRate(BitSet nonAbs)
+	{
+		return 1.02 * getMaxExitRate(nonAbs);
+	}
+
+	@Override
+	public DTMC buildImplicitEmbeddedDTMC()
+	{
+		int i, k, l, h, numAbsorbing;
+		double d;
+		int rowStartsEmb[], colsEmb[];
+		double nonZerosEmb[];
+
+		// Count states with no outgoing transitions, which get a self-loop
+		numAbsorbing = 0;
+		for (i = 0; i < numStates; i++) {
+			if (getExitRate(i) == 0)
+				numAbsorbing++;
+		}
+		// If there are none, the structure of the matrix can be shared
+		if (numAbsorbing == 0) {
+			nonZerosEmb = new double[numTransitions];
+			for (i = 0; i < numStates; i++) {
+				d = getExitRate(i);
+				h = rowStarts[i + 1];
+				for (k = rowStarts[i]; k < h; k++) {
+					nonZerosEmb[k] = nonZeros[k] / d;
+				}
+			}
+			return new DTMCSparse(this, rowStarts, cols, nonZerosEmb);
+		}
+		rowStartsEmb = new int[numStates + 1];
+		colsEmb = new int[numTransitions + numAbsorbing];
+		nonZerosEmb = new double[numTransitions + numAbsorbing];
+		l = 0;
+		for (i = 0; i < numStates; i++) {
+			rowStartsEmb[i] = l;
+			d = getExitRate(i);
+			if (d == 0) {
+				colsEmb[l] = i;
+				nonZerosEmb[l] = 1.0;
+				l++;
+			} else {
+				h = rowStarts[i + 1];
+				for (k = rowStarts[i]; k < h; k++, l++) {
+					colsEmb[l] = cols[k];
+					nonZerosEmb[l] = nonZeros[k] / d;
+				}
+			}
+		}
+		rowStartsEmb[numStates] = l;
+		return new DTMCSparse(this, rowStartsEmb, colsEmb, nonZerosEmb);
+	}
+
+	@Override
+	public DTMCSimple buildEmbeddedDTMC()
+	{
+		DTMCSimple dtmc;
+		int i, k, h;
+		double d;
+		dtmc = new DTMCSimple(numStates);
+		for (int in : getInitialStates()) {
+			dtmc.addInitialState(in);
+		}
+		for (i = 0; i < numStates; i++) {
+			d = getExitRate(i);
+			if (d == 0) {
+				dtmc.setProbability(i, i, 1.0);
+			} else {
+				h = rowStarts[i + 1];
+				for (k = rowStarts[i]; k < h; k++) {
+					dtmc.setProbability(i, cols[k], nonZeros[k] / d);
+				}
+			}
+		}
+		return dtmc;
+	}
+
+	@Override
+	public void uniformise(double q)
+	{
+		// Diagonal entries may need to be added, so the matrix is rebuilt
+		DTMCSparse unif = buildUniformised(q, 1.0);
+		rowStarts = unif.rowStarts;
+		cols = unif.cols;
+		nonZeros = unif.nonZeros;
+		numTransitions = unif.numTransitions;
+	}
+
+	@Override
+	public DTMC buildImplicitUniformisedDTMC(double q)
+	{
+		return buildUniformised(q, 1.0 / q);
+	}
+
+	@Override
+	public DTMCSimple buildUniformisedDTMC(double q)
+	{
+		DTMCSimple dtmc;
+		int i, k, h;
+		double d;
+		dtmc = new DTMCSimple(numStates);
+		for (int in : getInitialStates()) {
+			dtmc.addInitialState(in);
+		}
+		for (i = 0; i < numStates; i++) {
+			// Add scaled off-diagonal entries
+			d = 0.0;
+			h = rowStarts[i + 1];
+			for (k = rowStarts[i]; k < h; k++) {
+				dtmc.setProbability(i, cols[k], nonZeros[k] / q);
+				if (cols[k] != i)
+					d += nonZeros[k];
+			}
+			// Add diagonal, if needed
+			if (d < q) {
+				dtmc.setProbability(i, i, 1 - (d / q));
+			}
+		}
+		return dtmc;
+	}
+
+	/**
+	 * Build the matrix for the uniformised version of this CTMC, multiplied by {@code scale},
+	 * i.e. R(i,j)*scale for i!=j and (q - sum_{j!=i} R(i,j))*scale on the diagonal (where positive).
+	 * @param q Uniformisation rate
+	 * @param scale Scaling factor (1 for a uniformised CTMC, 1/q for a uniformised DTMC)
+	 */
+	private DTMCSparse buildUniformised(double q, double scale)
+	{
+		int i, k, l, h;
+		double d;
+		boolean diagDone;
+		int rowStartsUnif[], colsUnif[];
+		double nonZerosUnif[];
+
+		// Allocate space for an extra (diagonal) entry in each row, trimmed afterwards
+		rowStartsUnif = new int[numStates + 1];
+		colsUnif = new int[numTransitions + numStates];
+		nonZerosUnif = new double[numTransitions + numStates];
+		l = 0;
+		for (i = 0; i < numStates; i++) {
+			rowStartsUnif[i] = l;
+			h = rowStarts[i + 1];
+			// Sum off-diagonal entries
+			d = 0.0;
+			for (k = rowStarts[i]; k < h; k++) {
+				if (cols[k] != i)
+					d += nonZeros[k];
+			}
+			d = q - d;
+			// Copy scaled off-diagonal entries, inserting the diagonal (in order, if sorted)
+			diagDone = !(d > 0);
+			for (k = rowStarts[i]; k < h; k++) {
+				if (!diagDone && cols[k] >= i) {
+					colsUnif[l] = i;
+					nonZerosUnif[l++] = d * scale;
+					diagDone = true;
+				}
+				if (cols[k] != i) {
+					colsUnif[l] = cols[k];
+					nonZerosUnif[l++] = nonZeros[k] * scale;
+				}
+			}
+			if (!diagDone) {
+				colsUnif[l] = i;
+				nonZerosUnif[l++] = d * scale;
+			}
+		}
+		rowStartsUnif[numStates] = l;
+		return new DTMCSparse(this, rowStartsUnif, Arrays.copyOf(colsUnif, l), Arrays.copyOf(nonZerosUnif, l));
+	}
+}
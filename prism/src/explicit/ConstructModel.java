@@ -29,10 +29,22 @@ package explicit;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import parser.PackedState;
 import parser.State;
+import parser.StatePacker;
 import parser.Values;
 import parser.VarList;
 import parser.ast.ModulesFile;
@@ -56,6 +68,11 @@ public class ConstructModel
 	private boolean findDeadlocks = true;
 	// Automatically fix deadlocks?
 	private boolean fixDeadlocks = true;
+	// Number of threads for exploring the state space (1 means sequential, 0 means one per processor)
+	private int numThreads = 1;
+
+	// Number of lock stripes (per thread) in the table of new states during parallel exploration
+	private static final int STRIPES_PER_THREAD = 16;
 
 	// Basic info needed about model
 	// private ModelType modelType;
@@ -79,6 +96,16 @@ public class ConstructModel
 		fixDeadlocks = b;
 	}
 
+	/**
+	 * Set the number of threads used to explore the state space
+	 * (1 means sequential exploration, 0 means one per available processor).
+	 * The model constructed (including the numbering of its states) does not depend on this.
+	 */
+	public void setNumThreads(int numThreads)
+	{
+		this.numThreads = numThreads;
+	}
+
 	/**
 	 * Build the set of reachable states for a PRISM model language description and return.
 	 * @param modulesFile The PRISM model
@@ -125,9 +152,14 @@ public class ConstructModel
 		// Model info
 		ModelType modelType;
 		// State storage
-		IndexedSet<State> states;
+		// (states are stored in packed form if all variables are bounded, otherwise as State objects)
+		StatePacker packer;
+		IndexedSet<PackedState> packedStates = null;
+		IndexedSet<State> states = null;
 		LinkedList<State> explore;
 		State state, stateNew;
+		PackedState packedStateNew = null;
+		boolean isNew;
 		// Explicit model storage
 		ModelSimple modelSimple = null;
 		DTMCSimple dtmc = null;
@@ -137,7 +169,7 @@ public class ConstructModel
 		ModelExplicit model = null;
 		Distribution distr = null;
 		// Misc
-		int i, j, nc, nt, src, dest;
+		int i, j, nc, nt, src, dest, threads;
 		long timer;
 
 		// Don't support multiple initial states
@@ -181,21 +213,38 @@ public class ConstructModel
 		}
 
 		// Initialise states storage
-		states = new IndexedSet<State>(true);
+		packer = varList.containsUnboundedVariables() ? null : new StatePacker(varList);
+		if (packer != null) {
+			packedStates = new IndexedSet<PackedState>();
+		} else {
+			states = new IndexedSet<State>(true);
+		}
 		explore = new LinkedList<State>();
 		// Add initial state to lists/model
 		if (modulesFile.getInitialStates() != null) {
 			throw new PrismException("Explicit model construction does not support multiple initial states");
 		}
 		state = modulesFile.getDefaultInitialState();
-		states.add(state);
+		if (packer != null) {
+			packedStates.add(packer.pack(state));
+			packedStateNew = packer.createState();
+		} else {
+			states.add(state);
+		}
 		explore.add(state);
+		stateNew = new State(varList.getNumVars());
 		if (!justReach) {
 			modelSimple.addState();
 			modelSimple.addInitialState(0);
 		}
 		// Explore...
 		src = -1;
+		// (in parallel, if requested, in which case nothing is left for the sequential loop below)
+		threads = numThreads > 0 ? numThreads : Runtime.getRuntime().availableProcessors();
+		if (threads > 1) {
+			src = exploreParallel(modulesFile, packer, packer != null ? packedStates : states, explore.removeFirst(), modelSimple, justReach,
+					distinguishActions, progress, threads) - 1;
+		}
 		while (!explore.isEmpty()) {
 			// Pick next state to explore
 			// (they are stored in order found so know index is src+1)
@@ -213,18 +262,28 @@ public class ConstructModel
 				// Look at each transition in the choice
 				nt = engine.getNumTransitions(i);
 				for (j = 0; j < nt; j++) {
-					stateNew = engine.computeTransitionTarget(i, j);
+					engine.computeTransitionTarget(i, j, stateNew);
 					// Is this a new state?
-					if (states.add(stateNew)) {
+					// (if so, the (packed) object is kept by the state set, so create a new one for next time)
+					if (packer != null) {
+						packer.pack(stateNew, packedStateNew);
+						isNew = packedStates.add(packedStateNew);
+						if (isNew)
+							packedStateNew = packer.createState();
+					} else {
+						isNew = states.add(stateNew);
+					}
+					if (isNew) {
 						// If so, add to the explore list
 						explore.add(stateNew);
+						stateNew = new State(varList.getNumVars());
 						// And to model
 						if (!justReach) {
 							modelSimple.addState();
 						}
 					}
 					// Get index of state in state set
-					dest = states.getIndexOfLastAdd();
+					dest = packer != null ? packedStates.getIndexOfLastAdd() : states.getIndexOfLastAdd();
 					// Add transitions to model
 					if (!justReach) {
 						switch (modelType) {
@@ -280,27 +339,50 @@ public class ConstructModel
 		boolean sort = true;
 		int permut[] = null;
 
-		if (sort) {
-			// Sort states and convert set to list
-			mainLog.println("Sorting reachable states list...");
-			permut = states.buildSortingPermutation();
-			statesList = states.toPermutedArrayList(permut);
-			//mainLog.println(permut);
+		if (packer != null) {
+			// Sort states (if required) and convert packed set to list
+			if (sort) {
+				mainLog.println("Sorting reachable states list...");
+				permut = packedStates.buildSortingPermutation();
+			}
+			List<PackedState> packedList = sort ? packedStates.toPermutedArrayList(permut) : packedStates.toArrayList();
+			packedStates.clear();
+			packedStates = null;
+			statesList = new ArrayList<State>(packedList.size());
+			for (PackedState s : packedList) {
+				statesList.add(packer.unpack(s));
+			}
 		} else {
-			statesList = states.toArrayList();
+			if (sort) {
+				// Sort states and convert set to list
+				mainLog.println("Sorting reachable states list...");
+				permut = states.buildSortingPermutation();
+				statesList = states.toPermutedArrayList(permut);
+				//mainLog.println(permut);
+			} else {
+				statesList = states.toArrayList();
+			}
+			states.clear();
+			states = null;
 		}
-		states.clear();
-		states = null;
 		//mainLog.println(statesList);
 
 		// Construct new explicit-state model (with correct state ordering)
 		if (!justReach) {
 			switch (modelType) {
 			case DTMC:
-				model = sort ? new DTMCSimple(dtmc, permut) : (DTMCSimple) dtmc;
+				if (buildSparse) {
+					model = sort ? new DTMCSparse(dtmc, true, permut) : new DTMCSparse(dtmc);
+				} else {
+					model = sort ? new DTMCSimple(dtmc, permut) : (DTMCSimple) dtmc;
+				}
 				break;
 			case CTMC:
-				model = sort ? new CTMCSimple(ctmc, permut) : (CTMCSimple) ctmc;
+				if (buildSparse) {
+					model = sort ? new CTMCSparse(ctmc, true, permut) : new CTMCSparse(ctmc);
+				} else {
+					model = sort ? new CTMCSimple(ctmc, permut) : (CTMCSimple) ctmc;
+				}
 				break;
 			case MDP:
 				if (buildSparse) {
@@ -324,6 +406,339 @@ public class ConstructModel
 		return model;
 	}
 
+	/**
+	 * Explore the state space in parallel, breadth-first, one level at a time.
+	 * The states of each level are split between workers, each with its own simulator engine,
+	 * which generate successors and look them up in {@code states} (which is only read during a level).
+	 * States not seen before are collected in a lock-striped table, along with the position
+	 * of the first transition leading to them (in the order of sequential exploration).
+	 * At the end of the level, new states are numbered in order of these positions and transitions
+	 * are added to the model in order of their source states, so the result is identical to that
+	 * of sequential exploration.
+	 * @param modulesFile The PRISM model
+	 * @param packer State packer (null if states are stored as State objects)
+	 * @param states State storage, already containing the initial state
+	 * @param initialState The initial state
+	 * @param modelSimple Model storage, already containing the initial state (ignored if {@code justReach})
+	 * @param justReach If true, just build the reachable state set, not the model
+	 * @param distinguishActions True if actions should be attached to distributions (and used to distinguish them)
+	 * @param progress Progress display
+	 * @param threads Number of threads
+	 * @return The number of states
+	 */
+	private int exploreParallel(ModulesFile modulesFile, StatePacker packer, IndexedSet<?> states, State initialState, ModelSimple modelSimple,
+			boolean justReach, boolean distinguishActions, ProgressDisplay progress, int threads) throws PrismException
+	{
+		@SuppressWarnings("unchecked")
+		IndexedSet<Object> set = (IndexedSet<Object>) states;
+		NewStateTable table = new NewStateTable(STRIPES_PER_THREAD * threads);
+		List<ExploreWorker> workers = new ArrayList<ExploreWorker>();
+		List<NewState> newStates = new ArrayList<NewState>();
+		List<Object> level = new ArrayList<Object>();
+		int t, levelStart, levelSize;
+
+		// Create workers (their simulator engines are set up here, one at a time)
+		for (t = 0; t < threads; t++) {
+			workers.add(new ExploreWorker(modulesFile, packer, set, table, !justReach, distinguishActions));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		// First level is just the initial state, with index 0
+		level.add(packer != null ? packer.pack(initialState) : initialState);
+		levelStart = 0;
+		try {
+			while (!level.isEmpty()) {
+				// Explore level, split into contiguous blocks, one per worker
+				levelSize = level.size();
+				for (t = 0; t < threads; t++) {
+					workers.get(t).startLevel(level, (int) ((long) levelSize * t / threads), (int) ((long) levelSize * (t + 1) / threads), levelStart);
+				}
+				try {
+					for (Future<Void> future : executor.invokeAll(workers)) {
+						future.get();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new PrismException("Model construction has been interrupted");
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof PrismException) {
+						throw (PrismException) e.getCause();
+					}
+					throw new PrismException("Error during model construction: " + e.getCause());
+				}
+				// Number new states in the order in which sequential exploration finds them
+				newStates.clear();
+				for (ExploreWorker worker : workers) {
+					newStates.addAll(worker.created);
+				}
+				Collections.sort(newStates, new Comparator<NewState>()
+				{
+					@Override
+					public int compare(NewState s1, NewState s2)
+					{
+						return s1.pos < s2.pos ? -1 : s1.pos > s2.pos ? 1 : 0;
+					}
+				});
+				table.clear();
+				for (NewState newState : newStates) {
+					set.add(newState.key);
+					newState.index = set.getIndexOfLastAdd();
+					if (!justReach) {
+						modelSimple.addState();
+					}
+				}
+				// Add transitions to model
+				if (!justReach) {
+					for (ExploreWorker worker : workers) {
+						worker.addTransitions(modelSimple);
+					}
+				}
+				// Move on to next level
+				levelStart += levelSize;
+				level = new ArrayList<Object>(newStates.size());
+				for (NewState newState : newStates) {
+					level.add(newState.key);
+				}
+				// Print some progress info occasionally
+				progress.updateIfReady(levelStart);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return levelStart;
+	}
+
+	/**
+	 * A state found during the current level of parallel exploration, which was not known before it.
+	 */
+	private static class NewState
+	{
+		// The state (PackedState or State object)
+		private final Object key;
+		// Position of the first transition to the state (in the order of sequential exploration):
+		// index of the source state within the level (upper 32 bits) and of the transition within the source (lower 32 bits)
+		private long pos;
+		// Index of the state (once numbered, at the end of the level)
+		private int index = -1;
+
+		private NewState(Object key, long pos)
+		{
+			this.key = key;
+			this.pos = pos;
+		}
+	}
+
+	/**
+	 * Lock-striped table of the states found during the current level of parallel exploration.
+	 */
+	private static class NewStateTable
+	{
+		private final List<HashMap<Object, NewState>> stripes;
+
+		private NewStateTable(int numStripes)
+		{
+			stripes = new ArrayList<HashMap<Object, NewState>>(numStripes);
+			for (int i = 0; i < numStripes; i++) {
+				stripes.add(new HashMap<Object, NewState>());
+			}
+		}
+
+		/**
+		 * Add a state, reached by a transition at position {@code pos}, unless it is already present,
+		 * in which case the position is updated if it is earlier. States that are added are also put in {@code created}.
+		 */
+		private NewState add(Object key, long pos, List<NewState> created)
+		{
+			HashMap<Object, NewState> stripe = stripes.get((key.hashCode() & 0x7fffffff) % stripes.size());
+			synchronized (stripe) {
+				NewState newState = stripe.get(key);
+				if (newState == null) {
+					newState = new NewState(key, pos);
+					stripe.put(key, newState);
+					created.add(newState);
+				} else if (pos < newState.pos) {
+					newState.pos = pos;
+				}
+				return newState;
+			}
+		}
+
+		private void clear()
+		{
+			for (HashMap<Object, NewState> stripe : stripes) {
+				stripe.clear();
+			}
+		}
+	}
+
+	/**
+	 * Explores a block of states from the current level of parallel exploration,
+	 * using its own simulator engine, and stores their transitions until they are added to the model.
+	 */
+	private class ExploreWorker implements Callable<Void>
+	{
+		private final SimulatorEngine engine;
+		private final ModelType modelType;
+		private final StatePacker packer;
+		private final IndexedSet<Object> set;
+		private final NewStateTable table;
+		private final boolean storeTransitions;
+		private final boolean storeActions;
+		private State stateNew;
+		private PackedState packedStateNew;
+		// Current block: states lo...hi-1 of the level, whose first state has index levelStart
+		private List<Object> level;
+		private int lo, hi, levelStart;
+		// Transitions of the block: number of choices per state, size (and action) per choice,
+		// and target/probability per transition, where a target is the index of a known state
+		// or -(i+1) for the i-th element of refs (a state that is new in this level)
+		private int numChoices[] = new int[16];
+		private int choiceSizes[] = new int[16];
+		private String actions[] = new String[16];
+		private int targets[] = new int[16];
+		private double probs[] = new double[16];
+		private List<NewState> refs = new ArrayList<NewState>();
+		// States added to the table by this worker
+		private List<NewState> created = new ArrayList<NewState>();
+
+		private ExploreWorker(ModulesFile modulesFile, StatePacker packer, IndexedSet<Object> set, NewStateTable table, boolean storeTransitions,
+				boolean storeActions) throws PrismException
+		{
+			engine = new SimulatorEngine(ConstructModel.this.engine.getPrism());
+			engine.createNewOnTheFlyPath(modulesFile);
+			modelType = modulesFile.getModelType();
+			this.packer = packer;
+			this.set = set;
+			this.table = table;
+			this.storeTransitions = storeTransitions;
+			this.storeActions = storeTransitions && storeActions && (modelType == ModelType.MDP || modelType == ModelType.CTMDP);
+			stateNew = new State(modulesFile.createVarList().getNumVars());
+			if (packer != null) {
+				packedStateNew = packer.createState();
+			}
+		}
+
+		private void startLevel(List<Object> level, int lo, int hi, int levelStart)
+		{
+			this.level = level;
+			this.lo = lo;
+			this.hi = hi;
+			this.levelStart = levelStart;
+		}
+
+		@Override
+		public Void call() throws PrismException
+		{
+			State state;
+			Object key;
+			NewState newState;
+			int i, j, k, nc, nt, dest, c, tr, offset;
+
+			refs.clear();
+			created.clear();
+			if (numChoices.length < hi - lo) {
+				numChoices = new int[hi - lo];
+			}
+			c = tr = 0;
+			for (k = lo; k < hi; k++) {
+				state = packer != null ? packer.unpack((PackedState) level.get(k)) : (State) level.get(k);
+				// Use simulator to explore all choices/transitions from this state
+				engine.initialisePath(state);
+				nc = engine.getNumChoices();
+				numChoices[k - lo] = nc;
+				offset = 0;
+				for (i = 0; i < nc; i++) {
+					nt = engine.getNumTransitions(i);
+					if (storeTransitions) {
+						if (c == choiceSizes.length) {
+							choiceSizes = Arrays.copyOf(choiceSizes, 2 * c);
+							actions = Arrays.copyOf(actions, 2 * c);
+						}
+						choiceSizes[c] = nt;
+						actions[c] = storeActions ? engine.getTransitionAction(i, 0) : null;
+						c++;
+					}
+					for (j = 0; j < nt; j++, offset++) {
+						engine.computeTransitionTarget(i, j, stateNew);
+						// Look up the state; if not known, add to/update the table of new states
+						if (packer != null) {
+							packer.pack(stateNew, packedStateNew);
+							dest = set.getIndex(packedStateNew);
+						} else {
+							dest = set.getIndex(stateNew);
+						}
+						if (dest == -1) {
+							key = packer != null ? packer.pack(stateNew) : new State(stateNew);
+							newState = table.add(key, ((long) k << 32) | offset, created);
+							if (storeTransitions) {
+								refs.add(newState);
+								dest = -refs.size();
+							}
+						}
+						if (storeTransitions) {
+							if (tr == targets.length) {
+								targets = Arrays.copyOf(targets, 2 * tr);
+								probs = Arrays.copyOf(probs, 2 * tr);
+							}
+							targets[tr] = dest;
+							probs[tr] = engine.getTransitionProbability(i, j);
+							tr++;
+						}
+					}
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Add the transitions of the block to the model (once new states have been numbered).
+		 */
+		private void addTransitions(ModelSimple modelSimple)
+		{
+			Distribution distr = null;
+			int i, j, k, src, dest, c, tr;
+
+			c = tr = 0;
+			for (k = lo; k < hi; k++) {
+				src = levelStart + k;
+				for (i = 0; i < numChoices[k - lo]; i++, c++) {
+					if (modelType == ModelType.MDP || modelType == ModelType.CTMDP) {
+						distr = new Distribution();
+					}
+					for (j = 0; j < choiceSizes[c]; j++, tr++) {
+						dest = targets[tr] >= 0 ? targets[tr] : refs.get(-targets[tr] - 1).index;
+						switch (modelType) {
+						case DTMC:
+							((DTMCSimple) modelSimple).addToProbability(src, dest, probs[tr]);
+							break;
+						case CTMC:
+							((CTMCSimple) modelSimple).addToProbability(src, dest, probs[tr]);
+							break;
+						case MDP:
+						case CTMDP:
+							distr.add(dest, probs[tr]);
+							break;
+						}
+					}
+					if (modelType == ModelType.MDP) {
+						if (storeActions) {
+							((MDPSimple) modelSimple).addActionLabelledChoice(src, distr, actions[c]);
+						} else {
+							((MDPSimple) modelSimple).addChoice(src, distr);
+						}
+					} else if (modelType == ModelType.CTMDP) {
+						if (storeActions) {
+							((CTMDPSimple) modelSimple).addActionLabelledChoice(src, distr, actions[c]);
+						} else {
+							((CTMDPSimple) modelSimple).addChoice(src, distr);
+						}
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * Test method.
 	 */
@@ -669,11 +669,17 @@ public class DTMCModelChecker extends ProbModelChecker
 		LinEqMethod linEqMethod = this.linEqMethod;
 
 		// Switch to a supported method, if necessary
-		if (!(linEqMethod == LinEqMethod.POWER || linEqMethod == LinEqMethod.GAUSS_SEIDEL)) {
+		if (!(linEqMethod == LinEqMethod.POWER || linEqMethod == LinEqMethod.GAUSS_SEIDEL || linEqMethod == LinEqMethod.TOPOLOGICAL
+				|| linEqMethod == LinEqMethod.INTERVAL_ITERATION)) {
 			linEqMethod = LinEqMethod.GAUSS_SEIDEL;
 			mainLog.printWarning("Switching to linear equation solution method \"" + linEqMethod.fullName() + "\"");
 		}
 
+		// Check for some unsupported combinations
+		if (linEqMethod == LinEqMethod.INTERVAL_ITERATION && !(precomp && prob0)) {
+			throw new PrismException("Precomputation (Prob0) must be enabled for interval iteration");
+		}
+
 		// Start probabilistic reachability
 		timer = System.currentTimeMillis();
 		mainLog.println("\nStarting probabilistic reachability...");
@@ -722,6 +728,12 @@ public class DTMCModelChecker extends ProbModelChecker
 		case GAUSS_SEIDEL:
 			res = computeReachProbsGaussSeidel(dtmc, no, yes, init, known);
 			break;
+		case TOPOLOGICAL:
+			res = computeReachProbsTopological(dtmc, no, yes, init, known);
+			break;
+		case INTERVAL_ITERATION:
+			res = computeReachProbsIntervalIter(dtmc, no, yes, init, known);
+			break;
 		default:
 			throw new PrismException("Unknown linear equation solution method " + linEqMethod.fullName());
 		}
@@ -934,15 +946,31 @@ public class DTMCModelChecker extends ProbModelChecker
 		if (known != null)
 			unknown.andNot(known);
 
+		// Set up matrix-vector multiplication (multi-threaded, if enabled)
+		ParallelMatrixVector parMult = createParallelMatrixVector(unknown, numThreads);
+		ParallelMatrixVector.Row row = new ParallelMatrixVector.Row()
+		{
+			@Override
+			public double compute(int s, double vect[])
+			{
+				return dtmc.mvMultSingle(s, vect);
+			}
+		};
+
 		// Start iterations
 		iters = 0;
 		done = false;
 		while (!done && iters < maxIters) {
 			iters++;
-			// Matrix-vector multiply
-			dtmc.mvMult(soln, soln2, unknown, false);
-			// Check termination
-			done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			if (parMult.isParallel()) {
+				// Matrix-vector multiply (split over threads), then check termination
+				done = parMult.mvMult(row, soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			} else {
+				// Matrix-vector multiply
+				dtmc.mvMult(soln, soln2, unknown, false);
+				// Check termination
+				done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			}
 			// Swap vectors for next iter
 			tmpsoln = soln;
 			soln = soln2;
@@ -1053,6 +1081,165 @@ public class DTMCModelChecker extends ProbModelChecker
 		return res;
 	}
 
+	/**
+	 * Compute reachability probabilities using topological solution: the states are split into
+	 * strongly connected components (SCCs), which are solved one at a time, in reverse topological order.
+	 * Single-state SCCs without a self-loop are solved in one step; the others by (in-place) Gauss-Seidel.
+	 * @param dtmc The DTMC
+	 * @param no Probability 0 states
+	 * @param yes Probability 1 states
+	 * @param init Optionally, an initial solution vector (will be overwritten) 
+	 * @param known Optionally, a set of states for which the exact answer is known
+	 * Note: if 'known' is specified (i.e. is non-null, 'init' must also be given and is used for the exact values.  
+	 */
+	protected ModelCheckerResult computeReachProbsTopological(final DTMC dtmc, BitSet no, BitSet yes, double init[], BitSet known) throws PrismException
+	{
+		BitSet unknown;
+		int i, n;
+		double soln[], initVal;
+		long timer;
+
+		// Start topological solution
+		timer = System.currentTimeMillis();
+		mainLog.println("Starting topological Gauss-Seidel...");
+
+		// Store num states
+		n = dtmc.getNumStates();
+
+		// Create solution vector
+		soln = (init == null) ? new double[n] : init;
+
+		// Initialise solution vector. Use (where available) the following in order of preference:
+		// (1) exact answer, if already known; (2) 1.0/0.0 if in yes/no; (3) passed in initial value; (4) initVal
+		// where initVal is 0.0 or 1.0, depending on whether we converge from below/above. 
+		initVal = (valIterDir == ValIterDir.BELOW) ? 0.0 : 1.0;
+		if (init != null) {
+			if (known != null) {
+				for (i = 0; i < n; i++)
+					soln[i] = known.get(i) ? init[i] : yes.get(i) ? 1.0 : no.get(i) ? 0.0 : init[i];
+			} else {
+				for (i = 0; i < n; i++)
+					soln[i] = yes.get(i) ? 1.0 : no.get(i) ? 0.0 : init[i];
+			}
+		} else {
+			for (i = 0; i < n; i++)
+				soln[i] = yes.get(i) ? 1.0 : no.get(i) ? 0.0 : initVal;
+		}
+
+		// Determine set of states actually need to compute values for
+		unknown = new BitSet();
+		unknown.set(0, n);
+		unknown.andNot(yes);
+		unknown.andNot(no);
+		if (known != null)
+			unknown.andNot(known);
+
+		// Solve SCCs in turn, updating states with a Jacobi step
+		TopologicalUpdate update = new TopologicalUpdate()
+		{
+			@Override
+			public double update(int s, double soln[])
+			{
+				return dtmc.mvMultJacSingle(s, soln);
+			}
+		};
+		return solveTopological(dtmc, unknown, soln, update, null, timer);
+	}
+
+	/**
+	 * Compute reachability probabilities using interval iteration, i.e. simultaneous
+	 * (Gauss-Seidel style) value iteration from below and above. Unlike value iteration,
+	 * termination means that the two bounds on the actual values are within the required
+	 * precision of each other; the midpoint of the bounds is returned.
+	 * Convergence from above requires that "no" contains all probability 0 states
+	 * (so that there are no bottom SCCs left amongst the remaining states).
+	 * @param dtmc The DTMC
+	 * @param no Probability 0 states
+	 * @param yes Probability 1 states
+	 * @param init Optionally, an initial solution vector (will be overwritten) 
+	 * @param known Optionally, a set of states for which the exact answer is known
+	 * Note: if 'known' is specified (i.e. is non-null, 'init' must also be given and is used for the exact values.  
+	 */
+	protected ModelCheckerResult computeReachProbsIntervalIter(DTMC dtmc, BitSet no, BitSet yes, double init[], BitSet known) throws PrismException
+	{
+		ModelCheckerResult res;
+		BitSet unknown;
+		int i, n, iters;
+		double lower[], upper[];
+		boolean done;
+		long timer;
+
+		// Start interval iteration
+		timer = System.currentTimeMillis();
+		mainLog.println("Starting interval iteration...");
+
+		// Store num states
+		n = dtmc.getNumStates();
+
+		// Create solution vectors for lower/upper bounds
+		lower = (init == null) ? new double[n] : init;
+		upper = new double[n];
+
+		// Initialise solution vectors. Use (where available) the following in order of preference:
+		// (1) exact answer, if already known; (2) 1.0/0.0 if in yes/no; (3) 0.0/1.0 for lower/upper bound
+		for (i = 0; i < n; i++) {
+			if (known != null && known.get(i)) {
+				upper[i] = lower[i];
+			} else {
+				lower[i] = yes.get(i) ? 1.0 : 0.0;
+				upper[i] = no.get(i) ? 0.0 : 1.0;
+			}
+		}
+
+		// Determine set of states actually need to compute values for
+		unknown = new BitSet();
+		unknown.set(0, n);
+		unknown.andNot(yes);
+		unknown.andNot(no);
+		if (known != null)
+			unknown.andNot(known);
+
+		// Start iterations
+		iters = 0;
+		done = false;
+		while (!done && iters < maxIters) {
+			iters++;
+			done = true;
+			for (i = unknown.nextSetBit(0); i >= 0; i = unknown.nextSetBit(i + 1)) {
+				// Update both bounds in place, keeping them monotonic
+				lower[i] = Math.max(lower[i], dtmc.mvMultSingle(i, lower));
+				upper[i] = Math.min(upper[i], dtmc.mvMultSingle(i, upper));
+				// Check termination (bounds close enough)
+				if (done && !PrismUtils.doublesAreClose(upper[i], lower[i], termCritParam, termCrit == TermCrit.ABSOLUTE))
+					done = false;
+			}
+		}
+
+		// Finished interval iteration
+		timer = System.currentTimeMillis() - timer;
+		mainLog.print("Interval iteration");
+		mainLog.println(" took " + iters + " iterations and " + timer / 1000.0 + " seconds.");
+
+		// Non-convergence is an error
+		if (!done) {
+			String msg = "Iterative method did not converge within " + iters + " iterations.";
+			msg += "\nConsider using a different numerical method or increasing the maximum number of iterations";
+			throw new PrismException(msg);
+		}
+
+		// Use midpoint of bounds as the result
+		for (i = unknown.nextSetBit(0); i >= 0; i = unknown.nextSetBit(i + 1)) {
+			lower[i] = (lower[i] + upper[i]) / 2.0;
+		}
+
+		// Return results
+		res = new ModelCheckerResult();
+		res.soln = lower;
+		res.numIters = iters;
+		res.timeTaken = timer / 1000.0;
+		return res;
+	}
+
 	/**
 	 * Compute bounded reachability probabilities.
 	 * i.e. compute the probability of reaching a state in {@code target} within k steps.
@@ -1195,7 +1382,7 @@ public class DTMCModelChecker extends ProbModelChecker
 		LinEqMethod linEqMethod = this.linEqMethod;
 
 		// Switch to a supported method, if necessary
-		if (!(linEqMethod == LinEqMethod.POWER)) {
+		if (!(linEqMethod == LinEqMethod.POWER || linEqMethod == LinEqMethod.TOPOLOGICAL)) {
 			linEqMethod = LinEqMethod.POWER;
 			mainLog.printWarning("Switching to linear equation solution method \"" + linEqMethod.fullName() + "\"");
 		}
@@ -1235,6 +1422,9 @@ public class DTMCModelChecker extends ProbModelChecker
 		case POWER:
 			res = computeReachRewardsValIter(dtmc, mcRewards, target, inf, init, known);
 			break;
+		case TOPOLOGICAL:
+			res = computeReachRewardsTopological(dtmc, mcRewards, target, inf, init, known);
+			break;
 		default:
 			throw new PrismException("Unknown linear equation solution method " + linEqMethod.fullName());
 		}
@@ -1304,16 +1494,31 @@ public class DTMCModelChecker extends ProbModelChecker
 		if (known != null)
 			unknown.andNot(known);
 
+		// Set up matrix-vector multiplication (multi-threaded, if enabled)
+		ParallelMatrixVector parMult = createParallelMatrixVector(unknown, numThreads);
+		ParallelMatrixVector.Row row = new ParallelMatrixVector.Row()
+		{
+			@Override
+			public double compute(int s, double vect[])
+			{
+				return dtmc.mvMultRewSingle(s, vect, mcRewards);
+			}
+		};
+
 		// Start iterations
 		iters = 0;
 		done = false;
 		while (!done && iters < maxIters) {
-			//mainLog.println(soln);
 			iters++;
-			// Matrix-vector multiply
-			dtmc.mvMultRew(soln, mcRewards, soln2, unknown, false);
-			// Check termination
-			done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			if (parMult.isParallel()) {
+				// Matrix-vector multiply (split over threads), then check termination
+				done = parMult.mvMult(row, soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			} else {
+				// Matrix-vector multiply
+				dtmc.mvMultRew(soln, mcRewards, soln2, unknown, false);
+				// Check termination
+				done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			}
 			// Swap vectors for next iter
 			tmpsoln = soln;
 			soln = soln2;
@@ -1340,6 +1545,71 @@ public class DTMCModelChecker extends ProbModelChecker
 		return res;
 	}
 
+	/**
+	 * Compute expected reachability rewards using topological solution: the states are split into
+	 * strongly connected components (SCCs), which are solved one at a time, in reverse topological order.
+	 * Single-state SCCs without a self-loop are solved in one step; the others by (in-place) Gauss-Seidel.
+	 * @param dtmc The DTMC
+	 * @param mcRewards The rewards
+	 * @param target Target states
+	 * @param inf States for which reward is infinite
+	 * @param init Optionally, an initial solution vector (will be overwritten) 
+	 * @param known Optionally, a set of states for which the exact answer is known
+	 * Note: if 'known' is specified (i.e. is non-null, 'init' must also be given and is used for the exact values.
+	 */
+	protected ModelCheckerResult computeReachRewardsTopological(final DTMC dtmc, final MCRewards mcRewards, BitSet target, BitSet inf, double init[], BitSet known)
+			throws PrismException
+	{
+		BitSet unknown;
+		int i, n;
+		double soln[];
+		long timer;
+
+		// Start topological solution
+		timer = System.currentTimeMillis();
+		mainLog.println("Starting topological Gauss-Seidel...");
+
+		// Store num states
+		n = dtmc.getNumStates();
+
+		// Create solution vector
+		soln = (init == null) ? new double[n] : init;
+
+		// Initialise solution vector. Use (where available) the following in order of preference:
+		// (1) exact answer, if already known; (2) 0.0/infinity if in target/inf; (3) passed in initial value; (4) 0.0
+		if (init != null) {
+			if (known != null) {
+				for (i = 0; i < n; i++)
+					soln[i] = known.get(i) ? init[i] : target.get(i) ? 0.0 : inf.get(i) ? Double.POSITIVE_INFINITY : init[i];
+			} else {
+				for (i = 0; i < n; i++)
+					soln[i] = target.get(i) ? 0.0 : inf.get(i) ? Double.POSITIVE_INFINITY : init[i];
+			}
+		} else {
+			for (i = 0; i < n; i++)
+				soln[i] = target.get(i) ? 0.0 : inf.get(i) ? Double.POSITIVE_INFINITY : 0.0;
+		}
+
+		// Determine set of states actually need to compute values for
+		unknown = new BitSet();
+		unknown.set(0, n);
+		unknown.andNot(target);
+		unknown.andNot(inf);
+		if (known != null)
+			unknown.andNot(known);
+
+		// Solve SCCs in turn
+		TopologicalUpdate update = new TopologicalUpdate()
+		{
+			@Override
+			public double update(int s, double soln[])
+			{
+				return dtmc.mvMultRewSingle(s, soln, mcRewards);
+			}
+		};
+		return solveTopological(dtmc, unknown, soln, update, null, timer);
+	}
+
 	/**
 	 * Compute (forwards) steady-state probabilities
 	 * i.e. compute the long-run probability of being in each state,
@@ -0,0 +1,577 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <david.parker@comlab.ox.ac.uk> (University of Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package explicit;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import prism.PrismException;
+import explicit.rewards.MCRewards;
+
+/**
+ * Sparse matrix (non-mutable) explicit-state representation of a DTMC,
+ * stored in compressed sparse row (CSR) form.
+ * This is much faster to access than e.g. DTMCSimple and should also be more compact.
+ * The catch is that you have to create the model all in one go and then can't modify it.
+ */
+public class DTMCSparse extends DTMCExplicit
+{
+	// Sparse matrix storing transition function
+	/** Probabilities for each transition (array of size numTransitions) */
+	protected double nonZeros[];
+	/** Column (destination) indices for each transition (array of size numTransitions) */
+	protected int cols[];
+	/** Indices into nonZeros/cols giving the start of the transitions for each state;
+	 * array is of size numStates+1 and last entry is always equal to numTransitions */
+	protected int rowStarts[];
+
+	// Other statistics
+	protected int numTransitions;
+
+	// Constructors
+
+	/**
+	 * Constructor: empty DTMC.
+	 */
+	public DTMCSparse()
+	{
+		initialise(0);
+	}
+
+	/**
+	 * Copy constructor (from DTMCSimple).
+	 */
+	public DTMCSparse(DTMCSimple dtmc)
+	{
+		this(dtmc, false);
+	}
+
+	/**
+	 * Copy constructor (from DTMCSimple). Optionally, transitions
+	 * are sorted (by ascending order of column index).
+	 * @param dtmc The DTMC to copy
+	 * @param sort Whether or not to sort column indices
+	 */
+	public DTMCSparse(DTMCSimple dtmc, boolean sort)
+	{
+		initialise(dtmc.getNumStates());
+		copyFrom(dtmc);
+		copyTransitions(dtmc, sort, null);
+	}
+
+	/**
+	 * Copy constructor (from DTMCSimple). Optionally, transitions
+	 * are sorted (by ascending order of column index). Also, optionally, a state
+	 * index permutation can be provided, i.e. old state index i becomes index permut[i].
+	 * Note: a states list, if present, will not be permuted and should be set
+	 * separately afterwards if required.
+	 * @param dtmc The DTMC to copy
+	 * @param sort Whether or not to sort column indices
+	 * @param permut State space permutation
+	 */
+	public DTMCSparse(DTMCSimple dtmc, boolean sort, int permut[])
+	{
+		initialise(dtmc.getNumStates());
+		copyFrom(dtmc, permut);
+		copyTransitions(dtmc, sort, permut);
+	}
+
+	/**
+	 * Constructor: create from existing sparse matrix arrays (which are not copied),
+	 * taking all other model info from {@code model}.
+	 * @param model Model to copy initial states, deadlocks, etc. from
+	 * @param rowStarts Indices into {@code nonZeros}/{@code cols} giving the start of the transitions for each state
+	 * @param cols Column (destination) indices for each transition
+	 * @param nonZeros Probabilities for each transition
+	 */
+	protected DTMCSparse(ModelExplicit model, int rowStarts[], int cols[], double nonZeros[])
+	{
+		initialise(model.getNumStates());
+		copyFrom(model);
+		this.rowStarts = rowStarts;
+		this.cols = cols;
+		this.nonZeros = nonZeros;
+		numTransitions = nonZeros.length;
+	}
+
+	/**
+	 * Copy the transition function of a DTMCSimple into sparse matrix form.
+	 * @param dtmc The DTMC to copy
+	 * @param sort Whether or not to sort column indices
+	 * @param permut State space permutation (ignored if null)
+	 */
+	private void copyTransitions(DTMCSimple dtmc, boolean sort, int permut[])
+	{
+		int i, j, k;
+		TreeMap<Integer, Double> sorted = null;
+		int permutInv[] = null;
+		// Compute the inverse of the permutation
+		if (permut != null) {
+			permutInv = new int[numStates];
+			for (i = 0; i < numStates; i++) {
+				permutInv[permut[i]] = i;
+			}
+		}
+		// Copy transition function
+		if (sort) {
+			sorted = new TreeMap<Integer, Double>();
+		}
+		numTransitions = dtmc.getNumTransitions();
+		nonZeros = new double[numTransitions];
+		cols = new int[numTransitions];
+		rowStarts = new int[numStates + 1];
+		k = 0;
+		for (i = 0; i < numStates; i++) {
+			rowStarts[i] = k;
+			for (Map.Entry<Integer, Double> e : dtmc.trans.get(permut == null ? i : permutInv[i])) {
+				j = permut == null ? e.getKey() : permut[e.getKey()];
+				if (sort) {
+					sorted.put(j, e.getValue());
+				} else {
+					cols[k] = j;
+					nonZeros[k] = e.getValue();
+					k++;
+				}
+			}
+			if (sort) {
+				for (Map.Entry<Integer, Double> e : sorted.entrySet()) {
+					cols[k] = e.getKey();
+					nonZeros[k] = e.getValue();
+					k++;
+				}
+				sorted.clear();
+			}
+		}
+		rowStarts[numStates] = numTransitions;
+	}
+
+	// Mutators (other)
+
+	@Override
+	public void initialise(int numStates)
+	{
+		super.initialise(numStates);
+		numTransitions = 0;
+		nonZeros = new double[0];
+		cols = new int[0];
+		rowStarts = new int[numStates + 1];
+	}
+
+	@Override
+	public void buildFromPrismExplicit(String filename) throws PrismException
+	{
+		// Build a DTMCSimple first, then copy it
+		DTMCSimple dtmc = new DTMCSimple();
+		dtmc.buildFromPrismExplicit(filename);
+		initialise(dtmc.getNumStates());
+		copyFrom(dtmc);
+		copyTransitions(dtmc, true, null);
+	}
+
+	// Accessors (for Model)
+
+	@Override
+	public int getNumTransitions()
+	{
+		return numTransitions;
+	}
+
+	@Override
+	public Iterator<Integer> getSuccessorsIterator(final int s)
+	{
+		// Each successor appears only once in a row, so no need to remove duplicates
+		return new Iterator<Integer>()
+		{
+			int col = rowStarts[s];
+			final int end = rowStarts[s + 1];
+
+			@Override
+			public boolean hasNext()
+			{
+				return col < end;
+			}
+
+			@Override
+			public Integer next()
+			{
+				assert (col < end);
+				return cols[col++];
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public boolean isSuccessor(int s1, int s2)
+	{
+		int k, l, h;
+		l = rowStarts[s1];
+		h = rowStarts[s1 + 1];
+		for (k = l; k < h; k++) {
+			// Assume that only non-zero entries are stored
+			if (cols[k] == s2) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean allSuccessorsInSet(int s, BitSet set)
+	{
+		int k, l, h;
+		l = rowStarts[s];
+		h = rowStarts[s + 1];
+		for (k = l; k < h; k++) {
+			// Assume that only non-zero entries are stored
+			if (!set.get(cols[k])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean someSuccessorsInSet(int s, BitSet set)
+	{
+		int k, l, h;
+		l = rowStarts[s];
+		h = rowStarts[s + 1];
+		for (k = l; k < h; k++) {
+			// Assume that only non-zero entries are stored
+			if (set.get(cols[k])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void findDeadlocks(boolean fix) throws PrismException
+	{
+		for (int i = 0; i < numStates; i++) {
+			if (rowStarts[i] == rowStarts[i + 1]) {
+				addDeadlockState(i);
+				if (fix) {
+					throw new PrismException("Can't fix deadlocks in a " + getClass().getSimpleName() + " since it cannot be modified after construction");
+				}
+			}
+		}
+	}
+
+	@Override
+	public void checkForDeadlocks(BitSet except) throws PrismException
+	{
+		for (int i = 0; i < numStates; i++) {
+			if (rowStarts[i] == rowStarts[i + 1] && (except == null || !except.get(i)))
+				throw new PrismException(getModelType() + " has a deadlock in state " + i);
+		}
+	}
+
+	// Accessors (for DTMC)
+
+	@Override
+	public double getNumTransitions(int s)
+	{
+		return rowStarts[s + 1] - rowStarts[s];
+	}
+
+	@Override
+	public Iterator<Entry<Integer, Double>> getTransitionsIterator(final int s)
+	{
+		return new Iterator<Entry<Integer, Double>>()
+		{
+			int col = rowStarts[s];
+			final int end = rowStarts[s + 1];
+
+			@Override
+			public boolean hasNext()
+			{
+				return col < end;
+			}
+
+			@Override
+			public Entry<Integer, Double> next()
+			{
+				assert (col < end);
+				final int i = col;
+				col++;
+				return new Entry<Integer, Double>()
+				{
+					int key = cols[i];
+					double value = nonZeros[i];
+
+					@Override
+					public Integer getKey()
+					{
+						return key;
+					}
+
+					@Override
+					public Double getValue()
+					{
+						return value;
+					}
+
+					@Override
+					public Double setValue(Double arg0)
+					{
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public void prob0step(BitSet subset, BitSet u, BitSet result)
+	{
+		for (int i = subset.nextSetBit(0); i >= 0; i = subset.nextSetBit(i + 1)) {
+			result.set(i, someSuccessorsInSet(i, u));
+		}
+	}
+
+	@Override
+	public void prob1step(BitSet subset, BitSet u, BitSet v, BitSet result)
+	{
+		for (int i = subset.nextSetBit(0); i >= 0; i = subset.nextSetBit(i + 1)) {
+			result.set(i, someSuccessorsInSet(i, v) && allSuccessorsInSet(i, u));
+		}
+	}
+
+	@Override
+	public void mvMult(double vect[], double result[], BitSet subset, boolean complement)
+	{
+		int s, k, l, h;
+		double d;
+		// For the common case of all rows, iterate over the arrays directly
+		if (subset == null) {
+			h = rowStarts[0];
+			for (s = 0; s < numStates; s++) {
+				l = h;
+				h = rowStarts[s + 1];
+				d = 0.0;
+				for (k = l; k < h; k++) {
+					d += nonZeros[k] * vect[cols[k]];
+				}
+				result[s] = d;
+			}
+		} else {
+			super.mvMult(vect, result, subset, complement);
+		}
+	}
+
+	@Override
+	public double mvMultSingle(int s, double vect[])
+	{
+		int k, l, h;
+		double d;
+		l = rowStarts[s];
+		h = rowStarts[s + 1];
+		d = 0.0;
+		for (k = l; k < h; k++) {
+			d += nonZeros[k] * vect[cols[k]];
+		}
+		return d;
+	}
+
+	@Override
+	public double mvMultJacSingle(int s, double vect[])
+	{
+		int j, k, l, h;
+		double diag, d;
+		l = rowStarts[s];
+		h = rowStarts[s + 1];
+		diag = 1.0;
+		d = 0.0;
+		for (k = l; k < h; k++) {
+			j = cols[k];
+			if (j != s) {
+				d += nonZeros[k] * vect[j];
+			} else {
+				diag -= nonZeros[k];
+			}
+		}
+		if (diag > 0)
+			d /= diag;
+		return d;
+	}
+
+	@Override
+	public double mvMultGS(double vect[], BitSet subset, boolean complement, boolean absolute)
+	{
+		int s, j, k, l, h;
+		double diag, d, diff, maxDiff = 0.0;
+		// For the common case of all rows, iterate over the arrays directly
+		if (subset != null) {
+			return super.mvMultGS(vect, subset, complement, absolute);
+		}
+		h = rowStarts[0];
+		for (s = 0; s < numStates; s++) {
+			l = h;
+			h = rowStarts[s + 1];
+			diag = 1.0;
+			d = 0.0;
+			for (k = l; k < h; k++) {
+				j = cols[k];
+				if (j != s) {
+					d += nonZeros[k] * vect[j];
+				} else {
+					diag -= nonZeros[k];
+				}
+			}
+			if (diag > 0)
+				d /= diag;
+			diff = absolute ? (Math.abs(d - vect[s])) : (Math.abs(d - vect[s]) / d);
+			maxDiff = diff > maxDiff ? diff : maxDiff;
+			vect[s] = d;
+		}
+		return maxDiff;
+	}
+
+	@Override
+	public void mvMultRew(double vect[], MCRewards mcRewards, double result[], BitSet subset, boolean complement)
+	{
+		int s, k, l, h;
+		double d;
+		// For the common case of all rows, iterate over the arrays directly
+		if (subset == null) {
+			h = rowStarts[0];
+			for (s = 0; s < numStates; s++) {
+				l = h;
+				h = rowStarts[s + 1];
+				d = mcRewards.getStateReward(s);
+				for (k = l; k < h; k++) {
+					d += nonZeros[k] * vect[cols[k]];
+				}
+				result[s] = d;
+			}
+		} else {
+			super.mvMultRew(vect, mcRewards, result, subset, complement);
+		}
+	}
+
+	@Override
+	public double mvMultRewSingle(int s, double vect[], MCRewards mcRewards)
+	{
+		int k, l, h;
+		double d;
+		l = rowStarts[s];
+		h = rowStarts[s + 1];
+		d = mcRewards.getStateReward(s);
+		for (k = l; k < h; k++) {
+			d += nonZeros[k] * vect[cols[k]];
+		}
+		return d;
+	}
+
+	@Override
+	public void vmMult(double vect[], double result[])
+	{
+		int i, k, l, h;
+		double v;
+		// Initialise result to 0
+		for (i = 0; i < numStates; i++) {
+			result[i] = 0;
+		}
+		// Go through matrix elements (by row)
+		h = rowStarts[0];
+		for (i = 0; i < numStates; i++) {
+			l = h;
+			h = rowStarts[i + 1];
+			v = vect[i];
+			for (k = l; k < h; k++) {
+				result[cols[k]] += nonZeros[k] * v;
+			}
+		}
+	}
+
+	// Standard methods
+
+	@Override
+	public String toString()
+	{
+		int i, k, l, h;
+		String s = "";
+		s = "trans: [ ";
+		for (i = 0; i < numStates; i++) {
+			if (i > 0)
+				s += ", ";
+			s += i + ": {";
+			l = rowStarts[i];
+			h = rowStarts[i + 1];
+			for (k = l; k < h; k++) {
+				if (k > l)
+					s += ", ";
+				s += cols[k] + "=" + nonZeros[k];
+			}
+			s += "}";
+		}
+		s += " ]";
+		return s;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == null || !(o instanceof DTMCSparse))
+			return false;
+		if (!super.equals(o))
+			return false;
+		DTMCSparse dtmc = (DTMCSparse) o;
+		if (!Utils.doubleArraysAreEqual(nonZeros, dtmc.nonZeros))
+			return false;
+		if (!Utils.intArraysAreEqual(cols, dtmc.cols))
+			return false;
+		if (!Utils.intArraysAreEqual(rowStarts, dtmc.rowStarts))
+			return false;
+		return true;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		// Only the structure is hashed, so that hashCode is consistent with equals,
+		// which compares probabilities with == (0.0 and -0.0 are equal)
+		return 31 * Arrays.hashCode(rowStarts) + Arrays.hashCode(cols);
+	}
+}
@@ -37,6 +37,7 @@ import parser.State;
 public class IndexedSet<T>
 {
 	private Map<T, Integer> set;
+	private boolean sorted;
 	private int indexOfLastAdd;
 
 	public IndexedSet()
@@ -46,6 +47,7 @@ public class IndexedSet<T>
 
 	public IndexedSet(boolean sorted)
 	{
+		this.sorted = sorted;
 		set = sorted ? new TreeMap<T, Integer>() : new HashMap<T, Integer>();
 		indexOfLastAdd = -1;
 	}
@@ -73,6 +75,16 @@ public class IndexedSet<T>
 			return set.get(state) != null;
 	}
 
+	/**
+	 * Get the index of an object, or -1 if it is not in the set.
+	 * This does not modify the set, so can be called concurrently (as long as there are no adds).
+	 */
+	public int getIndex(T state)
+	{
+		Integer i = set.get(state);
+		return i == null ? -1 : i;
+	}
+
 	public int getIndexOfLastAdd()
 	{
 		return indexOfLastAdd;
@@ -156,10 +168,11 @@ public class IndexedSet<T>
 	}
 	
 	/**
-	 * Build sort permutation. Assuming this was built as a sorted set,
-	 * this returns a permutation (integer array) mapping current indices
-	 * to new indices under the sorting order.
+	 * Build sort permutation. This returns a permutation (integer array) mapping current indices
+	 * to new indices under the sorting order. If this was not built as a sorted set,
+	 * the objects are sorted first, so they must be {@link Comparable}.
 	 */
+	@SuppressWarnings("unchecked")
 	public int[] buildSortingPermutation()
 	{
 		int i, n;
@@ -168,8 +181,22 @@ public class IndexedSet<T>
 		n = set.size();
 		perm = new int[n];
 		i = 0;
-		for (Map.Entry<T, Integer> e : set.entrySet()) {
-			perm[e.getValue()] = i++;
+		if (sorted) {
+			for (Map.Entry<T, Integer> e : set.entrySet()) {
+				perm[e.getValue()] = i++;
+			}
+		} else {
+			List<Map.Entry<T, Integer>> entries = new ArrayList<Map.Entry<T, Integer>>(set.entrySet());
+			Collections.sort(entries, new Comparator<Map.Entry<T, Integer>>()
+			{
+				public int compare(Map.Entry<T, Integer> e1, Map.Entry<T, Integer> e2)
+				{
+					return ((Comparable<T>) e1.getKey()).compareTo(e2.getKey());
+				}
+			});
+			for (Map.Entry<T, Integer> e : entries) {
+				perm[e.getValue()] = i++;
+			}
 		}
 		
 		return perm;
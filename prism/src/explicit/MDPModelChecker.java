@@ -450,6 +450,12 @@ public class MDPModelChecker extends ProbModelChecker
 			if (!min)
 				throw new PrismException("Value iteration from above only works for minimum probabilities");
 		}
+		if (mdpSolnMethod == MDPSolnMethod.INTERVAL_ITERATION) {
+			if (!(precomp && prob0))
+				throw new PrismException("Precomputation (Prob0) must be enabled for interval iteration");
+			if (!min && (genStrat || exportAdv))
+				throw new PrismException("Interval iteration does not support strategy generation for maximum probabilities");
+		}
 
 		// Start probabilistic reachability
 		timer = System.currentTimeMillis();
@@ -525,6 +531,12 @@ public class MDPModelChecker extends ProbModelChecker
 			case GAUSS_SEIDEL:
 				res = computeReachProbsGaussSeidel(mdp, no, yes, min, init, known, strat);
 				break;
+			case TOPOLOGICAL:
+				res = computeReachProbsTopological(mdp, no, yes, min, init, known, strat);
+				break;
+			case INTERVAL_ITERATION:
+				res = computeReachProbsIntervalIter(mdp, no, yes, min, init, known, strat);
+				break;
 			case POLICY_ITERATION:
 				res = computeReachProbsPolIter(mdp, no, yes, min, strat);
 				break;
@@ -819,15 +831,31 @@ public class MDPModelChecker extends ProbModelChecker
 		if (known != null)
 			unknown.andNot(known);
 
+		// Set up matrix-vector multiplication (multi-threaded, if enabled)
+		ParallelMatrixVector parMult = createParallelMatrixVector(unknown, numThreads);
+		ParallelMatrixVector.Row row = new ParallelMatrixVector.Row()
+		{
+			@Override
+			public double compute(int s, double vect[])
+			{
+				return mdp.mvMultMinMaxSingle(s, vect, min, strat);
+			}
+		};
+
 		// Start iterations
 		iters = 0;
 		done = false;
 		while (!done && iters < maxIters) {
 			iters++;
-			// Matrix-vector multiply and min/max ops
-			mdp.mvMultMinMax(soln, min, soln2, unknown, false, strat);
-			// Check termination
-			done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			if (parMult.isParallel()) {
+				// Matrix-vector multiply and min/max ops (split over threads), then check termination
+				done = parMult.mvMult(row, soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			} else {
+				// Matrix-vector multiply and min/max ops
+				mdp.mvMultMinMax(soln, min, soln2, unknown, false, strat);
+				// Check termination
+				done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			}
 			// Swap vectors for next iter
 			tmpsoln = soln;
 			soln = soln2;
@@ -941,6 +969,216 @@ public class MDPModelChecker extends ProbModelChecker
 		return res;
 	}
 
+	/**
+	 * Compute reachability probabilities using topological solution: the states are split into
+	 * strongly connected components (SCCs), which are solved one at a time, in reverse topological order.
+	 * Single-state SCCs without a self-loop are solved in one step; the others by (in-place) Gauss-Seidel.
+	 * @param mdp The MDP
+	 * @param no Probability 0 states
+	 * @param yes Probability 1 states
+	 * @param min Min or max probabilities (true=min, false=max)
+	 * @param init Optionally, an initial solution vector (will be overwritten) 
+	 * @param known Optionally, a set of states for which the exact answer is known
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * Note: if 'known' is specified (i.e. is non-null, 'init' must also be given and is used for the exact values.  
+	 */
+	protected ModelCheckerResult computeReachProbsTopological(final MDP mdp, BitSet no, BitSet yes, final boolean min, double init[], BitSet known, final int strat[])
+			throws PrismException
+	{
+		BitSet unknown;
+		int i, n;
+		double soln[], initVal;
+		long timer;
+
+		// Start topological solution
+		timer = System.currentTimeMillis();
+		mainLog.println("Starting topological Gauss-Seidel (" + (min ? "min" : "max") + ")...");
+
+		// Store num states
+		n = mdp.getNumStates();
+
+		// Create solution vector
+		soln = (init == null) ? new double[n] : init;
+
+		// Initialise solution vector. Use (where available) the following in order of preference:
+		// (1) exact answer, if already known; (2) 1.0/0.0 if in yes/no; (3) passed in initial value; (4) initVal
+		// where initVal is 0.0 or 1.0, depending on whether we converge from below/above. 
+		initVal = (valIterDir == ValIterDir.BELOW) ? 0.0 : 1.0;
+		if (init != null) {
+			if (known != null) {
+				for (i = 0; i < n; i++)
+					soln[i] = known.get(i) ? init[i] : yes.get(i) ? 1.0 : no.get(i) ? 0.0 : init[i];
+			} else {
+				for (i = 0; i < n; i++)
+					soln[i] = yes.get(i) ? 1.0 : no.get(i) ? 0.0 : init[i];
+			}
+		} else {
+			for (i = 0; i < n; i++)
+				soln[i] = yes.get(i) ? 1.0 : no.get(i) ? 0.0 : initVal;
+		}
+
+		// Determine set of states actually need to compute values for
+		unknown = new BitSet();
+		unknown.set(0, n);
+		unknown.andNot(yes);
+		unknown.andNot(no);
+		if (known != null)
+			unknown.andNot(known);
+
+		// Solve SCCs in turn, updating states with a Jacobi step and min/max ops
+		TopologicalUpdate update = new TopologicalUpdate()
+		{
+			@Override
+			public double update(int s, double soln[])
+			{
+				return mdp.mvMultJacMinMaxSingle(s, soln, min, strat);
+			}
+		};
+		return solveTopological(mdp, unknown, soln, update, min ? "min" : "max", timer);
+	}
+
+	/**
+	 * Compute reachability probabilities using interval iteration, i.e. simultaneous
+	 * (Gauss-Seidel style) value iteration from below and above. Unlike value iteration,
+	 * termination means that the two bounds on the actual values are within the required
+	 * precision of each other; the midpoint of the bounds is returned.
+	 * Convergence from above requires that "no" contains all probability 0 states and,
+	 * for maximum probabilities, that maximal end components (MECs) of the remaining states
+	 * are collapsed: each MEC is treated as a single state whose choices are those that leave it.
+	 * @param mdp The MDP
+	 * @param no Probability 0 states
+	 * @param yes Probability 1 states
+	 * @param min Min or max probabilities (true=min, false=max)
+	 * @param init Optionally, an initial solution vector (will be overwritten) 
+	 * @param known Optionally, a set of states for which the exact answer is known
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null; only supported for min)
+	 * Note: if 'known' is specified (i.e. is non-null, 'init' must also be given and is used for the exact values.  
+	 */
+	protected ModelCheckerResult computeReachProbsIntervalIter(MDP mdp, BitSet no, BitSet yes, boolean min, double init[], BitSet known, int strat[])
+			throws PrismException
+	{
+		ModelCheckerResult res;
+		BitSet unknown, mec;
+		List<BitSet> mecs;
+		ECComputer ecComputer;
+		int i, j, k, n, iters, numChoices, mecIndex[];
+		double lower[], upper[], lowerNew, upperNew;
+		boolean done;
+		long timer;
+
+		// Start interval iteration
+		timer = System.currentTimeMillis();
+		mainLog.println("Starting interval iteration (" + (min ? "min" : "max") + ")...");
+
+		// Store num states
+		n = mdp.getNumStates();
+
+		// Create solution vectors for lower/upper bounds
+		lower = (init == null) ? new double[n] : init;
+		upper = new double[n];
+
+		// Initialise solution vectors. Use (where available) the following in order of preference:
+		// (1) exact answer, if already known; (2) 1.0/0.0 if in yes/no; (3) 0.0/1.0 for lower/upper bound
+		for (i = 0; i < n; i++) {
+			if (known != null && known.get(i)) {
+				upper[i] = lower[i];
+			} else {
+				lower[i] = yes.get(i) ? 1.0 : 0.0;
+				upper[i] = no.get(i) ? 0.0 : 1.0;
+			}
+		}
+
+		// Determine set of states actually need to compute values for
+		unknown = new BitSet();
+		unknown.set(0, n);
+		unknown.andNot(yes);
+		unknown.andNot(no);
+		if (known != null)
+			unknown.andNot(known);
+
+		// For max, find MECs amongst the states to be computed,
+		// and store, for each state, the index of its MEC (or -1 if none)
+		mecIndex = new int[n];
+		for (i = 0; i < n; i++)
+			mecIndex[i] = -1;
+		if (min) {
+			mecs = new LinkedList<BitSet>();
+		} else {
+			ecComputer = ECComputer.createECComputer(this, mdp);
+			ecComputer.computeMECStates((BitSet) unknown.clone());
+			mecs = ecComputer.getMECStates();
+			for (j = 0; j < mecs.size(); j++) {
+				mec = mecs.get(j);
+				for (i = mec.nextSetBit(0); i >= 0; i = mec.nextSetBit(i + 1))
+					mecIndex[i] = j;
+			}
+		}
+
+		// Start iterations
+		iters = 0;
+		done = false;
+		while (!done && iters < maxIters) {
+			iters++;
+			done = true;
+			for (i = unknown.nextSetBit(0); i >= 0; i = unknown.nextSetBit(i + 1)) {
+				if (mecIndex[i] == -1) {
+					// Normal state: update both bounds in place, keeping them monotonic
+					lower[i] = Math.max(lower[i], mdp.mvMultMinMaxSingle(i, lower, min, strat));
+					upper[i] = Math.min(upper[i], mdp.mvMultMinMaxSingle(i, upper, min, null));
+				} else {
+					// State in a MEC: update all of the MEC at once (when its first state is reached),
+					// maximising over choices that leave it; all states in the MEC share the same bounds
+					mec = mecs.get(mecIndex[i]);
+					if (mec.nextSetBit(0) != i)
+						continue;
+					lowerNew = upperNew = 0.0;
+					for (j = i; j >= 0; j = mec.nextSetBit(j + 1)) {
+						numChoices = mdp.getNumChoices(j);
+						for (k = 0; k < numChoices; k++) {
+							if (!mdp.allSuccessorsInSet(j, k, mec)) {
+								lowerNew = Math.max(lowerNew, mdp.mvMultSingle(j, k, lower));
+								upperNew = Math.max(upperNew, mdp.mvMultSingle(j, k, upper));
+							}
+						}
+					}
+					lowerNew = Math.max(lower[i], lowerNew);
+					upperNew = Math.min(upper[i], upperNew);
+					for (j = i; j >= 0; j = mec.nextSetBit(j + 1)) {
+						lower[j] = lowerNew;
+						upper[j] = upperNew;
+					}
+				}
+				// Check termination (bounds close enough)
+				if (done && !PrismUtils.doublesAreClose(upper[i], lower[i], termCritParam, termCrit == TermCrit.ABSOLUTE))
+					done = false;
+			}
+		}
+
+		// Finished interval iteration
+		timer = System.currentTimeMillis() - timer;
+		mainLog.print("Interval iteration (" + (min ? "min" : "max") + (min ? "" : ", " + mecs.size() + " MECs") + ")");
+		mainLog.println(" took " + iters + " iterations and " + timer / 1000.0 + " seconds.");
+
+		// Non-convergence is an error
+		if (!done) {
+			String msg = "Iterative method did not converge within " + iters + " iterations.";
+			msg += "\nConsider using a different numerical method or increasing the maximum number of iterations";
+			throw new PrismException(msg);
+		}
+
+		// Use midpoint of bounds as the result
+		for (i = unknown.nextSetBit(0); i >= 0; i = unknown.nextSetBit(i + 1)) {
+			lower[i] = (lower[i] + upper[i]) / 2.0;
+		}
+
+		// Return results
+		res = new ModelCheckerResult();
+		res.soln = lower;
+		res.numIters = iters;
+		res.timeTaken = timer / 1000.0;
+		return res;
+	}
+
 	/**
 	 * Compute reachability probabilities using policy iteration.
 	 * @param mdp: The MDP
@@ -1299,7 +1537,7 @@ public class MDPModelChecker extends ProbModelChecker
 		MDPSolnMethod mdpSolnMethod = this.mdpSolnMethod;
 
 		// Switch to a supported method, if necessary
-		if (!(mdpSolnMethod == MDPSolnMethod.VALUE_ITERATION || mdpSolnMethod == MDPSolnMethod.GAUSS_SEIDEL)) {
+		if (!(mdpSolnMethod == MDPSolnMethod.VALUE_ITERATION || mdpSolnMethod == MDPSolnMethod.GAUSS_SEIDEL || mdpSolnMethod == MDPSolnMethod.TOPOLOGICAL)) {
 			mdpSolnMethod = MDPSolnMethod.GAUSS_SEIDEL;
 			mainLog.printWarning("Switching to MDP solution method \"" + mdpSolnMethod.fullName() + "\"");
 		}
@@ -1375,6 +1613,9 @@ public class MDPModelChecker extends ProbModelChecker
 		case GAUSS_SEIDEL:
 			res = computeReachRewardsGaussSeidel(mdp, mdpRewards, target, inf, min, init, known, strat);
 			break;
+		case TOPOLOGICAL:
+			res = computeReachRewardsTopological(mdp, mdpRewards, target, inf, min, init, known, strat);
+			break;
 		default:
 			throw new PrismException("Unknown MDP solution method " + mdpSolnMethod.fullName());
 		}
@@ -1466,16 +1707,31 @@ public class MDPModelChecker extends ProbModelChecker
 		if (known != null)
 			unknown.andNot(known);
 
+		// Set up matrix-vector multiplication (multi-threaded, if enabled)
+		ParallelMatrixVector parMult = createParallelMatrixVector(unknown, numThreads);
+		ParallelMatrixVector.Row row = new ParallelMatrixVector.Row()
+		{
+			@Override
+			public double compute(int s, double vect[])
+			{
+				return mdp.mvMultRewMinMaxSingle(s, vect, mdpRewards, min, strat);
+			}
+		};
+
 		// Start iterations
 		iters = 0;
 		done = false;
 		while (!done && iters < maxIters) {
-			//mainLog.println(soln);
 			iters++;
-			// Matrix-vector multiply and min/max ops
-			mdp.mvMultRewMinMax(soln, mdpRewards, min, soln2, unknown, false, strat);
-			// Check termination
-			done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			if (parMult.isParallel()) {
+				// Matrix-vector multiply and min/max ops (split over threads), then check termination
+				done = parMult.mvMult(row, soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			} else {
+				// Matrix-vector multiply and min/max ops
+				mdp.mvMultRewMinMax(soln, mdpRewards, min, soln2, unknown, false, strat);
+				// Check termination
+				done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			}
 			// Swap vectors for next iter
 			tmpsoln = soln;
 			soln = soln2;
@@ -1590,6 +1846,73 @@ public class MDPModelChecker extends ProbModelChecker
 		return res;
 	}
 
+	/**
+	 * Compute expected reachability rewards using topological solution: the states are split into
+	 * strongly connected components (SCCs), which are solved one at a time, in reverse topological order.
+	 * Single-state SCCs without a self-loop are solved in one step; the others by (in-place) Gauss-Seidel.
+	 * @param mdp The MDP
+	 * @param mdpRewards The rewards
+	 * @param target Target states
+	 * @param inf States for which reward is infinite
+	 * @param min Min or max rewards (true=min, false=max)
+	 * @param init Optionally, an initial solution vector (will be overwritten) 
+	 * @param known Optionally, a set of states for which the exact answer is known
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * Note: if 'known' is specified (i.e. is non-null, 'init' must also be given and is used for the exact values.
+	 */
+	protected ModelCheckerResult computeReachRewardsTopological(final MDP mdp, final MDPRewards mdpRewards, BitSet target, BitSet inf, final boolean min, double init[],
+			BitSet known, final int strat[]) throws PrismException
+	{
+		BitSet unknown;
+		int i, n;
+		double soln[];
+		long timer;
+
+		// Start topological solution
+		timer = System.currentTimeMillis();
+		mainLog.println("Starting topological Gauss-Seidel (" + (min ? "min" : "max") + ")...");
+
+		// Store num states
+		n = mdp.getNumStates();
+
+		// Create solution vector
+		soln = (init == null) ? new double[n] : init;
+
+		// Initialise solution vector. Use (where available) the following in order of preference:
+		// (1) exact answer, if already known; (2) 0.0/infinity if in target/inf; (3) passed in initial value; (4) 0.0
+		if (init != null) {
+			if (known != null) {
+				for (i = 0; i < n; i++)
+					soln[i] = known.get(i) ? init[i] : target.get(i) ? 0.0 : inf.get(i) ? Double.POSITIVE_INFINITY : init[i];
+			} else {
+				for (i = 0; i < n; i++)
+					soln[i] = target.get(i) ? 0.0 : inf.get(i) ? Double.POSITIVE_INFINITY : init[i];
+			}
+		} else {
+			for (i = 0; i < n; i++)
+				soln[i] = target.get(i) ? 0.0 : inf.get(i) ? Double.POSITIVE_INFINITY : 0.0;
+		}
+
+		// Determine set of states actually need to compute values for
+		unknown = new BitSet();
+		unknown.set(0, n);
+		unknown.andNot(target);
+		unknown.andNot(inf);
+		if (known != null)
+			unknown.andNot(known);
+
+		// Solve SCCs in turn, updating states with a Jacobi step and min/max ops
+		TopologicalUpdate update = new TopologicalUpdate()
+		{
+			@Override
+			public double update(int s, double soln[])
+			{
+				return mdp.mvMultRewJacMinMaxSingle(s, soln, mdpRewards, min, strat);
+			}
+		};
+		return solveTopological(mdp, unknown, soln, update, min ? "min" : "max", timer);
+	}
+
 	/**
 	 * Construct strategy information for min/max expected reachability.
 	 * (More precisely, list of indices of choices resulting in min/max.)
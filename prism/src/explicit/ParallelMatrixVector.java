@@ -0,0 +1,222 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <david.parker@comlab.ox.ac.uk> (University of Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package explicit;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import prism.PrismException;
+import prism.PrismUtils;
+
+/**
+ * Row-partitioned, multi-threaded matrix-vector multiplication for iterative methods
+ * of the explicit engine (value iteration, Jacobi-style updates).
+ * The states of a subset are split into contiguous blocks, one task per block;
+ * each task computes its rows and checks convergence on them, and the
+ * results of the convergence checks are combined afterwards.
+ * Since each row reads only {@code vect} and writes only its own entry of {@code result},
+ * results are identical to the sequential methods of the model classes.
+ * The threads are not owned by this class: a pool created with {@link #createExecutor(int)}
+ * is shared by all multiplications of a model checker.
+ */
+public class ParallelMatrixVector
+{
+	// Minimum number of rows handled by a single task
+	public static final int MIN_ROWS_PER_TASK = 4096;
+	// Number of tasks per thread (for load balancing of rows with different numbers of entries)
+	public static final int TASKS_PER_THREAD = 4;
+	// Time (in seconds) after which idle threads of a pool are released
+	public static final long THREAD_KEEP_ALIVE = 10;
+
+	/**
+	 * A single row of a matrix-vector multiplication, e.g. {@link DTMC#mvMultSingle(int, double[])}.
+	 * Implementations must be safe to call concurrently for distinct states.
+	 */
+	public static abstract class Row
+	{
+		public abstract double compute(int s, double vect[]);
+	}
+
+	// States (rows) to be computed, in ascending order
+	private int rows[];
+	// Start of each block in 'rows' (plus an end marker)
+	private int blockStarts[];
+	// Thread pool (null if sequential), shared with other multiplications
+	private ExecutorService executor;
+
+	// Operands of current multiplication
+	private Row row;
+	private double vect[];
+	private double result[];
+	private double epsilon;
+	private boolean absolute;
+
+	/**
+	 * Create a thread pool for multiplications with up to {@code numThreads} threads.
+	 * Threads are created when first needed and released when idle, and do not
+	 * prevent the JVM from exiting, so the pool does not need to be shut down.
+	 * @param numThreads Number of threads (0 means one per available processor)
+	 */
+	public static ExecutorService createExecutor(int numThreads)
+	{
+		ThreadPoolExecutor executor;
+
+		if (numThreads == 0) {
+			numThreads = Runtime.getRuntime().availableProcessors();
+		}
+		executor = new ThreadPoolExecutor(numThreads, numThreads, THREAD_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory()
+				{
+					@Override
+					public Thread newThread(Runnable r)
+					{
+						Thread thread = new Thread(r, "mv-mult");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Create an object for multiplications restricted to the states in {@code subset}.
+	 * @param subset States to compute values for
+	 * @param numThreads Number of threads (0 means one per available processor)
+	 * @param executor Thread pool with (at least) {@code numThreads} threads (null means sequential)
+	 */
+	public ParallelMatrixVector(BitSet subset, int numThreads, ExecutorService executor)
+	{
+		int numRows, numTasks, i;
+
+		if (numThreads == 0) {
+			numThreads = Runtime.getRuntime().availableProcessors();
+		}
+		numRows = subset.cardinality();
+		numTasks = Math.min(numThreads * TASKS_PER_THREAD, numRows / MIN_ROWS_PER_TASK);
+		numThreads = Math.min(numThreads, numTasks);
+		if (numThreads <= 1 || executor == null) {
+			return;
+		}
+		rows = new int[numRows];
+		i = 0;
+		for (int s = subset.nextSetBit(0); s >= 0; s = subset.nextSetBit(s + 1)) {
+			rows[i++] = s;
+		}
+		blockStarts = new int[numTasks + 1];
+		for (i = 0; i <= numTasks; i++) {
+			blockStarts[i] = (int) ((long) numRows * i / numTasks);
+		}
+		this.executor = executor;
+	}
+
+	/**
+	 * Is the multiplication actually split over several threads?
+	 * If not, callers should use the (sequential) methods of the model instead.
+	 */
+	public boolean isParallel()
+	{
+		return executor != null;
+	}
+
+	/**
+	 * Compute {@code result[s] = row.compute(s, vect)} for all states s of the subset
+	 * and check whether the new values are close to the old ones,
+	 * i.e. {@link PrismUtils#doublesAreClose(double[], double[], double, boolean)},
+	 * assuming {@code vect} and {@code result} agree outside the subset.
+	 * @param row Operation for a single row
+	 * @param vect Vector to multiply by
+	 * @param result Vector to store result in
+	 * @param epsilon Termination epsilon
+	 * @param absolute Absolute (true) or relative (false) error
+	 */
+	public boolean mvMult(Row row, double vect[], double result[], double epsilon, boolean absolute) throws PrismException
+	{
+		List<Callable<Boolean>> tasks;
+		boolean done;
+
+		this.row = row;
+		this.vect = vect;
+		this.result = result;
+		this.epsilon = epsilon;
+		this.absolute = absolute;
+		tasks = new ArrayList<Callable<Boolean>>(blockStarts.length - 1);
+		for (int i = 0; i < blockStarts.length - 1; i++) {
+			final int lo = blockStarts[i];
+			final int hi = blockStarts[i + 1];
+			tasks.add(new Callable<Boolean>()
+			{
+				@Override
+				public Boolean call()
+				{
+					return mvMultBlock(lo, hi);
+				}
+			});
+		}
+		done = true;
+		try {
+			for (Future<Boolean> future : executor.invokeAll(tasks)) {
+				done &= future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PrismException("Matrix-vector multiplication has been interrupted");
+		} catch (ExecutionException e) {
+			throw new PrismException("Error during matrix-vector multiplication: " + e.getCause());
+		}
+		return done;
+	}
+
+	/**
+	 * Compute the rows {@code rows[lo]}, ..., {@code rows[hi-1]} and check their convergence.
+	 */
+	private boolean mvMultBlock(int lo, int hi)
+	{
+		int i, s;
+		double d;
+		boolean done = true;
+
+		for (i = lo; i < hi; i++) {
+			s = rows[i];
+			d = row.compute(s, vect);
+			if (done && !PrismUtils.doublesAreClose(vect[s], d, epsilon, absolute)) {
+				done = false;
+			}
+			result[s] = d;
+		}
+		return done;
+	}
+}
@@ -26,7 +26,11 @@
 
 package explicit;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import parser.ast.Expression;
 import parser.ast.ExpressionProb;
@@ -59,6 +63,11 @@ public class ProbModelChecker extends StateModelChecker
 	protected double termCritParam = 1e-8;
 	// Max iterations for numerical solution
 	protected int maxIters = 100000;
+	// Number of threads for matrix-vector products in iterative methods (0 = one per processor)
+	// (no initialiser, so that a value read by setSettings() during construction is kept)
+	protected int numThreads;
+	// Thread pool for matrix-vector products, shared by all solutions (created when first needed)
+	private ExecutorService mvMultExecutor;
 	// Use precomputation algorithms in model checking?
 	protected boolean precomp = true;
 	protected boolean prob0 = true;
@@ -75,7 +84,7 @@ public class ProbModelChecker extends StateModelChecker
 
 	// Method used for numerical solution
 	public enum LinEqMethod {
-		POWER, JACOBI, GAUSS_SEIDEL, BACKWARDS_GAUSS_SEIDEL, JOR, SOR, BACKWARDS_SOR;
+		POWER, JACOBI, GAUSS_SEIDEL, BACKWARDS_GAUSS_SEIDEL, JOR, SOR, BACKWARDS_SOR, TOPOLOGICAL, INTERVAL_ITERATION;
 		public String fullName()
 		{
 			switch (this) {
@@ -93,6 +102,10 @@ public class ProbModelChecker extends StateModelChecker
 				return "SOR";
 			case BACKWARDS_SOR:
 				return "Backwards SOR";
+			case TOPOLOGICAL:
+				return "Topological";
+			case INTERVAL_ITERATION:
+				return "Interval iteration";
 			default:
 				return this.toString();
 			}
@@ -101,7 +114,7 @@ public class ProbModelChecker extends StateModelChecker
 
 	// Method used for solving MDPs
 	public enum MDPSolnMethod {
-		VALUE_ITERATION, GAUSS_SEIDEL, POLICY_ITERATION, MODIFIED_POLICY_ITERATION, LINEAR_PROGRAMMING;
+		VALUE_ITERATION, GAUSS_SEIDEL, POLICY_ITERATION, MODIFIED_POLICY_ITERATION, LINEAR_PROGRAMMING, TOPOLOGICAL, INTERVAL_ITERATION;
 		public String fullName()
 		{
 			switch (this) {
@@ -115,6 +128,10 @@ public class ProbModelChecker extends StateModelChecker
 				return "Modified policy iteration";
 			case LINEAR_PROGRAMMING:
 				return "Linear programming";
+			case TOPOLOGICAL:
+				return "Topological";
+			case INTERVAL_ITERATION:
+				return "Interval iteration";
 			default:
 				return this.toString();
 			}
@@ -142,6 +159,9 @@ public class ProbModelChecker extends StateModelChecker
 	public ProbModelChecker(PrismComponent parent) throws PrismException
 	{
 		super(parent);
+		// Without settings to read, matrix-vector products are sequential
+		if (parent == null || parent.getSettings() == null)
+			numThreads = 1;
 	}
 	
 	// Settings methods
@@ -173,6 +193,10 @@ public class ProbModelChecker extends StateModelChecker
 			setLinEqMethod(LinEqMethod.SOR);
 		} else if (s.equals("Backwards SOR")) {
 			setLinEqMethod(LinEqMethod.BACKWARDS_SOR);
+		} else if (s.equals("Topological")) {
+			setLinEqMethod(LinEqMethod.TOPOLOGICAL);
+		} else if (s.equals("Interval iteration")) {
+			setLinEqMethod(LinEqMethod.INTERVAL_ITERATION);
 		} else {
 			throw new PrismException("Explicit engine does not support linear equation solution method \"" + s + "\"");
 		}
@@ -188,6 +212,10 @@ public class ProbModelChecker extends StateModelChecker
 			setMDPSolnMethod(MDPSolnMethod.MODIFIED_POLICY_ITERATION);
 		} else if (s.equals("Linear programming")) {
 			setMDPSolnMethod(MDPSolnMethod.LINEAR_PROGRAMMING);
+		} else if (s.equals("Topological")) {
+			setMDPSolnMethod(MDPSolnMethod.TOPOLOGICAL);
+		} else if (s.equals("Interval iteration")) {
+			setMDPSolnMethod(MDPSolnMethod.INTERVAL_ITERATION);
 		} else {
 			throw new PrismException("Explicit engine does not support MDP solution method \"" + s + "\"");
 		}
@@ -204,6 +232,8 @@ public class ProbModelChecker extends StateModelChecker
 		setTermCritParam(settings.getDouble(PrismSettings.PRISM_TERM_CRIT_PARAM));
 		// PRISM_MAX_ITERS
 		setMaxIters(settings.getInteger(PrismSettings.PRISM_MAX_ITERS));
+		// PRISM_NUM_THREADS
+		setNumThreads(settings.getInteger(PrismSettings.PRISM_NUM_THREADS));
 		// PRISM_PRECOMPUTATION
 		setPrecomp(settings.getBoolean(PrismSettings.PRISM_PRECOMPUTATION));
 		// PRISM_PROB0
@@ -234,6 +264,7 @@ public class ProbModelChecker extends StateModelChecker
 		setTermCrit(other.getTermCrit());
 		setTermCritParam(other.getTermCritParam());
 		setMaxIters(other.getMaxIters());
+		setNumThreads(other.getNumThreads());
 		setPrecomp(other.getPrecomp());
 		setProb0(other.getProb0());
 		setProb1(other.getProb1());
@@ -252,6 +283,7 @@ public class ProbModelChecker extends StateModelChecker
 		mainLog.print("termCrit = " + termCrit + " ");
 		mainLog.print("termCritParam = " + termCritParam + " ");
 		mainLog.print("maxIters = " + maxIters + " ");
+		mainLog.print("numThreads = " + numThreads + " ");
 		mainLog.print("precomp = " + precomp + " ");
 		mainLog.print("prob0 = " + prob0 + " ");
 		mainLog.print("prob1 = " + prob1 + " ");
@@ -309,6 +341,19 @@ public class ProbModelChecker extends StateModelChecker
 		this.maxIters = maxIters;
 	}
 
+	/**
+	 * Set number of threads used for matrix-vector products in iterative methods
+	 * (0 means one per available processor).
+	 */
+	public void setNumThreads(int numThreads)
+	{
+		if (numThreads != this.numThreads && mvMultExecutor != null) {
+			mvMultExecutor.shutdown();
+			mvMultExecutor = null;
+		}
+		this.numThreads = numThreads;
+	}
+
 	/**
 	 * Set whether or not to use precomputation (Prob0, Prob1, etc.).
 	 */
@@ -391,6 +436,11 @@ public class ProbModelChecker extends StateModelChecker
 		return maxIters;
 	}
 
+	public int getNumThreads()
+	{
+		return numThreads;
+	}
+
 	public boolean getPrecomp()
 	{
 		return precomp;
@@ -674,4 +724,153 @@ public class ProbModelChecker extends StateModelChecker
 			return StateValues.createFromBitSet(sol, model);
 		}
 	}
+
+	// Utility methods for numerical solution
+
+	/**
+	 * Decompose a set of states into blocks that can be solved one after the other
+	 * (for topological solution methods): the strongly connected components (SCCs) of the model,
+	 * restricted to {@code subset}, in reverse topological order. Hence, any successor
+	 * of a state in a block is either in the block itself, in an earlier block, or not in {@code subset}.
+	 * Each block is an array of states, in ascending order.
+	 * @param model The model
+	 * @param subset States to decompose
+	 */
+	protected List<int[]> computeTopologicalBlocks(Model model, BitSet subset) throws PrismException
+	{
+		SCCComputer sccComputer;
+		List<int[]> blocks;
+		int sccStates[], sccStarts[], block[];
+		int i, j, k, numSCCs;
+
+		sccComputer = SCCComputer.createSCCComputer(this, model);
+		sccComputer.computeSCCs();
+		numSCCs = sccComputer.getNumSCCs();
+		sccStates = sccComputer.getSCCStates();
+		sccStarts = sccComputer.getSCCStarts();
+		blocks = new ArrayList<int[]>();
+		for (i = 0; i < numSCCs; i++) {
+			k = 0;
+			for (j = sccStarts[i]; j < sccStarts[i + 1]; j++) {
+				if (subset.get(sccStates[j]))
+					k++;
+			}
+			if (k == 0)
+				continue;
+			block = new int[k];
+			k = 0;
+			for (j = sccStarts[i]; j < sccStarts[i + 1]; j++) {
+				if (subset.get(sccStates[j]))
+					block[k++] = sccStates[j];
+			}
+			Arrays.sort(block);
+			blocks.add(block);
+		}
+		return blocks;
+	}
+
+	/**
+	 * Set up (possibly multi-threaded) matrix-vector multiplication restricted to the states in {@code subset},
+	 * using the thread pool of this model checker, which is created on first use.
+	 * @param subset States to compute values for
+	 * @param threads Number of threads, e.g. {@link #numThreads} (0 means one per available processor)
+	 */
+	protected ParallelMatrixVector createParallelMatrixVector(BitSet subset, int threads)
+	{
+		if (threads == 1)
+			return new ParallelMatrixVector(subset, 1, null);
+		if (mvMultExecutor == null)
+			mvMultExecutor = ParallelMatrixVector.createExecutor(numThreads);
+		return new ParallelMatrixVector(subset, threads, mvMultExecutor);
+	}
+
+	/**
+	 * Update of the value of a single state in topological solution (see {@link #solveTopological}).
+	 */
+	protected static abstract class TopologicalUpdate
+	{
+		/**
+		 * Compute the new value of state {@code s} from the current solution vector {@code soln}.
+		 */
+		public abstract double update(int s, double soln[]);
+	}
+
+	/**
+	 * Solve a set of states using topological solution: the states are split into
+	 * strongly connected components (SCCs), which are solved one at a time, in reverse topological order.
+	 * A single-state SCC without a self-loop only depends on states solved already, so one update gives
+	 * its exact value; the other SCCs are solved by (in-place) Gauss-Seidel restricted to the SCC,
+	 * each with its own check for convergence.
+	 * @param model The model
+	 * @param unknown States to solve for (values of all other states in {@code soln} are final)
+	 * @param soln Solution vector, initialised by the caller (will be overwritten)
+	 * @param update Update of a single state, specific to the model and the property
+	 * @param description Optional description of the problem (e.g. "min"/"max") for the log (ignored if null)
+	 * @param timer Start time of the solution (in ms), for the log and the result
+	 */
+	protected ModelCheckerResult solveTopological(Model model, BitSet unknown, double soln[], TopologicalUpdate update, String description, long timer)
+			throws PrismException
+	{
+		ModelCheckerResult res;
+		List<int[]> blocks;
+		int iters, blockIters, numNonTrivial;
+		double d, diff, maxDiff;
+		boolean done, absolute;
+
+		// Split into SCCs, in the order in which they are solved
+		blocks = computeTopologicalBlocks(model, unknown);
+
+		// Solve each SCC in turn (iters is the max. number of iterations for any SCC)
+		absolute = (termCrit == TermCrit.ABSOLUTE);
+		iters = 0;
+		numNonTrivial = 0;
+		done = true;
+		for (int block[] : blocks) {
+			// Single state without self-loop: all successors are solved already
+			if (block.length == 1 && !model.isSuccessor(block[0], block[0])) {
+				soln[block[0]] = update.update(block[0], soln);
+				iters = Math.max(iters, 1);
+				continue;
+			}
+			// Otherwise, Gauss-Seidel restricted to the SCC
+			numNonTrivial++;
+			blockIters = 0;
+			done = false;
+			while (!done && blockIters < maxIters) {
+				blockIters++;
+				// Matrix-vector multiply (in place)
+				maxDiff = 0.0;
+				for (int s : block) {
+					d = update.update(s, soln);
+					diff = absolute ? (Math.abs(d - soln[s])) : (Math.abs(d - soln[s]) / d);
+					maxDiff = diff > maxDiff ? diff : maxDiff;
+					soln[s] = d;
+				}
+				// Check termination
+				done = maxDiff < termCritParam;
+			}
+			iters = Math.max(iters, blockIters);
+			if (!done)
+				break;
+		}
+
+		// Finished topological solution
+		timer = System.currentTimeMillis() - timer;
+		mainLog.print("Topological Gauss-Seidel (" + (description == null ? "" : description + ", ") + blocks.size() + " SCCs, " + numNonTrivial + " non-trivial)");
+		mainLog.println(" took " + iters + " iterations and " + timer / 1000.0 + " seconds.");
+
+		// Non-convergence is an error
+		if (!done) {
+			String msg = "Iterative method did not converge within " + iters + " iterations.";
+			msg += "\nConsider using a different numerical method or increasing the maximum number of iterations";
+			throw new PrismException(msg);
+		}
+
+		// Return results
+		res = new ModelCheckerResult();
+		res.soln = soln;
+		res.numIters = iters;
+		res.timeTaken = timer / 1000.0;
+		return res;
+	}
 }
@@ -84,9 +84,27 @@ public abstract class SCCComputer extends PrismComponent
 
 	/**
 	 * Get the list of computed SCCs.
+	 * SCCs are listed in reverse topological order, i.e. each SCC appears after all SCCs reachable from it.
 	 */
 	public abstract List<BitSet> getSCCs();
 
+	/**
+	 * Get the number of computed SCCs.
+	 */
+	public abstract int getNumSCCs();
+
+	/**
+	 * Get the states of the computed SCCs, grouped by SCC, in the same order as {@link #getSCCs()}.
+	 * SCC i comprises the entries from index {@code getSCCStarts()[i]} up to (but excluding)
+	 * {@code getSCCStarts()[i + 1]}. Unlike {@link #getSCCs()}, this takes space linear in the number of states.
+	 */
+	public abstract int[] getSCCStates();
+
+	/**
+	 * Get the start index of each computed SCC (plus an end marker) in {@link #getSCCStates()}.
+	 */
+	public abstract int[] getSCCStarts();
+
 	/**
 	 * Get the list of computed BSCCs.
 	 */
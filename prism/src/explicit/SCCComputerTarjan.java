@@ -45,8 +45,12 @@ public class SCCComputerTarjan extends SCCComputer
 	private Model model;
 	/* Number of nodes (model states) */
 	private int numNodes;
-	/* Computed list of SCCs */
-	private List<BitSet> sccs = new ArrayList<BitSet>();
+	/* Computed SCCs: SCC i comprises states sccStates[sccStarts[i]], ..., sccStates[sccStarts[i+1]-1] */
+	private int sccStates[];
+	private int sccStarts[];
+	private int numSCCs = 0;
+	/* Computed list of SCCs (as BitSets, created on demand) */
+	private List<BitSet> sccs = null;
 	/* Computed list of BSCCs */
 	private List<BitSet> bsccs = new ArrayList<BitSet>();
 	/* States not in any BSCC */
@@ -73,6 +77,8 @@ public class SCCComputerTarjan extends SCCComputer
 		for (int i = 0; i < numNodes; i++) {
 			nodeList.add(new Node(i));
 		}
+		sccStates = new int[numNodes];
+		sccStarts = new int[numNodes + 1];
 		onStack = new BitSet();
 	}
 
@@ -89,7 +95,7 @@ public class SCCComputerTarjan extends SCCComputer
 	{
 		computeSCCs();
 		notInBSCCs = new BitSet();
-		int n = sccs.size();
+		int n = getSCCs().size();
 		for (int i = 0; i < n; i++) {
 			BitSet scc = sccs.get(i);
 			boolean bottom = true;
@@ -109,9 +115,37 @@ public class SCCComputerTarjan extends SCCComputer
 	@Override
 	public List<BitSet> getSCCs()
 	{
+		if (sccs == null) {
+			sccs = new ArrayList<BitSet>(numSCCs);
+			for (int i = 0; i < numSCCs; i++) {
+				BitSet scc = new BitSet();
+				for (int j = sccStarts[i]; j < sccStarts[i + 1]; j++) {
+					scc.set(sccStates[j]);
+				}
+				sccs.add(scc);
+			}
+		}
 		return sccs;
 	}
 
+	@Override
+	public int getNumSCCs()
+	{
+		return numSCCs;
+	}
+
+	@Override
+	public int[] getSCCStates()
+	{
+		return sccStates;
+	}
+
+	@Override
+	public int[] getSCCStarts()
+	{
+		return sccStarts;
+	}
+
 	@Override
 	public List<BitSet> getBSCCs()
 	{
@@ -128,7 +162,7 @@ public class SCCComputerTarjan extends SCCComputer
 
 	/**
 	 * Execute Tarjan's algorithm. Determine maximal strongly connected components
-	 * (SCCS) for the graph of the model and stored in {@code sccs}.
+	 * (SCCS) for the graph of the model and stored in {@code sccStates}/{@code sccStarts}.
 	 */
 	public void tarjan()
 	{
@@ -140,6 +174,51 @@ public class SCCComputerTarjan extends SCCComputer
 	}
 
 	private void tarjan(int i)
+	{
+		// Depth-first search using an explicit stack of nodes (and their successor iterators),
+		// rather than recursion, so that long paths in the model cannot overflow the call stack
+		ArrayList<Integer> dfsNodes = new ArrayList<Integer>();
+		ArrayList<Iterator<Integer>> dfsSuccs = new ArrayList<Iterator<Integer>>();
+		visit(i, dfsNodes, dfsSuccs);
+		while (!dfsNodes.isEmpty()) {
+			int top = dfsNodes.size() - 1;
+			int j = dfsNodes.get(top);
+			final Node v = nodeList.get(j);
+			Iterator<Integer> it = dfsSuccs.get(top);
+			if (it.hasNext()) {
+				int e = it.next();
+				Node n = nodeList.get(e);
+				if (n.index == -1) {
+					visit(e, dfsNodes, dfsSuccs);
+				} else if (onStack.get(e)) {
+					v.lowlink = Math.min(v.lowlink, n.index);
+				}
+				continue;
+			}
+			// All successors explored
+			dfsNodes.remove(top);
+			dfsSuccs.remove(top);
+			if (v.lowlink == v.index) {
+				int n, k = sccStarts[numSCCs];
+				do {
+					n = stack.remove(0);
+					onStack.set(n, false);
+					sccStates[k++] = n;
+				} while (n != j);
+				sccStarts[++numSCCs] = k;
+				sccs = null;
+			}
+			if (top > 0) {
+				Node parent = nodeList.get(dfsNodes.get(top - 1));
+				parent.lowlink = Math.min(parent.lowlink, v.lowlink);
+			}
+		}
+	}
+
+	/**
+	 * Start exploring node {@code i}: number it, and push it onto both stacks.
+	 */
+	private void visit(int i, List<Integer> dfsNodes, List<Iterator<Integer>> dfsSuccs)
 	{
 		final Node v = nodeList.get(i);
 		v.index = index;
@@ -147,27 +226,8 @@ public class SCCComputerTarjan extends SCCComputer
 		index++;
 		stack.add(0, i);
 		onStack.set(i);
-		Iterator<Integer> it = model.getSuccessorsIterator(i);
-		while (it.hasNext()) {
-			int e = it.next();
-			Node n = nodeList.get(e);
-			if (n.index == -1) {
-				tarjan(e);
-				v.lowlink = Math.min(v.lowlink, n.lowlink);
-			} else if (onStack.get(e)) {
-				v.lowlink = Math.min(v.lowlink, n.index);
-			}
-		}
-		if (v.lowlink == v.index) {
-			int n;
-			BitSet component = new BitSet();
-			do {
-				n = stack.remove(0);
-				onStack.set(n, false);
-				component.set(n);
-			} while (n != i);
-			sccs.add(component);
-		}
+		dfsNodes.add(i);
+		dfsSuccs.add(model.getSuccessorsIterator(i));
 	}
 
 	/**
@@ -608,15 +608,31 @@ public class STPGModelChecker extends ProbModelChecker
 			}
 		}
 
+		// Set up matrix-vector multiplication (multi-threaded, if enabled and no adversary is needed)
+		ParallelMatrixVector parMult = createParallelMatrixVector(unknown, genAdv ? 1 : numThreads);
+		ParallelMatrixVector.Row row = new ParallelMatrixVector.Row()
+		{
+			@Override
+			public double compute(int s, double vect[])
+			{
+				return stpg.mvMultMinMaxSingle(s, vect, min1, min2);
+			}
+		};
+
 		// Start iterations
 		iters = 0;
 		done = false;
 		while (!done && iters < maxIters) {
 			iters++;
-			// Matrix-vector multiply and min/max ops
-			stpg.mvMultMinMax(soln, min1, min2, soln2, unknown, false, genAdv ? adv : null);
-			// Check termination
-			done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			if (parMult.isParallel()) {
+				// Matrix-vector multiply and min/max ops (split over threads), then check termination
+				done = parMult.mvMult(row, soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			} else {
+				// Matrix-vector multiply and min/max ops
+				stpg.mvMultMinMax(soln, min1, min2, soln2, unknown, false, genAdv ? adv : null);
+				// Check termination
+				done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			}
 			// Swap vectors for next iter
 			tmpsoln = soln;
 			soln = soln2;
@@ -1019,16 +1035,31 @@ public class STPGModelChecker extends ProbModelChecker
 		if (known != null)
 			unknown.andNot(known);
 
+		// Set up matrix-vector multiplication (multi-threaded, if enabled)
+		ParallelMatrixVector parMult = createParallelMatrixVector(unknown, numThreads);
+		ParallelMatrixVector.Row row = new ParallelMatrixVector.Row()
+		{
+			@Override
+			public double compute(int s, double vect[])
+			{
+				return stpg.mvMultRewMinMaxSingle(s, vect, rewards, min1, min2, null);
+			}
+		};
+
 		// Start iterations
 		iters = 0;
 		done = false;
 		while (!done && iters < maxIters) {
-			//mainLog.println(soln);
 			iters++;
-			// Matrix-vector multiply and min/max ops
-			stpg.mvMultRewMinMax(soln, rewards, min1, min2, soln2, unknown, false, null);
-			// Check termination
-			done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			if (parMult.isParallel()) {
+				// Matrix-vector multiply and min/max ops (split over threads), then check termination
+				done = parMult.mvMult(row, soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			} else {
+				// Matrix-vector multiply and min/max ops
+				stpg.mvMultRewMinMax(soln, rewards, min1, min2, soln2, unknown, false, null);
+				// Check termination
+				done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+			}
 			// Swap vectors for next iter
 			tmpsoln = soln;
 			soln = soln2;
@@ -0,0 +1,78 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package parser;
+
+/**
+ * Information required to evaluate an expression: a PackedState object,
+ * whose variables are decoded on demand by a {@link StatePacker}.
+ * The state can be changed, so that one context can be reused for many states.
+ * Optionally values for constants can also be supplied.
+ */
+public class EvaluateContextPackedState implements EvaluateContext
+{
+	private Values constantValues;
+	private StatePacker packer;
+	private PackedState state;
+
+	public EvaluateContextPackedState(StatePacker packer, PackedState state)
+	{
+		this.constantValues = null;
+		this.packer = packer;
+		this.state = state;
+	}
+
+	public EvaluateContextPackedState(Values constantValues, StatePacker packer, PackedState state)
+	{
+		this.constantValues = constantValues;
+		this.packer = packer;
+		this.state = state;
+	}
+
+	/**
+	 * Set the state in which expressions are evaluated.
+	 */
+	public void setState(PackedState state)
+	{
+		this.state = state;
+	}
+
+	public Object getConstantValue(String name)
+	{
+		if (constantValues == null)
+			return null;
+		int i = constantValues.getIndexOf(name);
+		if (i == -1)
+			return null;
+		return constantValues.getValue(i);
+	}
+
+	public Object getVarValue(String name, int index)
+	{
+		// Use index to look up value
+		return index == -1 ? null : packer.getValue(state, index);
+	}
+}
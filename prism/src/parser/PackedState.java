@@ -0,0 +1,123 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package parser;
+
+import java.util.Arrays;
+
+/**
+ * Compact representation of a model state, with the values of all (bounded) variables
+ * bit-packed into an array of longs. The layout is defined by a {@link StatePacker}.
+ * <br>
+ * Variables are packed from the most significant bits of the first word onwards, without
+ * splitting a variable across words, so comparing the words as unsigned numbers gives
+ * the same order as {@link State#compareTo(State)}.
+ */
+public class PackedState implements Comparable<PackedState>
+{
+	// Packed variable values
+	long words[];
+	// Cached hash code (updated by rehash())
+	private int hash;
+
+	/**
+	 * Construct a packed state with all variables at their lowest value.
+	 * @param numWords Number of words needed for the layout
+	 */
+	PackedState(int numWords)
+	{
+		words = new long[numWords];
+		rehash();
+	}
+
+	/**
+	 * Construct by copying an existing PackedState object.
+	 * @param s State to copy.
+	 */
+	public PackedState(PackedState s)
+	{
+		words = s.words.clone();
+		hash = s.hash;
+	}
+
+	/**
+	 * Copy contents of an existing packed state (with the same layout).
+	 * @param s State to copy.
+	 */
+	public void copy(PackedState s)
+	{
+		System.arraycopy(s.words, 0, words, 0, words.length);
+		hash = s.hash;
+	}
+
+	/**
+	 * Recompute the hash code after the words have been modified.
+	 */
+	void rehash()
+	{
+		long h = 1;
+		for (long w : words) {
+			h = 31 * h + w;
+		}
+		// Mix all bits of the 64-bit hash into the result
+		h ^= (h >>> 33);
+		h *= 0xff51afd7ed558ccdL;
+		h ^= (h >>> 33);
+		hash = (int) h;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == this)
+			return true;
+		if (!(o instanceof PackedState))
+			return false;
+		PackedState s = (PackedState) o;
+		return hash == s.hash && Arrays.equals(words, s.words);
+	}
+
+	@Override
+	public int compareTo(PackedState s)
+	{
+		int i, j, n;
+		n = words.length;
+		if (n != s.words.length)
+			throw new ClassCastException("States are different sizes");
+		for (i = 0; i < n; i++) {
+			j = Long.compareUnsigned(words[i], s.words[i]);
+			if (j != 0)
+				return j;
+		}
+		return 0;
+	}
+}
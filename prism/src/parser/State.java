@@ -137,8 +137,14 @@ public class State implements Comparable<State>
 	@Override
 	public int hashCode()
 	{
-		// Simple hash code
-		return varValues.length > 0 ? varValues[0].hashCode() : 0;
+		// Hash all variables (hashing just the first one leads to
+		// long collision chains in hash-based state storage)
+		int i, n, h;
+		h = 1;
+		n = varValues.length;
+		for (i = 0; i < n; i++)
+			h = 31 * h + varValues[i].hashCode();
+		return h;
 	}
 
 	@Override
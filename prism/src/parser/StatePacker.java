@@ -0,0 +1,226 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package parser;
+
+import parser.ast.Update;
+import parser.type.TypeBool;
+import prism.PrismLangException;
+
+/**
+ * Converts between {@link State} objects and their compact {@link PackedState} form.
+ * Each variable is stored in as many bits as its range (from the {@link VarList}) requires,
+ * so this only works for models without unbounded variables.
+ */
+public class StatePacker
+{
+	// Variable info
+	private VarList varList;
+	private int numVars;
+	private boolean isBool[];
+	private int low[];
+	private long range[];
+	// Layout: word, shift and mask for each variable
+	private int word[];
+	private int shift[];
+	private long mask[];
+	private int numWords;
+
+	/**
+	 * Create a packer for states over the variables in {@code varList}.
+	 * Throws an exception if any variables are unbounded.
+	 */
+	public StatePacker(VarList varList) throws PrismLangException
+	{
+		int i, bits, pos;
+
+		if (varList.containsUnboundedVariables())
+			throw new PrismLangException("Cannot pack states of a model with unbounded variables");
+		this.varList = varList;
+		numVars = varList.getNumVars();
+		isBool = new boolean[numVars];
+		low = new int[numVars];
+		range = new long[numVars];
+		word = new int[numVars];
+		shift = new int[numVars];
+		mask = new long[numVars];
+		// Assign bits from most significant bit of first word downwards
+		numWords = 1;
+		pos = 64;
+		for (i = 0; i < numVars; i++) {
+			isBool[i] = varList.getType(i) instanceof TypeBool;
+			low[i] = varList.getLow(i);
+			range[i] = (long) varList.getHigh(i) - varList.getLow(i) + 1;
+			bits = 64 - Long.numberOfLeadingZeros(range[i] - 1);
+			if (bits > pos) {
+				numWords++;
+				pos = 64;
+			}
+			pos -= bits;
+			word[i] = numWords - 1;
+			shift[i] = pos;
+			mask[i] = bits == 0 ? 0 : (-1L >>> (64 - bits));
+		}
+	}
+
+	/**
+	 * Get the number of (64-bit) words used to store a state.
+	 */
+	public int getNumWords()
+	{
+		return numWords;
+	}
+
+	/**
+	 * Create a new packed state (with all variables at their lowest value).
+	 */
+	public PackedState createState()
+	{
+		return new PackedState(numWords);
+	}
+
+	/**
+	 * Pack a state into a new PackedState object.
+	 */
+	public PackedState pack(State state) throws PrismLangException
+	{
+		PackedState res = createState();
+		pack(state, res);
+		return res;
+	}
+
+	/**
+	 * Pack a state, storing the result in an existing PackedState object.
+	 * Throws an exception if a variable is outside its range.
+	 */
+	public void pack(State state, PackedState target) throws PrismLangException
+	{
+		int i;
+		for (i = 0; i < numWords; i++)
+			target.words[i] = 0;
+		for (i = 0; i < numVars; i++) {
+			setEncoded(target, i, encode(i, state.varValues[i]));
+		}
+		target.rehash();
+	}
+
+	/**
+	 * Unpack a packed state into a new State object.
+	 */
+	public State unpack(PackedState state)
+	{
+		State res = new State(numVars);
+		unpack(state, res);
+		return res;
+	}
+
+	/**
+	 * Unpack a packed state, storing the result in an existing State object.
+	 */
+	public void unpack(PackedState state, State target)
+	{
+		for (int i = 0; i < numVars; i++) {
+			target.varValues[i] = getValue(state, i);
+		}
+	}
+
+	/**
+	 * Get the value of the {@code i}th variable of a packed state, as an int
+	 * (Boolean variables are 0/1).
+	 */
+	public int getIntValue(PackedState state, int i)
+	{
+		int val = (int) ((state.words[word[i]] >>> shift[i]) & mask[i]);
+		return isBool[i] ? val : val + low[i];
+	}
+
+	/**
+	 * Get the value of the {@code i}th variable of a packed state, as an Integer or Boolean.
+	 */
+	public Object getValue(PackedState state, int i)
+	{
+		int val = getIntValue(state, i);
+		return isBool[i] ? Boolean.valueOf(val != 0) : Integer.valueOf(val);
+	}
+
+	/**
+	 * Set the value of the {@code i}th variable of a packed state (from an Integer or Boolean).
+	 * The hash code of the state is updated too; when setting several variables at once,
+	 * use {@link #update(Update, PackedState, PackedState)} instead.
+	 */
+	public void setValue(PackedState state, int i, Object value) throws PrismLangException
+	{
+		setEncoded(state, i, encode(i, value));
+		state.rehash();
+	}
+
+	/**
+	 * Execute an update, based on variable values in {@code oldState},
+	 * applying changes to {@code newState} (which should be equal to {@code oldState} when passed in).
+	 * No objects are allocated, except possibly by the evaluation of expressions.
+	 * @param update The update
+	 * @param oldState Variable values in current state
+	 * @param newState Packed state to apply changes to
+	 * @param ec Evaluation context, reused for evaluating expressions of the update
+	 */
+	public void update(Update update, PackedState oldState, PackedState newState, EvaluateContextPackedState ec) throws PrismLangException
+	{
+		int i, n, v;
+		ec.setState(oldState);
+		n = update.getNumElements();
+		for (i = 0; i < n; i++) {
+			v = update.getVarIndex(i);
+			setEncoded(newState, v, encode(v, update.getExpression(i).evaluate(ec)));
+		}
+		newState.rehash();
+	}
+
+	/**
+	 * Get the encoding (offset from lowest value) of a value for the {@code i}th variable,
+	 * checking that it is within range.
+	 */
+	private long encode(int i, Object value) throws PrismLangException
+	{
+		long enc;
+		try {
+			if (isBool[i])
+				enc = ((Boolean) value).booleanValue() ? 1 : 0;
+			else
+				enc = (long) ((Integer) value).intValue() - low[i];
+		} catch (ClassCastException e) {
+			throw new PrismLangException("Value " + value + " is wrong type for variable " + varList.getName(i));
+		}
+		if (enc < 0 || enc >= range[i])
+			throw new PrismLangException("Value of variable " + varList.getName(i) + " overflows (" + value + ")");
+		return enc;
+	}
+
+	private void setEncoded(PackedState state, int i, long enc)
+	{
+		int w = word[i];
+		state.words[w] = (state.words[w] & ~(mask[i] << shift[i])) | (enc << shift[i]);
+	}
+}
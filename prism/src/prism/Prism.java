@@ -122,6 +122,8 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 	public static final int BSOR = 9;
 	public static final int PSOR = 10;
 	public static final int BPSOR = 11;
+	public static final int TOPOLOGICAL = 12;
+	public static final int INTERVAL_ITERATION = 13;
 
 	// methods for solving MDPs
 	public static final int MDP_VALITER = 1;
@@ -129,6 +131,8 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 	public static final int MDP_POLITER = 3;
 	public static final int MDP_MODPOLITER = 4;
 	public static final int MDP_LP = 5;
+	public static final int MDP_TOPOLOGICAL = 6;
+	public static final int MDP_INTERVAL_ITERATION = 7;
 
 	// methods for solving multi-objective queries on MDPs
 	public static final int MDP_MULTI_VALITER = 1;
@@ -1851,6 +1855,7 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 				} else {
 					ConstructModel constructModel = new ConstructModel(getSimulator(), mainLog);
 					constructModel.setFixDeadlocks(getFixDeadlocks());
+					constructModel.setNumThreads(settings.getInteger(PrismSettings.PRISM_CONSTRUCT_THREADS));
 					currentModelExpl = constructModel.constructModel(currentModulesFile, false, true);
 					currentModel = null;
 				}
@@ -2003,6 +2008,7 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 			mainLog.println("Model constants: " + currentDefinedMFConstants);
 
 		constructModel = new ConstructModel(getSimulator(), mainLog);
+		constructModel.setNumThreads(settings.getInteger(PrismSettings.PRISM_CONSTRUCT_THREADS));
 		modelExpl = constructModel.constructModel(modulesFile);
 		statesList = constructModel.getStatesList();
 
@@ -2614,6 +2620,13 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 				lastEngine = getEngine();
 				setEngine(Prism.EXPLICIT);
 			}
+		} else if ((currentModelType == ModelType.DTMC || currentModelType == ModelType.CTMC) && (getLinEqMethod() == Prism.TOPOLOGICAL || getLinEqMethod() == Prism.INTERVAL_ITERATION)) {
+			if (!getExplicit()) {
+				mainLog.printWarning("Switching to explicit engine to allow use of chosen linear equation solution method.");
+				engineSwitch = true;
+				lastEngine = getEngine();
+				setEngine(Prism.EXPLICIT);
+			}
 		}
 
 		try {
@@ -3374,6 +3387,17 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 		mc.setModulesFileAndPropertiesFile(currentModulesFile, propertiesFile);
 		// Pass any additional local settings
 		mc.setGenStrat(genStrat);
+		// Topological solution/interval iteration (only available in the explicit engine, so passed on explicitly)
+		if (mc instanceof explicit.ProbModelChecker) {
+			if (getLinEqMethod() == Prism.TOPOLOGICAL)
+				((explicit.ProbModelChecker) mc).setLinEqMethod(explicit.ProbModelChecker.LinEqMethod.TOPOLOGICAL);
+			else if (getLinEqMethod() == Prism.INTERVAL_ITERATION)
+				((explicit.ProbModelChecker) mc).setLinEqMethod(explicit.ProbModelChecker.LinEqMethod.INTERVAL_ITERATION);
+			if (getMDPSolnMethod() == Prism.MDP_TOPOLOGICAL)
+				((explicit.ProbModelChecker) mc).setMDPSolnMethod(explicit.ProbModelChecker.MDPSolnMethod.TOPOLOGICAL);
+			else if (getMDPSolnMethod() == Prism.MDP_INTERVAL_ITERATION)
+				((explicit.ProbModelChecker) mc).setMDPSolnMethod(explicit.ProbModelChecker.MDPSolnMethod.INTERVAL_ITERATION);
+		}
 
 		return mc;
 	}
@@ -41,6 +41,7 @@ import parser.ast.Property;
 import simulator.GenerateSimulationPath;
 import simulator.SimulationSettings;
 import simulator.gpu.RuntimeFrameworkInterface;
+import simulator.gpu.jvm.RuntimeJava;
 import simulator.gpu.opencl.RuntimeOpenCL;
 import simulator.method.ACIconfidence;
 import simulator.method.ACIiterations;
@@ -1508,7 +1509,8 @@ public class PrismCL implements PrismModelListener
 				else if (sw.equals("simplatform")) {
 					if (i < args.length - 1) {
 						simPlatform = args[++i];
-						if (!simPlatform.equalsIgnoreCase("OpenCL") && !simPlatform.equalsIgnoreCase("CPU"))
+						if (!simPlatform.equalsIgnoreCase("OpenCL") && !simPlatform.equalsIgnoreCase("CPU")
+								&& !simPlatform.equalsIgnoreCase("Java"))
 							errorAndExit("Invalid value for -" + sw + " switch");
 						simPlatformGiven = true;
 					} else {
@@ -2092,26 +2094,31 @@ public class PrismCL implements PrismModelListener
 		if (simPlatformGiven) {
 			if (simPlatform.equalsIgnoreCase("CPU")) {
 				simSettings = new SimulationSettings(aSimMethod);
+			} else if (simPlatform.equalsIgnoreCase("Java")) {
+				simSettings = new SimulationSettings(aSimMethod, new RuntimeJava());
 			} else {
 				RuntimeOpenCL runtime = new RuntimeOpenCL();
 				if (simDeviceGiven) {
 					String[] names = runtime.getDevicesNames();
-					int device = -1;
-					for (int i = 0; i < names.length; ++i) {
-						if (names[i].toLowerCase().contains(simDevice)) {
-							if (device == -1) {
-								device = i;
-							} else {
-								String msg = String.format("Ambiguous selection of device \"%s\" for OpenCL simulator. Possible matches: \"%s\", \"%s\"",
-										simDevice, names[device], names[i]);
-								throw new PrismException(msg);
+					//samples are split between all listed devices
+					for (String selected : simDevice.split(",")) {
+						int device = -1;
+						for (int i = 0; i < names.length; ++i) {
+							if (names[i].toLowerCase().contains(selected)) {
+								if (device == -1) {
+									device = i;
+								} else {
+									String msg = String.format("Ambiguous selection of device \"%s\" for OpenCL simulator. Possible matches: \"%s\", \"%s\"",
+											selected, names[device], names[i]);
+									throw new PrismException(msg);
+								}
 							}
 						}
+						if (device == -1) {
+							throw new PrismException(String.format("Unknown device \"%s\" in OpenCL simulator", selected));
+						}
+						runtime.selectDevice(runtime.getDevices()[device]);
 					}
-					if (device == -1) {
-						throw new PrismException(String.format("Unknown device \"%s\" in OpenCL simulator", simDevice));
-					}
-					runtime.selectDevice(runtime.getDevices()[device]);
 				} else if (simDeviceTypeGiven) {
 					if (simDeviceType.toLowerCase().equals("cpu")) {
 						runtime.selectDevice(runtime.getMaxFlopsDevice(RuntimeFrameworkInterface.DeviceType.CPU));
@@ -2201,9 +2208,9 @@ public class PrismCL implements PrismModelListener
 		mainLog.println("-simvar <n> .................... Set the minimum number of samples to know the variance is null or not");
 		mainLog.println("-simmaxrwd <x> ................. Set the maximum reward -- useful to display the CI/ACI methods progress");
 		mainLog.println("-simpathlen <n> ................ Set the maximum path length for the simulator");
-		mainLog.println("-simplatform <name>............. Set the simulation platform. Possible choices: cpu, opencl");
+		mainLog.println("-simplatform <name>............. Set the simulation platform. Possible choices: cpu, java, opencl");
 		mainLog.println("-simdevicetype <type>........... Set the type of device which will be used by OpenCL simulator. Possible choices: cpu, gpu");
-		mainLog.println("-simdevice <name> .............. Set the device used by OpenCL simulator.");
+		mainLog.println("-simdevice <names> ............. Set the devices used by OpenCL simulator (comma-separated, samples are split between them).");
 
 		mainLog.println();
 		mainLog.println("You can also use \"prism -help xxx\" for help on some switches -xxx with non-obvious syntax.");
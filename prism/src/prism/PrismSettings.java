@@ -77,6 +77,7 @@ public class PrismSettings implements Observer
 	public static final	String PRISM_PROB0							= "prism.prob0";
 	public static final	String PRISM_PROB1							= "prism.prob1";
 	public static final	String PRISM_FIX_DEADLOCKS					= "prism.fixDeadlocks";
+	public static final	String PRISM_CONSTRUCT_THREADS				= "prism.constructThreads";
 	public static final	String PRISM_DO_PROB_CHECKS					= "prism.doProbChecks";
 	public static final	String PRISM_SUM_ROUND_OFF					= "prism.sumRoundOff";
 	public static final	String PRISM_COMPACT						= "prism.compact";
@@ -87,6 +88,7 @@ public class PrismSettings implements Observer
 	public static final	String PRISM_TERM_CRIT						= "prism.termCrit";//"prism.termination";
 	public static final	String PRISM_TERM_CRIT_PARAM				= "prism.termCritParam";//"prism.terminationEpsilon";
 	public static final	String PRISM_MAX_ITERS						= "prism.maxIters";//"prism.maxIterations";
+	public static final	String PRISM_NUM_THREADS					= "prism.numThreads";
 	
 	public static final	String PRISM_CUDD_MAX_MEM					= "prism.cuddMaxMem";
 	public static final	String PRISM_CUDD_EPSILON					= "prism.cuddEpsilon";
@@ -138,6 +140,28 @@ public class PrismSettings implements Observer
 	public static final	String SIMULATOR_NEW_PATH_ASK_VIEW			= "simulator.newPathAskView";
 	public static final	String SIMULATOR_RENDER_ALL_VALUES			= "simulator.renderAllValues";
 	public static final String SIMULATOR_NETWORK_FILE				= "simulator.networkFile";
+	public static final String SIMULATOR_ADAPT_OPTIMIZER			= "simulator.adaptOptimizer";
+	public static final String SIMULATOR_ADAPT_MAX_SAMPLES			= "simulator.adaptMaxSamples";
+	public static final String SIMULATOR_ADAPT_MAX_CANDIDATE_SAMPLES	= "simulator.adaptMaxCandidateSamples";
+	public static final String SIMULATOR_ADAPT_MAX_TIME				= "simulator.adaptMaxTime";
+	public static final String SIMULATOR_ADAPT_MAX_ITERATIONS		= "simulator.adaptMaxIterations";
+	public static final String SIMULATOR_ADAPT_TOLERANCE			= "simulator.adaptTolerance";
+	public static final String SIMULATOR_ADAPT_RACING				= "simulator.adaptRacing";
+	public static final String SIMULATOR_ADAPT_RACING_INCREMENT		= "simulator.adaptRacingIncrement";
+	public static final String SIMULATOR_ADAPT_CRN					= "simulator.adaptCRN";
+	public static final String SIMULATOR_ADAPT_CACHE				= "simulator.adaptCache";
+	public static final String SIMULATOR_ADAPT_CHECKPOINT_FILE		= "simulator.adaptCheckpointFile";
+	public static final String SIMULATOR_ADAPT_CHECKPOINT_PERIOD	= "simulator.adaptCheckpointPeriod";
+	public static final String SIMULATOR_ADAPT_RESUME_FILE			= "simulator.adaptResumeFile";
+	public static final String SIMULATOR_THREADS					= "simulator.threads";
+	public static final String SIMULATOR_COMPILE					= "simulator.compile";
+	public static final String SIMULATOR_SEED						= "simulator.seed";
+	public static final String SIMULATOR_GROUP_SIZE					= "simulator.groupSize";
+	public static final String SIMULATOR_RARE_EVENT					= "simulator.rareEvent";
+	public static final String SIMULATOR_RARE_EVENT_SCORE			= "simulator.rareEventScore";
+	public static final String SIMULATOR_IS_BIAS					= "simulator.isBias";
+	public static final String SIMULATOR_SPLITTING_EFFORT			= "simulator.splittingEffort";
+	public static final String SIMULATOR_SPLITTING_LEVEL_STEP		= "simulator.splittingLevelStep";
 	
 	//GUI Model
 	public static final	String MODEL_AUTO_PARSE						= "model.autoParse";
@@ -220,11 +244,11 @@ public class PrismSettings implements Observer
 			{ CHOICE_TYPE,		PRISM_TRANSIENT_METHOD,					"Transient probability computation method",	"3.3",		"Uniformisation",															"Uniformisation,Fast adaptive uniformisation",																
 																			"Which method to use for computing transient probabilities in CTMCs." },
 			// NUMERICAL SOLUTION OPTIONS:
-			{ CHOICE_TYPE,		PRISM_LIN_EQ_METHOD,					"Linear equations method",				"2.1",			"Jacobi",																	"Power,Jacobi,Gauss-Seidel,Backwards Gauss-Seidel,Pseudo-Gauss-Seidel,Backwards Pseudo-Gauss-Seidel,JOR,SOR,Backwards SOR,Pseudo-SOR,Backwards Pseudo-SOR",
+			{ CHOICE_TYPE,		PRISM_LIN_EQ_METHOD,					"Linear equations method",				"2.1",			"Jacobi",																	"Power,Jacobi,Gauss-Seidel,Backwards Gauss-Seidel,Pseudo-Gauss-Seidel,Backwards Pseudo-Gauss-Seidel,JOR,SOR,Backwards SOR,Pseudo-SOR,Backwards Pseudo-SOR,Topological,Interval iteration",
 																			"Which iterative method to use when solving linear equation systems." },
 			{ DOUBLE_TYPE,		PRISM_LIN_EQ_METHOD_PARAM,				"Over-relaxation parameter",			"2.1",			new Double(0.9),															"",																							
 																			"Over-relaxation parameter for iterative numerical methods such as JOR/SOR." },
-			{ CHOICE_TYPE,		PRISM_MDP_SOLN_METHOD,					"MDP solution method",				"4.0",			"Value iteration",																"Value iteration,Gauss-Seidel,Policy iteration,Modified policy iteration,Linear programming",
+			{ CHOICE_TYPE,		PRISM_MDP_SOLN_METHOD,					"MDP solution method",				"4.0",			"Value iteration",																"Value iteration,Gauss-Seidel,Policy iteration,Modified policy iteration,Linear programming,Topological,Interval iteration",
 																			"Which method to use when solving Markov decision processes." },
 			{ CHOICE_TYPE,		PRISM_MDP_MULTI_SOLN_METHOD,			"MDP multi-objective solution method",				"4.0.3",			"Value iteration",											"Value iteration,Gauss-Seidel,Linear programming",
 																			"Which method to use when solving multi-objective queries on Markov decision processes." },
@@ -234,6 +258,8 @@ public class PrismSettings implements Observer
 																			"Epsilon value to use for checking termination of iterative numerical methods." },
 			{ INTEGER_TYPE,		PRISM_MAX_ITERS,						"Termination max. iterations",			"2.1",			new Integer(10000),															"0,",																						
 																			"Maximum number of iterations to perform if iterative methods do not converge." },
+			{ INTEGER_TYPE,		PRISM_NUM_THREADS,						"Numerical solution threads",			"4.1",			new Integer(1),																"0,",
+																			"Number of threads used for matrix-vector products in iterative methods of the explicit engine (1 means sequential, 0 means one per available processor)." },
 			// MODEL CHECKING OPTIONS:
 			{ BOOLEAN_TYPE,		PRISM_PRECOMPUTATION,					"Use precomputation",					"2.1",			new Boolean(true),															"",																							
 																			"Whether to use model checking precomputation algorithms (Prob0, Prob1, etc.), where optional." },
@@ -245,6 +271,8 @@ public class PrismSettings implements Observer
 																			"Constrain to fair adversaries when model checking MDPs." },
 			{ BOOLEAN_TYPE,		PRISM_FIX_DEADLOCKS,					"Automatically fix deadlocks",			"4.0.3",		new Boolean(true),															"",																							
 																			"Automatically fix deadlocks, where necessary, when constructing probabilistic models." },
+			{ INTEGER_TYPE,		PRISM_CONSTRUCT_THREADS,				"Model construction threads",			"4.1",			new Integer(1),																"0,",
+																			"Number of threads exploring the state space during explicit-engine model construction (1 means sequential exploration, 0 means one per available processor)." },
 			{ BOOLEAN_TYPE,		PRISM_DO_PROB_CHECKS,					"Do probability/rate checks",			"2.1",			new Boolean(true),															"",																							
 																			"Perform sanity checks on model probabilities/rates when constructing probabilistic models." },
 			{ DOUBLE_TYPE,		PRISM_SUM_ROUND_OFF,					"Probability sum threshold",					"2.1",			new Double(1.0E-5),													"0.0,",
@@ -348,7 +376,51 @@ public class PrismSettings implements Observer
 			{ CHOICE_TYPE,		SIMULATOR_RENDER_ALL_VALUES,			"Path render style",					"3.2",		"Render all values",		"Render changes,Render all values",
 																			"Display style for paths in the simulator user interface: only show variable values when they change, or show all values regardless." },
 			{ FILE_TYPE,		SIMULATOR_NETWORK_FILE,					"Network profile",						"2.1",		new File(""),				"",
-																			"File specifying the network profile used by the distributed PRISM simulator." }
+																			"File specifying the network profile used by the distributed PRISM simulator." },
+			{ CHOICE_TYPE,		SIMULATOR_ADAPT_OPTIMIZER,				"Adaptive commands search strategy",	"4.1",		"Hill climbing",			"Hill climbing,SPSA,CMA-ES,Annealing",
+																			"Strategy used by the OpenCL simulator to search probabilities of adaptive commands." },
+			{ DOUBLE_TYPE,		SIMULATOR_ADAPT_MAX_SAMPLES,			"Adaptive search sample budget",		"4.1",		new Double(0),				"0,",
+																			"Maximum number of samples generated by the search for probabilities of adaptive commands (0 means no limit)." },
+			{ INTEGER_TYPE,		SIMULATOR_ADAPT_MAX_CANDIDATE_SAMPLES,	"Adaptive search samples per candidate",	"4.1",	new Integer(1800000),		"0,",
+																			"The search for probabilities of adaptive commands stops when the number of samples per candidate exceeds this value (0 means no limit)." },
+			{ INTEGER_TYPE,		SIMULATOR_ADAPT_MAX_TIME,				"Adaptive search time limit (s)",		"4.1",		new Integer(0),				"0,",
+																			"Maximum time of the search for probabilities of adaptive commands, in seconds (0 means no limit)." },
+			{ INTEGER_TYPE,		SIMULATOR_ADAPT_MAX_ITERATIONS,			"Adaptive search iterations",			"4.1",		new Integer(0),				"0,",
+																			"Maximum number of iterations of the search for probabilities of adaptive commands (0 means no limit)." },
+			{ DOUBLE_TYPE,		SIMULATOR_ADAPT_TOLERANCE,				"Adaptive search tolerance",			"4.1",		new Double(0),				"0,",
+																			"The search for probabilities of adaptive commands stops when the best result does not improve by more than this value in 10 iterations (0 means disabled)." },
+			{ CHOICE_TYPE,		SIMULATOR_ADAPT_RACING,					"Adaptive search racing",				"4.1",		"None",						"None,Hoeffding,Bernstein",
+																			"Sample candidates of the search in increments and drop those whose confidence interval is dominated by the leader." },
+			{ INTEGER_TYPE,		SIMULATOR_ADAPT_RACING_INCREMENT,		"Adaptive search racing increment",		"4.1",		new Integer(5000),			"1,",
+																			"Number of samples generated for each remaining candidate in one round of racing." },
+			{ BOOLEAN_TYPE,		SIMULATOR_ADAPT_CRN,					"Adaptive search common random numbers",	"4.1",	new Boolean(false),			"",
+																			"Simulate all candidates of an iteration with the same random numbers and compare them with paired differences." },
+			{ BOOLEAN_TYPE,		SIMULATOR_ADAPT_CACHE,					"Adaptive search evaluation cache",		"4.1",		new Boolean(true),			"",
+																			"Reuse samples of probability vectors simulated in previous iterations of adaptive search." },
+			{ STRING_TYPE,		SIMULATOR_ADAPT_CHECKPOINT_FILE,		"Adaptive search checkpoint file",		"4.1",		"",							"",
+																			"File where the state of adaptive search is saved periodically (empty means no checkpoints)." },
+			{ INTEGER_TYPE,		SIMULATOR_ADAPT_CHECKPOINT_PERIOD,		"Adaptive search checkpoint period",	"4.1",		new Integer(1),				"1,",
+																			"Number of iterations of adaptive search between two checkpoints." },
+			{ STRING_TYPE,		SIMULATOR_ADAPT_RESUME_FILE,			"Adaptive search resume file",			"4.1",		"",							"",
+																			"Checkpoint from which the adaptive search is resumed (empty means a new search)." },
+			{ INTEGER_TYPE,		SIMULATOR_THREADS,						"Simulation threads",					"4.1",		new Integer(1),				"0,",
+																			"Number of threads generating samples in the simulator and in the Java simulation platform (1 means sequential sampling, 0 means one per available processor)." },
+			{ BOOLEAN_TYPE,		SIMULATOR_COMPILE,						"Compile model for simulation",			"4.1",		new Boolean(false),			"",
+																			"Compile guards and updates of the model to Java bytecode instead of interpreting them in the simulator (requires a JDK)." },
+			{ STRING_TYPE,		SIMULATOR_SEED,							"Simulation random seed",				"4.1",		"0",						"",
+																			"Seed of the random number generator of the simulator, a 64-bit integer (0 means a new seed for each run, which is printed in the log)." },
+			{ INTEGER_TYPE,		SIMULATOR_GROUP_SIZE,					"Simulation group size",				"4.1",		new Integer(0),				"0,",
+																			"Number of samples between two checks of the stopping criteria of sequential methods (0 means after every sample). Methods may check less often, and CI methods spend their confidence over the checks." },
+			{ CHOICE_TYPE,		SIMULATOR_RARE_EVENT,					"Rare-event simulation",				"4.1",		"None",						"None,Importance sampling,Splitting",
+																			"Technique used by the simulator to estimate probabilities of rare events, guided by the rare-event score of states." },
+			{ STRING_TYPE,		SIMULATOR_RARE_EVENT_SCORE,				"Rare-event score",						"4.1",		"",							"",
+																			"Numerical expression over the variables of the model, whose value increases as states get closer to the rare event (importance function)." },
+			{ DOUBLE_TYPE,		SIMULATOR_IS_BIAS,						"Importance sampling bias",				"4.1",		new Double(2.0),			"0,",
+																			"Factor by which importance sampling multiplies the probability (or rate) of a transition for each unit by which it increases the rare-event score." },
+			{ INTEGER_TYPE,		SIMULATOR_SPLITTING_EFFORT,				"Splitting effort",						"4.1",		new Integer(1000),			"1,",
+																			"Number of paths simulated from each level in one run of multilevel splitting." },
+			{ DOUBLE_TYPE,		SIMULATOR_SPLITTING_LEVEL_STEP,			"Splitting level step",					"4.1",		new Double(1.0),			"0,",
+																			"Increase of the rare-event score between two consecutive levels of multilevel splitting." }
 		},
 		{
 			{ BOOLEAN_TYPE,		MODEL_AUTO_PARSE,						"Auto parse",							"2.1",			new Boolean(true),															"",																							"Parse PRISM models automatically as they are loaded/edited in the text editor." },
@@ -880,6 +952,12 @@ public class PrismSettings implements Observer
 			set(PRISM_LIN_EQ_METHOD, "Pseudo-SOR");
 		} else if (sw.equals("bpsor")) {
 			set(PRISM_LIN_EQ_METHOD, "Backwards Pseudo-SOR");
+		} else if (sw.equals("topological") || sw.equals("topo")) {
+			set(PRISM_LIN_EQ_METHOD, "Topological");
+			set(PRISM_MDP_SOLN_METHOD, "Topological");
+		} else if (sw.equals("intervaliter") || sw.equals("ii")) {
+			set(PRISM_LIN_EQ_METHOD, "Interval iteration");
+			set(PRISM_MDP_SOLN_METHOD, "Interval iteration");
 		} else if (sw.equals("valiter")) {
 			set(PRISM_MDP_SOLN_METHOD, "Value iteration");
 			set(PRISM_MDP_MULTI_SOLN_METHOD, "Value iteration");
@@ -941,6 +1019,21 @@ public class PrismSettings implements Observer
 				throw new PrismException("No value specified for -" + sw + " switch");
 			}
 		}
+		// Number of threads for numerical solution
+		else if (sw.equals("threads")) {
+			if (i < args.length - 1) {
+				try {
+					j = Integer.parseInt(args[++i]);
+					if (j < 0)
+						throw new NumberFormatException("");
+					set(PRISM_NUM_THREADS, j);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
 		
 		// MODEL CHECKING OPTIONS:
 		
@@ -961,6 +1054,21 @@ public class PrismSettings implements Observer
 		else if (sw.equals("nofixdl")) {
 			set(PRISM_FIX_DEADLOCKS, false);
 		}
+		// Number of threads for (explicit) model construction
+		else if (sw.equals("constructthreads")) {
+			if (i < args.length - 1) {
+				try {
+					j = Integer.parseInt(args[++i]);
+					if (j < 0)
+						throw new NumberFormatException("");
+					set(PRISM_CONSTRUCT_THREADS, j);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
 		// Fairness on/off
 		else if (sw.equals("fair")) {
 			set(PRISM_FAIRNESS, true);
@@ -1362,6 +1470,281 @@ public class PrismSettings implements Observer
 			}
 		}
 
+		// SIMULATOR (ADAPTIVE COMMANDS)
+
+		// Search strategy
+		else if (sw.equals("simadaptopt")) {
+			if (i < args.length - 1) {
+				s = args[++i];
+				if (s.equals("hill"))
+					set(SIMULATOR_ADAPT_OPTIMIZER, "Hill climbing");
+				else if (s.equals("spsa"))
+					set(SIMULATOR_ADAPT_OPTIMIZER, "SPSA");
+				else if (s.equals("cmaes"))
+					set(SIMULATOR_ADAPT_OPTIMIZER, "CMA-ES");
+				else if (s.equals("annealing"))
+					set(SIMULATOR_ADAPT_OPTIMIZER, "Annealing");
+				else
+					throw new PrismException("Unrecognised option for -" + sw + " switch (options are: hill, spsa, cmaes, annealing)");
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		// Sample budget
+		else if (sw.equals("simadaptbudget")) {
+			if (i < args.length - 1) {
+				try {
+					d = Double.parseDouble(args[++i]);
+					if (d < 0)
+						throw new NumberFormatException("");
+					set(SIMULATOR_ADAPT_MAX_SAMPLES, d);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		// Samples per candidate
+		else if (sw.equals("simadaptmaxgw")) {
+			if (i < args.length - 1) {
+				try {
+					j = Integer.parseInt(args[++i]);
+					if (j < 0)
+						throw new NumberFormatException("");
+					set(SIMULATOR_ADAPT_MAX_CANDIDATE_SAMPLES, j);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		// Time limit
+		else if (sw.equals("simadapttime")) {
+			if (i < args.length - 1) {
+				try {
+					j = Integer.parseInt(args[++i]);
+					if (j < 0)
+						throw new NumberFormatException("");
+					set(SIMULATOR_ADAPT_MAX_TIME, j);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		// Iteration limit
+		else if (sw.equals("simadaptiters")) {
+			if (i < args.length - 1) {
+				try {
+					j = Integer.parseInt(args[++i]);
+					if (j < 0)
+						throw new NumberFormatException("");
+					set(SIMULATOR_ADAPT_MAX_ITERATIONS, j);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		// Tolerance
+		else if (sw.equals("simadapttol")) {
+			if (i < args.length - 1) {
+				try {
+					d = Double.parseDouble(args[++i]);
+					if (d < 0)
+						throw new NumberFormatException("");
+					set(SIMULATOR_ADAPT_TOLERANCE, d);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+
+		// Racing
+		else if (sw.equals("simadaptrace")) {
+			if (i < args.length - 1) {
+				s = args[++i];
+				if (s.equals("none"))
+					set(SIMULATOR_ADAPT_RACING, "None");
+				else if (s.equals("hoeffding"))
+					set(SIMULATOR_ADAPT_RACING, "Hoeffding");
+				else if (s.equals("bernstein"))
+					set(SIMULATOR_ADAPT_RACING, "Bernstein");
+				else
+					throw new PrismException("Unrecognised option for -" + sw + " switch (options are: none, hoeffding, bernstein)");
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		else if (sw.equals("simadaptraceinc")) {
+			if (i < args.length - 1) {
+				try {
+					j = Integer.parseInt(args[++i]);
+					if (j <= 0)
+						throw new NumberFormatException("");
+					set(SIMULATOR_ADAPT_RACING_INCREMENT, j);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+
+		// Common random numbers
+		else if (sw.equals("simadaptcrn")) {
+			set(SIMULATOR_ADAPT_CRN, true);
+		}
+
+		// Evaluation cache
+		else if (sw.equals("simadaptnocache")) {
+			set(SIMULATOR_ADAPT_CACHE, false);
+		}
+
+		// Checkpoints
+		else if (sw.equals("simadaptcheckpoint")) {
+			if (i < args.length - 1) {
+				set(SIMULATOR_ADAPT_CHECKPOINT_FILE, args[++i]);
+			} else {
+				throw new PrismException("No file specified for -" + sw + " switch");
+			}
+		}
+		else if (sw.equals("simadaptcheckpointperiod")) {
+			if (i < args.length - 1) {
+				try {
+					j = Integer.parseInt(args[++i]);
+					if (j <= 0)
+						throw new NumberFormatException("");
+					set(SIMULATOR_ADAPT_CHECKPOINT_PERIOD, j);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		else if (sw.equals("simadaptresume")) {
+			if (i < args.length - 1) {
+				set(SIMULATOR_ADAPT_RESUME_FILE, args[++i]);
+			} else {
+				throw new PrismException("No file specified for -" + sw + " switch");
+			}
+		}
+		else if (sw.equals("simthreads")) {
+			if (i < args.length - 1) {
+				try {
+					j = Integer.parseInt(args[++i]);
+					if (j < 0)
+						throw new NumberFormatException("");
+					set(SIMULATOR_THREADS, j);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		else if (sw.equals("simcompile")) {
+			set(SIMULATOR_COMPILE, true);
+		}
+		else if (sw.equals("simseed")) {
+			if (i < args.length - 1) {
+				try {
+					s = args[++i];
+					Long.parseLong(s);
+					set(SIMULATOR_SEED, s);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		else if (sw.equals("simrare")) {
+			if (i < args.length - 1) {
+				s = args[++i];
+				if (s.equals("none"))
+					set(SIMULATOR_RARE_EVENT, "None");
+				else if (s.equals("is"))
+					set(SIMULATOR_RARE_EVENT, "Importance sampling");
+				else if (s.equals("split"))
+					set(SIMULATOR_RARE_EVENT, "Splitting");
+				else
+					throw new PrismException("Unrecognised option for -" + sw + " switch (options are: none, is, split)");
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		else if (sw.equals("simscore")) {
+			if (i < args.length - 1) {
+				set(SIMULATOR_RARE_EVENT_SCORE, args[++i]);
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		else if (sw.equals("simisbias")) {
+			if (i < args.length - 1) {
+				try {
+					d = Double.parseDouble(args[++i]);
+					if (d <= 0)
+						throw new NumberFormatException("");
+					set(SIMULATOR_IS_BIAS, d);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		else if (sw.equals("simspliteffort")) {
+			if (i < args.length - 1) {
+				try {
+					j = Integer.parseInt(args[++i]);
+					if (j <= 0)
+						throw new NumberFormatException("");
+					set(SIMULATOR_SPLITTING_EFFORT, j);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		else if (sw.equals("simsplitstep")) {
+			if (i < args.length - 1) {
+				try {
+					d = Double.parseDouble(args[++i]);
+					if (d <= 0)
+						throw new NumberFormatException("");
+					set(SIMULATOR_SPLITTING_LEVEL_STEP, d);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		else if (sw.equals("simgroupsize")) {
+			if (i < args.length - 1) {
+				try {
+					j = Integer.parseInt(args[++i]);
+					if (j < 0)
+						throw new NumberFormatException("");
+					set(SIMULATOR_GROUP_SIZE, j);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+
 		// unknown switch - error
 		else {
 			throw new PrismException("Invalid switch -" + sw + " (type \"prism -help\" for full list)");
@@ -1397,6 +1780,8 @@ public class PrismSettings implements Observer
 		mainLog.println("-bsor .......................... Use Backwards SOR for numerical computation");
 		mainLog.println("-psor .......................... Use Pseudo SOR for numerical computation");
 		mainLog.println("-bpsor ......................... Use Backwards Pseudo SOR for numerical computation");
+		mainLog.println("-topological (or -topo) ........ Use Gauss-Seidel over SCCs in topological order (explicit engine)");
+		mainLog.println("-intervaliter (or -ii) ......... Use interval iteration, i.e. with error bounds (explicit engine)");
 		mainLog.println("-omega <x> ..................... Set over-relaxation parameter (for JOR/SOR/...) [default: 0.9]");
 		mainLog.println();
 		mainLog.println("SOLUTION METHODS (MDPS):");
@@ -1404,12 +1789,15 @@ public class PrismSettings implements Observer
 		mainLog.println("-gaussseidel (or -gs) .......... Use Gauss-Seidel value iteration for solving MDPs");
 		mainLog.println("-politer ....................... Use policy iteration for solving MDPs");
 		mainLog.println("-modpoliter .................... Use modified policy iteration for solving MDPs");
+		mainLog.println("-topological (or -topo) ........ Use Gauss-Seidel over SCCs in topological order for solving MDPs");
+		mainLog.println("-intervaliter (or -ii) ......... Use interval iteration, i.e. with error bounds, for solving MDPs");
 		mainLog.println();
 		mainLog.println("SOLUTION METHOD SETTINGS");
 		mainLog.println("-relative (or -rel) ............ Use relative error for detecting convergence [default]");
 		mainLog.println("-absolute (or -abs) ............ Use absolute error for detecting convergence");
 		mainLog.println("-epsilon <x> (or -e <x>) ....... Set value of epsilon (for convergence check) [default: 1e-6]");
 		mainLog.println("-maxiters <n> .................. Set max number of iterations [default: 10000]");
+		mainLog.println("-threads <n> ................... Set number of threads for iterative methods (explicit engine, 0 = one per processor) [default: 1]");
 		mainLog.println();
 		mainLog.println("MODEL CHECKING OPTIONS:");
 		mainLog.println("-nopre ......................... Skip precomputation algorithms (where optional)");
@@ -1419,6 +1807,7 @@ public class PrismSettings implements Observer
 		mainLog.println("-nofair ........................ Don't use fairness (for model checking of MDPs) [default]");
 		mainLog.println("-fixdl ......................... Automatically put self-loops in deadlock states [default]");
 		mainLog.println("-nofixdl ....................... Do not automatically put self-loops in deadlock states");
+		mainLog.println("-constructthreads <n> .......... Set number of threads for model construction (explicit engine) [default: 1]");
 		mainLog.println("-noprobchecks .................. Disable checks on model probabilities/rates");
 		mainLog.println("-sumroundoff <x> ............... Set probability sum threshold [default: 1-e5]");
 		mainLog.println("-zerorewardcheck ............... Check for absence of zero-reward loops");
@@ -1465,6 +1854,30 @@ public class PrismSettings implements Observer
 		mainLog.println("-fauarraythreshold <x> ......... Set threshold when to switch to sparse matrix in FAU [default: 100]");
 		mainLog.println("-fauintervals <x> .............. Set number of intervals to divide time intervals into for FAU [default: 1]");
 		mainLog.println("-fauinitival <x> ............... Set length of additional initial time interval for FAU [default: 1.0]");
+		mainLog.println();
+		mainLog.println("SIMULATOR OPTIONS (ADAPTIVE COMMANDS):");
+		mainLog.println("-simadaptopt <name> ............ Set search strategy for adaptive commands (hill, spsa, cmaes, annealing) [default: hill]");
+		mainLog.println("-simadaptbudget <n> ............ Set max number of samples for the whole search [default: 0 (no limit)]");
+		mainLog.println("-simadaptmaxgw <n> ............. Stop when the number of samples per candidate exceeds <n> [default: 1800000]");
+		mainLog.println("-simadapttime <n> .............. Set time limit (in seconds) for the search [default: 0 (no limit)]");
+		mainLog.println("-simadaptiters <n> ............. Set max number of iterations of the search [default: 0 (no limit)]");
+		mainLog.println("-simadapttol <x> ............... Stop when the best result does not improve by more than <x> in 10 iterations [default: 0 (disabled)]");
+		mainLog.println("-simadaptrace <name> ........... Race candidates and drop dominated ones early (none, hoeffding, bernstein) [default: none]");
+		mainLog.println("-simadaptraceinc <n> ........... Set number of samples per candidate in one round of racing [default: 5000]");
+		mainLog.println("-simadaptcrn ................... Use common random numbers for candidates of an iteration");
+		mainLog.println("-simadaptnocache ............... Don't reuse samples of already simulated probability vectors");
+		mainLog.println("-simadaptcheckpoint <file> ..... Save state of adaptive search to <file> periodically");
+		mainLog.println("-simadaptcheckpointperiod <n> .. Save checkpoint every <n> iterations [default: 1]");
+		mainLog.println("-simadaptresume <file> ......... Resume adaptive search from checkpoint <file>");
+		mainLog.println("-simthreads <n> ................ Set number of threads generating samples (0 = one per processor) [default: 1]");
+		mainLog.println("-simcompile .................... Compile the model to Java bytecode for simulation (requires a JDK)");
+		mainLog.println("-simseed <n> ................... Set seed of the random number generator [default: 0 (new seed for each run)]");
+		mainLog.println("-simgroupsize <n> .............. Check stopping criteria every <n> samples (group-sequential) [default: 0 (every sample)]");
+		mainLog.println("-simrare <x> ................... Rare-event simulation: none, is (importance sampling), split (splitting) [default: none]");
+		mainLog.println("-simscore <expr> ............... Score of states guiding rare-event simulation (higher is closer to the event)");
+		mainLog.println("-simisbias <x> ................. Bias of importance sampling per unit increase of the score [default: 2]");
+		mainLog.println("-simspliteffort <n> ............ Number of paths per level of splitting [default: 1000]");
+		mainLog.println("-simsplitstep <x> .............. Increase of the score between levels of splitting [default: 1]");
 	}
 
 	/**
@@ -43,11 +43,13 @@ public class ChoiceListFlexi implements Choice
 	protected int moduleOrActionIndex;
 
 	// List of multiple updates and associated probabilities/rates
-	// Size of list is stored implicitly in target.length
+	// Size of list is stored explicitly in size; updates may contain
+	// further (unused) lists, kept so that they can be reused after clear()
 	// Probabilities/rates are already evaluated, target states are not
 	// but are just stored as lists of updates (for efficiency)
 	protected List<List<Update>> updates;
-	protected List<Double> probability;
+	protected double probability[];
+	protected int size;
 
 	/**
 	 * Create empty choice.
@@ -55,7 +57,8 @@ public class ChoiceListFlexi implements Choice
 	public ChoiceListFlexi()
 	{
 		updates = new ArrayList<List<Update>>();
-		probability = new ArrayList<Double>();
+		probability = new double[4];
+		size = 0;
 	}
 
 	/**
@@ -64,21 +67,39 @@ public class ChoiceListFlexi implements Choice
 	 */
 	public ChoiceListFlexi(ChoiceListFlexi ch)
 	{
+		updates = new ArrayList<List<Update>>(ch.size());
+		probability = new double[Math.max(ch.size(), 4)];
+		copy(ch);
+	}
+
+	/**
+	 * Make this choice a copy of another one, reusing storage of this object where possible.
+	 * NB: Does a shallow, not deep, copy with respect to references to Update objects.
+	 */
+	public void copy(ChoiceListFlexi ch)
+	{
+		int i, j, n;
 		moduleOrActionIndex = ch.moduleOrActionIndex;
-		updates = new ArrayList<List<Update>>(ch.updates.size());
-		for (List<Update> list : ch.updates) {
-			List<Update> listNew = new ArrayList<Update>(list.size()); 
-			updates.add(listNew);
-			for (Update up : list) {
-				listNew.add(up);
+		size = 0;
+		for (i = 0; i < ch.size; i++) {
+			List<Update> list = nextList();
+			List<Update> listOld = ch.updates.get(i);
+			n = listOld.size();
+			for (j = 0; j < n; j++) {
+				list.add(listOld.get(j));
 			}
-		}
-		probability = new ArrayList<Double>(ch.size());
-		for (double p : ch.probability) {
-			probability.add(p);
+			probability[size++] = ch.probability[i];
 		}
 	}
 
+	/**
+	 * Remove all transitions from this choice (storage is kept for reuse).
+	 */
+	public void clear()
+	{
+		size = 0;
+	}
+
 	// Set methods
 
 	/**
@@ -98,8 +119,24 @@ public class ChoiceListFlexi implements Choice
 	 */
 	public void add(double probability, List<Update> ups)
 	{
-		this.updates.add(ups);
-		this.probability.add(probability);
+		List<Update> list = nextList();
+		int i, n;
+		n = ups.size();
+		for (i = 0; i < n; i++) {
+			list.add(ups.get(i));
+		}
+		this.probability[size++] = probability;
+	}
+
+	/**
+	 * Add a transition, comprising a single Update object, to this choice.
+	 * @param probability Probability (or rate) of the transition
+	 * @param up Update object defining transition
+	 */
+	public void add(double probability, Update up)
+	{
+		nextList().add(up);
+		this.probability[size++] = probability;
 	}
 
 	/**
@@ -110,7 +147,7 @@ public class ChoiceListFlexi implements Choice
 		int i, n;
 		n = size();
 		for (i = 0; i < n; i++) {
-			probability.set(i, probability.get(i) * d);
+			probability[i] *= d;
 		}
 	}
 
@@ -119,8 +156,8 @@ public class ChoiceListFlexi implements Choice
 	 */
 	public void productWith(ChoiceListFlexi ch)
 	{
-		List<Update> list;
-		int i, j, n, n2;
+		List<Update> list, listJ, listI;
+		int i, j, k, n, n2;
 		double pi;
 
 		n = ch.size();
@@ -128,29 +165,57 @@ public class ChoiceListFlexi implements Choice
 		// Loop through each (ith) element of new choice (skipping first)
 		for (i = 1; i < n; i++) {
 			pi = ch.getProbability(i);
+			listI = ch.updates.get(i);
 			// Loop through each (jth) element of existing choice
 			for (j = 0; j < n2; j++) {
 				// Create new element (i,j) of product 
-				list = new ArrayList<Update>(updates.get(j).size() + ch.updates.get(i).size());
-				for (Update u : updates.get(j)) {
-					list.add(u);
+				list = nextList();
+				listJ = updates.get(j);
+				for (k = 0; k < listJ.size(); k++) {
+					list.add(listJ.get(k));
 				}
-				for (Update u : ch.updates.get(i)) {
-					list.add(u);
+				for (k = 0; k < listI.size(); k++) {
+					list.add(listI.get(k));
 				}
-				add(pi * getProbability(j), list);
+				probability[size++] = pi * probability[j];
 			}
 		}
 		// Modify elements of current choice to get (0,j) elements of product
 		pi = ch.getProbability(0);
+		listI = ch.updates.get(0);
 		for (j = 0; j < n2; j++) {
-			for (Update u : ch.updates.get(0)) {
-				updates.get(j).add(u);
+			listJ = updates.get(j);
+			for (k = 0; k < listI.size(); k++) {
+				listJ.add(listI.get(k));
 			}
-			probability.set(j, pi * probability.get(j));
+			probability[j] *= pi;
 		}
 	}
 
+	/**
+	 * Get an empty list of updates for a new transition at index {@code size},
+	 * reusing an existing list if there is one, and make sure there is space for its probability.
+	 */
+	private List<Update> nextList()
+	{
+		List<Update> list;
+		ensureCapacity(size + 1);
+		if (size < updates.size()) {
+			list = updates.get(size);
+			list.clear();
+		} else {
+			list = new ArrayList<Update>(4);
+			updates.add(list);
+		}
+		return list;
+	}
+
+	private void ensureCapacity(int n)
+	{
+		if (n > probability.length)
+			probability = Arrays.copyOf(probability, Math.max(n, 2 * probability.length));
+	}
+
 	// Get methods
 
 	@Override
@@ -174,7 +239,7 @@ public class ChoiceListFlexi implements Choice
 	@Override
 	public int size()
 	{
-		return probability.size();
+		return size;
 	}
 
 	@Override
@@ -217,30 +282,32 @@ public class ChoiceListFlexi implements Choice
 	public State computeTarget(int i, State currentState) throws PrismLangException
 	{
 		State newState = new State(currentState);
-		for (Update up : updates.get(i))
-			up.update(currentState, newState);
+		computeTarget(i, currentState, newState);
 		return newState;
 	}
 
 	@Override
 	public void computeTarget(int i, State currentState, State newState) throws PrismLangException
 	{
-		for (Update up : updates.get(i))
-			up.update(currentState, newState);
+		List<Update> list = updates.get(i);
+		int j, n;
+		n = list.size();
+		for (j = 0; j < n; j++)
+			list.get(j).update(currentState, newState);
 	}
 
 	@Override
 	public double getProbability(int i)
 	{
-		return probability.get(i);
+		return probability[i];
 	}
 
 	@Override
 	public double getProbabilitySum()
 	{
 		double sum = 0.0;
-		for (double d : probability)
-			sum += d;
+		for (int i = 0; i < size; i++)
+			sum += probability[i];
 		return sum;
 	}
 
@@ -252,7 +319,7 @@ public class ChoiceListFlexi implements Choice
 		n = size();
 		d = 0.0;
 		for (i = 0; x >= d && i < n; i++) {
-			d += probability.get(i);
+			d += probability[i];
 		}
 		return i - 1;
 	}
@@ -26,7 +26,12 @@
 
 package simulator;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -34,7 +39,6 @@ import parser.State;
 import parser.VarList;
 import parser.ast.ModulesFile;
 import prism.PrismException;
-import prism.PrismFileLog;
 import prism.PrismLog;
 import userinterface.graph.Graph;
 
@@ -71,6 +75,10 @@ public class GenerateSimulationPath
 	private boolean simPathShowChangesOnly = false;
 	private boolean simPathSnapshots = false;
 	private double simPathSnapshotTime = 0.0;
+	private boolean simPathBinary = false;
+
+	// Log used for text export to a file (null if none)
+	private PrismLog exportLog = null;
 
 	public int getNumWarnings()
 	{
@@ -114,11 +122,22 @@ public class GenerateSimulationPath
 		warnings.clear();
 
 		parseDetails(details);
-		PathDisplayer displayer = generateDisplayerForExport();
-		if (simPathType == PathType.SIM_PATH_DEADLOCK)
-			generateMultiplePaths(displayer);
-		else
-			generatePath(displayer);
+		if (simPathBinary) {
+			if (file == null)
+				throw new PrismException("A file is needed to export a path in binary format");
+			if (simPathSnapshots || simVars != null)
+				throw new PrismException("The \"snapshot\" and \"vars\" options cannot be used for paths in binary format");
+		}
+		if (simPathType == PathType.SIM_PATH_DEADLOCK) {
+			generateMultiplePathsForExport();
+		} else {
+			PathDisplayer displayer = generateDisplayerForExport(file);
+			try {
+				generatePath(displayer);
+			} finally {
+				closeDisplayerForExport(displayer, file);
+			}
+		}
 	}
 
 	/**
@@ -288,6 +307,15 @@ public class GenerateSimulationPath
 				}
 				else
 					throw new PrismException("Value for \"changes\" option must \"true\" or \"false\"");
+			} else if (ss[i].indexOf("format=") == 0) {
+				// export format
+				s = ss[i].substring(7);
+				if (s.equals("text"))
+					simPathBinary = false;
+				else if (s.equals("binary"))
+					simPathBinary = true;
+				else
+					throw new PrismException("Value for \"format\" option must be \"text\" or \"binary\"");
 			} else {
 				// path of fixed number of steps
 				simPathType = PathType.SIM_PATH_NUM_STEPS;
@@ -332,21 +360,22 @@ public class GenerateSimulationPath
 		mainLog.println(" * probs=<true|false> - display probability (or rate) of transitions taken");
 		mainLog.println(" * rewards=<true|false> - display state/transition rewards");
 		mainLog.println(" * changes=<true|false> - only display states where displayed variables change");
+		mainLog.println(" * format=<text|binary> - export path as text or in a compact binary format");
 	}
 
 	/**
 	 * Create a PathDisplayer object for file export
+	 * @param target File to export to (mainLog if null)
 	 */
-	private PathDisplayer generateDisplayerForExport() throws PrismException
+	private PathDisplayer generateDisplayerForExport(File target) throws PrismException
 	{
 		PrismLog log;
 		PathToText displayer;
 
-		if (file != null) {
-			log = new PrismFileLog(file.getPath());
-			if (!log.ready()) {
-				throw new PrismException("Could not open file \"" + file + "\" for output");
-			}
+		if (simPathBinary)
+			return new PathToBinary(target, modulesFile);
+		if (target != null) {
+			log = exportLog = PathToText.openFileLog(target);
 		} else {
 			log = mainLog;
 		}
@@ -362,6 +391,20 @@ public class GenerateSimulationPath
 		return displayer;
 	}
 
+	/**
+	 * Close the output of a PathDisplayer object created for file export.
+	 */
+	private void closeDisplayerForExport(PathDisplayer displayer, File target) throws PrismException
+	{
+		if (displayer instanceof PathToBinary) {
+			((PathToBinary) displayer).close();
+		} else if (exportLog != null) {
+			PrismLog log = exportLog;
+			exportLog = null;
+			PathToText.closeFileLog(log, target);
+		}
+	}
+
 	/**
 	 * Create a PathDisplayer object for graph plotting
 	 */
@@ -454,6 +497,113 @@ public class GenerateSimulationPath
 		}
 	}
 
+	/**
+	 * Generate multiple random paths using the simulator, for export.
+	 * Each path is streamed to a temporary file as it is generated, which is kept only
+	 * if the path ends in a deadlock, so memory usage does not depend on the path length.
+	 */
+	private void generateMultiplePathsForExport() throws PrismException
+	{
+		Path path = null;
+		PathDisplayer displayer;
+		File tmpFile = null;
+		int i = 0, j = 0;
+		boolean done;
+
+		mainLog.println("\nGenerating random path(s) until deadlock state...");
+
+		// Create path
+		engine.createNewOnTheFlyPath(modulesFile);
+		path = engine.getPath();
+		try {
+			// Build paths, writing each to a temporary file
+			// (in the same directory as the target, so that it can be moved there)
+			for (j = 0; j < simPathRepeat; j++) {
+				try {
+					tmpFile = File.createTempFile("prism-path", ".tmp", file == null ? null : file.getAbsoluteFile().getParentFile());
+				} catch (IOException e) {
+					throw new PrismException("Could not create temporary file for path: " + e.getMessage());
+				}
+				displayer = generateDisplayerForExport(tmpFile);
+				try {
+					engine.initialisePath(initialState);
+					displayer.start(path.getCurrentState(), path.getCurrentStateRewards());
+					i = 0;
+					done = false;
+					while (!done) {
+						// Generate a single step of path
+						engine.automaticTransition();
+						i++;
+						displayer.step(path.getTimeInPreviousState(), path.getTotalTime(), path.getPreviousModuleOrAction(), path.getPreviousProbability(),
+								path.getPreviousTransitionRewards(), path.size(), path.getCurrentState(), path.getCurrentStateRewards());
+						// Check for termination
+						if (engine.queryIsDeadlock() || i >= maxPathLength)
+							done = true;
+						// Stop if a loop was found (and loop checking was not disabled)
+						if (simLoopCheck && engine.isPathLooping())
+							break;
+					}
+					displayer.end();
+				} finally {
+					closeDisplayerForExport(displayer, tmpFile);
+				}
+				// Stop generating paths if done
+				if (engine.queryIsDeadlock())
+					break;
+				tmpFile.delete();
+				tmpFile = null;
+			}
+			if (j < simPathRepeat)
+				j++;
+
+			// Bail out if we didn't build a suitable path 
+			if (!engine.queryIsDeadlock()) {
+				mainLog.print("\nNo deadlock state found within " + maxPathLength + " steps");
+				if (simPathRepeat > 1)
+					mainLog.print(" (generated " + simPathRepeat + " paths)");
+				mainLog.println(".");
+				return;
+			}
+
+			// Move path to its destination
+			if (file != null) {
+				try {
+					Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+					tmpFile = null;
+				} catch (IOException e) {
+					throw new PrismException("Could not write path to file \"" + file + "\": " + e.getMessage());
+				}
+			} else {
+				mainLog.println();
+				try (BufferedReader in = new BufferedReader(new FileReader(tmpFile))) {
+					String line;
+					while ((line = in.readLine()) != null)
+						mainLog.println(line);
+				} catch (IOException e) {
+					throw new PrismException("Could not read back temporary path file: " + e.getMessage());
+				}
+			}
+		} finally {
+			if (tmpFile != null)
+				tmpFile.delete();
+		}
+
+		// Print summary of path(s)
+		if (simPathRepeat > 1 && j > 1)
+			mainLog.print("\nGenerated " + j + " paths. Final path: ");
+		else
+			mainLog.print("\nGenerated path: ");
+		mainLog.print(path.size() + " steps");
+		if (modulesFile.getModelType().continuousTime()) {
+			mainLog.print(", total time " + path.getTotalTime());
+		}
+		if (file != null) {
+			mainLog.println(" (exported to " + file + ")");
+		} else {
+			mainLog.println();
+		}
+	}
+
 	/**
 	 * Generate multiple random paths using the simulator.
 	 * Note: these are not on-the-fly paths since we don't in advance if they are to be displayed.
@@ -58,7 +58,8 @@ public class LoopDetector
 		if (path.continuousTime())
 			return;
 		// Check transitions from previous step were deterministic
-		if (!transitionList.isDeterministic())
+		// (unknown, e.g. for a path loaded from a file, if there is no transition list)
+		if (transitionList == null || !transitionList.isDeterministic())
 			return;
 		// Check successive states were identical
 		if (path.getPreviousState().equals(path.getCurrentState())) {
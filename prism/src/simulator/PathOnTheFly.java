@@ -144,6 +144,29 @@ public class PathOnTheFly extends Path
 		loopDet.addStep(this, transitionList);
 	}
 
+	/**
+	 * Copy the contents of another path (for the same model) into this one,
+	 * e.g. to restart simulation from a state reached earlier (splitting).
+	 * The loop detector is reset rather than copied.
+	 */
+	public void copy(PathOnTheFly path)
+	{
+		size = path.size;
+		previousState.copy(path.previousState);
+		currentState.copy(path.currentState);
+		previousModuleOrActionIndex = path.previousModuleOrActionIndex;
+		previousProbability = path.previousProbability;
+		totalTime = path.totalTime;
+		timeInPreviousState = path.timeInPreviousState;
+		for (int i = 0; i < numRewardStructs; i++) {
+			totalRewards[i] = path.totalRewards[i];
+			previousStateRewards[i] = path.previousStateRewards[i];
+			previousTransitionRewards[i] = path.previousTransitionRewards[i];
+			currentStateRewards[i] = path.currentStateRewards[i];
+		}
+		loopDet.initialise();
+	}
+
 	// ACCESSORS (for Path)
 
 	@Override
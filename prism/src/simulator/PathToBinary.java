@@ -0,0 +1,462 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package simulator;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import parser.State;
+import parser.ast.ModulesFile;
+import parser.type.TypeBool;
+import parser.type.TypeInt;
+import prism.PrismException;
+
+/**
+ * Class to write a simulation path, as it is generated, to a file in a compact binary format.
+ * Steps are buffered in blocks of fixed size and written column by column,
+ * so memory usage does not depend on the length of the path.
+ * All variables and rewards are stored, regardless of the display settings.
+ * Files written this way can be read back with {@link #readPath(File, ModulesFile, PathFull)}.
+ */
+public class PathToBinary extends PathDisplayer
+{
+	/** Identifies binary path files ("PRPT") */
+	private static final int MAGIC = 0x50525054;
+	/** Version of the file format */
+	private static final int VERSION = 1;
+	/** Default number of steps per block */
+	public static final int DEFAULT_BLOCK_SIZE = 8192;
+
+	// Variable types, as stored in the header
+	private static final byte TYPE_INT = 0;
+	private static final byte TYPE_BOOL = 1;
+
+	/** File to write path to, and channel to it */
+	private File file;
+	private FileChannel channel;
+	/** First error that occurred while writing (displayer methods cannot throw) */
+	private IOException error = null;
+
+	// Model info
+	private int numVars;
+	private int numRewardStructs;
+	private boolean contTime;
+	private byte varTypes[];
+	/** Action labels/module names, mapped to indices as used in {@link Path#getPreviousModuleOrActionIndex()} */
+	private HashMap<Object, Integer> actionIndices;
+
+	// Current block of steps, stored by column
+	private int blockSize;
+	private int blockCount;
+	private double times[];
+	private int actions[];
+	private double probs[];
+	private double transRewards[][];
+	private int values[][];
+	private double stateRewards[][];
+	/** Buffer used to write a block */
+	private ByteBuffer buffer;
+	/** Number of steps written so far */
+	private long numSteps;
+
+	/**
+	 * Construct a {@link PathToBinary} object, writing to a file with the default block size.
+	 * @param file File to write path to
+	 * @param modulesFile Model associated with path
+	 */
+	public PathToBinary(File file, ModulesFile modulesFile) throws PrismException
+	{
+		this(file, modulesFile, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Construct a {@link PathToBinary} object, writing to a file.
+	 * @param file File to write path to
+	 * @param modulesFile Model associated with path
+	 * @param blockSize Number of steps buffered in memory before they are written
+	 */
+	public PathToBinary(File file, ModulesFile modulesFile, int blockSize) throws PrismException
+	{
+		int i, n;
+
+		this.file = file;
+		this.blockSize = blockSize;
+
+		// Get model info
+		numVars = modulesFile.getNumVars();
+		numRewardStructs = modulesFile.getNumRewardStructs();
+		contTime = modulesFile.getModelType().continuousTime();
+		varTypes = new byte[numVars];
+		for (i = 0; i < numVars; i++) {
+			if (modulesFile.getVarType(i) instanceof TypeInt)
+				varTypes[i] = TYPE_INT;
+			else if (modulesFile.getVarType(i) instanceof TypeBool)
+				varTypes[i] = TYPE_BOOL;
+			else
+				throw new PrismException("Cannot export variable \"" + modulesFile.getVarName(i) + "\" of type " + modulesFile.getVarType(i) + " to a binary path");
+		}
+		actionIndices = new HashMap<Object, Integer>();
+		actionIndices.put("?", 0);
+		n = modulesFile.getNumModules();
+		for (i = 0; i < n; i++)
+			actionIndices.put(modulesFile.getModuleName(i), -i - 1);
+		n = modulesFile.getSynchs().size();
+		for (i = 0; i < n; i++)
+			actionIndices.put("[" + modulesFile.getSynchs().get(i) + "]", i + 1);
+
+		// Allocate storage for one block
+		times = new double[blockSize];
+		actions = new int[blockSize];
+		probs = new double[blockSize];
+		transRewards = new double[numRewardStructs][blockSize];
+		values = new int[numVars][blockSize];
+		stateRewards = new double[numRewardStructs][blockSize];
+		// (a block is preceded by its size; the final one also by the number of steps)
+		buffer = ByteBuffer.allocateDirect(blockSize * bytesPerStep(contTime, varTypes, numRewardStructs) + 12);
+
+		// Open file and write header
+		try {
+			channel = new FileOutputStream(file).getChannel();
+			n = 21;
+			for (i = 0; i < numVars; i++)
+				n += 3 + modulesFile.getVarName(i).getBytes(StandardCharsets.UTF_8).length;
+			ByteBuffer header = ByteBuffer.allocate(n);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.put((byte) (contTime ? 1 : 0));
+			header.putInt(blockSize);
+			header.putInt(numVars);
+			for (i = 0; i < numVars; i++) {
+				byte name[] = modulesFile.getVarName(i).getBytes(StandardCharsets.UTF_8);
+				header.putShort((short) name.length);
+				header.put(name);
+				header.put(varTypes[i]);
+			}
+			header.putInt(numRewardStructs);
+			writeBuffer(header);
+		} catch (IOException e) {
+			close(channel);
+			throw new PrismException("Could not open file \"" + file + "\" for output");
+		}
+	}
+
+	/**
+	 * Number of bytes used to store a single step.
+	 */
+	private static int bytesPerStep(boolean contTime, byte varTypes[], int numRewardStructs)
+	{
+		int bytes = (contTime ? 8 : 0) + 4 + 8 + 16 * numRewardStructs;
+		for (byte type : varTypes)
+			bytes += type == TYPE_BOOL ? 1 : 4;
+		return bytes;
+	}
+
+	// Display methods
+
+	@Override
+	public void startDisplay(State initialState, double[] initialStateRewards)
+	{
+		if (error != null)
+			return;
+		buffer.clear();
+		for (int j = 0; j < numVars; j++)
+			putValue(j, initialState.varValues[j]);
+		for (int j = 0; j < numRewardStructs; j++)
+			buffer.putDouble(initialStateRewards[j]);
+		writeBufferSafe();
+	}
+
+	@Override
+	public void displayStep(double timeSpent, double timeCumul, Object action, double probability, double[] transitionRewards, int newStateIndex, State newState, double[] newStateRewards)
+	{
+		int j;
+		Integer actionIndex;
+
+		if (error != null)
+			return;
+		times[blockCount] = timeSpent;
+		actionIndex = actionIndices.get(action);
+		actions[blockCount] = actionIndex == null ? 0 : actionIndex;
+		probs[blockCount] = probability;
+		for (j = 0; j < numRewardStructs; j++) {
+			transRewards[j][blockCount] = transitionRewards[j];
+			stateRewards[j][blockCount] = newStateRewards[j];
+		}
+		for (j = 0; j < numVars; j++) {
+			Object value = newState.varValues[j];
+			values[j][blockCount] = value instanceof Boolean ? (((Boolean) value) ? 1 : 0) : ((Integer) value).intValue();
+		}
+		if (++blockCount == blockSize)
+			writeBlock();
+	}
+
+	@Override
+	public void displaySnapshot(double timeCumul, int newStateIndex, State newState, double[] newStateRewards)
+	{
+		// Snapshots are not stored: a binary path always contains every step
+	}
+
+	@Override
+	public void endDisplay()
+	{
+		if (error != null)
+			return;
+		writeBlock();
+		buffer.clear();
+		buffer.putInt(0);
+		buffer.putLong(numSteps);
+		writeBufferSafe();
+	}
+
+	/**
+	 * Close the file, reporting any error that occurred while writing it.
+	 */
+	public void close() throws PrismException
+	{
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				if (error == null)
+					error = e;
+			}
+			channel = null;
+		}
+		if (error != null)
+			throw new PrismException("Could not write path to file \"" + file + "\": " + error.getMessage());
+	}
+
+	// Writing
+
+	/**
+	 * Write out the (non-empty) current block of steps, column by column.
+	 */
+	private void writeBlock()
+	{
+		int i, j;
+
+		if (error != null || blockCount == 0)
+			return;
+		buffer.clear();
+		buffer.putInt(blockCount);
+		if (contTime)
+			for (i = 0; i < blockCount; i++)
+				buffer.putDouble(times[i]);
+		for (i = 0; i < blockCount; i++)
+			buffer.putInt(actions[i]);
+		for (i = 0; i < blockCount; i++)
+			buffer.putDouble(probs[i]);
+		for (j = 0; j < numRewardStructs; j++)
+			for (i = 0; i < blockCount; i++)
+				buffer.putDouble(transRewards[j][i]);
+		for (j = 0; j < numVars; j++) {
+			if (varTypes[j] == TYPE_BOOL)
+				for (i = 0; i < blockCount; i++)
+					buffer.put((byte) values[j][i]);
+			else
+				for (i = 0; i < blockCount; i++)
+					buffer.putInt(values[j][i]);
+		}
+		for (j = 0; j < numRewardStructs; j++)
+			for (i = 0; i < blockCount; i++)
+				buffer.putDouble(stateRewards[j][i]);
+		numSteps += blockCount;
+		blockCount = 0;
+		writeBufferSafe();
+	}
+
+	private void putValue(int j, Object value)
+	{
+		if (varTypes[j] == TYPE_BOOL)
+			buffer.put((byte) (((Boolean) value) ? 1 : 0));
+		else
+			buffer.putInt((Integer) value);
+	}
+
+	private void writeBuffer(ByteBuffer buffer) throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	private void writeBufferSafe()
+	{
+		try {
+			writeBuffer(buffer);
+		} catch (IOException e) {
+			error = e;
+		}
+	}
+
+	private static void close(FileChannel channel)
+	{
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// Ignore: already reporting another error
+			}
+		}
+	}
+
+	// Reading
+
+	/**
+	 * Read a path, previously written by a {@link PathToBinary} object, into a {@link PathFull}.
+	 * The path is checked to match the variables and reward structures of the model,
+	 * but its transitions are not re-simulated.
+	 * @param file File to read path from
+	 * @param modulesFile Model associated with path
+	 * @param path Path to store steps in (any existing contents are discarded)
+	 */
+	public static void readPath(File file, ModulesFile modulesFile, PathFull path) throws PrismException
+	{
+		FileChannel channel = null;
+		ByteBuffer buffer;
+		int i, j, k, n, blockSize, numVars, numRewardStructs, count;
+		boolean contTime;
+		byte varTypes[];
+		long numSteps = 0;
+
+		try {
+			channel = new FileInputStream(file).getChannel();
+			// Read and check header
+			buffer = read(channel, null, 17);
+			if (buffer.getInt() != MAGIC)
+				throw new PrismException("File \"" + file + "\" does not contain a binary path");
+			if (buffer.getInt() != VERSION)
+				throw new PrismException("Unsupported binary path format version in file \"" + file + "\"");
+			contTime = buffer.get() != 0;
+			blockSize = buffer.getInt();
+			numVars = buffer.getInt();
+			if (contTime != modulesFile.getModelType().continuousTime() || numVars != modulesFile.getNumVars() || blockSize <= 0)
+				throw new PrismException("Path in file \"" + file + "\" does not match the model");
+			varTypes = new byte[numVars];
+			for (j = 0; j < numVars; j++) {
+				n = read(channel, null, 2).getShort();
+				buffer = read(channel, null, n + 1);
+				byte name[] = new byte[n];
+				buffer.get(name);
+				varTypes[j] = buffer.get();
+				if (!new String(name, StandardCharsets.UTF_8).equals(modulesFile.getVarName(j)))
+					throw new PrismException("Path in file \"" + file + "\" does not match the model (variable \"" + modulesFile.getVarName(j) + "\")");
+				if (varTypes[j] != (modulesFile.getVarType(j) instanceof TypeBool ? TYPE_BOOL : TYPE_INT))
+					throw new PrismException("Path in file \"" + file + "\" does not match the model (variable \"" + modulesFile.getVarName(j) + "\")");
+			}
+			numRewardStructs = read(channel, null, 4).getInt();
+			if (numRewardStructs != modulesFile.getNumRewardStructs())
+				throw new PrismException("Path in file \"" + file + "\" does not match the model (reward structures)");
+
+			// Read initial state
+			int stepBytes = bytesPerStep(contTime, varTypes, numRewardStructs);
+			buffer = ByteBuffer.allocateDirect(blockSize * stepBytes + 8);
+			State state = new State(numVars);
+			double rewards[] = new double[numRewardStructs];
+			double transRewards[] = new double[numRewardStructs];
+			n = 8 * numRewardStructs;
+			for (j = 0; j < numVars; j++)
+				n += varTypes[j] == TYPE_BOOL ? 1 : 4;
+			read(channel, buffer, n);
+			for (j = 0; j < numVars; j++)
+				state.varValues[j] = varTypes[j] == TYPE_BOOL ? (Object) (buffer.get() != 0) : (Object) buffer.getInt();
+			for (j = 0; j < numRewardStructs; j++)
+				rewards[j] = buffer.getDouble();
+			path.initialise(state, rewards);
+
+			// Read blocks of steps, until one of size 0
+			double times[] = new double[blockSize];
+			int actions[] = new int[blockSize];
+			double probs[] = new double[blockSize];
+			while ((count = read(channel, buffer, 4).getInt()) > 0) {
+				if (count > blockSize)
+					throw new PrismException("File \"" + file + "\" contains a corrupted binary path");
+				read(channel, buffer, count * stepBytes);
+				// Time, action and probability are stored first
+				for (i = 0; i < count; i++)
+					times[i] = contTime ? buffer.getDouble() : 1.0;
+				for (i = 0; i < count; i++)
+					actions[i] = buffer.getInt();
+				for (i = 0; i < count; i++)
+					probs[i] = buffer.getDouble();
+				// Remaining columns are read directly from the buffer, at fixed offsets
+				int pos = buffer.position();
+				for (i = 0; i < count; i++) {
+					k = pos;
+					for (j = 0; j < numRewardStructs; j++, k += 8 * count)
+						transRewards[j] = buffer.getDouble(k + 8 * i);
+					for (j = 0; j < numVars; j++) {
+						if (varTypes[j] == TYPE_BOOL) {
+							state.varValues[j] = buffer.get(k + i) != 0;
+							k += count;
+						} else {
+							state.varValues[j] = buffer.getInt(k + 4 * i);
+							k += 4 * count;
+						}
+					}
+					for (j = 0; j < numRewardStructs; j++, k += 8 * count)
+						rewards[j] = buffer.getDouble(k + 8 * i);
+					path.addStep(times[i], -1, actions[i], probs[i], transRewards, state, rewards, null);
+				}
+				numSteps += count;
+			}
+			if (read(channel, buffer, 8).getLong() != numSteps)
+				throw new PrismException("File \"" + file + "\" contains a corrupted binary path");
+		} catch (EOFException e) {
+			throw new PrismException("Unexpected end of file \"" + file + "\" while reading binary path");
+		} catch (IOException e) {
+			throw new PrismException("Could not read path from file \"" + file + "\": " + e.getMessage());
+		} finally {
+			close(channel);
+		}
+	}
+
+	/**
+	 * Read exactly {@code n} bytes from a channel, ready to be read from a buffer.
+	 * @param buffer Buffer to read into (if null, a new one is created)
+	 */
+	private static ByteBuffer read(FileChannel channel, ByteBuffer buffer, int n) throws IOException
+	{
+		if (buffer == null)
+			buffer = ByteBuffer.allocate(n);
+		buffer.clear();
+		buffer.limit(n);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0)
+				throw new EOFException();
+		}
+		buffer.flip();
+		return buffer;
+	}
+}
@@ -26,9 +26,17 @@
 
 package simulator;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+
 import parser.State;
 import parser.ast.ModulesFile;
+import prism.PrismException;
 import prism.PrismLog;
+import prism.PrismPrintStreamLog;
 
 /**
  * Class to display a simulation path in text form, sending to a PrismLog.
@@ -75,6 +83,30 @@ public class PathToText extends PathDisplayer
 		contTime = modulesFile.getModelType().continuousTime();
 	}
 
+	/**
+	 * Open a buffered log to export a path to a file with.
+	 * It should be closed with {@link #closeFileLog(PrismLog, File)} once the path has been displayed.
+	 */
+	public static PrismLog openFileLog(File file) throws PrismException
+	{
+		try {
+			return new PrismPrintStreamLog(new PrintStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16)));
+		} catch (FileNotFoundException e) {
+			throw new PrismException("Could not open file \"" + file + "\" for output");
+		}
+	}
+
+	/**
+	 * Close a log opened with {@link #openFileLog(File)}, reporting any error that occurred while writing to it.
+	 */
+	public static void closeFileLog(PrismLog log, File file) throws PrismException
+	{
+		PrintStream out = ((PrismPrintStreamLog) log).getPrintStream();
+		out.close();
+		if (out.checkError())
+			throw new PrismException("Could not write path to file \"" + file + "\"");
+	}
+
 	// Setters
 
 	/**
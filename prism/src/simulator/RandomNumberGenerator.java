@@ -27,29 +27,126 @@
 
 package simulator;
 
-import cern.jet.random.Exponential;
-import cern.jet.random.Uniform;
-import cern.jet.random.engine.MersenneTwister;
+import prism.PrismException;
+import prism.PrismSettings;
 
 /**
  * Random number generator for the simulator.
- * Currently, uses the Colt library.
+ * <br>
+ * This is a SplitMix64 generator (the algorithm of {@link java.util.SplittableRandom}),
+ * which has a 64-bit state and can be reseeded without allocating objects.
+ * A generator is created from a seed and can either be used as a single stream,
+ * or switched to the stream of a particular sample with {@link #setStream(long)}.
+ * The stream of a sample only depends on the seed and the index of the sample, so
+ * results of sampling are reproducible regardless of how samples are split between threads.
+ * Streams are unrelated to the ones of the OpenCL simulator (Random123/MWC64X kernels),
+ * so the same seed doesn't give the same samples on both.
  */
 public class RandomNumberGenerator
 {
-	private MersenneTwister random;
-	private Uniform uniform;
-	private Exponential exponential;
+	// Increment of the state (odd, so that the period is 2^64)
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	// Scale of 52-bit integers to doubles in [0,1)
+	private static final double DOUBLE_UNIT = 0x1.0p-52;
+
+	// Seed of the generator and current state
+	private long seed;
+	private long state;
 
 	/**
-	 * Create a new random number generator (seeded, by default, with the current time).
+	 * Create a new random number generator with the default seed (0).
 	 */
 	public RandomNumberGenerator()
 	{
-		random = new MersenneTwister(0);//new Date());
-		uniform = new Uniform(random);
-		// Create exponential generator (rate 1.0 but this is ignored from now on)
-		exponential = new Exponential(1.0, random);
+		this(0);
+	}
+
+	/**
+	 * Create a new random number generator with the given seed.
+	 */
+	public RandomNumberGenerator(long seed)
+	{
+		setSeed(seed);
+	}
+
+	/**
+	 * Get the seed to use for simulation: the one in the settings (option {@link PrismSettings#SIMULATOR_SEED}),
+	 * or, if this is 0 (or there are no settings), a new seed derived from the current time.
+	 * Seeds are 64-bit, so any seed printed in the log can be passed back in the settings.
+	 */
+	public static long getSeed(PrismSettings settings) throws PrismException
+	{
+		long seed = 0;
+		if (settings != null) {
+			String s = settings.getString(PrismSettings.SIMULATOR_SEED).trim();
+			try {
+				seed = s.isEmpty() ? 0 : Long.parseLong(s);
+			} catch (NumberFormatException e) {
+				throw new PrismException("Invalid simulation random seed \"" + s + "\"");
+			}
+		}
+		if (seed != 0)
+			return seed;
+		return mix64(System.currentTimeMillis() ^ mix64(System.nanoTime()));
+	}
+
+	/**
+	 * Reseed the generator, restarting its main stream.
+	 */
+	public void setSeed(long seed)
+	{
+		this.seed = seed;
+		state = mix64(seed);
+	}
+
+	/**
+	 * Get the seed of the generator.
+	 */
+	public long getSeed()
+	{
+		return seed;
+	}
+
+	/**
+	 * Get the current state of the stream (e.g. to save it).
+	 */
+	public long getState()
+	{
+		return state;
+	}
+
+	/**
+	 * Restore a state of the stream obtained with {@link #getState()}.
+	 */
+	public void setState(long state)
+	{
+		this.state = state;
+	}
+
+	/**
+	 * Switch to the stream of sample {@code sample} (for the current seed).
+	 * Streams of different samples are statistically independent.
+	 */
+	public void setStream(long sample)
+	{
+		state = mix64(seed + (sample + 1) * GOLDEN_GAMMA);
+	}
+
+	/**
+	 * Create a new generator, whose stream is independent of the rest of the stream of this one.
+	 * The new generator is seeded with the next value of this stream.
+	 */
+	public RandomNumberGenerator split()
+	{
+		return new RandomNumberGenerator(nextLong());
+	}
+
+	/**
+	 * Get the next (uniformly distributed) 64-bit value of the stream.
+	 */
+	public long nextLong()
+	{
+		return mix64(state += GOLDEN_GAMMA);
 	}
 
 	/**
@@ -57,7 +154,8 @@ public class RandomNumberGenerator
 	 */
 	public int randomUnifInt(int n)
 	{
-		return uniform.nextIntFromTo(0, n - 1);
+		// Multiply-shift of 32 random bits (bias is negligible for the values of n used)
+		return (int) (((nextLong() >>> 32) * n) >>> 32);
 	}
 
 	/**
@@ -65,7 +163,8 @@ public class RandomNumberGenerator
 	 */
 	public double randomUnifDouble()
 	{
-		return random.nextDouble();
+		// Midpoints of 2^52 equal intervals, so neither 0 nor 1 is returned
+		return ((nextLong() >>> 12) + 0.5) * DOUBLE_UNIT;
 	}
 
 	/**
@@ -73,7 +172,7 @@ public class RandomNumberGenerator
 	 */
 	public double randomUnifDouble(double x)
 	{
-		return x * random.nextDouble();
+		return x * randomUnifDouble();
 	}
 
 	/**
@@ -81,7 +180,17 @@ public class RandomNumberGenerator
 	 */
 	public double randomExpDouble(double x)
 	{
-		return exponential.nextDouble(x);
-		//return (-Math.log(random.nextDouble())) / x;
+		// Inversion; u is in (0,1), so the logarithm is finite
+		return -Math.log(randomUnifDouble()) / x;
+	}
+
+	/**
+	 * Stafford's variant 13 of the 64-bit finaliser of MurmurHash3, as used by SplitMix64.
+	 */
+	public static long mix64(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
 	}
 }
@@ -0,0 +1,450 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import parser.State;
+import parser.VarList;
+import parser.ast.Expression;
+import parser.ast.ModulesFile;
+import prism.ModelType;
+import prism.PrismException;
+import simulator.compiler.CompiledModel;
+import simulator.sampler.Sampler;
+import simulator.sampler.SamplerBoolean;
+
+/**
+ * Generates a part of the samples of SimulatorEngine in a separate thread.
+ * Each worker has its own copy of the simulator state (updater, transition list, path, random number generator)
+ * and its own samplers, whose statistics are added to the samplers of the engine after each batch.
+ * For rare events, paths can be generated with importance sampling, or replaced by runs of multilevel splitting.
+ */
+class SamplingWorker implements Callable<Void>
+{
+	private final ModelType modelType;
+	private final Updater updater;
+	private final TransitionList transitionList;
+	private final TransitionList.Ref transitionRef;
+	private final PathOnTheFly path;
+	private final RandomNumberGenerator rng;
+	private final List<Sampler> samplers;
+	private final State initialState;
+	private final int maxPathLength;
+	private final State currentState;
+	private final double[] tmpStateRewards;
+	private final double[] tmpTransitionRewards;
+	// Number of paths to generate in the current batch, and index of the first one
+	private int numPaths = 0;
+	private long firstPath = 0;
+	// Path stats of the current batch
+	int numPathsDone;
+	long sumPathLength;
+	int minPathFound;
+	int maxPathFound;
+	// Was some sampler unable to determine its value on a path?
+	boolean stoppedEarly;
+
+	// Rare-event simulation: score (importance function) of states, or null if not used
+	private Expression score;
+	// Importance sampling: factor applied to the probability (rate) of a transition
+	// per unit increase of the score (1 means no importance sampling)
+	private double bias = 1.0;
+	// Likelihood ratio of the current path (importance sampling)
+	private double pathWeight;
+	// Biased weights of the transitions of the current state (importance sampling)
+	private double[] biasedWeights = new double[16];
+	// Splitting: number of paths per level (0 means no splitting), and score increase between levels
+	private int effort = 0;
+	private double levelStep;
+	// Splitting: paths from which the current level is started, and paths reaching the next one
+	private List<PathOnTheFly> starts = new ArrayList<PathOnTheFly>();
+	private List<PathOnTheFly> hits = new ArrayList<PathOnTheFly>();
+	private final ModulesFile modulesFile;
+
+	/**
+	 * @param simulator simulator which owns the worker
+	 * @param modulesFile model, as passed to the simulator
+	 * @param simplifiedModulesFile model with constants replaced, as used by the updater of the simulator
+	 * @param compiledModel compiled version of the model used by the simulator (null if none)
+	 * @param varList
+	 * @param properties processed properties loaded in the simulator
+	 * @param initialState
+	 * @param maxPathLength
+	 * @param seed seed of the random number generator (the same for all workers; each path has its own stream)
+	 */
+	public SamplingWorker(SimulatorEngine simulator, ModulesFile modulesFile, ModulesFile simplifiedModulesFile, CompiledModel compiledModel, VarList varList,
+			List<Expression> properties, State initialState, int maxPathLength, long seed) throws PrismException
+	{
+		this.modulesFile = modulesFile;
+		modelType = modulesFile.getModelType();
+		updater = new Updater(simulator, simplifiedModulesFile, varList);
+		updater.setCompiledModel(compiledModel);
+		updater.setReuseChoices(true);
+		transitionList = new TransitionList();
+		transitionRef = transitionList.new Ref();
+		path = new PathOnTheFly(modulesFile);
+		rng = new RandomNumberGenerator(seed);
+		samplers = new ArrayList<Sampler>();
+		for (Expression property : properties) {
+			samplers.add(Sampler.createSampler(property, modulesFile));
+		}
+		Sampler.shareOperands(samplers);
+		this.initialState = initialState;
+		this.maxPathLength = maxPathLength;
+		currentState = new State(varList.getNumVars());
+		tmpStateRewards = new double[simplifiedModulesFile.getNumRewardStructs()];
+		tmpTransitionRewards = new double[simplifiedModulesFile.getNumRewardStructs()];
+	}
+
+	/**
+	 * Generate paths with importance sampling: the probability (or rate) of each transition is multiplied
+	 * by {@code bias} to the power of the increase of {@code score} it causes, and the values of paths
+	 * are weighted by their likelihood ratio.
+	 */
+	public void setImportanceSampling(Expression score, double bias)
+	{
+		this.score = score;
+		this.bias = bias;
+	}
+
+	/**
+	 * Replace each path by a run of fixed-effort multilevel splitting (for a single Boolean property),
+	 * with levels every {@code levelStep} of {@code score} and {@code effort} paths per level.
+	 * Each run gives an unbiased estimate of the probability, which is added to the sampler as a weighted sample.
+	 */
+	public void setSplitting(Expression score, double levelStep, int effort)
+	{
+		this.score = score;
+		this.levelStep = levelStep;
+		this.effort = effort;
+	}
+
+	/**
+	 * Prepare the next batch.
+	 * @param numPaths number of paths to generate
+	 * @param firstPath index (over all workers) of the first path, which selects its random number stream
+	 */
+	public void startBatch(int numPaths, long firstPath)
+	{
+		this.numPaths = numPaths;
+		this.firstPath = firstPath;
+		numPathsDone = 0;
+		sumPathLength = 0;
+		minPathFound = Integer.MAX_VALUE;
+		maxPathFound = 0;
+		stoppedEarly = false;
+	}
+
+	/**
+	 * Add statistics of the last batch to samplers of the simulator and reset them here.
+	 */
+	public void finishBatch(List<Sampler> simulatorSamplers)
+	{
+		for (int i = 0; i < samplers.size(); i++) {
+			simulatorSamplers.get(i).addStats(samplers.get(i));
+			samplers.get(i).resetStats();
+		}
+	}
+
+	@Override
+	public Void call() throws PrismException
+	{
+		for (int n = 0; n < numPaths; n++) {
+			rng.setStream(firstPath + n);
+			if (effort > 0) {
+				runSplitting();
+				if (stoppedEarly)
+					return null;
+				continue;
+			}
+			int i = generatePath();
+			sumPathLength += i;
+			minPathFound = Math.min(minPathFound, i);
+			maxPathFound = Math.max(maxPathFound, i);
+			numPathsDone++;
+			// If not all samplers could produce values, this an error
+			for (Sampler sampler : samplers) {
+				if (!sampler.isCurrentValueKnown()) {
+					stoppedEarly = true;
+					return null;
+				}
+			}
+			for (Sampler sampler : samplers) {
+				if (bias != 1.0)
+					sampler.updateStats(pathWeight);
+				else
+					sampler.updateStats();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Estimate the probability of the (single) property with one run of fixed-effort multilevel splitting.
+	 * At each level, {@code effort} paths are started from states chosen uniformly among those where paths of
+	 * the previous level crossed it (initially, the initial state), and run until they cross the next level
+	 * (their score increases by {@code levelStep}) or the value of the property is known. Paths satisfying
+	 * the property count as crossing all remaining levels. The estimate is the product of the fractions of
+	 * paths crossing each level, and the run ends when all of them satisfy the property, or none cross.
+	 */
+	private void runSplitting() throws PrismException
+	{
+		SamplerBoolean sampler = (SamplerBoolean) samplers.get(0);
+		int numStarts, numHits, numSuccesses;
+		long steps = 0;
+
+		// First level: from the initial state
+		updater.calculateStateRewards(initialState, tmpStateRewards);
+		path.initialise(initialState, tmpStateRewards);
+		getPath(starts, 0).copy(path);
+		numStarts = 1;
+		double level = score.evaluateDouble(initialState) + levelStep;
+		double estimate = 1.0;
+		while (true) {
+			numHits = numSuccesses = 0;
+			for (int n = 0; n < effort; n++) {
+				// Restart from a random entrance state of this level
+				path.copy(starts.get(rng.randomUnifInt(numStarts)));
+				int size = path.size();
+				updater.calculateTransitions(path.getCurrentState(), transitionList);
+				sampler.reset();
+				sampler.update(path, transitionList);
+				// Run until the next level is crossed or the value is known
+				// (subject to the same limits as normal paths)
+				while (!sampler.isCurrentValueKnown() && score.evaluateDouble(path.getCurrentState()) < level) {
+					if (path.size() >= maxPathLength && !sampler.needsBoundedNumSteps())
+						break;
+					if (!automaticTransition())
+						break;
+				}
+				steps += path.size() - size;
+				if (sampler.isCurrentValueKnown()) {
+					if (!((Boolean) sampler.getCurrentValue()))
+						continue;
+					numSuccesses++;
+				} else if (score.evaluateDouble(path.getCurrentState()) < level) {
+					stoppedEarly = true;
+					return;
+				}
+				getPath(hits, numHits++).copy(path);
+			}
+			estimate *= numHits / (double) effort;
+			if (numHits == 0 || numSuccesses == numHits)
+				break;
+			// Next level
+			List<PathOnTheFly> tmp = starts;
+			starts = hits;
+			hits = tmp;
+			numStarts = numHits;
+			level += levelStep;
+		}
+		sampler.addWeightedSample(estimate);
+
+		// Path stats count all steps of the run
+		int i = (int) Math.min(steps, Integer.MAX_VALUE);
+		sumPathLength += steps;
+		minPathFound = Math.min(minPathFound, i);
+		maxPathFound = Math.max(maxPathFound, i);
+		numPathsDone++;
+	}
+
+	/**
+	 * Get the {@code i}th path of a list used for splitting, adding new paths if needed.
+	 */
+	private PathOnTheFly getPath(List<PathOnTheFly> paths, int i)
+	{
+		while (paths.size() <= i) {
+			paths.add(new PathOnTheFly(modulesFile));
+		}
+		return paths.get(i);
+	}
+
+	/**
+	 * Generate a path, using the same stopping conditions as {@link SimulatorEngine}.
+	 * @return length of the path
+	 */
+	private int generatePath() throws PrismException
+	{
+		updater.calculateStateRewards(initialState, tmpStateRewards);
+		path.initialise(initialState, tmpStateRewards);
+		pathWeight = 1.0;
+		updater.calculateTransitions(path.getCurrentState(), transitionList);
+		for (Sampler sampler : samplers) {
+			sampler.reset();
+			sampler.update(path, transitionList);
+		}
+		boolean allKnown = false;
+		boolean someUnknownButBounded = false;
+		int i = 0;
+		while ((!allKnown && i < maxPathLength) || someUnknownButBounded) {
+			// Check status of samplers
+			allKnown = true;
+			someUnknownButBounded = false;
+			for (Sampler sampler : samplers) {
+				if (!sampler.isCurrentValueKnown()) {
+					allKnown = false;
+					if (sampler.needsBoundedNumSteps())
+						someUnknownButBounded = true;
+				}
+			}
+			// Stop when all answers are known or we have reached max path length
+			// (but don't stop yet if there are "bounded" samplers with unknown values)
+			if ((allKnown || i >= maxPathLength) && !someUnknownButBounded)
+				break;
+			// Make a random transition; a path stops in a deadlock
+			if (!automaticTransition())
+				break;
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Select, at random, a transition from the current transition list and execute it.
+	 * Returns false if there is a deadlock.
+	 */
+	private boolean automaticTransition() throws PrismException
+	{
+		Choice choice;
+		int numChoices, i, j;
+		double d, r;
+
+		numChoices = transitionList.getNumChoices();
+		if (numChoices == 0) {
+			return false;
+		}
+		if (bias != 1.0) {
+			return automaticBiasedTransition();
+		}
+		switch (modelType) {
+		case DTMC:
+		case MDP:
+			// Pick a random choice and a random transition from this choice
+			i = rng.randomUnifInt(numChoices);
+			choice = transitionList.getChoice(i);
+			d = rng.randomUnifDouble();
+			j = choice.getIndexByProbabilitySum(d);
+			executeTransition(choice, j, modelType == ModelType.DTMC ? choice.getProbability(j) / numChoices : choice.getProbability(j), -1.0);
+			break;
+		case CTMC:
+			// Pick a random number to determine choice/transition
+			r = transitionList.getProbabilitySum();
+			d = rng.randomUnifDouble(r);
+			TransitionList.Ref ref = transitionRef;
+			transitionList.getChoiceIndexByProbabilitySum(d, ref);
+			choice = transitionList.getChoice(ref.i);
+			executeTransition(choice, ref.offset, choice.getProbability(ref.offset), rng.randomExpDouble(r));
+			break;
+		default:
+			throw new PrismException("Sampling is not supported for " + modelType + "s");
+		}
+		return true;
+	}
+
+	/**
+	 * Select a transition from the current transition list according to the measure biased
+	 * for importance sampling, execute it and update the likelihood ratio of the path.
+	 * As for unbiased sampling, choices are picked uniformly (discrete time) and the time
+	 * spent in a state follows the original exit rate (continuous time).
+	 */
+	private boolean automaticBiasedTransition() throws PrismException
+	{
+		State state = path.getCurrentState();
+		int numChoices = transitionList.getNumChoices();
+		int n = transitionList.getNumTransitions();
+		if (biasedWeights.length < n) {
+			biasedWeights = new double[Math.max(n, 2 * biasedWeights.length)];
+		}
+		// Compute the original and biased weights of all transitions
+		double base = score.evaluateDouble(state);
+		double sum = 0.0, biasedSum = 0.0;
+		for (int t = 0; t < n; t++) {
+			Choice choice = transitionList.getChoiceOfTransition(t);
+			int offset = transitionList.getChoiceOffsetOfTransition(t);
+			double q = modelType == ModelType.CTMC ? choice.getProbability(offset) : choice.getProbability(offset) / numChoices;
+			currentState.copy(state);
+			choice.computeTarget(offset, state, currentState);
+			biasedWeights[t] = q * Math.pow(bias, score.evaluateDouble(currentState) - base);
+			sum += q;
+			biasedSum += biasedWeights[t];
+		}
+		// Pick a transition according to the biased weights
+		double d = rng.randomUnifDouble(biasedSum);
+		int t = 0;
+		while (t < n - 1 && d >= biasedWeights[t]) {
+			d -= biasedWeights[t];
+			t++;
+		}
+		Choice choice = transitionList.getChoiceOfTransition(t);
+		int offset = transitionList.getChoiceOffsetOfTransition(t);
+		double q = modelType == ModelType.CTMC ? choice.getProbability(offset) : choice.getProbability(offset) / numChoices;
+		pathWeight *= (q / sum) / (biasedWeights[t] / biasedSum);
+		switch (modelType) {
+		case DTMC:
+			executeTransition(choice, offset, q, -1.0);
+			break;
+		case MDP:
+			executeTransition(choice, offset, choice.getProbability(offset), -1.0);
+			break;
+		case CTMC:
+			executeTransition(choice, offset, q, rng.randomExpDouble(sum));
+			break;
+		default:
+			throw new PrismException("Sampling is not supported for " + modelType + "s");
+		}
+		return true;
+	}
+
+	/**
+	 * Execute a transition of the current transition list, then update the transition list and the samplers.
+	 * @param choice the choice containing the transition
+	 * @param offset index of the transition within the choice
+	 * @param p probability (or rate) stored in the path
+	 * @param time time spent in the current state (continuous time), or -1 for discrete-time models
+	 */
+	private void executeTransition(Choice choice, int offset, double p, double time) throws PrismException
+	{
+		State state = path.getCurrentState();
+		updater.calculateTransitionRewards(state, choice, tmpTransitionRewards);
+		currentState.copy(state);
+		choice.computeTarget(offset, state, currentState);
+		updater.calculateStateRewards(currentState, tmpStateRewards);
+		if (time < 0.0) {
+			path.addStep(-1, choice.getModuleOrActionIndex(), p, tmpTransitionRewards, currentState, tmpStateRewards, transitionList);
+		} else {
+			path.addStep(time, -1, choice.getModuleOrActionIndex(), p, tmpTransitionRewards, currentState, tmpStateRewards, transitionList);
+		}
+		// Samplers need the transition list of the new state
+		updater.calculateTransitions(path.getCurrentState(), transitionList);
+		for (Sampler sampler : samplers) {
+			sampler.update(path, transitionList);
+		}
+	}
+}
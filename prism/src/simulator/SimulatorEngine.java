@@ -29,6 +29,10 @@ package simulator;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import parser.State;
 import parser.Values;
@@ -42,17 +46,26 @@ import parser.ast.LabelList;
 import parser.ast.ModulesFile;
 import parser.ast.PropertiesFile;
 import parser.type.Type;
+import parser.type.TypeDouble;
+import parser.type.TypeInt;
 import prism.ModelType;
 import prism.Prism;
 import prism.PrismException;
-import prism.PrismFileLog;
 import prism.PrismLangException;
 import prism.PrismLog;
+import prism.PrismSettings;
 import prism.PrismUtils;
 import prism.ResultsCollection;
 import prism.UndefinedConstants;
+import simulator.compiler.ModelCompiler;
+import simulator.method.ACIiterations;
+import simulator.method.APMCMethod;
+import simulator.method.CIMethod;
+import simulator.method.CIiterations;
+import simulator.method.SPRTMethod;
 import simulator.method.SimulationMethod;
 import simulator.sampler.Sampler;
+import simulator.sampler.SamplerBoolean;
 import userinterface.graph.Graph;
 
 /**
@@ -95,6 +108,10 @@ import userinterface.graph.Graph;
  */
 public class SimulatorEngine implements ModelCheckInterface
 {
+	// Number of paths generated by each thread in the first/largest batch of parallel sampling
+	private static final int MIN_BATCH_PER_THREAD = 16;
+	private static final int MAX_BATCH_PER_THREAD = 1024;
+
 	// PRISM stuff
 	protected Prism prism;
 	protected PrismLog mainLog;
@@ -122,6 +139,8 @@ public class SimulatorEngine implements ModelCheckInterface
 	protected State currentState;
 	// List of currently available transitions
 	protected TransitionList transitionList;
+	// Reference to a transition, reused when selecting transitions randomly
+	protected TransitionList.Ref transitionRef;
 	// Has the transition list been built? 
 	protected boolean transitionListBuilt;
 	// State for which transition list applies
@@ -133,6 +152,8 @@ public class SimulatorEngine implements ModelCheckInterface
 
 	// Updater object for model
 	protected Updater updater;
+	// Compiler for models (if enabled; keeps the last compiled model)
+	private ModelCompiler modelCompiler;
 	// Random number generator
 	private RandomNumberGenerator rng;
 
@@ -159,11 +180,13 @@ public class SimulatorEngine implements ModelCheckInterface
 		onTheFly = true;
 		currentState = null;
 		transitionList = null;
+		transitionRef = null;
 		transitionListBuilt = false;
 		transitionListState = null;
 		tmpStateRewards = null;
 		tmpTransitionRewards = null;
 		updater = null;
+		modelCompiler = null;
 		rng = new RandomNumberGenerator();
 	}
 
@@ -229,6 +252,8 @@ public class SimulatorEngine implements ModelCheckInterface
 		// Create empty (on-the-fly_ path object associated with this model
 		path = new PathOnTheFly(modulesFile);
 		onTheFly = true;
+		// Only the current transition list is needed, so reuse choices in it
+		updater.setReuseChoices(true);
 	}
 
 	/**
@@ -330,10 +355,9 @@ public class SimulatorEngine implements ModelCheckInterface
 			r = transitions.getProbabilitySum();
 			// Pick a random number to determine choice/transition
 			d = rng.randomUnifDouble(r);
-			TransitionList.Ref ref = transitions.new Ref();
-			transitions.getChoiceIndexByProbabilitySum(d, ref);
+			transitions.getChoiceIndexByProbabilitySum(d, transitionRef);
 			// Execute
-			executeTimedTransition(ref.i, ref.offset, rng.randomExpDouble(r), -1);
+			executeTimedTransition(transitionRef.i, transitionRef.offset, rng.randomExpDouble(r), -1);
 			break;
 		}
 
@@ -520,6 +544,28 @@ public class SimulatorEngine implements ModelCheckInterface
 		}
 	}
 
+	/**
+	 * Load a path through a model from a file in binary format, as written by {@link #exportPathBinary(File)}
+	 * or by path generation with the "format=binary" option.
+	 * Unlike {@link #loadPath(ModulesFile, PathFullInfo)}, transitions are not re-simulated,
+	 * so the choice taken in each step is unknown.
+	 * Note: All constants in the model must have already been defined.
+	 * @param modulesFile Model for simulation
+	 * @param file File to load path from
+	 */
+	public void loadPath(ModulesFile modulesFile, File file) throws PrismException
+	{
+		createNewPath(modulesFile);
+		PathToBinary.readPath(file, modulesFile, (PathFull) path);
+		// Update current state
+		currentState.copy(path.getCurrentState());
+		// Reset transition list 
+		transitionListBuilt = false;
+		transitionListState = null;
+		// Recompute samplers for any loaded properties
+		recomputeSamplers();
+	}
+
 	// ------------------------------------------------------------------------------
 	// Methods for adding/querying labels and properties
 	// ------------------------------------------------------------------------------
@@ -699,10 +745,22 @@ public class SimulatorEngine implements ModelCheckInterface
 		tmpStateRewards = new double[modulesFile.getNumRewardStructs()];
 		tmpTransitionRewards = new double[modulesFile.getNumRewardStructs()];
 		transitionList = new TransitionList();
+		transitionRef = transitionList.new Ref();
 
 		// Create updater for model
 		updater = new Updater(this, modulesFile, varList);
 
+		// Compile model, if requested (falling back on interpretation if not possible)
+		if (prism.getSettings().getBoolean(PrismSettings.SIMULATOR_COMPILE)) {
+			if (modelCompiler == null)
+				modelCompiler = new ModelCompiler();
+			try {
+				updater.setCompiledModel(modelCompiler.compile(modulesFile, varList));
+			} catch (PrismException e) {
+				mainLog.printWarning("Model could not be compiled for simulation, so it will be interpreted: " + e.getMessage());
+			}
+		}
+
 		// Create storage for labels/properties
 		labels = new ArrayList<Expression>();
 		properties = new ArrayList<Expression>();
@@ -1029,6 +1087,17 @@ public class SimulatorEngine implements ModelCheckInterface
 		return getTransitionList().getChoice(i).computeTarget(offset, state);
 	}
 
+	/**
+	 * Get the target of a transition, specified by its index within a choice,
+	 * storing it in an existing State object (to avoid creating a new one).
+	 */
+	public void computeTransitionTarget(int i, int offset, State target) throws PrismException
+	{
+		State state = (transitionListState == null) ? path.getCurrentState() : transitionListState;
+		target.copy(state);
+		getTransitionList().getChoice(i).computeTarget(offset, state, target);
+	}
+
 	/**
 	 * Get the target of a transition (as a new State object), specified by its index.
 	 */
@@ -1264,16 +1333,36 @@ public class SimulatorEngine implements ModelCheckInterface
 			throw new PrismException("There is no path to export");
 		// create new file log or use main log
 		if (file != null) {
-			log = new PrismFileLog(file.getPath());
-			if (!log.ready()) {
-				throw new PrismException("Could not open file \"" + file + "\" for output");
-			}
+			log = PathToText.openFileLog(file);
 			mainLog.println("\nExporting path to file \"" + file + "\"...");
 		} else {
 			log = mainLog;
 			log.println();
 		}
-		((PathFull) path).exportToLog(log, timeCumul, colSep, vars);
+		try {
+			((PathFull) path).exportToLog(log, timeCumul, colSep, vars);
+		} finally {
+			if (file != null)
+				PathToText.closeFileLog(log, file);
+		}
+	}
+
+	/**
+	 * Export the current path to a file, in binary format.
+	 * (Not applicable for on-the-fly paths)
+	 * @param file File to which the path should be exported to.
+	 */
+	public void exportPathBinary(File file) throws PrismException
+	{
+		if (path == null)
+			throw new PrismException("There is no path to export");
+		mainLog.println("\nExporting path to file \"" + file + "\"...");
+		PathToBinary displayer = new PathToBinary(file, modulesFile);
+		try {
+			((PathFull) path).display(displayer);
+		} finally {
+			displayer.close();
+		}
 	}
 
 	/**
@@ -1607,7 +1696,28 @@ public class SimulatorEngine implements ModelCheckInterface
 	 */
 	private void doSampling(State initialState, int maxPathLength) throws PrismException
 	{
-		int i, iters;
+		int threads = prism.getSettings().getInteger(PrismSettings.SIMULATOR_THREADS);
+		if (threads == 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		// Seed the random number generator; each sample uses its own stream, so results
+		// for a given seed do not depend on the number of threads
+		long seed = RandomNumberGenerator.getSeed(prism.getSettings());
+		rng.setSeed(seed);
+		mainLog.println("\nSimulation random seed: " + seed);
+		// In group-sequential mode, stopping criteria are only checked at points chosen by the methods
+		int groupSize = prism.getSettings().getInteger(PrismSettings.SIMULATOR_GROUP_SIZE);
+		for (Sampler sampler : propertySamplers) {
+			sampler.getSimulationMethod().setGroupSize(groupSize);
+		}
+		// Properties with the same operands (e.g. in an experiment) evaluate them once per step
+		Sampler.shareOperands(propertySamplers);
+		// Rare-event simulation is only implemented by the workers of parallel sampling (possibly just one)
+		if (threads > 1 || !"None".equals(prism.getSettings().getString(PrismSettings.SIMULATOR_RARE_EVENT))) {
+			doSamplingParallel(initialState, maxPathLength, threads, groupSize);
+			return;
+		}
+		int i, iters, nextCheck;
 		// Flags
 		boolean stoppedEarly = false;
 		boolean deadlocksFound = false;
@@ -1626,44 +1736,43 @@ public class SimulatorEngine implements ModelCheckInterface
 		double time_taken;
 
 		// Start
-		long start2 = System.currentTimeMillis();
 		start = System.currentTimeMillis();
 		mainLog.print("\nSampling progress: [");
 		mainLog.flush();
 
 		// Main sampling loop
 		iters = 0;
+		nextCheck = 0;
 		while (!shouldStopSampling) {
 
-			// See if all properties are done; if so, stop sampling
-			allDone = true;
-			for (Sampler sampler : propertySamplers) {
-				if (!sampler.getSimulationMethod().shouldStopNow(iters, sampler)) {
-					allDone = false;
+			// At check points, see if all properties are done; if so, stop sampling
+			if (iters >= nextCheck) {
+				allDone = true;
+				for (Sampler sampler : propertySamplers) {
+					if (!sampler.getSimulationMethod().shouldStopNow(iters, sampler)) {
+						allDone = false;
+					}
 				}
-			}
-			if (allDone) {
-
-				break;
-			}
-			if (iters % 10000 == 0) {
-				mainLog.println(String.format("Time %f - %d iterations", (System.currentTimeMillis() - start2) / 1000.0, iters));
-				start2 = System.currentTimeMillis();
-			}
-			// Display progress (of slowest property)
-			percentageDone = 0;
-			for (Sampler sampler : propertySamplers) {
-				percentageDone = Math.min(percentageDone, sampler.getSimulationMethod().getProgress(iters, sampler));
-			}
-			if (percentageDone > lastPercentageDone) {
-				lastPercentageDone = percentageDone;
-				mainLog.print(" " + lastPercentageDone + "%");
-				mainLog.flush();
+				if (allDone) {
+					break;
+				}
+				// Display progress (of slowest property)
+				percentageDone = 100;
+				for (Sampler sampler : propertySamplers) {
+					percentageDone = Math.min(percentageDone, sampler.getSimulationMethod().getProgress(iters, sampler));
+				}
+				if (percentageDone > lastPercentageDone) {
+					lastPercentageDone = percentageDone;
+					mainLog.print(" " + lastPercentageDone + "%");
+					mainLog.flush();
+				}
+				nextCheck = getNextCheck(iters);
 			}
 
 			iters++;
 
 			// Start the new path for this iteration (sample)
+			rng.setStream(iters - 1);
 			initialisePath(initialState);
 
 			// Generate a path
@@ -1671,9 +1780,6 @@ public class SimulatorEngine implements ModelCheckInterface
 			someUnknownButBounded = false;
 			i = 0;
 			while ((!allKnown && i < maxPathLength) || someUnknownButBounded) {
-				if (iters == 249 && i == 2999) {
-					mainLog.println('o');
-				}
 				// Check status of samplers
 				allKnown = true;
 				someUnknownButBounded = false;
@@ -1747,6 +1853,232 @@ public class SimulatorEngine implements ModelCheckInterface
 		}
 	}
 
+	/**
+	 * Execute sampling for the set of currently loaded properties in several threads.
+	 * Paths are generated in batches, each thread generating a part of the batch with its own
+	 * copy of the simulator state and an independent random number generator.
+	 * Statistics of the threads are added to the samplers after each batch, where the
+	 * SimulationMethod objects decide whether to stop. Batches grow geometrically,
+	 * and never exceed the number of samples when it is known in advance.
+	 * In group-sequential mode, batches also end at the check points of the methods,
+	 * and stopping criteria are not checked in between.
+	 * @param initialState Initial state (if null, the default one is used)
+	 * @param maxPathLength The maximum path length for sampling
+	 * @param threads Number of threads
+	 * @param groupSize Number of samples between checks of stopping criteria (0 means after each batch)
+	 */
+	private void doSamplingParallel(State initialState, int maxPathLength, int threads, int groupSize) throws PrismException
+	{
+		int iters, nextCheck;
+		// Flags
+		boolean stoppedEarly = false;
+		boolean allDone = false;
+		// Path stats
+		long sumPathLength = 0;
+		int minPathFound = Integer.MAX_VALUE, maxPathFound = 0;
+		// Progress info
+		int lastPercentageDone = 0;
+		int percentageDone = 0;
+		// Timing info
+		long start, stop;
+		double time_taken;
+
+		// Random initial states are not supported, same as for sequential sampling
+		if (initialState == null) {
+			if (modulesFile.getInitialStates() == null) {
+				initialState = modulesFile.getDefaultInitialState();
+			} else {
+				throw new PrismException("Random choice of multiple initial states not yet supported");
+			}
+		}
+		// Create workers, each one with a separate random number generator
+		// (with the same seed; paths are assigned streams by their index)
+		String rareEvent = prism.getSettings().getString(PrismSettings.SIMULATOR_RARE_EVENT);
+		Expression score = "None".equals(rareEvent) ? null : getRareEventScore(rareEvent);
+		List<SamplingWorker> workers = new ArrayList<SamplingWorker>();
+		for (int t = 0; t < threads; t++) {
+			SamplingWorker worker = new SamplingWorker(this, modulesFile, updater.modulesFile, updater.getCompiledModel(), varList, properties,
+					initialState, maxPathLength, rng.getSeed());
+			if ("Importance sampling".equals(rareEvent)) {
+				worker.setImportanceSampling(score, prism.getSettings().getDouble(PrismSettings.SIMULATOR_IS_BIAS));
+			} else if ("Splitting".equals(rareEvent)) {
+				worker.setSplitting(score, prism.getSettings().getDouble(PrismSettings.SIMULATOR_SPLITTING_LEVEL_STEP),
+						prism.getSettings().getInteger(PrismSettings.SIMULATOR_SPLITTING_EFFORT));
+			}
+			workers.add(worker);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		// Start
+		start = System.currentTimeMillis();
+		mainLog.print("\nSampling progress: [");
+		mainLog.flush();
+
+		// Main sampling loop
+		iters = 0;
+		nextCheck = 0;
+		int batchPerThread = MIN_BATCH_PER_THREAD;
+		try {
+			while (true) {
+				// At check points, see if all properties are done; if so, stop sampling
+				if (groupSize == 0 || iters >= nextCheck) {
+					allDone = true;
+					for (Sampler sampler : propertySamplers) {
+						if (!sampler.getSimulationMethod().shouldStopNow(iters, sampler)) {
+							allDone = false;
+						}
+					}
+					if (allDone) {
+						break;
+					}
+					// Display progress (of slowest property)
+					percentageDone = 100;
+					for (Sampler sampler : propertySamplers) {
+						percentageDone = Math.min(percentageDone, sampler.getSimulationMethod().getProgress(iters, sampler));
+					}
+					if (percentageDone > lastPercentageDone) {
+						lastPercentageDone = percentageDone;
+						mainLog.print(" " + lastPercentageDone + "%");
+						mainLog.flush();
+					}
+					nextCheck = getNextCheck(iters);
+				}
+
+				// Generate a batch of paths
+				int batch = batchPerThread * threads;
+				int limit = getNumSamplesLimit();
+				if (limit > iters) {
+					batch = Math.min(batch, limit - iters);
+				}
+				if (groupSize > 0) {
+					batch = Math.min(batch, nextCheck - iters);
+				}
+				long first = iters;
+				for (int t = 0; t < threads; t++) {
+					int count = batch / threads + (t < batch % threads ? 1 : 0);
+					workers.get(t).startBatch(count, first);
+					first += count;
+				}
+				try {
+					for (Future<Void> future : executor.invokeAll(workers)) {
+						future.get();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new PrismException("Sampling has been interrupted");
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof PrismException) {
+						throw (PrismException) e.getCause();
+					}
+					throw new PrismException("Error during sampling: " + e.getCause());
+				}
+
+				// Merge statistics of workers
+				for (SamplingWorker worker : workers) {
+					worker.finishBatch(propertySamplers);
+					iters += worker.numPathsDone;
+					sumPathLength += worker.sumPathLength;
+					if (worker.numPathsDone > 0) {
+						minPathFound = Math.min(minPathFound, worker.minPathFound);
+						maxPathFound = Math.max(maxPathFound, worker.maxPathFound);
+					}
+					stoppedEarly |= worker.stoppedEarly;
+				}
+				if (stoppedEarly) {
+					break;
+				}
+				batchPerThread = Math.min(2 * batchPerThread, MAX_BATCH_PER_THREAD);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// Print details
+		if (!stoppedEarly) {
+			mainLog.print(" 100% ]");
+			mainLog.println();
+			stop = System.currentTimeMillis();
+			time_taken = (stop - start) / 1000.0;
+			mainLog.print("\nSampling complete: ");
+			mainLog.print(iters + " iterations in " + time_taken + " seconds (average " + PrismUtils.formatDouble(2, time_taken / iters) + ", "
+					+ threads + " threads)\n");
+			mainLog.print("Path length statistics: average " + PrismUtils.formatDouble(2, sumPathLength / (double) iters) + ", min " + minPathFound
+					+ ", max " + maxPathFound + "\n");
+		} else {
+			mainLog.print(" ...\n\nSampling terminated early after " + iters + " iterations.\n");
+			throw new PrismException(
+					"One or more of the properties being sampled could not be checked on a sample. Consider increasing the maximum path length");
+		}
+	}
+
+	/**
+	 * Check that the loaded properties can be sampled with the given rare-event simulation technique
+	 * and get the score (importance function) guiding it, from the settings.
+	 * Samples are then weighted, so methods relying on values being in [0,1] or unweighted are excluded.
+	 * @param rareEvent "Importance sampling" or "Splitting"
+	 */
+	private Expression getRareEventScore(String rareEvent) throws PrismException
+	{
+		for (Sampler sampler : propertySamplers) {
+			SimulationMethod method = sampler.getSimulationMethod();
+			if (method instanceof SPRTMethod || method instanceof APMCMethod)
+				throw new PrismException("Rare-event simulation is not supported by the " + method.getFullName() + " method");
+		}
+		if ("Splitting".equals(rareEvent)) {
+			if (propertySamplers.size() != 1 || !(propertySamplers.get(0) instanceof SamplerBoolean))
+				throw new PrismException("Splitting requires a single P property");
+		}
+		// Parse score (as a property, so that formulas/labels/constants of the model can be used)
+		String s = prism.getSettings().getString(PrismSettings.SIMULATOR_RARE_EVENT_SCORE);
+		if ("".equals(s))
+			throw new PrismException("Rare-event simulation requires a score expression (-simscore)");
+		PropertiesFile pf = prism.parsePropertiesString(modulesFile, s);
+		if (pf.getNumProperties() != 1)
+			throw new PrismException("Invalid rare-event score \"" + s + "\"");
+		Expression score = pf.getProperty(0);
+		if (!(score.getType() instanceof TypeInt || score.getType() instanceof TypeDouble))
+			throw new PrismException("Rare-event score \"" + s + "\" is not a numerical expression");
+		score = (Expression) score.expandPropRefsAndLabels(pf, pf.getCombinedLabelList());
+		score = (Expression) score.replaceConstants(mfConstants);
+		score = (Expression) score.simplify();
+		mainLog.println("\nRare-event simulation: " + rareEvent.toLowerCase() + " with score " + score);
+		return score;
+	}
+
+	/**
+	 * Get the number of samples after which the stopping criteria of the loaded properties
+	 * should be checked next, i.e. the earliest check point of their simulation methods.
+	 */
+	private int getNextCheck(int iters)
+	{
+		int next = Integer.MAX_VALUE;
+		for (Sampler sampler : propertySamplers) {
+			next = Math.min(next, sampler.getSimulationMethod().getNextCheck(iters, sampler));
+		}
+		return next;
+	}
+
+	/**
+	 * Get the number of samples required by all loaded properties, if known before sampling, or -1 otherwise.
+	 */
+	private int getNumSamplesLimit()
+	{
+		int limit = 0;
+		for (Sampler sampler : propertySamplers) {
+			SimulationMethod method = sampler.getSimulationMethod();
+			if (method instanceof CIiterations || method instanceof ACIiterations || method instanceof SPRTMethod) {
+				return -1;
+			} else if (method instanceof CIMethod) {
+				limit = Math.max(limit, ((CIMethod) method).getNumberOfSamples());
+			} else if (method instanceof APMCMethod) {
+				limit = Math.max(limit, ((APMCMethod) method).getNumberOfSamples());
+			} else {
+				return -1;
+			}
+		}
+		return limit;
+	}
+
 	/**
 	 * Halt the sampling algorithm in its tracks (not implemented).
 	 */
@@ -31,6 +31,8 @@ import java.util.*;
 import parser.*;
 import parser.ast.*;
 import prism.*;
+import simulator.compiler.CompiledModel;
+import simulator.compiler.CompiledUpdate;
 
 public class Updater
 {
@@ -62,6 +64,25 @@ public class Updater
 	// (where j=0 denotes independent, otherwise 1-indexed action label)
 	protected BitSet enabledModules[];
 
+	// Should Choice objects be reused between calls to calculateTransitions?
+	protected boolean reuseChoices;
+	// Pool of Choice objects for reuse, and number of them in use
+	protected List<ChoiceListFlexi> choicePool;
+	protected int choicePoolUsed;
+	// Choices for the current action, when building synchronous transitions
+	protected List<ChoiceListFlexi> chs;
+
+	// Compiled version of the model (null if expressions are interpreted)
+	protected CompiledModel compiledModel;
+	// Index (in compiledModel) of the first update of each Updates object
+	protected Map<Updates, Integer> compiledUpdatesIndices;
+	// Compiled versions of all updates
+	protected CompiledUpdate compiledUpdates[];
+	// Values of variables in the current state, as used by compiledModel
+	protected int stateValues[];
+	// Element i of enabledCommands is true iff the guard of (global) command i is currently true
+	protected boolean enabledCommands[];
+
 	public Updater(SimulatorEngine simulator, ModulesFile modulesFile, VarList varList)
 	{
 		int i, j;
@@ -102,6 +123,64 @@ public class Updater
 		for (j = 0; j < numSynchs + 1; j++) {
 			enabledModules[j] = new BitSet(numModules);
 		}
+		reuseChoices = false;
+		choicePool = new ArrayList<ChoiceListFlexi>();
+		chs = new ArrayList<ChoiceListFlexi>();
+		compiledModel = null;
+	}
+
+	/**
+	 * Set whether Choice objects (and their storage) in transition lists are reused
+	 * from one call to {@link #calculateTransitions} to the next, rather than created anew.
+	 * This avoids most memory allocation when stepping along a path, but then a transition list
+	 * (and its choices) is only valid until transitions for the next state are calculated,
+	 * which is the case for on-the-fly paths.
+	 */
+	public void setReuseChoices(boolean reuseChoices)
+	{
+		this.reuseChoices = reuseChoices;
+	}
+
+	/**
+	 * Use a compiled version of the model to evaluate guards, probabilities/rates and updates
+	 * when calculating transitions. Pass null to return to interpreting the model.
+	 */
+	public void setCompiledModel(CompiledModel compiledModel)
+	{
+		int i, j, k, n;
+
+		this.compiledModel = compiledModel;
+		if (compiledModel == null) {
+			compiledUpdatesIndices = null;
+			compiledUpdates = null;
+			stateValues = null;
+			enabledCommands = null;
+			return;
+		}
+		compiledUpdatesIndices = new IdentityHashMap<Updates, Integer>();
+		List<CompiledUpdate> list = new ArrayList<CompiledUpdate>();
+		for (i = 0; i < numModules; i++) {
+			Module module = modulesFile.getModule(i);
+			n = module.getNumCommands();
+			for (j = 0; j < n; j++) {
+				Updates ups = module.getCommand(j).getUpdates();
+				compiledUpdatesIndices.put(ups, list.size());
+				for (k = 0; k < ups.getNumUpdates(); k++) {
+					list.add(new CompiledUpdate(ups.getUpdate(k), compiledModel, list.size()));
+				}
+			}
+		}
+		compiledUpdates = list.toArray(new CompiledUpdate[list.size()]);
+		stateValues = new int[compiledModel.getNumVars()];
+		enabledCommands = new boolean[compiledModel.getNumCommands()];
+	}
+
+	/**
+	 * Get the compiled version of the model in use (null if expressions are interpreted).
+	 */
+	public CompiledModel getCompiledModel()
+	{
+		return compiledModel;
 	}
 
 	/**
@@ -111,11 +190,11 @@ public class Updater
 	 */
 	public void calculateTransitions(State state, TransitionList transitionList) throws PrismException
 	{
-		List<ChoiceListFlexi> chs;
 		int i, j, k, l, n, count;
 
 		// Clear lists/bitsets
 		transitionList.clear();
+		choicePoolUsed = 0;
 		for (i = 0; i < numModules; i++) {
 			for (j = 0; j < numSynchs + 1; j++) {
 				updateLists.get(i).get(j).clear();
@@ -126,6 +205,12 @@ public class Updater
 			enabledModules[i].clear();
 		}
 
+		// If the model is compiled, evaluate all guards at once
+		if (compiledModel != null) {
+			compiledModel.fromState(state, stateValues);
+			compiledModel.evaluateGuards(stateValues, enabledCommands);
+		}
+
 		// Calculate the available updates for each module/action
 		// (update information in updateLists, enabledSynchs and enabledModules)
 		for (i = 0; i < numModules; i++) {
@@ -135,14 +220,16 @@ public class Updater
 
 		// Add independent transitions for each (enabled) module to list
 		for (i = enabledModules[0].nextSetBit(0); i >= 0; i = enabledModules[0].nextSetBit(i + 1)) {
-			for (Updates ups : updateLists.get(i).get(0)) {
+			List<Updates> list = updateLists.get(i).get(0);
+			n = list.size();
+			for (j = 0; j < n; j++) {
+				Updates ups = list.get(j);
 				ChoiceListFlexi ch = processUpdatesAndCreateNewChoice(-(i + 1), ups, state);
 				if (ch.size() > 0)
 					transitionList.add(ch);
 			}
 		}
 		// Add synchronous transitions to list
-		chs = new ArrayList<ChoiceListFlexi>();
 		for (i = enabledSynchs.nextSetBit(1); i >= 0; i = enabledSynchs.nextSetBit(i + 1)) {
 			chs.clear();
 			// Check counts to see if this action is blocked by some module
@@ -163,8 +250,9 @@ public class Updater
 					// Case where there are existing Choices
 					else {
 						// Product with all existing choices
-						for (ChoiceListFlexi ch : chs) {
-							processUpdatesAndAddToProduct(ups, state, ch);
+						n = chs.size();
+						for (l = 0; l < n; l++) {
+							processUpdatesAndAddToProduct(ups, state, chs.get(l));
 						}
 					}
 				}
@@ -184,7 +272,7 @@ public class Updater
 						n = chs.size();
 						for (k = 0; k < count - 1; k++)
 							for (l = 0; l < n; l++)
-								chs.add(new ChoiceListFlexi(chs.get(l)));
+								chs.add(copyChoice(chs.get(l)));
 						// Products with existing choices
 						for (k = 0; k < count; k++) {
 							Updates ups = updateLists.get(j).get(i).get(k);
@@ -196,8 +284,9 @@ public class Updater
 				}
 			}
 			// Add all new choices to transition list
-			for (ChoiceListFlexi ch : chs) {
-				transitionList.add(ch);
+			n = chs.size();
+			for (l = 0; l < n; l++) {
+				transitionList.add(chs.get(l));
 			}
 		}
 		
@@ -277,7 +366,7 @@ public class Updater
 		n = module.getNumCommands();
 		for (i = 0; i < n; i++) {
 			command = module.getCommand(i);
-			if (command.getGuard().evaluateBoolean(state)) {
+			if (compiledModel != null ? enabledCommands[compiledModel.getCommandIndex(m, i)] : command.getGuard().evaluateBoolean(state)) {
 				j = command.getSynchIndex();
 				updateLists.get(m).get(j).add(command.getUpdates());
 				enabledSynchs.set(j);
@@ -297,18 +386,18 @@ public class Updater
 	private ChoiceListFlexi processUpdatesAndCreateNewChoice(int moduleOrActionIndex, Updates ups, State state) throws PrismLangException
 	{
 		ChoiceListFlexi ch;
-		List<Update> list;
-		int i, n;
+		int i, n, base;
 		double p, sum;
 
 		// Create choice and add all info
-		ch = new ChoiceListFlexi();
+		ch = newChoice();
 		ch.setModuleOrActionIndex(moduleOrActionIndex);
 		n = ups.getNumUpdates();
+		base = compiledModel != null ? compiledUpdatesIndices.get(ups) : -1;
 		sum = 0;
 		for (i = 0; i < n; i++) {
 			// Compute probability/rate
-			p = ups.getProbabilityInState(i, state);
+			p = base >= 0 ? compiledModel.evaluateProbability(base + i, stateValues) : ups.getProbabilityInState(i, state);
 			// Check for negative/NaN probabilities/rates
 			if (Double.isNaN(p) || p < 0) {
 				String s = modelType.choicesSumToOne() ? "Probability" : "Rate";
@@ -321,9 +410,7 @@ public class Updater
 			if (p == 0)
 				continue;
 			sum += p;
-			list = new ArrayList<Update>();
-			list.add(ups.getUpdate(i));
-			ch.add(p, list);
+			ch.add(p, base >= 0 ? compiledUpdates[base + i] : ups.getUpdate(i));
 		}
 		// For now, PRISM treats empty (all zero probs/rates) distributions as an error.
 		// Later, when errors in symbolic model construction are improved, this might be relaxed.
@@ -340,6 +427,37 @@ public class Updater
 		return ch;
 	}
 
+	/**
+	 * Get an empty ChoiceListFlexi object, taken from the pool if choices are reused.
+	 */
+	private ChoiceListFlexi newChoice()
+	{
+		ChoiceListFlexi ch;
+		if (!reuseChoices)
+			return new ChoiceListFlexi();
+		if (choicePoolUsed < choicePool.size()) {
+			ch = choicePool.get(choicePoolUsed);
+			ch.clear();
+		} else {
+			ch = new ChoiceListFlexi();
+			choicePool.add(ch);
+		}
+		choicePoolUsed++;
+		return ch;
+	}
+
+	/**
+	 * Get a copy of a ChoiceListFlexi object, taken from the pool if choices are reused.
+	 */
+	private ChoiceListFlexi copyChoice(ChoiceListFlexi ch)
+	{
+		if (!reuseChoices)
+			return new ChoiceListFlexi(ch);
+		ChoiceListFlexi copy = newChoice();
+		copy.copy(ch);
+		return copy;
+	}
+
 	/**
 	 * Create a new Choice object (currently ChoiceListFlexi) based on the product
 	 * of an existing ChoiceListFlexi and an Updates object, for some (global) state.
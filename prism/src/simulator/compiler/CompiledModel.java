@@ -0,0 +1,124 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package simulator.compiler;
+
+import parser.State;
+import prism.PrismLangException;
+
+/**
+ * Guards, probabilities and updates of a model compiled to JVM bytecode by {@link ModelCompiler}.
+ * Generated subclasses evaluate expressions on values of variables stored in an int array
+ * (Boolean variables are stored as 0/1). Commands are numbered consecutively over all modules,
+ * in the order of modules and commands in the model; updates are numbered in the same way.
+ * Instances are immutable and can be shared between threads.
+ */
+public abstract class CompiledModel
+{
+	// Index of the first command of each module
+	private int[] commandOffsets;
+	// Index of the first update of each command
+	private int[] updateOffsets;
+	// Which variables are Boolean?
+	private boolean[] booleanVars;
+
+	/**
+	 * Evaluate guards of all commands.
+	 * @param s values of variables
+	 * @param enabled array in which to store the value of each guard
+	 */
+	public abstract void evaluateGuards(int[] s, boolean[] enabled) throws PrismLangException;
+
+	/**
+	 * Evaluate the probability (or rate) of an update.
+	 * @param update index of the update
+	 * @param s values of variables
+	 */
+	public abstract double evaluateProbability(int update, int[] s) throws PrismLangException;
+
+	/**
+	 * Apply assignments of an update to a copy of the current state.
+	 * @param update index of the update
+	 * @param s values of variables in the current state
+	 * @param target state to apply changes to
+	 */
+	public abstract void applyUpdate(int update, int[] s, State target) throws PrismLangException;
+
+	void setStructure(int[] commandOffsets, int[] updateOffsets, boolean[] booleanVars)
+	{
+		this.commandOffsets = commandOffsets;
+		this.updateOffsets = updateOffsets;
+		this.booleanVars = booleanVars;
+	}
+
+	/**
+	 * Get the index of the {@code c}th command of the {@code m}th module.
+	 */
+	public int getCommandIndex(int m, int c)
+	{
+		return commandOffsets[m] + c;
+	}
+
+	/**
+	 * Get the index of the first update of a command.
+	 */
+	public int getFirstUpdateIndex(int command)
+	{
+		return updateOffsets[command];
+	}
+
+	/**
+	 * Get the total number of commands.
+	 */
+	public int getNumCommands()
+	{
+		return updateOffsets.length - 1;
+	}
+
+	/**
+	 * Get the number of variables.
+	 */
+	public int getNumVars()
+	{
+		return booleanVars.length;
+	}
+
+	/**
+	 * Store values of variables of a state in an int array.
+	 * @param state the state
+	 * @param s array of length {@link #getNumVars()}
+	 */
+	public void fromState(State state, int[] s)
+	{
+		for (int i = 0; i < s.length; i++) {
+			if (booleanVars[i]) {
+				s[i] = ((Boolean) state.varValues[i]) ? 1 : 0;
+			} else {
+				s[i] = (Integer) state.varValues[i];
+			}
+		}
+	}
+}
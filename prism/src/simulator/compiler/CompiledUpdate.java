@@ -0,0 +1,82 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package simulator.compiler;
+
+import parser.State;
+import parser.ast.Update;
+import prism.PrismLangException;
+
+/**
+ * An {@link Update} whose assignments are executed by a {@link CompiledModel}
+ * rather than by evaluating its expressions.
+ * Objects of this class are not thread-safe (they use a scratch array for variable values).
+ */
+public class CompiledUpdate extends Update
+{
+	// Compiled model and index of this update in it
+	private CompiledModel compiledModel;
+	private int index;
+	// Scratch array for variable values
+	private int[] values;
+
+	/**
+	 * Create a compiled version of an update.
+	 * @param update The original update (assignments are copied from this, e.g. for display)
+	 * @param compiledModel The compiled model
+	 * @param index Index of the update in the compiled model
+	 */
+	public CompiledUpdate(Update update, CompiledModel compiledModel, int index)
+	{
+		int i, n;
+		n = update.getNumElements();
+		for (i = 0; i < n; i++) {
+			addElement(update.getVarIdent(i), update.getExpression(i));
+			setType(i, update.getType(i));
+			setVarIndex(i, update.getVarIndex(i));
+		}
+		setParent(update.getParent());
+		setPosition(update, update);
+		this.compiledModel = compiledModel;
+		this.index = index;
+		values = new int[compiledModel.getNumVars()];
+	}
+
+	@Override
+	public State update(State oldState) throws PrismLangException
+	{
+		State res = new State(oldState);
+		update(oldState, res);
+		return res;
+	}
+
+	@Override
+	public void update(State oldState, State newState) throws PrismLangException
+	{
+		compiledModel.fromState(oldState, values);
+		compiledModel.applyUpdate(index, values, newState);
+	}
+}
@@ -0,0 +1,431 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package simulator.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import parser.VarList;
+import parser.ast.Command;
+import parser.ast.Expression;
+import parser.ast.ExpressionBinaryOp;
+import parser.ast.ExpressionFunc;
+import parser.ast.ExpressionITE;
+import parser.ast.ExpressionLiteral;
+import parser.ast.ExpressionUnaryOp;
+import parser.ast.ExpressionVar;
+import parser.ast.Module;
+import parser.ast.ModulesFile;
+import parser.ast.Update;
+import parser.ast.Updates;
+import parser.type.Type;
+import parser.type.TypeBool;
+import parser.type.TypeDouble;
+import parser.type.TypeInt;
+import prism.PrismException;
+import prism.PrismLangException;
+
+/**
+ * Compiles guards, probabilities and updates of a model to JVM bytecode.
+ * <br>
+ * Java source for a subclass of {@link CompiledModel} is generated from the (constant-free) model
+ * and compiled in memory with the system Java compiler, so this requires PRISM to be run on a JDK.
+ * Models using expressions not supported here (e.g. function calls other than built-ins)
+ * cause a {@link PrismLangException}; callers are expected to fall back on interpreting the model.
+ * <br>
+ * The most recently compiled model is cached, so repeated requests for the same model
+ * (e.g. for each iteration of an experiment) do not invoke the compiler again.
+ */
+public class ModelCompiler
+{
+	// Name of the generated class (each compiled model has its own class loader)
+	private static final String CLASS_NAME = "GeneratedModel";
+	// Number of switch cases/statements per generated method
+	// (keeps methods well below the JVM's 64KB limit on the size of a method)
+	private static final int CHUNK_SIZE = 64;
+
+	// Cache of last compiled model
+	private String lastSource;
+	private CompiledModel lastModel;
+
+	/**
+	 * Compile a model. Constants should already have been replaced with their values.
+	 * @param modulesFile The model
+	 * @param varList Variables of the model
+	 */
+	public CompiledModel compile(ModulesFile modulesFile, VarList varList) throws PrismException
+	{
+		int numModules = modulesFile.getNumModules();
+		int numVars = varList.getNumVars();
+		int[] commandOffsets = new int[numModules];
+		List<Command> commands = new ArrayList<Command>();
+		List<Update> updates = new ArrayList<Update>();
+		List<Expression> probabilities = new ArrayList<Expression>();
+		List<Integer> updateOffsets = new ArrayList<Integer>();
+		boolean[] booleanVars = new boolean[numVars];
+
+		// Number commands and updates
+		for (int m = 0; m < numModules; m++) {
+			Module module = modulesFile.getModule(m);
+			commandOffsets[m] = commands.size();
+			for (int c = 0; c < module.getNumCommands(); c++) {
+				Command command = module.getCommand(c);
+				Updates ups = command.getUpdates();
+				commands.add(command);
+				updateOffsets.add(updates.size());
+				for (int u = 0; u < ups.getNumUpdates(); u++) {
+					updates.add(ups.getUpdate(u));
+					probabilities.add(ups.getProbability(u));
+				}
+			}
+		}
+		updateOffsets.add(updates.size());
+		for (int v = 0; v < numVars; v++) {
+			booleanVars[v] = varList.getType(v) instanceof TypeBool;
+		}
+
+		// Generate source
+		StringBuilder src = new StringBuilder();
+		src.append("import parser.State;\n");
+		src.append("import parser.ast.ExpressionFunc;\n");
+		src.append("import prism.PrismLangException;\n\n");
+		src.append("public final class ").append(CLASS_NAME).append(" extends ").append(CompiledModel.class.getName()).append(" {\n");
+		generateGuards(src, commands);
+		generateProbabilities(src, probabilities);
+		generateUpdates(src, updates, booleanVars);
+		src.append("}\n");
+		String source = src.toString();
+
+		CompiledModel model;
+		if (source.equals(lastSource)) {
+			model = lastModel;
+		} else {
+			model = compileSource(source);
+			lastSource = source;
+			lastModel = model;
+		}
+		int[] offsets = new int[updateOffsets.size()];
+		for (int i = 0; i < offsets.length; i++) {
+			offsets[i] = updateOffsets.get(i);
+		}
+		model.setStructure(commandOffsets, offsets, booleanVars);
+		return model;
+	}
+
+	private void generateGuards(StringBuilder src, List<Command> commands) throws PrismLangException
+	{
+		int numChunks = numChunks(commands.size());
+		src.append("public void evaluateGuards(int[] s, boolean[] e) throws PrismLangException {\n");
+		for (int chunk = 0; chunk < numChunks; chunk++) {
+			src.append("guards").append(chunk).append("(s, e);\n");
+		}
+		src.append("}\n");
+		for (int chunk = 0; chunk < numChunks; chunk++) {
+			src.append("private static void guards").append(chunk).append("(int[] s, boolean[] e) throws PrismLangException {\n");
+			for (int i = chunk * CHUNK_SIZE; i < Math.min(commands.size(), (chunk + 1) * CHUNK_SIZE); i++) {
+				src.append("e[").append(i).append("] = ").append(translate(commands.get(i).getGuard())).append(";\n");
+			}
+			src.append("}\n");
+		}
+	}
+
+	private void generateProbabilities(StringBuilder src, List<Expression> probabilities) throws PrismLangException
+	{
+		int numChunks = numChunks(probabilities.size());
+		src.append("public double evaluateProbability(int u, int[] s) throws PrismLangException {\n");
+		src.append("switch (u / ").append(CHUNK_SIZE).append(") {\n");
+		for (int chunk = 0; chunk < numChunks; chunk++) {
+			src.append("case ").append(chunk).append(": return probability").append(chunk).append("(u, s);\n");
+		}
+		src.append("default: throw new IllegalArgumentException(\"Invalid update index \" + u);\n}\n}\n");
+		for (int chunk = 0; chunk < numChunks; chunk++) {
+			src.append("private static double probability").append(chunk).append("(int u, int[] s) throws PrismLangException {\n");
+			src.append("switch (u) {\n");
+			for (int i = chunk * CHUNK_SIZE; i < Math.min(probabilities.size(), (chunk + 1) * CHUNK_SIZE); i++) {
+				Expression p = probabilities.get(i);
+				// A missing probability denotes 1
+				String value = p == null ? "1.0" : toDouble(translate(p), p.getType());
+				src.append("case ").append(i).append(": return ").append(value).append(";\n");
+			}
+			src.append("default: throw new IllegalArgumentException(\"Invalid update index \" + u);\n}\n}\n");
+		}
+	}
+
+	private void generateUpdates(StringBuilder src, List<Update> updates, boolean[] booleanVars) throws PrismLangException
+	{
+		int numChunks = numChunks(updates.size());
+		src.append("public void applyUpdate(int u, int[] s, State t) throws PrismLangException {\n");
+		src.append("switch (u / ").append(CHUNK_SIZE).append(") {\n");
+		for (int chunk = 0; chunk < numChunks; chunk++) {
+			src.append("case ").append(chunk).append(": update").append(chunk).append("(u, s, t); return;\n");
+		}
+		src.append("default: throw new IllegalArgumentException(\"Invalid update index \" + u);\n}\n}\n");
+		for (int chunk = 0; chunk < numChunks; chunk++) {
+			src.append("private static void update").append(chunk).append("(int u, int[] s, State t) throws PrismLangException {\n");
+			src.append("switch (u) {\n");
+			for (int i = chunk * CHUNK_SIZE; i < Math.min(updates.size(), (chunk + 1) * CHUNK_SIZE); i++) {
+				Update update = updates.get(i);
+				src.append("case ").append(i).append(":\n");
+				for (int j = 0; j < update.getNumElements(); j++) {
+					int v = update.getVarIndex(j);
+					String value = translate(update.getExpression(j));
+					src.append("t.varValues[").append(v).append("] = ");
+					src.append(booleanVars[v] ? "Boolean" : "Integer").append(".valueOf(").append(value).append(");\n");
+				}
+				src.append("return;\n");
+			}
+			src.append("default: throw new IllegalArgumentException(\"Invalid update index \" + u);\n}\n}\n");
+		}
+	}
+
+	private static int numChunks(int n)
+	{
+		return (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+	}
+
+	/**
+	 * Translate an expression into an equivalent Java expression over the variable array {@code s}.
+	 * The Java type of the result corresponds to the PRISM type (boolean, int or double).
+	 */
+	private String translate(Expression expr) throws PrismLangException
+	{
+		Type type = expr.getType();
+		if (expr instanceof ExpressionLiteral) {
+			Object value = ((ExpressionLiteral) expr).getValue();
+			if (type instanceof TypeDouble) {
+				double d = ((Number) value).doubleValue();
+				if (Double.isNaN(d))
+					return "Double.NaN";
+				if (Double.isInfinite(d))
+					return d > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+				return "(" + Double.toString(d) + "d)";
+			}
+			if (type instanceof TypeInt) {
+				return "(" + ((Integer) value).intValue() + ")";
+			}
+			if (type instanceof TypeBool) {
+				return ((Boolean) value).toString();
+			}
+		} else if (expr instanceof ExpressionVar) {
+			int i = ((ExpressionVar) expr).getIndex();
+			if (i >= 0) {
+				return type instanceof TypeBool ? "(s[" + i + "] != 0)" : "s[" + i + "]";
+			}
+		} else if (expr instanceof ExpressionUnaryOp) {
+			ExpressionUnaryOp e = (ExpressionUnaryOp) expr;
+			String op = translate(e.getOperand());
+			switch (e.getOperator()) {
+			case ExpressionUnaryOp.NOT:
+				return "(!" + op + ")";
+			case ExpressionUnaryOp.MINUS:
+				return "(-" + op + ")";
+			case ExpressionUnaryOp.PARENTH:
+				return op;
+			}
+		} else if (expr instanceof ExpressionBinaryOp) {
+			ExpressionBinaryOp e = (ExpressionBinaryOp) expr;
+			Type type1 = e.getOperand1().getType();
+			Type type2 = e.getOperand2().getType();
+			String op1 = translate(e.getOperand1());
+			String op2 = translate(e.getOperand2());
+			boolean ints = type1 instanceof TypeInt && type2 instanceof TypeInt;
+			boolean bools = type1 instanceof TypeBool && type2 instanceof TypeBool;
+			switch (e.getOperator()) {
+			case ExpressionBinaryOp.IMPLIES:
+				return "(!" + op1 + " || " + op2 + ")";
+			case ExpressionBinaryOp.IFF:
+				return "(" + op1 + " == " + op2 + ")";
+			case ExpressionBinaryOp.OR:
+				return "(" + op1 + " || " + op2 + ")";
+			case ExpressionBinaryOp.AND:
+				return "(" + op1 + " && " + op2 + ")";
+			case ExpressionBinaryOp.EQ:
+			case ExpressionBinaryOp.NE:
+			case ExpressionBinaryOp.GT:
+			case ExpressionBinaryOp.GE:
+			case ExpressionBinaryOp.LT:
+			case ExpressionBinaryOp.LE:
+			case ExpressionBinaryOp.PLUS:
+			case ExpressionBinaryOp.MINUS:
+			case ExpressionBinaryOp.TIMES:
+				String opSymbol = " " + ExpressionBinaryOp.opSymbols[e.getOperator()] + " ";
+				if (e.getOperator() == ExpressionBinaryOp.EQ)
+					opSymbol = " == ";
+				if (ints || bools)
+					return "(" + op1 + opSymbol + op2 + ")";
+				return "(" + toDouble(op1, type1) + opSymbol + toDouble(op2, type2) + ")";
+			case ExpressionBinaryOp.DIVIDE:
+				return "(" + toDouble(op1, type1) + " / " + toDouble(op2, type2) + ")";
+			}
+		} else if (expr instanceof ExpressionITE) {
+			ExpressionITE e = (ExpressionITE) expr;
+			String op2 = translate(e.getOperand2());
+			String op3 = translate(e.getOperand3());
+			if (type instanceof TypeDouble) {
+				op2 = toDouble(op2, e.getOperand2().getType());
+				op3 = toDouble(op3, e.getOperand3().getType());
+			}
+			return "(" + translate(e.getOperand1()) + " ? " + op2 + " : " + op3 + ")";
+		} else if (expr instanceof ExpressionFunc) {
+			return translateFunc((ExpressionFunc) expr);
+		}
+		throw new PrismLangException("Expression cannot be compiled", expr);
+	}
+
+	private String translateFunc(ExpressionFunc expr) throws PrismLangException
+	{
+		Type type = expr.getType();
+		int n = expr.getNumOperands();
+		String[] ops = new String[n];
+		for (int i = 0; i < n; i++) {
+			ops[i] = translate(expr.getOperand(i));
+			if (type instanceof TypeDouble || expr.getNameCode() == ExpressionFunc.FLOOR || expr.getNameCode() == ExpressionFunc.CEIL
+					|| expr.getNameCode() == ExpressionFunc.LOG) {
+				ops[i] = toDouble(ops[i], expr.getOperand(i).getType());
+			}
+		}
+		switch (expr.getNameCode()) {
+		case ExpressionFunc.MIN:
+		case ExpressionFunc.MAX:
+			String s = ops[0];
+			for (int i = 1; i < n; i++) {
+				s = (expr.getNameCode() == ExpressionFunc.MIN ? "Math.min(" : "Math.max(") + s + ", " + ops[i] + ")";
+			}
+			return s;
+		case ExpressionFunc.FLOOR:
+			return "ExpressionFunc.evaluateFloor(" + ops[0] + ")";
+		case ExpressionFunc.CEIL:
+			return "ExpressionFunc.evaluateCeil(" + ops[0] + ")";
+		case ExpressionFunc.POW:
+			if (type instanceof TypeInt)
+				return "ExpressionFunc.evaluatePowInt(" + ops[0] + ", " + ops[1] + ")";
+			return "ExpressionFunc.evaluatePowDouble(" + ops[0] + ", " + ops[1] + ")";
+		case ExpressionFunc.MOD:
+			return "ExpressionFunc.evaluateMod(" + ops[0] + ", " + ops[1] + ")";
+		case ExpressionFunc.LOG:
+			return "ExpressionFunc.evaluateLog(" + ops[0] + ", " + ops[1] + ")";
+		}
+		throw new PrismLangException("Function cannot be compiled", expr);
+	}
+
+	private static String toDouble(String expr, Type type)
+	{
+		return type instanceof TypeDouble ? expr : "((double) " + expr + ")";
+	}
+
+	/**
+	 * Compile generated source with the system Java compiler and instantiate the resulting class.
+	 */
+	private CompiledModel compileSource(final String source) throws PrismException
+	{
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null)
+			throw new PrismException("No Java compiler is available (a JDK is required for model compilation)");
+
+		// Keep compiled classes in memory
+		final Map<String, ByteArrayOutputStream> classes = new HashMap<String, ByteArrayOutputStream>();
+		StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, null);
+		JavaFileManager fileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(standardFileManager)
+		{
+			@Override
+			public JavaFileObject getJavaFileForOutput(Location location, final String className, Kind kind, FileObject sibling)
+			{
+				return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind)
+				{
+					@Override
+					public OutputStream openOutputStream()
+					{
+						ByteArrayOutputStream out = new ByteArrayOutputStream();
+						classes.put(className, out);
+						return out;
+					}
+				};
+			}
+		};
+		JavaFileObject sourceFile = new SimpleJavaFileObject(URI.create("string:///" + CLASS_NAME + Kind.SOURCE.extension), Kind.SOURCE)
+		{
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors)
+			{
+				return source;
+			}
+		};
+
+		// PRISM classes may not be on the class path of the JVM (e.g. when embedded), so add their location
+		String classPath = System.getProperty("java.class.path");
+		CodeSource codeSource = CompiledModel.class.getProtectionDomain().getCodeSource();
+		if (codeSource != null && "file".equals(codeSource.getLocation().getProtocol())) {
+			try {
+				classPath = new File(codeSource.getLocation().toURI()).getPath() + File.pathSeparator + classPath;
+			} catch (Exception e) {
+				// Ignore; rely on the class path only
+			}
+		}
+		List<String> options = Arrays.asList("-classpath", classPath, "-g:none", "-nowarn");
+		StringWriter errors = new StringWriter();
+		boolean ok = compiler.getTask(errors, fileManager, null, options, null, Arrays.asList(sourceFile)).call();
+		if (!ok)
+			throw new PrismException("Compilation of model failed: " + errors);
+
+		ClassLoader loader = new ClassLoader(CompiledModel.class.getClassLoader())
+		{
+			@Override
+			protected Class<?> findClass(String name) throws ClassNotFoundException
+			{
+				ByteArrayOutputStream out = classes.get(name);
+				if (out == null)
+					return super.findClass(name);
+				byte[] bytes = out.toByteArray();
+				return defineClass(name, bytes, 0, bytes.length);
+			}
+		};
+		try {
+			return (CompiledModel) loader.loadClass(CLASS_NAME).newInstance();
+		} catch (Exception e) {
+			throw new PrismException("Could not load compiled model: " + e.getMessage());
+		}
+	}
+}
@@ -163,6 +163,22 @@ public abstract class AbstractAutomaton
 		return variables;
 	}
 
+	/**
+	 * @return model with constants replaced, e.g. for reward structures
+	 */
+	public ModulesFile getModulesFile()
+	{
+		return modulesFile;
+	}
+
+	/**
+	 * @return variables of the model, ordered as in states of the explicit engine
+	 */
+	public VarList getVarList()
+	{
+		return varList;
+	}
+
 	@Override
 	public String toString()
 	{
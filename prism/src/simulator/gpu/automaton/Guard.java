@@ -37,6 +37,11 @@ public class Guard
 		simplify(guard);
 	}
 
+	public Expression getExpression()
+	{
+		return guard;
+	}
+
 	public String toString()
 	{
 		return guard.toString();
@@ -0,0 +1,215 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.jvm;
+
+import parser.State;
+import simulator.Path;
+import simulator.TransitionList;
+
+/**
+ * Path which stores only the last two states, enough for samplers of P properties.
+ * Rewards are not supported; the OpenCL simulator compiles state rewards into the kernel.
+ */
+public class AutomatonPath extends Path
+{
+	private final boolean continuousTime;
+	private final State previousState;
+	private final State currentState;
+	private int size = 0;
+	private double totalTime = 0.0;
+	private double timeInPreviousState = 0.0;
+
+	/**
+	 * @param numVars number of variables in the model
+	 * @param continuousTime true for CTMC
+	 */
+	public AutomatonPath(int numVars, boolean continuousTime)
+	{
+		this.continuousTime = continuousTime;
+		previousState = new State(numVars);
+		currentState = new State(numVars);
+	}
+
+	@Override
+	public void initialise(State initialState, double[] initialStateRewards)
+	{
+		initialise(initialState);
+	}
+
+	/**
+	 * Start a new path.
+	 * @param initialState
+	 */
+	public void initialise(State initialState)
+	{
+		currentState.copy(initialState);
+		size = 0;
+		totalTime = 0.0;
+		timeInPreviousState = 0.0;
+	}
+
+	@Override
+	public void addStep(int choice, int actionIndex, double probability, double[] transRewards, State newState, double[] newStateRewards,
+			TransitionList transitionList)
+	{
+		addStep(1.0, newState);
+	}
+
+	@Override
+	public void addStep(double time, int choice, int actionIndex, double probability, double[] transRewards, State newState,
+			double[] newStateRewards, TransitionList transitionList)
+	{
+		addStep(time, newState);
+	}
+
+	/**
+	 * Extend the path.
+	 * @param time time spent in the current state
+	 * @param newState next state, copied
+	 */
+	public void addStep(double time, State newState)
+	{
+		previousState.copy(currentState);
+		currentState.copy(newState);
+		timeInPreviousState = time;
+		totalTime += time;
+		++size;
+	}
+
+	@Override
+	public boolean continuousTime()
+	{
+		return continuousTime;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public State getPreviousState()
+	{
+		return previousState;
+	}
+
+	@Override
+	public State getCurrentState()
+	{
+		return currentState;
+	}
+
+	@Override
+	public int getPreviousModuleOrActionIndex()
+	{
+		return 0;
+	}
+
+	@Override
+	public String getPreviousModuleOrAction()
+	{
+		return "";
+	}
+
+	@Override
+	public double getPreviousProbability()
+	{
+		return 0.0;
+	}
+
+	@Override
+	public double getTotalTime()
+	{
+		return continuousTime ? totalTime : size;
+	}
+
+	@Override
+	public double getTimeInPreviousState()
+	{
+		return continuousTime ? timeInPreviousState : 1.0;
+	}
+
+	@Override
+	public double getTotalCumulativeReward(int rsi)
+	{
+		return 0.0;
+	}
+
+	@Override
+	public double getPreviousStateReward(int rsi)
+	{
+		return 0.0;
+	}
+
+	@Override
+	public double[] getPreviousStateRewards()
+	{
+		return new double[0];
+	}
+
+	@Override
+	public double getPreviousTransitionReward(int rsi)
+	{
+		return 0.0;
+	}
+
+	@Override
+	public double[] getPreviousTransitionRewards()
+	{
+		return new double[0];
+	}
+
+	@Override
+	public double getCurrentStateReward(int rsi)
+	{
+		return 0.0;
+	}
+
+	@Override
+	public double[] getCurrentStateRewards()
+	{
+		return new double[0];
+	}
+
+	@Override
+	public boolean isLooping()
+	{
+		return false;
+	}
+
+	@Override
+	public int loopStart()
+	{
+		return -1;
+	}
+
+	@Override
+	public int loopEnd()
+	{
+		return -1;
+	}
+}
@@ -0,0 +1,346 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.jvm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import parser.State;
+import parser.VarList;
+import parser.ast.Expression;
+import parser.type.TypeBool;
+import prism.Pair;
+import prism.PrismException;
+import prism.PrismLangException;
+import simulator.gpu.automaton.AbstractAutomaton;
+import simulator.gpu.automaton.AbstractAutomaton.AutomatonType;
+import simulator.gpu.automaton.PrismVariable;
+import simulator.gpu.automaton.command.AdaptCommand;
+import simulator.gpu.automaton.command.Command;
+import simulator.gpu.automaton.command.CommandInterface;
+import simulator.gpu.automaton.command.SynchronizedCommand;
+import simulator.gpu.automaton.update.Action;
+import simulator.gpu.automaton.update.Rate;
+import simulator.gpu.automaton.update.Update;
+
+/**
+ * Commands of an automaton resolved to variable indices, shared by all threads.
+ * Expressions are evaluated on states of the explicit engine, the object is never modified after construction.
+ */
+public class CompiledAutomaton
+{
+	/**
+	 * Update of a command: a list of actions with rates (probabilities for DTMC).
+	 */
+	public class CompiledUpdate
+	{
+		private final double[] constRates;
+		private final Expression[][] rateExprs;
+		private final int[][] vars;
+		private final Expression[][] values;
+
+		private CompiledUpdate(Update update) throws PrismException
+		{
+			int actions = update.getActionsNumber();
+			constRates = new double[actions];
+			rateExprs = new Expression[actions][];
+			vars = new int[actions][];
+			values = new Expression[actions][];
+			for (int i = 0; i < actions; ++i) {
+				Rate rate = update.getRate(i);
+				constRates[i] = rate.rate;
+				if (rate.isRateConst()) {
+					rateExprs[i] = new Expression[0];
+				} else {
+					rateExprs[i] = rate.expressions.toArray(new Expression[rate.expressions.size()]);
+				}
+				Action action = update.getAction(i);
+				vars[i] = new int[action.expressions.size()];
+				values[i] = new Expression[action.expressions.size()];
+				for (int j = 0; j < vars[i].length; ++j) {
+					Pair<PrismVariable, Expression> expr = action.expressions.get(j);
+					vars[i][j] = getIndex(expr.first.name);
+					values[i][j] = expr.second;
+				}
+			}
+		}
+
+		/**
+		 * @param state
+		 * @param action
+		 * @return rate of an action in state
+		 * @throws PrismLangException
+		 */
+		public double getRate(State state, int action) throws PrismLangException
+		{
+			double rate = constRates[action];
+			for (Expression expr : rateExprs[action]) {
+				rate += expr.evaluateDouble(state);
+			}
+			return rate;
+		}
+
+		/**
+		 * @param state
+		 * @return sum of rates of all actions in state
+		 * @throws PrismLangException
+		 */
+		public double getRateSum(State state) throws PrismLangException
+		{
+			double sum = 0.0;
+			for (int i = 0; i < constRates.length; ++i) {
+				sum += getRate(state, i);
+			}
+			return sum;
+		}
+
+		/**
+		 * @return number of actions
+		 */
+		public int getActionsNumber()
+		{
+			return constRates.length;
+		}
+
+		/**
+		 * Select an action with probability proportional to its rate.
+		 * @param state
+		 * @param rnd uniform number from [0,1)
+		 * @return selected action
+		 * @throws PrismLangException
+		 */
+		public int selectAction(State state, double rnd) throws PrismLangException
+		{
+			int last = constRates.length - 1;
+			if (last == 0) {
+				return 0;
+			}
+			double target = rnd * getRateSum(state);
+			double sum = 0.0;
+			for (int i = 0; i < last; ++i) {
+				sum += getRate(state, i);
+				if (target < sum) {
+					return i;
+				}
+			}
+			return last;
+		}
+
+		/**
+		 * Apply an action. All expressions are evaluated on the source state.
+		 * @param source
+		 * @param target
+		 * @param action
+		 * @throws PrismLangException when a variable leaves its range
+		 */
+		public void apply(State source, State target, int action) throws PrismLangException
+		{
+			for (int i = 0; i < vars[action].length; ++i) {
+				int var = vars[action][i];
+				Object value = values[action][i].evaluate(source);
+				if (value instanceof Integer) {
+					int intValue = (Integer) value;
+					if (intValue < lowValues[var] || intValue > highValues[var]) {
+						throw new PrismLangException(String.format("Value %d of variable %s is out of range", intValue, varList.getName(var)),
+								values[action][i]);
+					}
+				}
+				target.setValue(var, value);
+			}
+		}
+	}
+
+	/**
+	 * Command without synchronization.
+	 */
+	public class CompiledCommand
+	{
+		public final Expression guard;
+		public final CompiledUpdate update;
+
+		private CompiledCommand(Command cmd) throws PrismException
+		{
+			guard = cmd.getGuard().getExpression();
+			update = new CompiledUpdate(cmd.getUpdate());
+		}
+
+		/**
+		 * @param state
+		 * @return weight of the command when it is enabled: 1 for DTMC, sum of rates for CTMC
+		 * @throws PrismLangException
+		 */
+		public double getWeight(State state) throws PrismLangException
+		{
+			return continuousTime ? update.getRateSum(state) : 1.0;
+		}
+	}
+
+	/**
+	 * Synchronized commands of one label, grouped by modules.
+	 */
+	public class CompiledSynchronization
+	{
+		public final CompiledCommand[][] modules;
+
+		private CompiledSynchronization(SynchronizedCommand cmd) throws PrismException
+		{
+			modules = new CompiledCommand[cmd.getModulesNum()][];
+			for (int i = 0; i < modules.length; ++i) {
+				modules[i] = new CompiledCommand[cmd.getCommandNumber(i)];
+				for (int j = 0; j < modules[i].length; ++j) {
+					modules[i][j] = new CompiledCommand(cmd.getCommand(i, j));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adaptive command with two branches. The probability of the first branch is selected by the value of its variable.
+	 */
+	public class CompiledAdaptation
+	{
+		public final Expression guard;
+		public final CompiledUpdate first;
+		public final CompiledUpdate second;
+		/**
+		 * Position of the first probability of the command in a candidate.
+		 */
+		public final int offset;
+		/**
+		 * Index of the variable selecting probability, -1 when the command has only one probability.
+		 */
+		private final int var;
+		private final int minValue;
+
+		private CompiledAdaptation(AdaptCommand cmd, int offset) throws PrismException
+		{
+			List<String> names = cmd.getNames();
+			if (names.size() != 2) {
+				throw new PrismException(String.format("Adaptive command %s has %d branches, only two branches are supported", cmd.adaptLabel,
+						names.size()));
+			}
+			guard = cmd.guard.getExpression();
+			first = new CompiledUpdate(cmd.getUpdate(names.get(0)));
+			second = new CompiledUpdate(cmd.getUpdate(names.get(1)));
+			this.offset = offset;
+			if (cmd.var != null) {
+				var = getIndex(cmd.var.name);
+				minValue = cmd.var.minValue;
+			} else {
+				var = -1;
+				minValue = 0;
+			}
+		}
+
+		/**
+		 * @param state
+		 * @return position of the probability of the first branch in a candidate
+		 */
+		public int getPosition(State state)
+		{
+			return var == -1 ? offset : offset + (Integer) state.varValues[var] - minValue;
+		}
+	}
+
+	public final boolean continuousTime;
+	public final CompiledCommand[] commands;
+	public final CompiledSynchronization[] synchronizations;
+	public final CompiledAdaptation[] adaptations;
+	private final VarList varList;
+	private final int[] lowValues;
+	private final int[] highValues;
+
+	/**
+	 * Constructor.
+	 * @param model
+	 * @throws PrismException when the model contains an unsupported construction
+	 */
+	public CompiledAutomaton(AbstractAutomaton model) throws PrismException
+	{
+		continuousTime = model.getType() == AutomatonType.CTMC;
+		varList = model.getVarList();
+		int numVars = varList.getNumVars();
+		lowValues = new int[numVars];
+		highValues = new int[numVars];
+		for (int i = 0; i < numVars; ++i) {
+			lowValues[i] = varList.getLow(i);
+			highValues[i] = varList.getHigh(i);
+		}
+		List<CompiledCommand> nonsyn = new ArrayList<>();
+		List<CompiledSynchronization> syn = new ArrayList<>();
+		List<CompiledAdaptation> adapt = new ArrayList<>();
+		//positions of probabilities follow the order of commands, same as in the OpenCL kernel
+		int offset = 0;
+		for (int i = 0; i < model.commandsNumber(); ++i) {
+			CommandInterface cmd = model.getCommand(i);
+			if (cmd instanceof AdaptCommand) {
+				adapt.add(new CompiledAdaptation((AdaptCommand) cmd, offset));
+				offset += ((AdaptCommand) cmd).getBranchNum();
+			} else if (cmd instanceof SynchronizedCommand) {
+				syn.add(new CompiledSynchronization((SynchronizedCommand) cmd));
+			} else {
+				nonsyn.add(new CompiledCommand((Command) cmd));
+			}
+		}
+		commands = nonsyn.toArray(new CompiledCommand[nonsyn.size()]);
+		synchronizations = syn.toArray(new CompiledSynchronization[syn.size()]);
+		adaptations = adapt.toArray(new CompiledAdaptation[adapt.size()]);
+	}
+
+	/**
+	 * @return number of variables in a state
+	 */
+	public int getNumVars()
+	{
+		return varList.getNumVars();
+	}
+
+	/**
+	 * @return state with initial values of all variables
+	 */
+	public State createInitialState()
+	{
+		State state = new State(varList.getNumVars());
+		for (int i = 0; i < varList.getNumVars(); ++i) {
+			int value = varList.getStart(i);
+			if (varList.getType(i) instanceof TypeBool) {
+				state.setValue(i, value != 0);
+			} else {
+				state.setValue(i, value);
+			}
+		}
+		return state;
+	}
+
+	private int getIndex(String name) throws PrismException
+	{
+		int index = varList.getIndex(name);
+		if (index == -1) {
+			throw new PrismException("Unknown variable " + name);
+		}
+		return index;
+	}
+}
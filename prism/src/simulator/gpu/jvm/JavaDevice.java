@@ -0,0 +1,85 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.jvm;
+
+import simulator.gpu.RuntimeDeviceInterface;
+
+/**
+ * Processors of the machine, used by threads of the Java simulation platform.
+ */
+public class JavaDevice implements RuntimeDeviceInterface
+{
+	private final int threads;
+
+	/**
+	 * @param threads number of threads generating samples
+	 */
+	public JavaDevice(int threads)
+	{
+		this.threads = threads;
+	}
+
+	public int getThreads()
+	{
+		return threads;
+	}
+
+	@Override
+	public boolean isCPU()
+	{
+		return true;
+	}
+
+	@Override
+	public boolean isGPU()
+	{
+		return false;
+	}
+
+	@Override
+	public String getName()
+	{
+		return String.format("Java (%d threads)", threads);
+	}
+
+	@Override
+	public String getPlatformName()
+	{
+		return System.getProperty("java.vm.name");
+	}
+
+	@Override
+	public String getFrameworkVersion()
+	{
+		return System.getProperty("java.version");
+	}
+
+	@Override
+	public String toString()
+	{
+		return getName() + " " + getPlatformName() + " " + getFrameworkVersion();
+	}
+}
@@ -0,0 +1,263 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.jvm;
+
+import parser.State;
+import prism.PrismException;
+import prism.PrismLangException;
+import simulator.RandomNumberGenerator;
+import simulator.gpu.jvm.CompiledAutomaton.CompiledAdaptation;
+import simulator.gpu.jvm.CompiledAutomaton.CompiledCommand;
+import simulator.gpu.jvm.CompiledAutomaton.CompiledSynchronization;
+import simulator.gpu.jvm.CompiledAutomaton.CompiledUpdate;
+import simulator.sampler.SamplerBoolean;
+
+/**
+ * Generates paths of a compiled automaton, one object per thread.
+ * Semantics follows the OpenCL kernel: adaptive commands have priority over other commands
+ * and a path ending in a deadlock, a deterministic self-loop or at the maximal length
+ * without a known value of the property is a negative sample.
+ */
+public class PathGenerator
+{
+	private final CompiledAutomaton model;
+	private final State initialState;
+	private final long maxPathLength;
+	private final AutomatonPath path;
+	private final State nextState;
+	private final double[] commandWeights;
+	private final double[] synWeights;
+	private final double[][] moduleWeights;
+	private boolean deterministic = false;
+	private double exitRate = 0.0;
+
+	/**
+	 * @param model
+	 * @param initialState
+	 * @param maxPathLength
+	 */
+	public PathGenerator(CompiledAutomaton model, State initialState, long maxPathLength)
+	{
+		this.model = model;
+		this.initialState = initialState;
+		this.maxPathLength = maxPathLength;
+		path = new AutomatonPath(model.getNumVars(), model.continuousTime);
+		nextState = new State(model.getNumVars());
+		commandWeights = new double[model.commands.length];
+		synWeights = new double[model.synchronizations.length];
+		moduleWeights = new double[model.synchronizations.length][];
+		for (int i = 0; i < moduleWeights.length; ++i) {
+			moduleWeights[i] = new double[model.synchronizations[i].modules.length];
+		}
+	}
+
+	/**
+	 * Generate a path and decide the property.
+	 * @param sampler sampler of the property, its statistics are not changed
+	 * @param probabilities probabilities of adaptive commands
+	 * @param rnd
+	 * @return value of the property on the path, before negation of the sampler
+	 * @throws PrismException
+	 */
+	public boolean generate(SamplerBoolean sampler, float[] probabilities, RandomNumberGenerator rnd) throws PrismException
+	{
+		sampler.reset();
+		path.initialise(initialState);
+		sampler.update(path, null);
+		while (!sampler.isCurrentValueKnown() && path.size() < maxPathLength) {
+			State state = path.getCurrentState();
+			nextState.copy(state);
+			double time = 1.0;
+			if (!adapt(state, probabilities, rnd)) {
+				if (!step(state, rnd)) {
+					break;
+				}
+				if (model.continuousTime) {
+					time = rnd.randomExpDouble(exitRate);
+				}
+			} else if (model.continuousTime) {
+				//choice of an adaptive branch is instantaneous
+				time = 0.0;
+			}
+			boolean loop = deterministic && state.equals(nextState);
+			path.addStep(time, nextState);
+			sampler.update(path, null);
+			if (loop) {
+				break;
+			}
+		}
+		if (!sampler.isCurrentValueKnown()) {
+			return false;
+		}
+		return ((Boolean) sampler.getCurrentValue()) != sampler.getNegated();
+	}
+
+	/**
+	 * @return length of the last generated path
+	 */
+	public int getPathLength()
+	{
+		return path.size();
+	}
+
+	/**
+	 * Apply the first enabled adaptive command.
+	 * @return false if no adaptive command is enabled
+	 */
+	private boolean adapt(State state, float[] probabilities, RandomNumberGenerator rnd) throws PrismLangException
+	{
+		deterministic = false;
+		for (CompiledAdaptation adapt : model.adaptations) {
+			if (!adapt.guard.evaluateBoolean(state)) {
+				continue;
+			}
+			double prob = probabilities[adapt.getPosition(state)];
+			double r = rnd.randomUnifDouble();
+			//the same number selects the branch and, rescaled, the action in it
+			if (r < prob) {
+				apply(adapt.first, state, r / prob);
+			} else {
+				apply(adapt.second, state, (r - prob) / (1.0 - prob));
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Select a command or a synchronization with probability proportional to its weight and apply it.
+	 * @return false in a deadlock
+	 */
+	private boolean step(State state, RandomNumberGenerator rnd) throws PrismLangException
+	{
+		int enabled = 0;
+		exitRate = 0.0;
+		for (int i = 0; i < commandWeights.length; ++i) {
+			CompiledCommand cmd = model.commands[i];
+			commandWeights[i] = cmd.guard.evaluateBoolean(state) ? cmd.getWeight(state) : 0.0;
+			if (commandWeights[i] > 0.0) {
+				++enabled;
+				exitRate += commandWeights[i];
+			}
+		}
+		for (int i = 0; i < synWeights.length; ++i) {
+			CompiledSynchronization syn = model.synchronizations[i];
+			//number of combinations (DTMC) or product of rates (CTMC) of enabled commands in all modules
+			double weight = 1.0;
+			int combinations = 1;
+			for (int j = 0; j < syn.modules.length; ++j) {
+				double sum = 0.0;
+				int count = 0;
+				for (CompiledCommand cmd : syn.modules[j]) {
+					if (cmd.guard.evaluateBoolean(state)) {
+						sum += cmd.getWeight(state);
+						++count;
+					}
+				}
+				moduleWeights[i][j] = sum;
+				weight *= sum;
+				combinations *= count;
+			}
+			synWeights[i] = weight;
+			if (weight > 0.0) {
+				enabled += combinations;
+				exitRate += weight;
+			}
+		}
+		if (enabled == 0) {
+			return false;
+		}
+		deterministic = enabled == 1;
+		double target = rnd.randomUnifDouble() * exitRate;
+		for (int i = 0; i < commandWeights.length; ++i) {
+			if (commandWeights[i] > 0.0) {
+				target -= commandWeights[i];
+				if (target < 0.0 || lastEnabled(i + 1, 0)) {
+					apply(model.commands[i].update, state, rnd.randomUnifDouble());
+					return true;
+				}
+			}
+		}
+		for (int i = 0; i < synWeights.length; ++i) {
+			if (synWeights[i] > 0.0) {
+				target -= synWeights[i];
+				if (target < 0.0 || lastEnabled(commandWeights.length, i + 1)) {
+					applySynchronization(i, state, rnd);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Guard against rounding errors: the last enabled choice is taken when the target has not been reached.
+	 * @return true if no command from command and no synchronization from syn is enabled
+	 */
+	private boolean lastEnabled(int command, int syn)
+	{
+		for (int i = command; i < commandWeights.length; ++i) {
+			if (commandWeights[i] > 0.0) {
+				return false;
+			}
+		}
+		for (int i = syn; i < synWeights.length; ++i) {
+			if (synWeights[i] > 0.0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * In each module, select an enabled command proportionally to its weight and apply one of its actions.
+	 */
+	private void applySynchronization(int syn, State state, RandomNumberGenerator rnd) throws PrismLangException
+	{
+		CompiledCommand[][] modules = model.synchronizations[syn].modules;
+		for (int j = 0; j < modules.length; ++j) {
+			double target = rnd.randomUnifDouble() * moduleWeights[syn][j];
+			CompiledCommand selected = null;
+			for (CompiledCommand cmd : modules[j]) {
+				if (cmd.guard.evaluateBoolean(state)) {
+					selected = cmd;
+					target -= cmd.getWeight(state);
+					if (target < 0.0) {
+						break;
+					}
+				}
+			}
+			apply(selected.update, state, rnd.randomUnifDouble());
+		}
+	}
+
+	private void apply(CompiledUpdate update, State state, double rnd) throws PrismLangException
+	{
+		int action = update.selectAction(state, rnd);
+		deterministic &= update.getActionsNumber() == 1;
+		update.apply(state, nextState, action);
+	}
+}
@@ -0,0 +1,385 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.jvm;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import parser.State;
+import parser.ast.Expression;
+import parser.ast.ModulesFile;
+import parser.ast.PropertiesFile;
+import prism.Preconditions;
+import prism.PrismException;
+import prism.PrismLog;
+import prism.PrismSettings;
+import simulator.RandomNumberGenerator;
+import simulator.gpu.RuntimeDeviceInterface;
+import simulator.gpu.RuntimeFrameworkInterface;
+import simulator.gpu.automaton.AbstractAutomaton;
+import simulator.gpu.optimizer.AdaptOptimizer;
+import simulator.gpu.optimizer.AdaptiveSearch;
+import simulator.gpu.optimizer.SamplingEvaluator;
+import simulator.method.SimulationMethod;
+import simulator.sampler.Sampler;
+import simulator.sampler.SamplerBoolean;
+
+/**
+ * Simulation platform running the automaton on a pool of Java threads.
+ * Needs no native libraries, so adaptive search is available on machines without OpenCL.
+ */
+public class RuntimeJava implements RuntimeFrameworkInterface
+{
+	/**
+	 * Minimal number of samples generated by one task.
+	 */
+	private static final int MIN_TASK_SAMPLES = 1000;
+
+	private final JavaDevice device;
+	private long maxPathLength = 0;
+	private State initialState = null;
+	private PrismLog mainLog = null;
+	private PrismSettings prismSettings = null;
+	private ModulesFile mf;
+	private PropertiesFile pf;
+	private Expression expr;
+
+	public RuntimeJava()
+	{
+		device = new JavaDevice(Runtime.getRuntime().availableProcessors());
+	}
+
+	@Override
+	public String getFrameworkName()
+	{
+		return "Java";
+	}
+
+	@Override
+	public String[] getPlatformNames()
+	{
+		return new String[] { device.getPlatformName() };
+	}
+
+	@Override
+	public int getPlatformNumber()
+	{
+		return 1;
+	}
+
+	@Override
+	public String getPlatformInfo(int i)
+	{
+		Preconditions.checkIndex(i, 1, String.format("%d is not valid platform number", i));
+		return device.toString();
+	}
+
+	@Override
+	public RuntimeDeviceInterface[] getDevices()
+	{
+		return new RuntimeDeviceInterface[] { device };
+	}
+
+	@Override
+	public String[] getDevicesNames()
+	{
+		return new String[] { device.getName() };
+	}
+
+	@Override
+	public RuntimeDeviceInterface getMaxFlopsDevice()
+	{
+		return device;
+	}
+
+	@Override
+	public RuntimeDeviceInterface getMaxFlopsDevice(DeviceType type)
+	{
+		return device;
+	}
+
+	@Override
+	public void selectDevice(RuntimeDeviceInterface device)
+	{
+		Preconditions.checkCondition(device instanceof JavaDevice, "RuntimeJava can't select non-java device");
+	}
+
+	@Override
+	public void setMF(ModulesFile mf)
+	{
+		this.mf = mf;
+	}
+
+	@Override
+	public void setPF(PropertiesFile pf)
+	{
+		this.pf = pf;
+	}
+
+	@Override
+	public void setExprs(Expression expr)
+	{
+		this.expr = expr;
+	}
+
+	@Override
+	public int simulateProperty(AbstractAutomaton model, List<Sampler> properties) throws PrismException
+	{
+		Preconditions.checkNotNull(mainLog, "");
+		Preconditions.checkCondition(maxPathLength > 0, "");
+		int threads = 0;
+		if (prismSettings != null) {
+			threads = prismSettings.getInteger(PrismSettings.SIMULATOR_THREADS);
+		}
+		if (threads == 0) {
+			threads = device.getThreads();
+		}
+		mainLog.println(String.format("Using: Java (%d threads)", threads));
+		CompiledAutomaton compiled = new CompiledAutomaton(model);
+		State init = initialState != null ? initialState : compiled.createInitialState();
+		int branchCount = AdaptiveSearch.countBranches(model);
+		SimulationMethod sm = properties.get(0).getSimulationMethod().clone();
+		Expression propNew = AdaptiveSearch.prepareProperty(expr, mf, pf);
+		sm.setExpression(propNew);
+		AdaptiveSearch search = new AdaptiveSearch(prismSettings, mainLog);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		long seed = RandomNumberGenerator.getSeed(prismSettings);
+		mainLog.println("Simulation random seed: " + seed);
+		JavaEvaluator evaluator = new JavaEvaluator(propNew, sm, search.useCommonRandomNumbers(), compiled, init, pool, threads, seed);
+		try {
+			AdaptOptimizer optimizer = search.createOptimizer(branchCount);
+			search.run(optimizer, evaluator, branchCount, seed);
+		} finally {
+			pool.shutdownNow();
+		}
+		return (int) Math.min(Integer.MAX_VALUE, evaluator.getSamplesProcessed());
+	}
+
+	/**
+	 * Samples generated by one task.
+	 */
+	private static class TaskResult
+	{
+		int numTrue = 0;
+		int minPathLength = Integer.MAX_VALUE;
+		int maxPathLength = 0;
+		long sumPathLength = 0;
+		/**
+		 * Values of samples after negation, only for common random numbers.
+		 */
+		BitSet outcomes = null;
+	}
+
+	/**
+	 * Evaluates candidates by splitting their samples into tasks of the pool.
+	 */
+	private class JavaEvaluator extends SamplingEvaluator
+	{
+		private final CompiledAutomaton model;
+		private final State initialState;
+		private final ForkJoinPool pool;
+		private final int threads;
+		private long seed;
+
+		public JavaEvaluator(Expression property, SimulationMethod method, boolean pairedSamples, CompiledAutomaton model, State initialState,
+				ForkJoinPool pool, int threads, long seed)
+		{
+			super(property, mf, method, pairedSamples, RuntimeJava.this.mainLog);
+			this.model = model;
+			this.initialState = initialState;
+			this.pool = pool;
+			this.threads = threads;
+			this.seed = seed;
+		}
+
+		@Override
+		protected void simulate(int[] indices, int[] counts, int[] offsets) throws PrismException
+		{
+			long start = System.currentTimeMillis();
+			int total = 0;
+			for (int count : counts) {
+				total += count;
+			}
+			//a few tasks per thread balance paths of different lengths
+			int taskSize = Math.max(MIN_TASK_SAMPLES, total / (4 * threads) + 1);
+			List<Callable<TaskResult>> tasks = new ArrayList<>();
+			List<Integer> owners = new ArrayList<>();
+			for (int i = 0; i < indices.length; ++i) {
+				for (int first = 0; first < counts[i]; first += taskSize) {
+					tasks.add(createTask(candidates[indices[i]], offsets[i] + first, Math.min(taskSize, counts[i] - first)));
+					owners.add(i);
+				}
+			}
+			List<Future<TaskResult>> futures = pool.invokeAll(tasks);
+			TaskResult[] results = new TaskResult[indices.length];
+			for (int i = 0; i < indices.length; ++i) {
+				results[i] = new TaskResult();
+				if (outcomes != null) {
+					results[i].outcomes = new BitSet();
+				}
+			}
+			int[] position = new int[indices.length];
+			for (int i = 0; i < futures.size(); ++i) {
+				TaskResult task = getResult(futures.get(i));
+				int owner = owners.get(i);
+				TaskResult result = results[owner];
+				result.numTrue += task.numTrue;
+				result.minPathLength = Math.min(result.minPathLength, task.minPathLength);
+				result.maxPathLength = Math.max(result.maxPathLength, task.maxPathLength);
+				result.sumPathLength += task.sumPathLength;
+				if (outcomes != null) {
+					int taskSamples = Math.min(taskSize, counts[owner] - position[owner]);
+					for (int bit = task.outcomes.nextSetBit(0); bit >= 0; bit = task.outcomes.nextSetBit(bit + 1)) {
+						result.outcomes.set(position[owner] + bit);
+					}
+					position[owner] += taskSamples;
+				}
+			}
+			long time = System.currentTimeMillis() - start;
+			for (int i = 0; i < indices.length; ++i) {
+				SamplerBoolean sampler = samplers[indices[i]];
+				TaskResult result = results[i];
+				if (outcomes != null) {
+					int base = sampler.getNumSamples();
+					for (int bit = result.outcomes.nextSetBit(0); bit >= 0; bit = result.outcomes.nextSetBit(bit + 1)) {
+						outcomes[indices[i]].set(base + bit);
+					}
+				}
+				int numTrue = sampler.getNegated() ? counts[i] - result.numTrue : result.numTrue;
+				sampler.addStats(numTrue, counts[i]);
+				samplesProcessed += counts[i];
+				mainLog.println(String.format("Sampling: %d samples in %d miliseconds.", counts[i], time));
+				mainLog.println(String.format("Path length: min %d, max %d, avg %f", result.minPathLength, result.maxPathLength,
+						(float) result.sumPathLength / counts[i]));
+			}
+			simulationTime += time / 1000.0;
+		}
+
+		/**
+		 * @param probabilities candidate
+		 * @param offset PRNG offset of the first sample
+		 * @param count number of samples
+		 * @return task generating samples; numTrue counts values before negation of the sampler
+		 * @throws PrismException
+		 */
+		private Callable<TaskResult> createTask(final float[] probabilities, final int offset, final int count) throws PrismException
+		{
+			//samplers are created here, the property is not shared between threads
+			final SamplerBoolean sampler = createSampler();
+			final boolean paired = outcomes != null;
+			final long taskSeed = seed;
+			return new Callable<TaskResult>()
+			{
+				@Override
+				public TaskResult call() throws PrismException
+				{
+					PathGenerator generator = new PathGenerator(model, initialState, maxPathLength);
+					TaskResult result = new TaskResult();
+					if (paired) {
+						result.outcomes = new BitSet(count);
+					}
+					RandomNumberGenerator rnd = new RandomNumberGenerator(taskSeed);
+					for (int i = 0; i < count; ++i) {
+						//streams depend only on the sample, not on the thread generating it
+						rnd.setStream(offset + i);
+						boolean value = generator.generate(sampler, probabilities, rnd);
+						if (value) {
+							++result.numTrue;
+						}
+						if (paired && value != sampler.getNegated()) {
+							result.outcomes.set(i);
+						}
+						int length = generator.getPathLength();
+						result.minPathLength = Math.min(result.minPathLength, length);
+						result.maxPathLength = Math.max(result.maxPathLength, length);
+						result.sumPathLength += length;
+					}
+					return result;
+				}
+			};
+		}
+
+		private TaskResult getResult(Future<TaskResult> future) throws PrismException
+		{
+			try {
+				return future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new PrismException("Simulation has been interrupted");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof PrismException) {
+					throw (PrismException) e.getCause();
+				}
+				throw new PrismException("Simulation failed: " + e.getCause());
+			}
+		}
+
+		@Override
+		protected void saveBackendState(DataOutput out) throws IOException
+		{
+			out.writeLong(seed);
+		}
+
+		@Override
+		protected void loadBackendState(DataInput in) throws IOException
+		{
+			//samples of resumed search continue the same streams
+			seed = in.readLong();
+		}
+	}
+
+	@Override
+	public void setInitialState(State initialState)
+	{
+		this.initialState = initialState;
+	}
+
+	@Override
+	public void setMaxPathLength(long maxPathLength)
+	{
+		this.maxPathLength = maxPathLength;
+	}
+
+	@Override
+	public void setMainLog(PrismLog mainLog)
+	{
+		this.mainLog = mainLog;
+	}
+
+	@Override
+	public void setPrismSettings(PrismSettings settings)
+	{
+		this.prismSettings = settings;
+	}
+}
@@ -0,0 +1,181 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.opencl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import prism.PrismLog;
+
+import com.nativelibs4java.opencl.CLBuildException;
+import com.nativelibs4java.opencl.CLContext;
+import com.nativelibs4java.opencl.CLDevice;
+import com.nativelibs4java.opencl.CLProgram;
+
+/**
+ * Cache of compiled OpenCL programs.
+ * Programs are identified by hash of the kernel source and description of the device (name, vendor, driver).
+ * Binaries are kept in memory, so RuntimeContexts for an identical automaton compile the program only once,
+ * and stored in a directory, so the next run on the same model and device skips compilation.
+ */
+public class ProgramCache
+{
+	/**
+	 * Default location of binaries: ~/.prism-opencl-cache
+	 */
+	public static final File DEFAULT_DIRECTORY = new File(System.getProperty("user.home") + File.separator + ".prism-opencl-cache");
+	private static final String BINARY_EXTENSION = ".clbin";
+	/**
+	 * Directory for binaries. When null, binaries are cached only in memory.
+	 */
+	private final File directory;
+	private final Map<String, byte[]> binaries = new HashMap<>();
+	private PrismLog mainLog = null;
+
+	public ProgramCache(File directory, PrismLog mainLog)
+	{
+		this.directory = directory;
+		this.mainLog = mainLog;
+	}
+
+	/**
+	 * Create and build a program for the device in the given context.
+	 * Uses a cached binary when available; otherwise compiles the source and caches the result.
+	 * @param context OpenCL context containing device
+	 * @param device
+	 * @param source kernel source
+	 * @return built program
+	 * @throws CLBuildException
+	 */
+	public synchronized CLProgram getProgram(CLContext context, CLDeviceWrapper device, String source) throws CLBuildException
+	{
+		String key = createKey(device.getDevice(), source);
+		byte[] binary = binaries.get(key);
+		if (binary == null) {
+			binary = load(key);
+		}
+		if (binary != null) {
+			try {
+				Map<CLDevice, byte[]> map = new HashMap<>();
+				map.put(device.getDevice(), binary);
+				CLProgram program = context.createProgram(map, source);
+				program.build();
+				binaries.put(key, binary);
+				return program;
+			} catch (CLBuildException exc) {
+				//binary may be rejected after a driver update
+				mainLog.println("Cached OpenCL binary rejected, rebuilding program: " + exc.getMessage());
+				binaries.remove(key);
+			}
+		}
+		CLProgram program = context.createProgram(source);
+		addIncludes(program);
+		program.build();
+		binary = program.getBinaries().get(device.getDevice());
+		if (binary != null) {
+			binaries.put(key, binary);
+			store(key, binary);
+		}
+		return program;
+	}
+
+	/**
+	 * Add include directories for PRNG.
+	 * Has to work when application is executed as Java class or as a jar.
+	 * @param program
+	 */
+	private void addIncludes(CLProgram program)
+	{
+		//TODO: for others rng
+		program.addInclude("src/gpu/");
+		program.addInclude("gpu/Random123/features");
+		program.addInclude("gpu/Random123");
+		program.addInclude("gpu/");
+	}
+
+	private byte[] load(String key)
+	{
+		if (directory == null) {
+			return null;
+		}
+		File file = new File(directory, key + BINARY_EXTENSION);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			return Files.readAllBytes(file.toPath());
+		} catch (IOException exc) {
+			mainLog.println("Can't read cached OpenCL binary " + file.getPath() + ": " + exc.getMessage());
+			return null;
+		}
+	}
+
+	private void store(String key, byte[] binary)
+	{
+		if (directory == null) {
+			return;
+		}
+		File file = new File(directory, key + BINARY_EXTENSION);
+		try {
+			Files.createDirectories(directory.toPath());
+			//write to temporary file and rename, so concurrent runs never see a partial binary
+			File temp = File.createTempFile(key, ".tmp", directory);
+			Files.write(temp.toPath(), binary);
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException exc) {
+			mainLog.println("Can't store OpenCL binary in " + file.getPath() + ": " + exc.getMessage());
+		}
+	}
+
+	/**
+	 * @param device
+	 * @param source
+	 * @return SHA-256 of source and device description, as hex string
+	 */
+	static String createKey(CLDevice device, String source)
+	{
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(source.getBytes(StandardCharsets.UTF_8));
+			String deviceDescription = device.getName() + "\n" + device.getVendor() + "\n" + device.getDriverVersion() + "\n" + device.getVersion();
+			digest.update(deviceDescription.getBytes(StandardCharsets.UTF_8));
+			StringBuilder builder = new StringBuilder();
+			for (byte b : digest.digest()) {
+				builder.append(String.format("%02x", b));
+			}
+			return builder.toString();
+		} catch (NoSuchAlgorithmException exc) {
+			throw new RuntimeException("SHA-256 is not available!", exc);
+		}
+	}
+}
@@ -47,6 +47,23 @@ public class RuntimeConfig
 		MERSENNE_TWISTER, MWC64X
 	}
 
+	/**
+	 * Assignment of PRNG sample offsets to simulations started together.
+	 */
+	public enum SampleOffsetPolicy {
+		/**
+		 * Each simulation uses a separate range of PRNG counters.
+		 */
+		INDEPENDENT,
+		/**
+		 * All simulations use the same range of PRNG counters (common random numbers),
+		 * so i-th samples of different simulations are positively correlated.
+		 */
+		COMMON
+	}
+
+	public SampleOffsetPolicy offsetPolicy = SampleOffsetPolicy.INDEPENDENT;
+
 	public RuntimeConfig()
 	{
 	}
@@ -61,6 +78,7 @@ public class RuntimeConfig
 		this.localMemorySize = config.localMemorySize;
 		this.prngType = config.prngType;
 		this.prngSeed = config.prngSeed;
+		this.offsetPolicy = config.offsetPolicy;
 	}
 
 	public void configDevice(CLDeviceWrapper dev) throws KernelException
@@ -26,7 +26,10 @@
 package simulator.gpu.opencl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -44,6 +47,7 @@ import prism.PrismLog;
 import simulator.gpu.automaton.AbstractAutomaton;
 import simulator.gpu.opencl.kernel.Kernel;
 import simulator.gpu.opencl.kernel.KernelException;
+import simulator.gpu.opencl.kernel.ResultReduction;
 import simulator.method.ACIiterations;
 import simulator.method.APMCMethod;
 import simulator.method.CIMethod;
@@ -52,6 +56,7 @@ import simulator.method.SPRTMethod;
 import simulator.method.SimulationMethod;
 import simulator.sampler.Sampler;
 import simulator.sampler.SamplerBoolean;
+import simulator.sampler.SamplerDouble;
 
 import com.nativelibs4java.opencl.CLBuffer;
 import com.nativelibs4java.opencl.CLBuildException;
@@ -62,6 +67,7 @@ import com.nativelibs4java.opencl.CLKernel;
 import com.nativelibs4java.opencl.CLMem;
 import com.nativelibs4java.opencl.CLProgram;
 import com.nativelibs4java.opencl.CLQueue;
+import com.nativelibs4java.opencl.LocalSize;
 
 public class RuntimeContext
 {
@@ -117,6 +123,21 @@ public class RuntimeContext
 			realProperties = samplers;
 		}
 
+		/**
+		 * Copy probabilities of adaptive commands to the device.
+		 * The kernel always takes the buffer, so it has at least one element for models without adaptive commands.
+		 * @param prob
+		 */
+		public void setProbabilities(float[] prob)
+		{
+			if (probBuffer != null) {
+				probBuffer.release();
+			}
+			buffer = Pointer.allocateFloats(Math.max(prob.length, 1));
+			buffer.setFloats(prob);
+			probBuffer = context.createFloatBuffer(CLMem.Usage.Input, buffer, true);
+		}
+
 		protected CLEvent enqueueKernel(int samplesToProcess, int resultsOffset, int pathsOffset, float[] prob, int samplesProcessed1)
 		{
 			int currentGWSize = samplesToProcess;
@@ -148,7 +169,52 @@ public class RuntimeContext
 			return programKernel.enqueueNDRange(queue, new int[] { currentGWSize }, new int[] { localWorkSize });
 		}
 
+		/**
+		 * Add results of samples to samplers. Results are reduced on the device,
+		 * unless values of separate samples are recorded.
+		 * @param start
+		 * @param samples
+		 * @throws PrismException
+		 */
 		protected void readResults(int start, int samples) throws PrismException
+		{
+			if (outcomes != null) {
+				readSampleResults(start, samples);
+			}
+			for (int i = 0; i < properties.size(); ++i) {
+				Sampler property = realProperties.get(i);
+				if (property.isCurrentValueKnown()) {
+					continue;
+				}
+				if (property instanceof SamplerDouble) {
+					double[] result = reduceRewards(resultBuffers.get(i), start, samples);
+					if (result[ResultReduction.REWARD_COUNT] < samples) {
+						throw new PrismException("Property was not verified on one of the samples!");
+					}
+					((SamplerDouble) property).addMoments(samples, result[ResultReduction.REWARD_MEAN], result[ResultReduction.REWARD_M2]);
+				} else if (outcomes == null) {
+					SamplerBoolean sampler = (SamplerBoolean) property;
+					long[] result = reduce(reduceResultsKernel, resultBuffers.get(i), start, samples, false);
+					if (result[ResultReduction.RESULT_UNVERIFIED] > 0) {
+						throw new PrismException("Property was not verified on one of the samples!");
+					} else if (result[ResultReduction.RESULT_DEADLOCK] > 0) {
+						throw new PrismException("Deadlock occured on one of the samples!");
+					}
+					int numTrue = (int) result[ResultReduction.RESULT_TRUE];
+					sampler.addStats(sampler.getNegated() ? samples - numTrue : numTrue, samples);
+				}
+			}
+		}
+
+		/**
+		 * Read result of each sample, used when values of samples are recorded.
+		 * Rewards are always reduced on the device.
+		 * @param start
+		 * @param samples
+		 * @throws PrismException
+		 */
+		@SuppressWarnings("unchecked")
+		protected void readSampleResults(int start, int samples) throws PrismException
 		{
 			List<Pair<SamplerBoolean, Pointer<Byte>>> bytes = new ArrayList<>();
 			List<CLEvent> readEvents = new ArrayList<>();
@@ -156,12 +222,16 @@ public class RuntimeContext
 			 * For each active sampler, add a pair of sampler and pointer to read data.
 			 */
 			for (int i = 0; i < properties.size(); ++i) {
+				if (!(realProperties.get(i) instanceof SamplerBoolean)) {
+					continue;
+				}
 				SamplerBoolean sampler = (SamplerBoolean) realProperties.get(i);
 				if (!sampler.isCurrentValueKnown()) {
-					bytes.add(new Pair<SamplerBoolean, Pointer<Byte>>(sampler, Pointer.allocateBytes(samples)));
+					Pointer<Byte> pointer = Pointer.allocateBytes(samples);
+					bytes.add(new Pair<SamplerBoolean, Pointer<Byte>>(sampler, pointer));
 					try {
 						mainLog.println(String.format("READ: buffer %d size %d start %d samples %d", i, resultBuffers.get(i).getElementCount(), start, samples));
-						readEvents.add(resultBuffers.get(i).read(queue, start, samples, bytes.get(i).second, false));
+						readEvents.add(((CLBuffer<Byte>) resultBuffers.get(i)).read(queue, start, samples, pointer, false));
 					} catch (CLException exc) {
 						mainLog.println(exc.toString());
 					}
@@ -195,6 +265,12 @@ public class RuntimeContext
 					 */
 					else {
 						pair.first.addSample(_byte == 1);
+						if (outcomes != null && pair.first == realProperties.get(0)) {
+							if ((Boolean) pair.first.getCurrentValue()) {
+								outcomes.set(outcomesIndex);
+							}
+							++outcomesIndex;
+						}
 					}
 				}
 			}
@@ -202,12 +278,52 @@ public class RuntimeContext
 
 		protected void readPathLength(int start, int samples)
 		{
-			NativeList<Integer> lengths = pathLengths.read(queue, start, samples).asList();
-			for (Integer i : lengths) {
-				minPathLength = Math.min(minPathLength, i);
-				maxPathLength = Math.max(maxPathLength, i);
-				avgPathLength += i;
-			}
+			long[] result = reduce(reducePathsKernel, pathLengths, start, samples, true);
+			minPathLength = (int) Math.min(minPathLength, result[ResultReduction.PATH_MIN]);
+			maxPathLength = (int) Math.max(maxPathLength, result[ResultReduction.PATH_MAX]);
+			avgPathLength += result[ResultReduction.PATH_SUM];
+		}
+
+		/**
+		 * Run reduction kernel on a part of buffer and combine values of work-groups.
+		 * @param reduceKernel
+		 * @param input
+		 * @param start
+		 * @param samples
+		 * @param isPathLength
+		 * @return combined values, see ResultReduction
+		 */
+		protected long[] reduce(CLKernel reduceKernel, CLBuffer<?> input, int start, int samples, boolean isPathLength)
+		{
+			int groups = Math.max(1, Math.min(ResultReduction.MAX_GROUPS, (samples + reductionLocalSize - 1) / reductionLocalSize));
+			reduceKernel.setArg(0, samples);
+			reduceKernel.setArg(1, start);
+			reduceKernel.setArg(2, input);
+			reduceKernel.setArg(3, reductionBuffer);
+			reduceKernel.setArg(4, LocalSize.ofLongArray(reductionLocalSize));
+			CLEvent event = reduceKernel.enqueueNDRange(queue, new int[] { groups * reductionLocalSize }, new int[] { reductionLocalSize });
+			long[] groupResults = reductionBuffer.read(queue, 0, groups * ResultReduction.FIELDS, event).getLongs();
+			return ResultReduction.combine(groupResults, groups, isPathLength);
+		}
+
+		/**
+		 * Run reduction of rewards on a part of buffer and combine values of work-groups.
+		 * @param input
+		 * @param start
+		 * @param samples
+		 * @return number of verified samples, mean and M2 of their rewards, see ResultReduction
+		 */
+		protected double[] reduceRewards(CLBuffer<?> input, int start, int samples)
+		{
+			int groups = Math.max(1, Math.min(ResultReduction.MAX_GROUPS, (samples + reductionLocalSize - 1) / reductionLocalSize));
+			reduceRewardsKernel.setArg(0, samples);
+			reduceRewardsKernel.setArg(1, start);
+			reduceRewardsKernel.setArg(2, input);
+			reduceRewardsKernel.setArg(3, rewardReductionBuffer);
+			reduceRewardsKernel.setArg(4, LocalSize.ofFloatArray(reductionLocalSize * ResultReduction.FIELDS));
+			CLEvent event = reduceRewardsKernel.enqueueNDRange(queue, new int[] { groups * reductionLocalSize }, new int[] { reductionLocalSize });
+			float[] groupResults = rewardReductionBuffer.read(queue, 0, groups * ResultReduction.FIELDS, event).getFloats();
+			return ResultReduction.combineRewards(groupResults, groups);
 		}
 
 		public abstract long getKernelTime();
@@ -230,7 +346,7 @@ public class RuntimeContext
 		{
 			pathLengths = context.createIntBuffer(CLMem.Usage.Output, numberOfSamples);
 			for (int i = 0; i < properties.size(); ++i) {
-				resultBuffers.add(context.createByteBuffer(CLMem.Usage.Output, numberOfSamples));
+				resultBuffers.add(createResultBuffer(properties.get(i), numberOfSamples));
 			}
 		}
 
@@ -254,9 +370,6 @@ public class RuntimeContext
 		{
 			Preconditions.checkNotNull(queue);
 			int samplesProcessed = 0;
-			buffer = Pointer.allocateFloats(prob.length);
-			buffer.setFloats(prob);
-			probBuffer = context.createFloatBuffer(CLMem.Usage.Input, buffer, true);
 			while (samplesProcessed < numberOfSamples) {
 				//determine how many samples allocate
 				int currentGWSize = (int) Math.min(globalWorkSize, numberOfSamples - samplesProcessed);
@@ -317,7 +430,7 @@ public class RuntimeContext
 		{
 			pathLengths = context.createIntBuffer(CLMem.Usage.Output, globalWorkSize * pathCheckPeriod);
 			for (int i = 0; i < properties.size(); ++i) {
-				resultBuffers.add(context.createByteBuffer(CLMem.Usage.Output, globalWorkSize * resultCheckPeriod));
+				resultBuffers.add(createResultBuffer(properties.get(i), globalWorkSize * resultCheckPeriod));
 			}
 		}
 
@@ -465,11 +578,35 @@ public class RuntimeContext
 	List<Sampler> properties = null;
 	int numberOfSamples = 0;
 	private PrismLog mainLog = null;
-	private List<CLBuffer<Byte>> resultBuffers = new ArrayList<>();
+	/**
+	 * Results of samples: bytes for P properties, floats for R properties.
+	 */
+	private List<CLBuffer<?>> resultBuffers = new ArrayList<>();
 	private CLBuffer<Integer> pathLengths = null;
 	private ContextState state = null;
 	//private int localWorkSize = 0;
 	private CLKernel programKernel = null;
+	/**
+	 * Kernels and buffer for reduction of results on the device.
+	 */
+	private CLKernel reduceResultsKernel = null;
+	private CLKernel reducePathsKernel = null;
+	private CLKernel reduceRewardsKernel = null;
+	private CLBuffer<Long> reductionBuffer = null;
+	private CLBuffer<Float> rewardReductionBuffer = null;
+	private int reductionLocalSize = 0;
+	/**
+	 * State of the current simulation, used between start and finish.
+	 */
+	private CLQueue queue = null;
+	private float[] currentProb = null;
+	private int currentSampleOffset = 0;
+	/**
+	 * When not null, values of samples for the first property are saved here,
+	 * starting from outcomesIndex, in order of reading from device.
+	 */
+	private BitSet outcomes = null;
+	private int outcomesIndex = 0;
 	float avgPathLength = 0.0f;
 	int minPathLength = Integer.MAX_VALUE;
 	int maxPathLength = 0;
@@ -487,25 +624,51 @@ public class RuntimeContext
 	}
 
 	public void createKernel(AbstractAutomaton automaton, List<Sampler> properties, RuntimeConfig config) throws PrismException
+	{
+		try {
+			config.configDevice(currentDevice);
+			Kernel kernel = new Kernel(config, automaton, properties);
+			mainLog.println(kernel.getSource());
+			mainLog.flush();
+			createKernel(kernel, properties, config, new ProgramCache(null, mainLog));
+		} catch (KernelException exc) {
+			mainLog.println("Kernel generation error: " + exc.getMessage());
+			throw new PrismException("Kernel generation error!");
+		}
+	}
+
+	/**
+	 * Build the program for an already generated kernel.
+	 * Source generation is done once by the caller, compiled binaries are shared through the cache.
+	 * @param kernel kernel generated for the device of this context
+	 * @param properties
+	 * @param config
+	 * @param cache cache of compiled programs
+	 * @throws PrismException
+	 */
+	public void createKernel(Kernel kernel, List<Sampler> properties, RuntimeConfig config, ProgramCache cache) throws PrismException
 	{
 		try {
 			this.config = config;
 			this.config.configDevice(currentDevice);
 			this.properties = properties;
-			kernel = new Kernel(this.config, automaton, properties);
-			mainLog.println(kernel.getSource());
-			mainLog.flush();
-			CLProgram program = context.createProgram(kernel.getSource());
-			//add include directories for PRNG
-			//has to work when applications is executed as Java class or as a jar
-			//TODO: for others rng
-			program.addInclude("src/gpu/");
-			program.addInclude("gpu/Random123/features");
-			program.addInclude("gpu/Random123");
-			program.addInclude("gpu/");
-			program.build();
+			this.kernel = kernel;
+			CLProgram program = cache.getProgram(context, currentDevice, kernel.getSource());
 			programKernel = program.createKernel("main");
 			int localWorkSize = programKernel.getWorkGroupSize().get(currentDevice.getDevice()).intValue();
+			reduceResultsKernel = program.createKernel(ResultReduction.REDUCE_RESULTS);
+			reducePathsKernel = program.createKernel(ResultReduction.REDUCE_PATH_LENGTHS);
+			reduceRewardsKernel = program.createKernel(ResultReduction.REDUCE_REWARDS);
+			long groupSize = Math.min(reduceResultsKernel.getWorkGroupSize().get(currentDevice.getDevice()),
+					reducePathsKernel.getWorkGroupSize().get(currentDevice.getDevice()));
+			groupSize = Math.min(groupSize, reduceRewardsKernel.getWorkGroupSize().get(currentDevice.getDevice()));
+			reductionLocalSize = (int) Math.min(ResultReduction.MAX_LOCAL_SIZE, groupSize);
+			if (reductionBuffer == null) {
+				reductionBuffer = context.createLongBuffer(CLMem.Usage.Output, ResultReduction.MAX_GROUPS * ResultReduction.FIELDS);
+			}
+			if (rewardReductionBuffer == null) {
+				rewardReductionBuffer = context.createFloatBuffer(CLMem.Usage.Output, ResultReduction.MAX_GROUPS * ResultReduction.FIELDS);
+			}
 
 			//check if we have some properties that are unknown
 			boolean numberOfSamplesNotKnown = false;
@@ -540,48 +703,213 @@ public class RuntimeContext
 
 	public void runSimulation(float[] prob, Sampler prop, int samplesProcessed1) throws PrismException
 	{
-		CLQueue queue = null;
 		try {
-			queue = context.createDefaultProfilingQueue();
-			state.setQueue(queue);
-			List<Sampler> samplers = new ArrayList<>();
-			samplers.add(prop);
-			state.setSampler(samplers);
-			do {
-				state.updateSampling(prob, samplesProcessed1);
-				while (!state.processResults()) {
-					Thread.sleep(1);
-				}
-			} while (!state.hasFinished());
+			startSimulation(prob, prop, samplesProcessed1);
+			while (!pollSimulation()) {
+				Thread.sleep(1);
+			}
 		} catch (PrismException exc) {
 			throw exc;
 		} catch (Exception exc) {
 			//TODO - kernel abort
-			mainLog.println(exc.toString());
-			mainLog.println(exc.getMessage());
-			StackTraceElement[] trace = exc.getStackTrace();
-			for (StackTraceElement el : trace) {
-				mainLog.println(el.toString());
+			logException(exc);
+		} catch (Error exc) {
+			logException(exc);
+		} finally {
+			finishSimulation();
+		}
+	}
+
+	/**
+	 * Run simulations for several contexts at once. All kernels are enqueued before any result is read,
+	 * so the device may execute the candidates concurrently on separate command queues.
+	 * Results are collected in order of completion; the host sleeps only when no context made progress.
+	 * @param contexts contexts, i-th context simulates i-th probability vector
+	 * @param prob probability vectors for adaptive commands
+	 * @param props samplers, one for each context
+	 * @param samplesProcessed1 offset for PRNG
+	 * @throws PrismException
+	 */
+	public static void runSimulations(List<RuntimeContext> contexts, float[][] prob, Sampler[] props, int samplesProcessed1) throws PrismException
+	{
+		int[] offsets = new int[contexts.size()];
+		Arrays.fill(offsets, samplesProcessed1);
+		runSimulations(contexts, prob, props, offsets);
+	}
+
+	/**
+	 * Run simulations for several contexts at once, with a separate PRNG offset for each context.
+	 * @param contexts contexts, i-th context simulates i-th probability vector
+	 * @param prob probability vectors for adaptive commands
+	 * @param props samplers, one for each context
+	 * @param offsets offsets for PRNG, one for each context
+	 * @throws PrismException
+	 */
+	public static void runSimulations(List<RuntimeContext> contexts, float[][] prob, Sampler[] props, int[] offsets) throws PrismException
+	{
+		Preconditions.checkCondition(contexts.size() <= prob.length && contexts.size() <= props.length && contexts.size() <= offsets.length,
+				"Missing input data for simulation!");
+		List<List<Sampler>> samplers = new ArrayList<>();
+		for (int i = 0; i < contexts.size(); ++i) {
+			List<Sampler> contextSamplers = new ArrayList<>();
+			contextSamplers.add(props[i]);
+			samplers.add(contextSamplers);
+		}
+		runSimulations(contexts, Arrays.asList(prob), samplers, offsets);
+	}
+
+	/**
+	 * Run simulations of all properties of the kernel for several contexts at once.
+	 * Contexts add statistics of their samples to the same samplers, so each of them
+	 * should simulate a separate range of PRNG offsets.
+	 * @param contexts contexts
+	 * @param prob probability vector for adaptive commands, shared by all contexts
+	 * @param properties samplers of all properties, in the order used for the kernel
+	 * @param offsets offsets for PRNG, one for each context
+	 * @throws PrismException
+	 */
+	public static void runSimulations(List<RuntimeContext> contexts, float[] prob, List<Sampler> properties, int[] offsets) throws PrismException
+	{
+		Preconditions.checkCondition(contexts.size() <= offsets.length, "Missing input data for simulation!");
+		runSimulations(contexts, Collections.nCopies(contexts.size(), prob), Collections.nCopies(contexts.size(), properties), offsets);
+	}
+
+	private static void runSimulations(List<RuntimeContext> contexts, List<float[]> prob, List<List<Sampler>> props, int[] offsets) throws PrismException
+	{
+		int started = 0;
+		try {
+			for (RuntimeContext context : contexts) {
+				context.startSimulation(prob.get(started), props.get(started), offsets[started]);
+				++started;
+			}
+			boolean[] finished = new boolean[contexts.size()];
+			int finishedCount = 0;
+			while (finishedCount < finished.length) {
+				boolean progress = false;
+				for (int i = 0; i < finished.length; ++i) {
+					if (!finished[i] && contexts.get(i).pollSimulation()) {
+						finished[i] = true;
+						++finishedCount;
+						progress = true;
+					}
+				}
+				if (!progress) {
+					Thread.sleep(1);
+				}
 			}
+		} catch (PrismException exc) {
+			throw exc;
+		} catch (Exception exc) {
+			//samplers may be partially filled, so the results can't be used
+			contexts.get(0).logException(exc);
+			throw new PrismException("OpenCL simulation failed: " + exc.toString());
 		} catch (Error exc) {
-			mainLog.println(exc.toString());
-			mainLog.println(exc.getMessage());
-			StackTraceElement[] trace = exc.getStackTrace();
-			for (StackTraceElement el : trace) {
-				mainLog.println(el.toString());
+			contexts.get(0).logException(exc);
+			throw new PrismException("OpenCL simulation failed: " + exc.toString());
+		} finally {
+			for (int i = 0; i < started; ++i) {
+				contexts.get(i).finishSimulation();
 			}
+		}
+	}
+
+	/**
+	 * Create a command queue and enqueue first kernels. Doesn't wait for results.
+	 * If enqueuing fails, the queue is released before the exception is passed on,
+	 * since {@link #finishSimulation()} is called only for simulations which have started.
+	 * @param prob probability vector for adaptive commands
+	 * @param prop sampler
+	 * @param samplesProcessed1 offset for PRNG
+	 */
+	public void startSimulation(float[] prob, Sampler prop, int samplesProcessed1)
+	{
+		List<Sampler> samplers = new ArrayList<>();
+		samplers.add(prop);
+		startSimulation(prob, samplers, samplesProcessed1);
+	}
+
+	/**
+	 * Create a command queue and enqueue first kernels, results of properties are added to given samplers.
+	 * @param prob probability vector for adaptive commands
+	 * @param samplers one sampler for each property of the kernel
+	 * @param samplesProcessed1 offset for PRNG
+	 */
+	public void startSimulation(float[] prob, List<Sampler> samplers, int samplesProcessed1)
+	{
+		queue = context.createDefaultProfilingQueue();
+		boolean started = false;
+		try {
+			state.setQueue(queue);
+			state.setSampler(samplers);
+			state.setProbabilities(prob);
+			currentProb = prob;
+			currentSampleOffset = samplesProcessed1;
+			state.updateSampling(prob, samplesProcessed1);
+			started = true;
 		} finally {
-			mainLog.flush();
-			queue.finish();
-			if (queue != null) {
+			if (!started) {
 				queue.release();
+				queue = null;
 			}
 		}
+	}
+
+	/**
+	 * Read available results and enqueue further kernels, if necessary.
+	 * Never blocks when the number of samples is not known a priori.
+	 * @return true if the simulation has finished
+	 * @throws PrismException
+	 */
+	public boolean pollSimulation() throws PrismException
+	{
+		if (!state.processResults()) {
+			return false;
+		}
+		if (state.hasFinished()) {
+			return true;
+		}
+		state.updateSampling(currentProb, currentSampleOffset);
+		return false;
+	}
+
+	/**
+	 * Release the command queue and update statistics of simulation.
+	 */
+	public void finishSimulation()
+	{
+		mainLog.flush();
+		if (queue != null) {
+			queue.finish();
+			queue.release();
+			queue = null;
+		}
 		avgPathLength /= state.samplesProcessed;
 		kernelTime = state.getKernelTime();
 		samplesProcessed = state.samplesProcessed;
 	}
 
+	/**
+	 * Save values of following samples for the first property in a bit set.
+	 * For a known number of samples, i-th bit corresponds to i-th PRNG counter of the simulation.
+	 * @param outcomes bit set, null disables recording
+	 * @param firstIndex index of the first sample
+	 */
+	public void recordOutcomes(BitSet outcomes, int firstIndex)
+	{
+		this.outcomes = outcomes;
+		this.outcomesIndex = firstIndex;
+	}
+
+	private void logException(Throwable exc)
+	{
+		mainLog.println(exc.toString());
+		mainLog.println(exc.getMessage());
+		StackTraceElement[] trace = exc.getStackTrace();
+		for (StackTraceElement el : trace) {
+			mainLog.println(el.toString());
+		}
+	}
+
 	public float getAvgPathLength()
 	{
 		return avgPathLength;
@@ -607,12 +935,32 @@ public class RuntimeContext
 		return samplesProcessed;
 	}
 
+	/**
+	 * @return number of samples simulated by each run, 0 when the simulation stops on the simulation method
+	 */
+	public int getNumberOfSamples()
+	{
+		if (state instanceof KnownIterationsState) {
+			return ((KnownIterationsState) state).numberOfSamples;
+		}
+		return 0;
+	}
+
 	public void release()
 	{
-		for (CLBuffer<Byte> buffer : resultBuffers) {
+		for (CLBuffer<?> buffer : resultBuffers) {
 			buffer.release();
 		}
 		pathLengths.release();
+		if (reductionBuffer != null) {
+			reductionBuffer.release();
+		}
+		if (rewardReductionBuffer != null) {
+			rewardReductionBuffer.release();
+		}
+		if (state != null && state.probBuffer != null) {
+			state.probBuffer.release();
+		}
 		context.release();
 		state = null;
 	}
@@ -640,11 +988,25 @@ public class RuntimeContext
 			}
 			resultBuffers.clear();
 			for (int i = 0; i < properties.size(); ++i) {
-				resultBuffers.add(context.createByteBuffer(CLMem.Usage.Output, globalWorkSize));
+				resultBuffers.add(createResultBuffer(properties.get(i), globalWorkSize));
 			}
 		}
 	}
 
+	/**
+	 * @param property
+	 * @param size number of samples
+	 * @return buffer for results of the property: floats for rewards, bytes otherwise
+	 */
+	private CLBuffer<?> createResultBuffer(Sampler property, int size)
+	{
+		if (property instanceof SamplerDouble) {
+			return context.createFloatBuffer(CLMem.Usage.Output, size);
+		} else {
+			return context.createByteBuffer(CLMem.Usage.Output, size);
+		}
+	}
+
 	private int roundUp(int groupSize, int globalSize)
 	{
 		Preconditions.checkCondition(groupSize != 0, "Division by zero!");
@@ -25,32 +25,35 @@
 //==============================================================================
 package simulator.gpu.opencl;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
-import java.util.Random;
 
 import parser.State;
 import parser.ast.Expression;
-import parser.ast.LabelList;
 import parser.ast.ModulesFile;
 import parser.ast.PropertiesFile;
-import prism.Pair;
 import prism.Preconditions;
 import prism.PrismException;
 import prism.PrismLog;
 import prism.PrismSettings;
+import simulator.RandomNumberGenerator;
 import simulator.gpu.RuntimeDeviceInterface;
 import simulator.gpu.RuntimeFrameworkInterface;
 import simulator.gpu.automaton.AbstractAutomaton;
-import simulator.gpu.automaton.command.AdaptCommand;
-import simulator.gpu.automaton.command.CommandInterface;
+import simulator.gpu.opencl.RuntimeConfig.SampleOffsetPolicy;
+import simulator.gpu.opencl.kernel.Kernel;
+import simulator.gpu.opencl.kernel.KernelException;
 import simulator.gpu.opencl.kernel.PRNGRandom123;
-import simulator.method.CIMethod;
-import simulator.method.CIwidth;
+import simulator.gpu.optimizer.AdaptOptimizer;
+import simulator.gpu.optimizer.AdaptiveSearch;
+import simulator.gpu.optimizer.SamplingEvaluator;
 import simulator.method.SimulationMethod;
 import simulator.sampler.Sampler;
+import simulator.sampler.SamplerDouble;
 
 import com.nativelibs4java.opencl.CLDevice;
 import com.nativelibs4java.opencl.CLException;
@@ -65,7 +68,10 @@ public class RuntimeOpenCL implements RuntimeFrameworkInterface
 	private final CLDeviceWrapper[] devices;
 	private CLPlatform currentPlatform = null;
 	private List<CLDeviceWrapper> currentDevices = new ArrayList<>();
-	List<RuntimeContext> currentContexts = null;
+	/**
+	 * Contexts of each selected device, one for each candidate evaluated at once.
+	 */
+	List<List<RuntimeContext>> currentContexts = null;
 	private long maxPathLength = 0;
 	private State initialState = null;
 	private PrismLog mainLog = null;
@@ -76,6 +82,10 @@ public class RuntimeOpenCL implements RuntimeFrameworkInterface
 	private parser.ast.ModulesFile mf;
 	private parser.ast.PropertiesFile pf;
 	private Expression expr;
+	/**
+	 * Compiled programs, shared by all contexts and persisted between runs.
+	 */
+	private ProgramCache programCache = null;
 
 	/**
 	 * Constructor. Throws an exception when OpenCL initialization failed.
@@ -194,7 +204,9 @@ public class RuntimeOpenCL implements RuntimeFrameworkInterface
 	public void selectDevice(RuntimeDeviceInterface device)
 	{
 		Preconditions.checkCondition(device instanceof CLDeviceWrapper, "RuntimeOpenCL can't select non-opencl device");
-		currentDevices.add((CLDeviceWrapper) device);
+		if (!currentDevices.contains(device)) {
+			currentDevices.add((CLDeviceWrapper) device);
+		}
 	}
 
 	/* (non-Javadoc)
@@ -229,282 +241,279 @@ public class RuntimeOpenCL implements RuntimeFrameworkInterface
 	{
 		Preconditions.checkNotNull(mainLog, "");
 		Preconditions.checkCondition(maxPathLength > 0, "");
+		if (programCache == null) {
+			programCache = new ProgramCache(ProgramCache.DEFAULT_DIRECTORY, mainLog);
+		}
 		RuntimeConfig config = new RuntimeConfig();
 		if (initialState != null) {
 			config.initialState = initialState;
 		}
 		config.maxPathLength = maxPathLength;
-		if (prismSettings == null) {
-			config.prngType = new PRNGRandom123("rng");
-			Date date = new Date();
-			config.prngSeed = date.getTime();
-		} else {
-			//TODO:
-			config.prngType = new PRNGRandom123("rng");
-			Date date = new Date();
-			config.prngSeed = date.getTime();
+		config.prngType = new PRNGRandom123("rng");
+		config.prngSeed = RandomNumberGenerator.getSeed(prismSettings);
+		mainLog.println("Simulation random seed: " + config.prngSeed);
+		int branchCount = AdaptiveSearch.countBranches(model);
+		for (CLDeviceWrapper device : currentDevices) {
+			mainLog.println("Using: " + device.getName());
 		}
-		int samplesProcessed = 0;
-		int branchCount = 0;
-		List<AdaptCommand> adaptCmds = new ArrayList<>();
-		for (int i = 0; i < model.commandsNumber(); ++i) {
-			CommandInterface cmd = model.getCommand(i);
-			if (cmd instanceof AdaptCommand) {
-				adaptCmds.add((AdaptCommand) cmd);
-				branchCount += ((AdaptCommand) cmd).getBranchNum();
+		for (Sampler sampler : properties) {
+			if (sampler instanceof SamplerDouble) {
+				if (branchCount > 0) {
+					throw new PrismException("Search for probabilities of adaptive commands supports only P properties!");
+				}
+				return sampleProperties(model, properties, config);
 			}
 		}
-		final float CURRENT_STEP = 0.05f;
-		CLDeviceWrapper device = currentDevices.get(0);
-        mainLog.println("Using: " + device.getName());
 		Sampler property = properties.get(0);
 		SimulationMethod sm = property.getSimulationMethod().clone();
-		// Take a copy
-		Expression propNew = expr.deepCopy();
-		// Combine label lists from model/property file, then expand property refs/labels in property 
-		LabelList combinedLabelList = (pf == null) ? mf.getLabelList() : pf.getCombinedLabelList();
-		// formulas must be expanded before replacing constants!!!
-		propNew = (Expression) propNew.expandFormulas(mf.getFormulaList());
-		propNew = (Expression) propNew.expandPropRefsAndLabels(pf, combinedLabelList);
-		// Then get rid of any constants and simplify
-		propNew = (Expression) propNew.replaceConstants(mf.getConstantValues());
-		if (pf != null) {
-			propNew = (Expression) propNew.replaceConstants(pf.getConstantValues());
-		}
+		Expression propNew = AdaptiveSearch.prepareProperty(expr, mf, pf);
 		sm.setExpression(propNew);
-		int gw = 40000;
 		currentContexts = new ArrayList<>();
-		int GW_COUNT = 0;
-		
-		double current_time = 0.0;
+		config.prngType.setSeed(config.prngSeed);
+		AdaptiveSearch search = new AdaptiveSearch(prismSettings, mainLog);
+		if (search.useCommonRandomNumbers()) {
+			config.offsetPolicy = SampleOffsetPolicy.COMMON;
+		}
+		OpenCLEvaluator evaluator = new OpenCLEvaluator(propNew, sm, config);
 		try {
-			int m = 0;
-			if (branchCount > 5) {
-				m = 3;
-			} else {
-				m = (int) Math.floor((float) branchCount / 2) + 1;
+			AdaptOptimizer optimizer = search.createOptimizer(branchCount);
+			int max = optimizer.getMaxCandidates();
+			Kernel kernel = generateKernel(model, properties, config);
+			for (CLDeviceWrapper device : currentDevices) {
+				RuntimeConfig deviceConfig = new RuntimeConfig(config);
+				List<RuntimeContext> contexts = new ArrayList<>();
+				currentContexts.add(contexts);
+				for (int i = 0; i < max; ++i) {
+					RuntimeContext currentContext = new RuntimeContext(device, mainLog);
+					contexts.add(currentContext);
+					currentContext.createKernel(kernel, properties, deviceConfig, programCache);
+				}
 			}
-            Random rnd = new Random();
-            rnd.setSeed(System.currentTimeMillis());
-			float[] currentBest = new float[branchCount];
-			for (int i = 0; i < branchCount; ++i) {
-				currentBest[i] = rnd.nextFloat();
+			search.run(optimizer, evaluator, branchCount, config.prngSeed);
+		} finally {
+			for (List<RuntimeContext> contexts : currentContexts) {
+				for (RuntimeContext context : contexts) {
+					context.release();
+				}
 			}
-            
-            //currentBest[0] = 0.8263691f;
-            //currentBest[1] = 0.8043951f;
-            //currentBest[2] = 0.6847447f;
-            //currentBest[3] = 0.96372974f;
-            //currentBest[4] = 0.6039024f;
-            //currentBest[5] = 0.8015622f;
-			int max = (int) Math.pow(2, m);
-			//int max = (int) Math.pow(2, branchCount);
-			for (int i = 0; i < max; ++i) {
-				RuntimeContext currentContext = new RuntimeContext(device, mainLog);
-				currentContext.createKernel(model, properties, config);
-				currentContexts.add(currentContext);
+		}
+		return (int) Math.min(Integer.MAX_VALUE, evaluator.getSamplesProcessed());
+	}
+
+	/**
+	 * Generate the kernel. The source doesn't depend on the device, it is generated once and compiled once for each device.
+	 * @param model
+	 * @param properties
+	 * @param config
+	 * @return kernel
+	 * @throws PrismException
+	 */
+	private Kernel generateKernel(AbstractAutomaton model, List<Sampler> properties, RuntimeConfig config) throws PrismException
+	{
+		Kernel kernel = null;
+		try {
+			kernel = new Kernel(config, model, properties);
+		} catch (KernelException exc) {
+			mainLog.println("Kernel generation error: " + exc.getMessage());
+			throw new PrismException("Kernel generation error!");
+		}
+		mainLog.println(kernel.getSource());
+		mainLog.flush();
+		return kernel;
+	}
+
+	/**
+	 * Sample all properties in one kernel, without the search for probabilities of adaptive commands.
+	 * Used for R properties, whose rewards are accumulated and reduced on the device.
+	 * With a known number of samples, they are split between devices in continuous ranges of PRNG offsets.
+	 * Otherwise each context simulates until the simulation method stops, so only the first device is used.
+	 * @param model model without adaptive commands
+	 * @param properties samplers, results are added to them
+	 * @param config
+	 * @return number of samples
+	 * @throws PrismException
+	 */
+	private int sampleProperties(AbstractAutomaton model, List<Sampler> properties, RuntimeConfig config) throws PrismException
+	{
+		currentContexts = new ArrayList<>();
+		config.prngType.setSeed(config.prngSeed);
+		List<RuntimeContext> contexts = new ArrayList<>();
+		int samplesProcessed = 0;
+		try {
+			Kernel kernel = generateKernel(model, properties, config);
+			for (CLDeviceWrapper device : currentDevices) {
+				RuntimeContext context = new RuntimeContext(device, mainLog);
+				List<RuntimeContext> deviceContexts = new ArrayList<>();
+				deviceContexts.add(context);
+				currentContexts.add(deviceContexts);
+				contexts.add(context);
+				context.createKernel(kernel, properties, new RuntimeConfig(config), programCache);
+				if (context.getNumberOfSamples() == 0) {
+					if (currentDevices.size() > 1) {
+						mainLog.println("Number of samples is not known before the simulation, using only: " + device.getName());
+					}
+					break;
+				}
+			}
+			List<RuntimeContext> used = contexts;
+			int numberOfSamples = contexts.get(0).getNumberOfSamples();
+			if (numberOfSamples > 0) {
+				used = contexts.subList(0, Math.min(contexts.size(), numberOfSamples));
 			}
-			//Random rnd = new Random();
-			//rnd.setSeed(System.currentTimeMillis());
-			int iterations = 0;
-			double simMax = 0.0;
-			int posMax = -1;
-			List<Pair<String, float[]>> maxes = new ArrayList<>();
-			boolean gwChangeFlag = false;
-			while (true) {
-				int s = rnd.nextInt(m) + 1;
-				//int s = rnd.nextInt(branchCoun) + 1;
-				int[] changedPositions = new int[s];
-				for (int i = 0; i < s; ++i) {
-					changedPositions[i] = rnd.nextInt(branchCount);
+			int[] offsets = new int[used.size()];
+			if (numberOfSamples > 0) {
+				int first = 0;
+				for (int i = 0; i < used.size(); ++i) {
+					int part = i < used.size() - 1 ? numberOfSamples / used.size() : numberOfSamples - first;
+					used.get(i).setGW(part);
+					offsets[i] = first;
+					first += part;
 				}
-				int combinations = (int) Math.pow(2, s);
-				Sampler[] samplers = new Sampler[combinations];
-				float[][] current = new float[combinations][];
-				for (int i = 0; i < combinations; ++i) {
-					current[i] = new float[branchCount];
-					for (int j = 0; j < branchCount; ++j) {
-						current[i][j] = currentBest[j];
-					}
-					for (int j = 0; j < s; ++j) {
-						if (((i >> j) & 1) == 1) {
-							current[i][changedPositions[j]] += CURRENT_STEP;
-						} else {
-							current[i][changedPositions[j]] -= CURRENT_STEP;
-						}
-						if (current[i][changedPositions[j]] < 0) {
-							current[i][changedPositions[j]] = 0;
+			}
+			RuntimeContext.runSimulations(used, new float[0], properties, offsets);
+			for (int i = 0; i < used.size(); ++i) {
+				RuntimeContext context = used.get(i);
+				mainLog.println(String.format("Sampling: %d samples in %d miliseconds on %s.", context.getSamplesProcessed(), context.getTime(),
+						currentDevices.get(i).getName()));
+				mainLog.println(String.format("Path length: min %d, max %d, avg %f", context.getMinPathLength(), context.getMaxPathLength(),
+						context.getAvgPathLength()));
+				samplesProcessed += context.getSamplesProcessed();
+			}
+		} finally {
+			for (RuntimeContext context : contexts) {
+				context.release();
+			}
+		}
+		return samplesProcessed;
+	}
+
+	/**
+	 * Evaluates candidates on contexts created for selected devices.
+	 * Samples of each candidate are split between devices proportionally to their throughput,
+	 * measured from profiling times of kernels in the previous round.
+	 * When there are more candidates than contexts, they are evaluated in several rounds.
+	 */
+	private class OpenCLEvaluator extends SamplingEvaluator
+	{
+		private final RuntimeConfig config;
+		/**
+		 * Samples per millisecond of kernel time for each device, equal until the first measurement.
+		 */
+		private double[] throughput = null;
+
+		public OpenCLEvaluator(Expression property, SimulationMethod method, RuntimeConfig config)
+		{
+			super(property, mf, method, config.offsetPolicy == SampleOffsetPolicy.COMMON, RuntimeOpenCL.this.mainLog);
+			this.config = config;
+		}
+
+		/**
+		 * Split samples of a candidate between devices. Each part is a continuous range of PRNG offsets,
+		 * so the split doesn't change generated samples.
+		 * @param count number of samples
+		 * @return number of samples for each device
+		 */
+		private int[] split(int count)
+		{
+			int devices = currentContexts.size();
+			if (throughput == null) {
+				throughput = new double[devices];
+				Arrays.fill(throughput, 1.0);
+			}
+			double sum = 0.0;
+			for (double value : throughput) {
+				sum += value;
+			}
+			int[] parts = new int[devices];
+			int assigned = 0;
+			for (int i = 0; i < devices - 1; ++i) {
+				parts[i] = (int) (count * (throughput[i] / sum));
+				assigned += parts[i];
+			}
+			parts[devices - 1] = count - assigned;
+			return parts;
+		}
+
+		@Override
+		protected void simulate(int[] indices, int[] counts, int[] offsets) throws PrismException
+		{
+			int slots = currentContexts.get(0).size();
+			int devices = currentContexts.size();
+			for (int start = 0; start < indices.length; start += slots) {
+				int count = Math.min(slots, indices.length - start);
+				List<RuntimeContext> contexts = new ArrayList<>();
+				List<Integer> contextDevices = new ArrayList<>();
+				List<float[]> current = new ArrayList<>();
+				List<Sampler> currentSamplers = new ArrayList<>();
+				List<Integer> currentOffsets = new ArrayList<>();
+				for (int i = 0; i < count; ++i) {
+					int candidate = indices[start + i];
+					int[] parts = split(counts[start + i]);
+					int first = 0;
+					for (int d = 0; d < devices; ++d) {
+						if (parts[d] == 0) {
+							continue;
 						}
-						if (current[i][changedPositions[j]] > 1.0) {
-							current[i][changedPositions[j]] = 1.0f;
+						RuntimeContext context = currentContexts.get(d).get(i);
+						context.reset();
+						context.setGW(parts[d]);
+						if (outcomes != null) {
+							context.recordOutcomes(outcomes[candidate], samplers[candidate].getNumSamples() + first);
 						}
+						contexts.add(context);
+						contextDevices.add(d);
+						current.add(candidates[candidate]);
+						//samplers are shared by devices, each device adds statistics of its part
+						currentSamplers.add(samplers[candidate]);
+						currentOffsets.add(offsets[start + i] + first);
+						first += parts[d];
 					}
-					samplers[i] = Sampler.createSampler(propNew, mf);
-					samplers[i].setSimulationMethod(sm.clone());
 				}
-				mainLog.println(String.format("%d ITERATION, %d COMBINATIONS", iterations, combinations));
-				for (int i = 0; i < combinations; ++i) {
-					currentContexts.get(i).reset();
-					currentContexts.get(i).setGW(gw);
-					((CIMethod) samplers[i].getSimulationMethod()).setNumberOfSamples(gw);
-					currentContexts.get(i).runSimulation(current[i], samplers[i], samplesProcessed);
+				int[] contextOffsets = new int[currentOffsets.size()];
+				for (int i = 0; i < contextOffsets.length; ++i) {
+					contextOffsets[i] = currentOffsets.get(i);
 				}
-				posMax = -1;
-				double oldMax = simMax;
-				for (int i = 0; i < combinations; ++i) {
-					SimulationMethod sm_ = samplers[i].getSimulationMethod();
-					//TODO: temporal fix to avoid wrong width computation
-					sm_.shouldStopNow(currentContexts.get(i).getSamplesProcessed(), samplers[i]);
-					sm_.computeMissingParameterAfterSim();
-					Double result = (Double) sm_.getResult(samplers[i]);
-					if (simMax < result) {
-						simMax = result;
-						posMax = i;
-					}
-					mainLog.println(String.format("Result: %f", result.doubleValue()));
-					mainLog.print("For: ");
-					for (int j = 0; j < branchCount; ++j) {
-						mainLog.print(current[i][j] + " ");
-					}
-					mainLog.println();
-					mainLog.println(String.format("Sampling: %d samples in %d miliseconds.", currentContexts.get(i).getSamplesProcessed(),
-							currentContexts.get(i).getTime()));
-					current_time += currentContexts.get(i).getTime() / 1000.0;
-					mainLog.println(String.format("Path length: min %d, max %d, avg %f", currentContexts.get(i).getMinPathLength(), currentContexts.get(i)
-							.getMaxPathLength(), currentContexts.get(i).getAvgPathLength()));
-					samplesProcessed += currentContexts.get(i).getSamplesProcessed();
+				//enqueue all candidates on all devices at once, each one has a separate command queue
+				RuntimeContext.runSimulations(contexts, current.toArray(new float[current.size()][]),
+						currentSamplers.toArray(new Sampler[currentSamplers.size()]), contextOffsets);
+				long[] deviceSamples = new long[devices];
+				long[] deviceTime = new long[devices];
+				long roundTime = 0;
+				for (int i = 0; i < contexts.size(); ++i) {
+					RuntimeContext context = contexts.get(i);
+					int device = contextDevices.get(i);
+					mainLog.println(String.format("Sampling: %d samples in %d miliseconds on %s.", context.getSamplesProcessed(), context.getTime(),
+							currentDevices.get(device).getName()));
+					mainLog.println(String.format("Path length: min %d, max %d, avg %f", context.getMinPathLength(), context.getMaxPathLength(),
+							context.getAvgPathLength()));
+					deviceSamples[device] += context.getSamplesProcessed();
+					deviceTime[device] += context.getTime();
+					samplesProcessed += context.getSamplesProcessed();
 				}
-				if (posMax != -1) {
-					currentBest = current[posMax];
-					double width = (double) ((CIwidth) samplers[posMax].getSimulationMethod()).getMissingParameter();
-					//"przedłużanie"
-					float[] temp = Arrays.copyOf(currentBest, currentBest.length);
-					float[] oldTemp = null;
-					double newResult = simMax, oldResult = simMax;
-					boolean flag = false;
-					do {
-						oldResult = newResult;
-						oldTemp = Arrays.copyOf(temp, temp.length);
-						for (int j = 0; j < s; ++j) {
-							if (((posMax >> j) & 1) == 1) {
-								temp[changedPositions[j]] += CURRENT_STEP;
-							} else {
-								temp[changedPositions[j]] -= CURRENT_STEP;
-							}
-							if (temp[changedPositions[j]] < 0) {
-								flag = true;
-								break;
-							}
-							if (temp[changedPositions[j]] > 1.0) {
-								flag = true;
-								break;
-							}
-
-						}
-						if (flag == true)
-							break;
-						samplers[0].resetStats();
-						currentContexts.get(0).reset();
-						currentContexts.get(0).runSimulation(temp, samplers[0], samplesProcessed);
-						SimulationMethod sm_ = samplers[0].getSimulationMethod();
-						//TODO: temporal fix to avoid wrong width computation
-						sm_.shouldStopNow(currentContexts.get(0).getSamplesProcessed(), samplers[0]);
-						sm_.computeMissingParameterAfterSim();
-						Double result = (Double) sm_.getResult(samplers[0]);
-						newResult = result;
-						if (newResult > oldResult)
-							width = (double) ((CIwidth) sm_).getMissingParameter();
-						mainLog.println(String.format("ADDITIONAL APPLICATION OF BEST, NEW PROBABILITY %f CURRENT BEST %f", newResult, simMax));
-					} while (newResult > oldResult);
-					if (oldResult > simMax) {
-						currentBest = Arrays.copyOf(oldTemp, oldTemp.length);
-						simMax = oldResult;
+				for (int d = 0; d < devices; ++d) {
+					//devices run in parallel, the round takes as long as the slowest one
+					roundTime = Math.max(roundTime, deviceTime[d]);
+					if (deviceSamples[d] > 0) {
+						throughput[d] = deviceSamples[d] / (double) Math.max(deviceTime[d], 1);
 					}
-					maxes.add(new Pair<String, float[]>(String.format("%d %d %f %d %f %f %f", iterations, gw, 
-							current_time, samplesProcessed, simMax, simMax - width, simMax + width),
-							Arrays.copyOf(currentBest, currentBest.length)));
-					gwChangeFlag = false;
-					GW_COUNT = 0;
-					mainLog.println(String.format("MAX %f [%f,%f]", simMax, simMax - width, simMax + width));
-					mainLog.print(String.format("c_i: "));
-					for (int j = 0; j < branchCount; ++j) {
-						mainLog.print(currentBest[j] + " ");
-					}
-					mainLog.println();
-					mainLog.flush();
-					//					if (Math.abs(simMax - oldMax) < width) {
-					//						APMCiterations test = new APMCiterations(0.01, Math.abs(simMax - oldMax) / 2);
-					//						test.computeMissingParameterBeforeSim();
-					//						gw = (int) test.getMissingParameter();
-					//						currentContexts.get(0).reset();
-					//						currentContexts.get(0).setGW(gw);
-					//						samplers[0].resetStats();
-					//						currentContexts.get(0).runSimulation(currentBest, samplers[0], samplesProcessed);
-					//						SimulationMethod sm_ = samplers[0].getSimulationMethod();
-					//						//TODO: temporal fix to avoid wrong width computation
-					//						sm_.shouldStopNow(currentContexts.get(0).getSamplesProcessed(), samplers[0]);
-					//						sm_.computeMissingParameterAfterSim();
-					//						double width2 = (double) ((CIwidth) sm_).getMissingParameter();
-					//						Double result = (Double) sm_.getResult(samplers[0]);
-					//						simMax = result;
-					//						mainLog.println(String.format("new gw - width fix - %d current max %f [%f,%f]", gw, simMax, simMax - width2, simMax + width2));
-					//						String tempStr = maxes.get(maxes.size() - 1).first
-					//								+ String.format(" change GW to fix width: %d, current max [%f,%f]", gw, simMax, simMax - width2, simMax + width2);
-					//						float[] tempFloat = maxes.get(maxes.size() - 1).second;
-					//						maxes.remove(maxes.size() - 1);
-					//						maxes.add(new Pair<String, float[]>(tempStr, tempFloat));
-					//					}
-				} else {
-					mainLog.println("WARNING: iteration DOESN'T change anything, no improvement!");
-					GW_COUNT++;
-					if (GW_COUNT == 2) {
-						gw *= 1.1;
-						GW_COUNT = 0;
-					}
-					currentContexts.get(0).reset();
-					currentContexts.get(0).setGW(gw);
-					samplers[0].resetStats();
-					currentContexts.get(0).runSimulation(currentBest, samplers[0], samplesProcessed);
-					SimulationMethod sm_ = samplers[0].getSimulationMethod();
-					//TODO: temporal fix to avoid wrong width computation
-					sm_.shouldStopNow(currentContexts.get(0).getSamplesProcessed(), samplers[0]);
-					sm_.computeMissingParameterAfterSim();
-					double width = (double) ((CIwidth) sm_).getMissingParameter();
-					Double result = (Double) sm_.getResult(samplers[0]);
-					simMax = result;
-					mainLog.println(String.format("new gw %d current max %f", gw, simMax));
-
-					maxes.add(new Pair<String, float[]>(String.format("%d %d %f %d %f %f %f", iterations, gw, 
-							current_time, samplesProcessed, simMax, simMax - width, simMax + width),
-							Arrays.copyOf(currentBest, currentBest.length)));
-                    //maxes.add(new Pair<String, float[]>(String.format("new gw %d current max %f [%f,%f]", gw, simMax, simMax - width, simMax + width), Arrays
-					//		.copyOf(currentBest, currentBest.length)));
 				}
-				if (gw > 1800000)
-					break;
-				//if (current_time > 1000)
-				//	break;
-				++iterations;
-				mainLog.println("-----------");
-				mainLog.flush();
-			}
-			mainLog.println(String.format("e_max: %d I_max: %d e_increase: %f step: %f", 0, 0, 0.0f, CURRENT_STEP));
-			for (int i = 0; i < maxes.size(); ++i) {
-				//mainLog.print(String.format("%d: %s  c_i: ", i, maxes.get(i).first));
-				mainLog.print(maxes.get(i).first + " ");
-				for (int j = 0; j < branchCount; ++j) {
-					mainLog.print(maxes.get(i).second[j] + " ");
-				}
-				mainLog.println();
-			}
-			//mainLog.println("Using " + currentContexts.size() + " OpenCL devices.");
-		} finally {
-			for (RuntimeContext context : currentContexts) {
-				context.release();
-				//context.currentDevice.getDevice().release();
+				simulationTime += roundTime / 1000.0;
 			}
 		}
-		return samplesProcessed;
+
+		@Override
+		protected void saveBackendState(DataOutput out) throws IOException
+		{
+			out.writeLong(config.prngSeed);
+		}
+
+		@Override
+		protected void loadBackendState(DataInput in) throws IOException
+		{
+			//reseed, so samples of resumed search continue the same streams
+			config.prngSeed = in.readLong();
+			config.prngType.setSeed(config.prngSeed);
+		}
 	}
 
 	//	@Override
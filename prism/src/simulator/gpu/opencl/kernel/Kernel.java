@@ -185,6 +185,7 @@ public class Kernel
 		visitMethodsTranslator(createTranslatorVisitor());
 		declareMethods(builder);
 		defineMethods(builder);
+		builder.append(ResultReduction.SOURCE);
 		kernelSource = builder.toString();
 	}
 
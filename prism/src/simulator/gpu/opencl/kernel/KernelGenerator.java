@@ -34,6 +34,7 @@ import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.convert
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.convertPrismRate;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.createAssignment;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.createBasicExpression;
+import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.createConditionalAssignment;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.createNegation;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.fromString;
 
@@ -45,6 +46,7 @@ import java.util.List;
 import java.util.Map;
 
 import parser.ast.ExpressionLiteral;
+import parser.ast.RewardStruct;
 import simulator.gpu.automaton.AbstractAutomaton;
 import simulator.gpu.automaton.AbstractAutomaton.StateVector;
 import simulator.gpu.automaton.PrismVariable;
@@ -77,7 +79,13 @@ import simulator.sampler.Sampler;
 import simulator.sampler.SamplerBoolean;
 import simulator.sampler.SamplerBoundedUntilCont;
 import simulator.sampler.SamplerBoundedUntilDisc;
+import simulator.sampler.SamplerDouble;
 import simulator.sampler.SamplerNext;
+import simulator.sampler.SamplerRewardCumulCont;
+import simulator.sampler.SamplerRewardCumulDisc;
+import simulator.sampler.SamplerRewardInstCont;
+import simulator.sampler.SamplerRewardInstDisc;
+import simulator.sampler.SamplerRewardReach;
 import simulator.sampler.SamplerUntil;
 
 public abstract class KernelGenerator
@@ -91,6 +99,10 @@ public abstract class KernelGenerator
 	protected CLVariable varGuardsTab = null;
 	protected CLVariable[] varSynchronizedStates = null;
 	protected CLVariable varPropertiesArray = null;
+	/**
+	 * Rewards accumulated for properties, one for each property; exists only for reward properties.
+	 */
+	protected CLVariable varRewardsArray = null;
 
 	protected enum KernelMethods {
 		/**
@@ -209,8 +221,14 @@ public abstract class KernelGenerator
 	protected boolean hasNonSynchronized = false;
 	/**
 	 * True when one of processed properties has timing constraints.
+	 * Reward properties need the time too and can't stop sampling in a loop,
+	 * because rewards are accumulated there.
 	 */
 	protected boolean timingProperty = false;
+	/**
+	 * True when one of processed properties is a reward property.
+	 */
+	protected boolean rewardProperty = false;
 
 	//	/**
 	//	 * Contains names of variables that need to be copied before update.
@@ -262,7 +280,9 @@ public abstract class KernelGenerator
 		for (Sampler sampler : properties) {
 			if (sampler instanceof SamplerBoundedUntilCont || sampler instanceof SamplerBoundedUntilDisc) {
 				timingProperty = true;
-				break;
+			} else if (sampler instanceof SamplerDouble) {
+				timingProperty = true;
+				rewardProperty = true;
 			}
 		}
 		if (hasSynchronized) {
@@ -437,10 +457,11 @@ public abstract class KernelGenerator
 		CLVariable pathLengths = new CLVariable(new PointerType(new StdVariableType(StdType.UINT32)), "pathLengths");
 		pathLengths.memLocation = Location.GLOBAL;
 		currentMethod.addArg(pathLengths);
-		//ARG 6..N: property results
+		//ARG 6..N: property results, value of reward for reward properties
 		CLVariable[] propertyResults = new CLVariable[properties.size()];
 		for (int i = 0; i < propertyResults.length; ++i) {
-			propertyResults[i] = new CLVariable(new PointerType(new StdVariableType(StdType.UINT8)),
+			StdType resultType = properties.get(i) instanceof SamplerDouble ? StdType.FLOAT : StdType.UINT8;
+			propertyResults[i] = new CLVariable(new PointerType(new StdVariableType(resultType)),
 			//propertyNumber
 					String.format("property%d", i));
 			propertyResults[i].memLocation = Location.GLOBAL;
@@ -469,6 +490,17 @@ public abstract class KernelGenerator
 			initValues[i] = initValue;
 		}
 		varPropertiesArray.setInitValue(propertiesArrayType.initializeArray(initValues));
+		//accumulated rewards
+		if (rewardProperty) {
+			ArrayType rewardsArrayType = new ArrayType(new StdVariableType(StdType.FLOAT), properties.size());
+			varRewardsArray = new CLVariable(rewardsArrayType, "rewards");
+			CLValue rewardValues[] = new CLValue[properties.size()];
+			for (int i = 0; i < rewardValues.length; ++i) {
+				rewardValues[i] = StdVariableType.initialize(0.0f);
+			}
+			varRewardsArray.setInitValue(rewardsArrayType.initializeArray(rewardValues));
+			currentMethod.addLocalVar(varRewardsArray);
+		}
 		//non-synchronized guard tab
 		if (hasNonSynchronized) {
 			varGuardsTab = new CLVariable(new ArrayType(new StdVariableType(0, commands.length), commands.length), "guardsTab");
@@ -585,6 +617,7 @@ public abstract class KernelGenerator
 		}
 		IfElse deadlockState = new IfElse(createBasicExpression(sum, Operator.EQ, fromString(0)));
 		mainMethodUpdateProperties(deadlockState);
+		mainMethodDeadlockRewards(deadlockState);
 		deadlockState.addExpression(new Expression("break;\n"));
 		ifElse.addExpression(deadlockState);
 		loop.addExpression(ifElse);
@@ -699,8 +732,17 @@ public abstract class KernelGenerator
 		//each property result
 		for (int i = 0; i < properties.size(); ++i) {
 			CLVariable result = accessArrayElement(propertyResults[i], position);
-			CLVariable property = accessArrayElement(varPropertiesArray, fromString(i)).accessField("propertyState");
-			currentMethod.addExpression(createAssignment(result, property));
+			CLVariable propertyVar = accessArrayElement(varPropertiesArray, fromString(i));
+			/**
+			 * Reward of a sample with unknown value is NaN, it is detected during reduction.
+			 */
+			if (properties.get(i) instanceof SamplerDouble) {
+				CLVariable reward = accessArrayElement(varRewardsArray, fromString(i));
+				Expression value = createConditionalAssignment(propertyVar.accessField("valueKnown").getSource(), reward.varName, "NAN");
+				currentMethod.addExpression(createAssignment(result, value));
+			} else {
+				currentMethod.addExpression(createAssignment(result, propertyVar.accessField("propertyState")));
+			}
 		}
 		currentMethod.addExpression(prngType.deinitializeGenerator());
 
@@ -1084,11 +1126,13 @@ public abstract class KernelGenerator
 		//PropertyState * property
 		CLVariable propertyState = new CLVariable(new PointerType(PROPERTY_STATE_STRUCTURE), "propertyState");
 		currentMethod.addArg(propertyState);
+		//float * rewards
+		CLVariable rewards = null;
+		if (rewardProperty) {
+			rewards = new CLVariable(new PointerType(new StdVariableType(StdType.FLOAT)), "rewards");
+			currentMethod.addArg(rewards);
+		}
 		propertiesMethodTimeArg(currentMethod);
-		//uint counter
-		CLVariable counter = new CLVariable(new StdVariableType(0, properties.size()), "counter");
-		counter.setInitValue(StdVariableType.initialize(0));
-		currentMethod.addLocalVar(counter);
 		//bool allKnown
 		CLVariable allKnown = new CLVariable(new StdVariableType(StdType.BOOL), "allKnown");
 		allKnown.setInitValue(StdVariableType.initialize(1));
@@ -1098,16 +1142,9 @@ public abstract class KernelGenerator
 		 */
 		for (int i = 0; i < properties.size(); ++i) {
 			Sampler property = properties.get(i);
-			CLVariable currentProperty = accessArrayElement(propertyState, counter.getSource());
+			CLVariable currentProperty = accessArrayElement(propertyState, fromString(i));
 			CLVariable valueKnown = currentProperty.accessField("valueKnown");
-			/**
-			 * It should have been done earlier.
-			 */
-			//			if (!(property instanceof SamplerBoolean)) {
-			//				throw new KernelException("Currently rewards are not supported!");
-			//			}
 			IfElse ifElse = new IfElse(createNegation(valueKnown.getSource()));
-			ifElse.addExpression(0, createAssignment(allKnown, fromString("false")));
 			/**
 			 * X state_formulae
 			 * I don't think that this will be used in future.
@@ -1121,6 +1158,14 @@ public abstract class KernelGenerator
 			else if (property instanceof SamplerUntil) {
 				propertiesMethodAddUntil(ifElse, (SamplerUntil) property, currentProperty);
 			}
+			/**
+			 * R=? [ C<=k ], R=? [ I=k ] and R=? [ F state_formulae ]
+			 * Reward is accumulated in the rewards array.
+			 */
+			else if (property instanceof SamplerDouble) {
+				CLVariable reward = accessArrayElement(rewards, fromString(i));
+				propertiesMethodAddReward(currentMethod, ifElse, (SamplerDouble) property, currentProperty, reward);
+			}
 			/**
 			 * state_formulae U[k1,k2] state_formulae
 			 * Requires additional timing args.
@@ -1128,7 +1173,8 @@ public abstract class KernelGenerator
 			else {
 				propertiesMethodAddBoundedUntil(currentMethod, ifElse, (SamplerBoolean) property, currentProperty);
 			}
-			ifElse.addExpression(0, createAssignment(allKnown, valueKnown));
+			//all properties have to be known, not only the last one
+			ifElse.addExpression(0, createBasicExpression(allKnown.getSource(), Operator.LAND_AUGM, valueKnown.getSource()));
 			currentMethod.addExpression(ifElse);
 		}
 		currentMethod.addReturn(allKnown);
@@ -1139,6 +1185,110 @@ public abstract class KernelGenerator
 
 	protected abstract void propertiesMethodAddBoundedUntil(Method currentMethod, ComplexKernelComponent parent, SamplerBoolean property, CLVariable propertyVar);
 
+	/**
+	 * Add accumulation of reward for the current state.
+	 * @param currentMethod
+	 * @param parent
+	 * @param property
+	 * @param propertyVar
+	 * @param rewardVar reward accumulated for this property
+	 * @throws KernelException
+	 */
+	protected abstract void propertiesMethodAddReward(Method currentMethod, ComplexKernelComponent parent, SamplerDouble property, CLVariable propertyVar,
+			CLVariable rewardVar) throws KernelException;
+
+	/**
+	 * Call properties method with state vector, properties and rewards.
+	 * @param timeArgs additional time arguments, depend on DTMC/CTMC
+	 * @return call expression
+	 */
+	protected Expression propertiesMethodCall(CLValue... timeArgs)
+	{
+		List<CLValue> args = new ArrayList<>();
+		args.add(varStateVector.convertToPointer());
+		args.add(varPropertiesArray);
+		if (rewardProperty) {
+			args.add(varRewardsArray);
+		}
+		for (CLValue arg : timeArgs) {
+			args.add(arg);
+		}
+		return helperMethods.get(KernelMethods.UPDATE_PROPERTIES).callMethod(args.toArray(new CLValue[args.size()]));
+	}
+
+	/**
+	 * Create expression computing the state reward of the current state.
+	 * Only state rewards are compiled into the kernel; selected command is not known
+	 * in the properties method, so transition rewards are rejected.
+	 * @param rewardStructIndex
+	 * @return sum of rewards of all items with satisfied guard
+	 * @throws KernelException
+	 */
+	protected Expression createStateReward(int rewardStructIndex) throws KernelException
+	{
+		RewardStruct rewardStruct = model.getModulesFile().getRewardStruct(rewardStructIndex);
+		if (rewardStruct.getNumTransItems() > 0) {
+			throw new KernelException(String.format("Transition rewards of reward structure %d are not supported!", rewardStructIndex + 1));
+		}
+		if (rewardStruct.getNumStateItems() == 0) {
+			return fromString("0.0f");
+		}
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < rewardStruct.getNumItems(); ++i) {
+			if (builder.length() > 0) {
+				builder.append(" + ");
+			}
+			//(guard) ? (reward) : 0.0f
+			Expression guard = convertPrismProperty(svVars, rewardStruct.getStates(i).toString());
+			Expression reward = convertPrismProperty(svVars, rewardStruct.getReward(i).toString());
+			builder.append(String.format("((%s) ? (%s) : 0.0f)", guard, reward));
+		}
+		return addParentheses(new Expression(builder.toString()));
+	}
+
+	/**
+	 * Reward of the state where a deadlock occurred. The path stays there forever,
+	 * so instantaneous and cumulative rewards are known; reachability reward remains unknown.
+	 * @param parent deadlock branch of the main method, properties have already been updated
+	 * @throws KernelException
+	 */
+	protected void mainMethodDeadlockRewards(ComplexKernelComponent parent) throws KernelException
+	{
+		for (int i = 0; i < properties.size(); ++i) {
+			Sampler property = properties.get(i);
+			if (!(property instanceof SamplerDouble) || property instanceof SamplerRewardReach) {
+				continue;
+			}
+			CLVariable propertyVar = accessArrayElement(varPropertiesArray, fromString(i));
+			CLVariable valueKnown = propertyVar.accessField("valueKnown");
+			CLVariable reward = accessArrayElement(varRewardsArray, fromString(i));
+			IfElse ifElse = new IfElse(createNegation(valueKnown.getSource()));
+			if (property instanceof SamplerRewardInstDisc) {
+				ifElse.addExpression(0, createAssignment(reward, createStateReward(((SamplerRewardInstDisc) property).getRewardStructIndex())));
+			} else if (property instanceof SamplerRewardInstCont) {
+				ifElse.addExpression(0, createAssignment(reward, createStateReward(((SamplerRewardInstCont) property).getRewardStructIndex())));
+			} else if (property instanceof SamplerRewardCumulDisc) {
+				SamplerRewardCumulDisc prop = (SamplerRewardCumulDisc) property;
+				Expression remaining = addParentheses(mainMethodDeadlockRemainingTime(fromString(prop.getTimeBound())));
+				ifElse.addExpression(0, createBasicExpression(reward.getSource(), Operator.ADD_AUGM,
+						createBasicExpression(createStateReward(prop.getRewardStructIndex()), Operator.MUL, remaining)));
+			} else if (property instanceof SamplerRewardCumulCont) {
+				SamplerRewardCumulCont prop = (SamplerRewardCumulCont) property;
+				Expression remaining = addParentheses(mainMethodDeadlockRemainingTime(fromString(prop.getTimeBound())));
+				ifElse.addExpression(0, createBasicExpression(reward.getSource(), Operator.ADD_AUGM,
+						createBasicExpression(createStateReward(prop.getRewardStructIndex()), Operator.MUL, remaining)));
+			}
+			ifElse.addExpression(0, createAssignment(valueKnown, fromString("true")));
+			parent.addExpression(ifElse);
+		}
+	}
+
+	/**
+	 * @param timeBound bound of a cumulative reward property
+	 * @return time which is left to the bound and hasn't been counted yet when a deadlock occurs
+	 */
+	protected abstract Expression mainMethodDeadlockRemainingTime(Expression timeBound);
+
 	protected void propertiesMethodAddNext(ComplexKernelComponent parent, SamplerNext property, CLVariable propertyVar)
 	{
 		IfElse ifElse = createPropertyCondition(propertyVar, false, property.getExpression().toString(), true);
@@ -26,9 +26,11 @@
 package simulator.gpu.opencl.kernel;
 
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.accessArrayElement;
+import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.accessStructureField;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.addComma;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.addParentheses;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.convertPrismGuard;
+import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.convertPrismProperty;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.convertPrismRate;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.createAssignment;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.createBasicExpression;
@@ -62,6 +64,10 @@ import simulator.gpu.opencl.kernel.memory.StructureType;
 import simulator.sampler.Sampler;
 import simulator.sampler.SamplerBoolean;
 import simulator.sampler.SamplerBoundedUntilCont;
+import simulator.sampler.SamplerDouble;
+import simulator.sampler.SamplerRewardCumulCont;
+import simulator.sampler.SamplerRewardInstCont;
+import simulator.sampler.SamplerRewardReach;
 
 public class KernelGeneratorCTMC extends KernelGenerator
 {
@@ -309,10 +315,9 @@ public class KernelGeneratorCTMC extends KernelGenerator
 	{
 		Expression call = null;
 		if (timingProperty) {
-			call = helperMethods.get(KernelMethods.UPDATE_PROPERTIES)
-					.callMethod(varStateVector.convertToPointer(), varPropertiesArray, varTime, varUpdatedTime);
+			call = propertiesMethodCall(varTime, varUpdatedTime);
 		} else {
-			call = helperMethods.get(KernelMethods.UPDATE_PROPERTIES).callMethod(varStateVector.convertToPointer(), varPropertiesArray, varTime);
+			call = propertiesMethodCall(varTime);
 		}
 		IfElse ifElse = new IfElse(call);
 		//		ifElse.addExpression(
@@ -478,6 +483,64 @@ public class KernelGeneratorCTMC extends KernelGenerator
 		parent.addExpression(ifElse);
 	}
 
+	@Override
+	protected void propertiesMethodAddReward(Method currentMethod, ComplexKernelComponent parent, SamplerDouble property, CLVariable propertyVar,
+			CLVariable rewardVar) throws KernelException
+	{
+		/**
+		 * The current state is occupied in interval [time, updated_time).
+		 */
+		CLVariable time = currentMethod.getArg("time");
+		CLVariable updTime = currentMethod.getArg("updated_time");
+		CLVariable valueKnown = accessStructureField(propertyVar, "valueKnown");
+		if (property instanceof SamplerRewardCumulCont) {
+			SamplerRewardCumulCont prop = (SamplerRewardCumulCont) property;
+			Expression stateReward = createStateReward(prop.getRewardStructIndex());
+			/**
+			 * if(updated_time >= bound) -> reward += state_reward * (bound - time), known
+			 * else -> reward += state_reward * (updated_time - time)
+			 */
+			IfElse ifElse = new IfElse(createBasicExpression(updTime.getSource(), Operator.GE, fromString(prop.getTimeBound())));
+			Expression duration = addParentheses(createBasicExpression(fromString(prop.getTimeBound()), Operator.SUB, time.getSource()));
+			ifElse.addExpression(0, createBasicExpression(rewardVar.getSource(), Operator.ADD_AUGM, createBasicExpression(stateReward, Operator.MUL, duration)));
+			ifElse.addExpression(0, createAssignment(valueKnown, fromString("true")));
+			ifElse.addElse();
+			duration = addParentheses(createBasicExpression(updTime.getSource(), Operator.SUB, time.getSource()));
+			ifElse.addExpression(1, createBasicExpression(rewardVar.getSource(), Operator.ADD_AUGM, createBasicExpression(stateReward, Operator.MUL, duration)));
+			parent.addExpression(ifElse);
+		} else if (property instanceof SamplerRewardInstCont) {
+			SamplerRewardInstCont prop = (SamplerRewardInstCont) property;
+			/**
+			 * if(updated_time > bound) -> reward = state_reward, known
+			 */
+			IfElse ifElse = new IfElse(createBasicExpression(updTime.getSource(), Operator.GT, fromString(prop.getTime())));
+			ifElse.addExpression(0, createAssignment(rewardVar, createStateReward(prop.getRewardStructIndex())));
+			ifElse.addExpression(0, createAssignment(valueKnown, fromString("true")));
+			parent.addExpression(ifElse);
+		} else if (property instanceof SamplerRewardReach) {
+			SamplerRewardReach prop = (SamplerRewardReach) property;
+			/**
+			 * if(target) -> known
+			 * else -> reward += state_reward * (updated_time - time)
+			 */
+			IfElse ifElse = new IfElse(convertPrismProperty(svVars, prop.getTarget().toString()));
+			ifElse.addExpression(0, createAssignment(valueKnown, fromString("true")));
+			ifElse.addElse();
+			Expression duration = addParentheses(createBasicExpression(updTime.getSource(), Operator.SUB, time.getSource()));
+			ifElse.addExpression(1, createBasicExpression(rewardVar.getSource(), Operator.ADD_AUGM,
+					createBasicExpression(createStateReward(prop.getRewardStructIndex()), Operator.MUL, duration)));
+			parent.addExpression(ifElse);
+		} else {
+			throw new KernelException(String.format("Property %s is not supported for CTMC!", property.getClass().getSimpleName()));
+		}
+	}
+
+	@Override
+	protected Expression mainMethodDeadlockRemainingTime(Expression timeBound)
+	{
+		return createBasicExpression(timeBound, Operator.SUB, varTime.getSource());
+	}
+
 	/*********************************
 	 * SYNCHRONIZED GUARDS CHECK
 	 ********************************/
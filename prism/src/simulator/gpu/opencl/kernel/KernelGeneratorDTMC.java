@@ -25,9 +25,11 @@
 //==============================================================================
 package simulator.gpu.opencl.kernel;
 
+import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.accessStructureField;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.addComma;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.addParentheses;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.convertPrismGuard;
+import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.convertPrismProperty;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.convertPrismRate;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.createAssignment;
 import static simulator.gpu.opencl.kernel.expression.ExpressionGenerator.createBasicExpression;
@@ -62,6 +64,10 @@ import simulator.gpu.opencl.kernel.memory.StructureType;
 import simulator.sampler.Sampler;
 import simulator.sampler.SamplerBoolean;
 import simulator.sampler.SamplerBoundedUntilDisc;
+import simulator.sampler.SamplerDouble;
+import simulator.sampler.SamplerRewardCumulDisc;
+import simulator.sampler.SamplerRewardInstDisc;
+import simulator.sampler.SamplerRewardReach;
 
 public class KernelGeneratorDTMC extends KernelGenerator
 {
@@ -369,9 +375,9 @@ public class KernelGeneratorDTMC extends KernelGenerator
 	{
 		Expression call = null;
 		if (timingProperty) {
-			call = helperMethods.get(KernelMethods.UPDATE_PROPERTIES).callMethod(varStateVector.convertToPointer(), varPropertiesArray, varTime);
+			call = propertiesMethodCall(varTime);
 		} else {
-			call = helperMethods.get(KernelMethods.UPDATE_PROPERTIES).callMethod(varStateVector.convertToPointer(), varPropertiesArray);
+			call = propertiesMethodCall();
 		}
 		IfElse ifElse = new IfElse(call);
 		//		ifElse.addExpression(
@@ -518,6 +524,65 @@ public class KernelGeneratorDTMC extends KernelGenerator
 		parent.addExpression(ifElse);
 	}
 
+	@Override
+	protected void propertiesMethodAddReward(Method currentMethod, ComplexKernelComponent parent, SamplerDouble property, CLVariable propertyVar,
+			CLVariable rewardVar) throws KernelException
+	{
+		/**
+		 * Time is the number of the current state increased by one.
+		 */
+		CLVariable time = currentMethod.getArg("time");
+		CLVariable valueKnown = accessStructureField(propertyVar, "valueKnown");
+		if (property instanceof SamplerRewardCumulDisc) {
+			SamplerRewardCumulDisc prop = (SamplerRewardCumulDisc) property;
+			/**
+			 * C<=0 -> always zero
+			 */
+			if (prop.getTimeBound() == 0) {
+				parent.addExpression(createAssignment(valueKnown, fromString("true")));
+				return;
+			}
+			/**
+			 * reward += state_reward
+			 * if(time >= bound) -> known
+			 */
+			parent.addExpression(createBasicExpression(rewardVar.getSource(), Operator.ADD_AUGM, createStateReward(prop.getRewardStructIndex())));
+			IfElse ifElse = new IfElse(createBasicExpression(time.getSource(), Operator.GE, fromString(prop.getTimeBound())));
+			ifElse.addExpression(0, createAssignment(valueKnown, fromString("true")));
+			parent.addExpression(ifElse);
+		} else if (property instanceof SamplerRewardInstDisc) {
+			SamplerRewardInstDisc prop = (SamplerRewardInstDisc) property;
+			/**
+			 * if(time > bound) -> reward = state_reward, known
+			 */
+			IfElse ifElse = new IfElse(createBasicExpression(time.getSource(), Operator.GT, fromString(prop.getTime())));
+			ifElse.addExpression(0, createAssignment(rewardVar, createStateReward(prop.getRewardStructIndex())));
+			ifElse.addExpression(0, createAssignment(valueKnown, fromString("true")));
+			parent.addExpression(ifElse);
+		} else if (property instanceof SamplerRewardReach) {
+			SamplerRewardReach prop = (SamplerRewardReach) property;
+			/**
+			 * if(target) -> known
+			 * else -> reward += state_reward
+			 */
+			IfElse ifElse = new IfElse(convertPrismProperty(svVars, prop.getTarget().toString()));
+			ifElse.addExpression(0, createAssignment(valueKnown, fromString("true")));
+			ifElse.addElse();
+			ifElse.addExpression(1, createBasicExpression(rewardVar.getSource(), Operator.ADD_AUGM, createStateReward(prop.getRewardStructIndex())));
+			parent.addExpression(ifElse);
+		} else {
+			throw new KernelException(String.format("Property %s is not supported for DTMC!", property.getClass().getSimpleName()));
+		}
+	}
+
+	@Override
+	protected Expression mainMethodDeadlockRemainingTime(Expression timeBound)
+	{
+		//reward of the deadlock state has been already added once by the properties method
+		Expression remaining = createBasicExpression(timeBound, Operator.SUB, varTime.getSource());
+		return createBasicExpression(remaining, Operator.SUB, fromString(1));
+	}
+
 	/*********************************
 	 * SYNCHRONIZED GUARDS CHECK
 	 ********************************/
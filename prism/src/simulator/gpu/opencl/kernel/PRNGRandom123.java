@@ -75,6 +75,16 @@ public class PRNGRandom123 extends PRNGType
 		super(varName, INCLUDES, ADDITIONAL_ARGS);
 	}
 
+	/* (non-Javadoc)
+	 * @see simulator.gpu.opencl.kernel.PRNGType#setSeed(long)
+	 */
+	@Override
+	public void setSeed(long seed)
+	{
+		super.setSeed(seed);
+		this.seed = null;
+	}
+
 	/* (non-Javadoc)
 	 * @see simulator.gpu.opencl.kernel.PRNGType#initializeGenerator()
 	 */
@@ -50,6 +50,16 @@ public abstract class PRNGType
 		this.additionalArgs = additionalArgs;
 	}
 
+	/**
+	 * Seed the generator. All generators with the same seed and the same sample offset
+	 * produce identical streams, which is required by common random numbers.
+	 * @param seed
+	 */
+	public void setSeed(long seed)
+	{
+		random = new RandomNumberGenerator(seed);
+	}
+
 	public abstract KernelComponent initializeGenerator();
 
 	public KernelComponent deinitializeGenerator()
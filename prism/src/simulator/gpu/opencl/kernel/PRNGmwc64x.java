@@ -52,6 +52,13 @@ public class PRNGmwc64x extends PRNGType
 		this.rngOffset = rngOffset;
 	}
 
+	@Override
+	public void setSeed(long seed)
+	{
+		super.setSeed(seed);
+		this.seed = -1;
+	}
+
 	public KernelComponent initializeGenerator()
 	{
 		ExpressionList list = new ExpressionList();
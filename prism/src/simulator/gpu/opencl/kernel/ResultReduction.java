@@ -0,0 +1,224 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.opencl.kernel;
+
+/**
+ * Kernels which reduce results of sampling on the device.
+ * Each work-group writes aggregates of its part of the result buffer, so the host reads
+ * a fixed number of values instead of one byte and one path length for each sample.
+ */
+public class ResultReduction
+{
+	/**
+	 * Names of kernels in the program.
+	 */
+	public final static String REDUCE_RESULTS = "reduceResults";
+	public final static String REDUCE_PATH_LENGTHS = "reducePathLengths";
+	public final static String REDUCE_REWARDS = "reduceRewards";
+	/**
+	 * Maximal number of work-groups; each work-item processes several samples when there are more of them.
+	 */
+	public final static int MAX_GROUPS = 64;
+	/**
+	 * Maximal size of a work-group, limits the usage of local memory.
+	 */
+	public final static int MAX_LOCAL_SIZE = 256;
+	/**
+	 * Number of values written by a work-group.
+	 */
+	public final static int FIELDS = 3;
+	/**
+	 * Fields of reduceResults: number of true samples, samples with unverified property, samples with deadlock.
+	 */
+	public final static int RESULT_TRUE = 0;
+	public final static int RESULT_UNVERIFIED = 1;
+	public final static int RESULT_DEADLOCK = 2;
+	/**
+	 * Fields of reducePathLengths: sum, minimum and maximum of path lengths.
+	 */
+	public final static int PATH_SUM = 0;
+	public final static int PATH_MIN = 1;
+	public final static int PATH_MAX = 2;
+	/**
+	 * Fields of reduceRewards: number of verified samples, mean and sum of squared deviations (M2) of their rewards.
+	 * Each work-item accumulates its samples with Welford's update and work-groups merge pairs of partial results,
+	 * so the variance is never computed as a difference of large sums in floats.
+	 */
+	public final static int REWARD_COUNT = 0;
+	public final static int REWARD_MEAN = 1;
+	public final static int REWARD_M2 = 2;
+
+	/**
+	 * Arguments of all kernels: number of samples, offset in input buffer, input buffer,
+	 * output buffer with FIELDS values for each group and local buffer with one value for each work-item.
+	 * Output and local buffers of reduceRewards contain floats and the local buffer has FIELDS values for each work-item,
+	 * the other kernels use ulongs.
+	 */
+	public final static String SOURCE = "void reduceGroup(ulong value, const int op, __local ulong* scratch, __global ulong* output)\n"
+			+ "{\n"
+			+ "\tconst uint localID = get_local_id(0);\n"
+			+ "\tconst uint localSize = get_local_size(0);\n"
+			+ "\tscratch[localID] = value;\n"
+			+ "\tbarrier(CLK_LOCAL_MEM_FENCE);\n"
+			+ "\tfor (uint stride = 1; stride < localSize; stride <<= 1) {\n"
+			+ "\t\tif ((localID % (2 * stride)) == 0 && localID + stride < localSize) {\n"
+			+ "\t\t\tulong other = scratch[localID + stride];\n"
+			+ "\t\t\tscratch[localID] = op == 0 ? scratch[localID] + other : (op == 1 ? min(scratch[localID], other) : max(scratch[localID], other));\n"
+			+ "\t\t}\n"
+			+ "\t\tbarrier(CLK_LOCAL_MEM_FENCE);\n"
+			+ "\t}\n"
+			+ "\tif (localID == 0) {\n"
+			+ "\t\t*output = scratch[0];\n"
+			+ "\t}\n"
+			+ "\tbarrier(CLK_LOCAL_MEM_FENCE);\n"
+			+ "}\n"
+			+ "__kernel void " + REDUCE_RESULTS + "(const uint numberOfSamples, const uint offset, __global const char* results,\n"
+			+ "\t\t__global ulong* groupResults, __local ulong* scratch)\n"
+			+ "{\n"
+			+ "\tulong trueCount = 0, unverified = 0, deadlock = 0;\n"
+			+ "\tfor (uint i = get_global_id(0); i < numberOfSamples; i += get_global_size(0)) {\n"
+			+ "\t\tchar result = results[offset + i];\n"
+			+ "\t\tif (result > 1) {\n"
+			+ "\t\t\t++unverified;\n"
+			+ "\t\t} else if (result < 0) {\n"
+			+ "\t\t\t++deadlock;\n"
+			+ "\t\t} else {\n"
+			+ "\t\t\ttrueCount += result;\n"
+			+ "\t\t}\n"
+			+ "\t}\n"
+			+ "\t__global ulong* output = groupResults + get_group_id(0) * " + FIELDS + ";\n"
+			+ "\treduceGroup(trueCount, 0, scratch, output + " + RESULT_TRUE + ");\n"
+			+ "\treduceGroup(unverified, 0, scratch, output + " + RESULT_UNVERIFIED + ");\n"
+			+ "\treduceGroup(deadlock, 0, scratch, output + " + RESULT_DEADLOCK + ");\n"
+			+ "}\n"
+			+ "__kernel void " + REDUCE_PATH_LENGTHS + "(const uint numberOfSamples, const uint offset, __global const uint* pathLengths,\n"
+			+ "\t\t__global ulong* groupResults, __local ulong* scratch)\n"
+			+ "{\n"
+			+ "\tulong sum = 0, minLength = UINT_MAX, maxLength = 0;\n"
+			+ "\tfor (uint i = get_global_id(0); i < numberOfSamples; i += get_global_size(0)) {\n"
+			+ "\t\tulong length = pathLengths[offset + i];\n"
+			+ "\t\tsum += length;\n"
+			+ "\t\tminLength = min(minLength, length);\n"
+			+ "\t\tmaxLength = max(maxLength, length);\n"
+			+ "\t}\n"
+			+ "\t__global ulong* output = groupResults + get_group_id(0) * " + FIELDS + ";\n"
+			+ "\treduceGroup(sum, 0, scratch, output + " + PATH_SUM + ");\n"
+			+ "\treduceGroup(minLength, 1, scratch, output + " + PATH_MIN + ");\n"
+			+ "\treduceGroup(maxLength, 2, scratch, output + " + PATH_MAX + ");\n"
+			+ "}\n"
+			+ "__kernel void " + REDUCE_REWARDS + "(const uint numberOfSamples, const uint offset, __global const float* rewards,\n"
+			+ "\t\t__global float* groupResults, __local float* scratch)\n"
+			+ "{\n"
+			+ "\tconst uint localID = get_local_id(0);\n"
+			+ "\tconst uint localSize = get_local_size(0);\n"
+			+ "\tfloat count = 0.0f, mean = 0.0f, m2 = 0.0f;\n"
+			+ "\tfor (uint i = get_global_id(0); i < numberOfSamples; i += get_global_size(0)) {\n"
+			+ "\t\tfloat reward = rewards[offset + i];\n"
+			+ "\t\tif (!isnan(reward)) {\n"
+			+ "\t\t\tcount += 1.0f;\n"
+			+ "\t\t\tfloat delta = reward - mean;\n"
+			+ "\t\t\tmean += delta / count;\n"
+			+ "\t\t\tm2 += delta * (reward - mean);\n"
+			+ "\t\t}\n"
+			+ "\t}\n"
+			+ "\t__local float* counts = scratch;\n"
+			+ "\t__local float* means = scratch + localSize;\n"
+			+ "\t__local float* m2s = scratch + 2 * localSize;\n"
+			+ "\tcounts[localID] = count;\n"
+			+ "\tmeans[localID] = mean;\n"
+			+ "\tm2s[localID] = m2;\n"
+			+ "\tbarrier(CLK_LOCAL_MEM_FENCE);\n"
+			+ "\tfor (uint stride = 1; stride < localSize; stride <<= 1) {\n"
+			+ "\t\tif ((localID % (2 * stride)) == 0 && localID + stride < localSize && counts[localID + stride] > 0.0f) {\n"
+			+ "\t\t\tfloat countA = counts[localID];\n"
+			+ "\t\t\tfloat countB = counts[localID + stride];\n"
+			+ "\t\t\tfloat total = countA + countB;\n"
+			+ "\t\t\tfloat delta = means[localID + stride] - means[localID];\n"
+			+ "\t\t\tmeans[localID] += delta * (countB / total);\n"
+			+ "\t\t\tm2s[localID] += m2s[localID + stride] + delta * delta * (countA / total) * countB;\n"
+			+ "\t\t\tcounts[localID] = total;\n"
+			+ "\t\t}\n"
+			+ "\t\tbarrier(CLK_LOCAL_MEM_FENCE);\n"
+			+ "\t}\n"
+			+ "\tif (localID == 0) {\n"
+			+ "\t\t__global float* output = groupResults + get_group_id(0) * " + FIELDS + ";\n"
+			+ "\t\toutput[" + REWARD_COUNT + "] = counts[0];\n"
+			+ "\t\toutput[" + REWARD_MEAN + "] = means[0];\n"
+			+ "\t\toutput[" + REWARD_M2 + "] = m2s[0];\n"
+			+ "\t}\n"
+			+ "}\n";
+
+	/**
+	 * Combine values written by work-groups.
+	 * @param groupResults FIELDS values for each group
+	 * @param groups number of groups
+	 * @param isPathLength true for results of reducePathLengths
+	 * @return combined FIELDS values
+	 */
+	public static long[] combine(long[] groupResults, int groups, boolean isPathLength)
+	{
+		long[] result = new long[FIELDS];
+		if (isPathLength) {
+			result[PATH_MIN] = Long.MAX_VALUE;
+		}
+		for (int i = 0; i < groups; ++i) {
+			int base = i * FIELDS;
+			if (isPathLength) {
+				result[PATH_SUM] += groupResults[base + PATH_SUM];
+				result[PATH_MIN] = Math.min(result[PATH_MIN], groupResults[base + PATH_MIN]);
+				result[PATH_MAX] = Math.max(result[PATH_MAX], groupResults[base + PATH_MAX]);
+			} else {
+				for (int j = 0; j < FIELDS; ++j) {
+					result[j] += groupResults[base + j];
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Merge partial results written by work-groups of reduceRewards, using the pairwise update of mean and M2 in doubles.
+	 * @param groupResults FIELDS values for each group
+	 * @param groups number of groups
+	 * @return number of verified samples, mean and M2 of their rewards
+	 */
+	public static double[] combineRewards(float[] groupResults, int groups)
+	{
+		double[] result = new double[FIELDS];
+		for (int i = 0; i < groups; ++i) {
+			double count = groupResults[i * FIELDS + REWARD_COUNT];
+			if (count == 0.0) {
+				continue;
+			}
+			double total = result[REWARD_COUNT] + count;
+			double delta = groupResults[i * FIELDS + REWARD_MEAN] - result[REWARD_MEAN];
+			result[REWARD_MEAN] += delta * count / total;
+			result[REWARD_M2] += groupResults[i * FIELDS + REWARD_M2] + delta * delta * result[REWARD_COUNT] * count / total;
+			result[REWARD_COUNT] = total;
+		}
+		return result;
+	}
+}
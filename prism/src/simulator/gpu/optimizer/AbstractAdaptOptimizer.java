@@ -0,0 +1,187 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import prism.PrismLog;
+
+/**
+ * Common state of search strategies: the best point, its estimate and number of samples.
+ */
+public abstract class AbstractAdaptOptimizer implements AdaptOptimizer
+{
+	protected final int branchCount;
+	protected final PrismLog mainLog;
+	protected SearchRandom rnd = null;
+	protected float[] bestPoint = null;
+	protected double bestValue = 0.0;
+	protected double bestWidth = 0.0;
+	protected int numberOfSamples = 0;
+	/**
+	 * Number of consecutive iterations without improvement.
+	 * After two such iterations, the number of samples is increased by 10%.
+	 */
+	private int noImprovementCount = 0;
+	static public final double SAMPLES_INCREASE = 1.1;
+
+	protected AbstractAdaptOptimizer(int branchCount, PrismLog mainLog)
+	{
+		this.branchCount = branchCount;
+		this.mainLog = mainLog;
+	}
+
+	@Override
+	public void initialize(float[] start, int numberOfSamples, SearchRandom rnd)
+	{
+		this.bestPoint = Arrays.copyOf(start, start.length);
+		this.numberOfSamples = numberOfSamples;
+		this.rnd = rnd;
+	}
+
+	@Override
+	public float[] getBestPoint()
+	{
+		return bestPoint;
+	}
+
+	@Override
+	public double getBestValue()
+	{
+		return bestValue;
+	}
+
+	@Override
+	public double getBestWidth()
+	{
+		return bestWidth;
+	}
+
+	@Override
+	public int getNumberOfSamples()
+	{
+		return numberOfSamples;
+	}
+
+	/**
+	 * Update the best point, if the result is better than current best.
+	 * @param point
+	 * @param result
+	 * @return true if the best point has been changed
+	 */
+	protected boolean updateBest(float[] point, CandidateResult result)
+	{
+		if (bestValue < result.value) {
+			bestPoint = Arrays.copyOf(point, point.length);
+			bestValue = result.value;
+			bestWidth = result.width;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Report the end of iteration. Number of samples is increased after two iterations without improvement,
+	 * since the search can't distinguish candidates with current accuracy.
+	 * @param improvement
+	 */
+	protected void finishIteration(boolean improvement)
+	{
+		if (improvement) {
+			noImprovementCount = 0;
+			return;
+		}
+		mainLog.println("WARNING: iteration DOESN'T change anything, no improvement!");
+		noImprovementCount++;
+		if (noImprovementCount == 2) {
+			numberOfSamples *= SAMPLES_INCREASE;
+			noImprovementCount = 0;
+		}
+	}
+
+	@Override
+	public void saveState(DataOutput out) throws IOException
+	{
+		Checkpoint.writeFloats(out, bestPoint);
+		out.writeDouble(bestValue);
+		out.writeDouble(bestWidth);
+		out.writeInt(numberOfSamples);
+		out.writeInt(noImprovementCount);
+		Checkpoint.writeRandom(out, rnd);
+		saveStrategyState(out);
+	}
+
+	@Override
+	public void loadState(DataInput in) throws IOException
+	{
+		bestPoint = Checkpoint.readFloats(in);
+		bestValue = in.readDouble();
+		bestWidth = in.readDouble();
+		numberOfSamples = in.readInt();
+		noImprovementCount = in.readInt();
+		rnd = Checkpoint.readRandom(in);
+		loadStrategyState(in);
+	}
+
+	/**
+	 * Save state specific for the strategy.
+	 * @param out
+	 * @throws IOException
+	 */
+	protected void saveStrategyState(DataOutput out) throws IOException
+	{
+	}
+
+	/**
+	 * Restore state specific for the strategy.
+	 * @param in
+	 * @throws IOException
+	 */
+	protected void loadStrategyState(DataInput in) throws IOException
+	{
+	}
+
+	/**
+	 * @param value
+	 * @return value clamped to [0,1]
+	 */
+	protected static float clamp(float value)
+	{
+		return Math.max(0.0f, Math.min(1.0f, value));
+	}
+
+	/**
+	 * @param value
+	 * @return value clamped to [0,1]
+	 */
+	protected static double clamp(double value)
+	{
+		return Math.max(0.0, Math.min(1.0, value));
+	}
+}
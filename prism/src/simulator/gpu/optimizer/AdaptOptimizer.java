@@ -0,0 +1,89 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import prism.PrismException;
+
+/**
+ * Search strategy for probabilities of adaptive commands.
+ * The optimizer maximizes the estimated probability of a property over the [0,1]^n cube,
+ * where n is the number of branches in all adaptive commands.
+ * Candidates are evaluated through a CandidateEvaluator; each call evaluates a batch of candidates,
+ * which should not be larger than getMaxCandidates().
+ * Saved state contains the random generator, so a restored optimizer repeats the same choices.
+ */
+public interface AdaptOptimizer extends Checkpointable
+{
+	/**
+	 * @return name of the search strategy
+	 */
+	String getName();
+
+	/**
+	 * @return string with parameters of the strategy, printed in the summary
+	 */
+	String getParametersString();
+
+	/**
+	 * @return maximal number of candidates evaluated in a single call to CandidateEvaluator
+	 */
+	int getMaxCandidates();
+
+	/**
+	 * Set the starting point. Has to be called before the first iteration.
+	 * @param start initial probabilities
+	 * @param numberOfSamples initial number of samples for each candidate
+	 * @param rnd source of randomness for the search
+	 */
+	void initialize(float[] start, int numberOfSamples, SearchRandom rnd);
+
+	/**
+	 * Perform one iteration of the search.
+	 * @param evaluator
+	 * @throws PrismException
+	 */
+	void iterate(CandidateEvaluator evaluator) throws PrismException;
+
+	/**
+	 * @return best point found so far
+	 */
+	float[] getBestPoint();
+
+	/**
+	 * @return estimated probability for the best point
+	 */
+	double getBestValue();
+
+	/**
+	 * @return half-width of confidence interval for the best point
+	 */
+	double getBestWidth();
+
+	/**
+	 * @return current number of samples for each candidate
+	 */
+	int getNumberOfSamples();
+}
@@ -0,0 +1,220 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import java.io.File;
+
+import parser.ast.Expression;
+import parser.ast.LabelList;
+import parser.ast.ModulesFile;
+import parser.ast.PropertiesFile;
+import prism.PrismException;
+import prism.PrismLog;
+import prism.PrismSettings;
+import simulator.RandomNumberGenerator;
+import simulator.gpu.automaton.AbstractAutomaton;
+import simulator.gpu.automaton.command.AdaptCommand;
+import simulator.gpu.automaton.command.CommandInterface;
+import simulator.method.CIMethod;
+
+/**
+ * Search for probabilities of adaptive commands configured by PrismSettings.
+ * Shared by all simulation backends; a backend provides only the evaluator.
+ * When settings are not available, default values are used.
+ */
+public class AdaptiveSearch
+{
+	/**
+	 * Initial number of samples for each candidate.
+	 */
+	public static final int INITIAL_SAMPLES = 40000;
+
+	private final PrismSettings settings;
+	private final PrismLog mainLog;
+
+	public AdaptiveSearch(PrismSettings settings, PrismLog mainLog)
+	{
+		this.settings = settings;
+		this.mainLog = mainLog;
+	}
+
+	/**
+	 * @param model
+	 * @return number of probabilities optimized for the model
+	 */
+	public static int countBranches(AbstractAutomaton model)
+	{
+		int branchCount = 0;
+		for (int i = 0; i < model.commandsNumber(); ++i) {
+			CommandInterface cmd = model.getCommand(i);
+			if (cmd instanceof AdaptCommand) {
+				branchCount += ((AdaptCommand) cmd).getBranchNum();
+			}
+		}
+		return branchCount;
+	}
+
+	/**
+	 * Expand formulas, labels and constants of property.
+	 * @param expr
+	 * @param mf
+	 * @param pf may be null
+	 * @return processed copy of property
+	 * @throws PrismException
+	 */
+	public static Expression prepareProperty(Expression expr, ModulesFile mf, PropertiesFile pf) throws PrismException
+	{
+		// Take a copy
+		Expression propNew = expr.deepCopy();
+		// Combine label lists from model/property file, then expand property refs/labels in property 
+		LabelList combinedLabelList = (pf == null) ? mf.getLabelList() : pf.getCombinedLabelList();
+		// formulas must be expanded before replacing constants!!!
+		propNew = (Expression) propNew.expandFormulas(mf.getFormulaList());
+		propNew = (Expression) propNew.expandPropRefsAndLabels(pf, combinedLabelList);
+		// Then get rid of any constants and simplify
+		propNew = (Expression) propNew.replaceConstants(mf.getConstantValues());
+		if (pf != null) {
+			propNew = (Expression) propNew.replaceConstants(pf.getConstantValues());
+		}
+		return propNew;
+	}
+
+	/**
+	 * @return true if candidates should be simulated with common random numbers
+	 */
+	public boolean useCommonRandomNumbers()
+	{
+		return settings != null && settings.getBoolean(PrismSettings.SIMULATOR_ADAPT_CRN);
+	}
+
+	/**
+	 * Create search strategy selected in settings. By default, use hill climbing.
+	 * @param branchCount
+	 * @return optimizer
+	 * @throws PrismException
+	 */
+	public AdaptOptimizer createOptimizer(int branchCount) throws PrismException
+	{
+		String name = OptimizationRunner.HILL_CLIMBING;
+		if (settings != null) {
+			name = settings.getString(PrismSettings.SIMULATOR_ADAPT_OPTIMIZER);
+		}
+		return OptimizationRunner.createOptimizer(name, branchCount, mainLog);
+	}
+
+	/**
+	 * @return stopping rule configured in settings; when settings are not available, use default values
+	 */
+	public StoppingRule createStoppingRule()
+	{
+		StoppingRule rule = new StoppingRule();
+		if (settings != null) {
+			rule.maxSamples = (long) settings.getDouble(PrismSettings.SIMULATOR_ADAPT_MAX_SAMPLES);
+			rule.maxSamplesPerCandidate = settings.getInteger(PrismSettings.SIMULATOR_ADAPT_MAX_CANDIDATE_SAMPLES);
+			rule.maxTime = settings.getInteger(PrismSettings.SIMULATOR_ADAPT_MAX_TIME);
+			rule.maxIterations = settings.getInteger(PrismSettings.SIMULATOR_ADAPT_MAX_ITERATIONS);
+			rule.tolerance = settings.getDouble(PrismSettings.SIMULATOR_ADAPT_TOLERANCE);
+		}
+		return rule;
+	}
+
+	/**
+	 * When racing is enabled in settings, wrap the evaluator in a race.
+	 * Confidence of the race bounds is the same as confidence of the simulation method.
+	 * @param evaluator
+	 * @param method
+	 * @return evaluator used by the search
+	 */
+	public CandidateEvaluator createRace(IncrementalEvaluator evaluator, CIMethod method)
+	{
+		if (settings == null) {
+			return evaluator;
+		}
+		String racing = settings.getString(PrismSettings.SIMULATOR_ADAPT_RACING);
+		int increment = settings.getInteger(PrismSettings.SIMULATOR_ADAPT_RACING_INCREMENT);
+		if (racing.equals("Hoeffding")) {
+			return new Race(evaluator, Race.BoundType.HOEFFDING, increment, method.getConfidence(), mainLog);
+		} else if (racing.equals("Bernstein")) {
+			return new Race(evaluator, Race.BoundType.BERNSTEIN, increment, method.getConfidence(), mainLog);
+		}
+		return evaluator;
+	}
+
+	/**
+	 * Create the evaluation cache, if it is enabled in settings.
+	 * @param pairedSamples true for common random numbers
+	 * @return cache or null
+	 */
+	public EvaluationCache createCache(boolean pairedSamples)
+	{
+		if (settings != null && !settings.getBoolean(PrismSettings.SIMULATOR_ADAPT_CACHE)) {
+			return null;
+		}
+		//cached samples are not paired with samples of other candidates
+		if (pairedSamples) {
+			mainLog.println("Evaluation cache is not used with common random numbers.");
+			return null;
+		}
+		return new EvaluationCache();
+	}
+
+	/**
+	 * Run the search, or resume it from a checkpoint selected in settings.
+	 * @param optimizer
+	 * @param evaluator
+	 * @param branchCount
+	 * @param seed simulation seed, from which the stream of a new search is derived
+	 * @return best point
+	 * @throws PrismException
+	 */
+	public float[] run(AdaptOptimizer optimizer, SamplingEvaluator evaluator, int branchCount, long seed) throws PrismException
+	{
+		EvaluationCache cache = createCache(evaluator.hasPairedSamples());
+		evaluator.setCache(cache);
+		OptimizationRunner runner = new OptimizationRunner(optimizer, createStoppingRule(), mainLog);
+		String resumeFile = "";
+		if (settings != null) {
+			String checkpointFile = settings.getString(PrismSettings.SIMULATOR_ADAPT_CHECKPOINT_FILE);
+			if (!checkpointFile.isEmpty()) {
+				runner.setCheckpoint(new File(checkpointFile), settings.getInteger(PrismSettings.SIMULATOR_ADAPT_CHECKPOINT_PERIOD));
+			}
+			resumeFile = settings.getString(PrismSettings.SIMULATOR_ADAPT_RESUME_FILE);
+		}
+		CandidateEvaluator searchEvaluator = createRace(evaluator, (CIMethod) evaluator.getMethod());
+		float[] best = null;
+		if (resumeFile.isEmpty()) {
+			//the search has its own stream, derived from the simulation seed
+			SearchRandom rnd = new SearchRandom(RandomNumberGenerator.mix64(seed ^ 0x5DEECE66DL));
+			best = runner.run(searchEvaluator, branchCount, INITIAL_SAMPLES, rnd);
+		} else {
+			best = runner.resume(searchEvaluator, new File(resumeFile), branchCount);
+		}
+		if (cache != null) {
+			mainLog.println(String.format("Evaluation cache: %d hits, %d samples reused.", cache.getHits(), cache.getReusedSamples()));
+		}
+		return best;
+	}
+}
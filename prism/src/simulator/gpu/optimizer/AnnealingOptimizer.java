@@ -0,0 +1,145 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import prism.PrismException;
+import prism.PrismLog;
+
+/**
+ * Simulated annealing with adaptive step size.
+ * Each iteration evaluates a batch of neighbours of the current point, where a random subset
+ * of coordinates is moved by +/- step. The best neighbour is accepted when it improves the current value,
+ * or with probability exp((value - current) / T). The step grows after an accepted move and shrinks
+ * after a rejected one; the temperature decreases geometrically.
+ */
+public class AnnealingOptimizer extends AbstractAdaptOptimizer
+{
+	static public final double DEFAULT_TEMPERATURE = 0.01;
+	static public final double DEFAULT_COOLING = 0.95;
+	static public final float DEFAULT_STEP = 0.05f;
+	static public final float MIN_STEP = 0.005f;
+	static public final float MAX_STEP = 0.25f;
+	static public final float STEP_INCREASE = 1.2f;
+	static public final float STEP_DECREASE = 0.8f;
+	private final int batchSize;
+	private double temperature = DEFAULT_TEMPERATURE;
+	private double cooling = DEFAULT_COOLING;
+	private float step = DEFAULT_STEP;
+	private float[] currentPoint = null;
+	private double currentValue = 0.0;
+
+	public AnnealingOptimizer(int branchCount, PrismLog mainLog)
+	{
+		super(branchCount, mainLog);
+		batchSize = Math.max(2, Math.min(8, branchCount));
+	}
+
+	@Override
+	public String getName()
+	{
+		return "Annealing";
+	}
+
+	@Override
+	public String getParametersString()
+	{
+		return String.format("batch: %d temperature: %f cooling: %f step: %f", batchSize, temperature, cooling, step);
+	}
+
+	@Override
+	public int getMaxCandidates()
+	{
+		return batchSize;
+	}
+
+	@Override
+	public void initialize(float[] start, int numberOfSamples, SearchRandom rnd)
+	{
+		super.initialize(start, numberOfSamples, rnd);
+		currentPoint = Arrays.copyOf(start, start.length);
+		currentValue = 0.0;
+	}
+
+	@Override
+	protected void saveStrategyState(DataOutput out) throws IOException
+	{
+		out.writeDouble(temperature);
+		out.writeFloat(step);
+		Checkpoint.writeFloats(out, currentPoint);
+		out.writeDouble(currentValue);
+	}
+
+	@Override
+	protected void loadStrategyState(DataInput in) throws IOException
+	{
+		temperature = in.readDouble();
+		step = in.readFloat();
+		currentPoint = Checkpoint.readFloats(in);
+		currentValue = in.readDouble();
+	}
+
+	@Override
+	public void iterate(CandidateEvaluator evaluator) throws PrismException
+	{
+		int maxChanged = Math.min(3, branchCount);
+		float[][] neighbours = new float[batchSize][];
+		for (int k = 0; k < batchSize; ++k) {
+			neighbours[k] = Arrays.copyOf(currentPoint, branchCount);
+			int changed = rnd.nextInt(maxChanged) + 1;
+			for (int j = 0; j < changed; ++j) {
+				int position = rnd.nextInt(branchCount);
+				neighbours[k][position] = clamp(neighbours[k][position] + (rnd.nextBoolean() ? step : -step));
+			}
+		}
+		CandidateResult[] results = evaluator.evaluate(neighbours, numberOfSamples);
+		int bestNeighbour = 0;
+		boolean improvement = false;
+		for (int k = 0; k < batchSize; ++k) {
+			improvement |= updateBest(neighbours[k], results[k]);
+			if (results[k].value > results[bestNeighbour].value) {
+				bestNeighbour = k;
+			}
+		}
+		double difference = results[bestNeighbour].value - currentValue;
+		boolean accepted = difference > 0 || rnd.nextDouble() < Math.exp(difference / temperature);
+		if (accepted) {
+			currentPoint = neighbours[bestNeighbour];
+			currentValue = results[bestNeighbour].value;
+			step = Math.min(MAX_STEP, step * STEP_INCREASE);
+		} else {
+			step = Math.max(MIN_STEP, step * STEP_DECREASE);
+		}
+		mainLog.println(String.format("Annealing: %s move to %f, temperature %f step %f", accepted ? "accepted" : "rejected",
+				results[bestNeighbour].value, temperature, step));
+		temperature *= cooling;
+		finishIteration(improvement);
+	}
+}
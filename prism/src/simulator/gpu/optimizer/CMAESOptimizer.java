@@ -0,0 +1,284 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import prism.PrismException;
+import prism.PrismLog;
+import cern.colt.matrix.DoubleMatrix1D;
+import cern.colt.matrix.DoubleMatrix2D;
+import cern.colt.matrix.impl.DenseDoubleMatrix2D;
+import cern.colt.matrix.linalg.EigenvalueDecomposition;
+
+/**
+ * Covariance matrix adaptation evolution strategy (Hansen), with default parameters from "The CMA Evolution Strategy: A Tutorial".
+ * Each iteration evaluates a population of lambda = 4 + 3 ln(n) candidates.
+ * Candidates outside of [0,1]^n are repaired by clamping and the repaired point is used in the update.
+ */
+public class CMAESOptimizer extends AbstractAdaptOptimizer
+{
+	static public final double DEFAULT_SIGMA = 0.2;
+	static public final double MIN_SIGMA = 1e-4;
+	static public final double MAX_SIGMA = 0.5;
+	private final int lambda;
+	private final int mu;
+	private final double[] weights;
+	private final double mueff;
+	private final double cc;
+	private final double cs;
+	private final double c1;
+	private final double cmu;
+	private final double damps;
+	private final double chiN;
+	private double sigma = DEFAULT_SIGMA;
+	private double[] xmean = null;
+	private double[] pc = null;
+	private double[] ps = null;
+	private double[][] C = null;
+	private double[][] B = null;
+	private double[] D = null;
+	private double[][] invsqrtC = null;
+	private int counteval = 0;
+
+	public CMAESOptimizer(int branchCount, PrismLog mainLog)
+	{
+		super(branchCount, mainLog);
+		int n = branchCount;
+		lambda = 4 + (int) Math.floor(3 * Math.log(n));
+		mu = lambda / 2;
+		weights = new double[mu];
+		double sum = 0.0;
+		for (int i = 0; i < mu; ++i) {
+			weights[i] = Math.log(mu + 0.5) - Math.log(i + 1);
+			sum += weights[i];
+		}
+		double sumSq = 0.0;
+		for (int i = 0; i < mu; ++i) {
+			weights[i] /= sum;
+			sumSq += weights[i] * weights[i];
+		}
+		mueff = 1.0 / sumSq;
+		cc = (4 + mueff / n) / (n + 4 + 2 * mueff / n);
+		cs = (mueff + 2) / (n + mueff + 5);
+		c1 = 2 / ((n + 1.3) * (n + 1.3) + mueff);
+		cmu = Math.min(1 - c1, 2 * (mueff - 2 + 1 / mueff) / ((n + 2) * (n + 2) + mueff));
+		damps = 1 + 2 * Math.max(0, Math.sqrt((mueff - 1) / (n + 1)) - 1) + cs;
+		chiN = Math.sqrt(n) * (1 - 1.0 / (4 * n) + 1.0 / (21 * n * n));
+	}
+
+	@Override
+	public String getName()
+	{
+		return "CMA-ES";
+	}
+
+	@Override
+	public String getParametersString()
+	{
+		return String.format("lambda: %d mu: %d mueff: %f sigma: %f", lambda, mu, mueff, sigma);
+	}
+
+	@Override
+	public int getMaxCandidates()
+	{
+		return lambda;
+	}
+
+	@Override
+	public void initialize(float[] start, int numberOfSamples, SearchRandom rnd)
+	{
+		super.initialize(start, numberOfSamples, rnd);
+		int n = branchCount;
+		xmean = new double[n];
+		for (int i = 0; i < n; ++i) {
+			xmean[i] = start[i];
+		}
+		pc = new double[n];
+		ps = new double[n];
+		C = identity(n);
+		B = identity(n);
+		invsqrtC = identity(n);
+		D = new double[n];
+		Arrays.fill(D, 1.0);
+		counteval = 0;
+	}
+
+	@Override
+	public void iterate(CandidateEvaluator evaluator) throws PrismException
+	{
+		int n = branchCount;
+		final float[][] x = new float[lambda][n];
+		for (int k = 0; k < lambda; ++k) {
+			double[] bdz = new double[n];
+			double[] z = new double[n];
+			for (int i = 0; i < n; ++i) {
+				z[i] = D[i] * rnd.nextGaussian();
+			}
+			for (int i = 0; i < n; ++i) {
+				for (int j = 0; j < n; ++j) {
+					bdz[i] += B[i][j] * z[j];
+				}
+				x[k][i] = (float) clamp(xmean[i] + sigma * bdz[i]);
+			}
+		}
+		final CandidateResult[] results = evaluator.evaluate(x, numberOfSamples);
+		counteval += lambda;
+		boolean improvement = false;
+		Integer[] order = new Integer[lambda];
+		for (int k = 0; k < lambda; ++k) {
+			order[k] = k;
+			improvement |= updateBest(x[k], results[k]);
+		}
+		//maximization - sort in descending order
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer o1, Integer o2)
+			{
+				return Double.compare(results[o2].value, results[o1].value);
+			}
+		});
+
+		double[] xold = xmean;
+		xmean = new double[n];
+		for (int k = 0; k < mu; ++k) {
+			for (int i = 0; i < n; ++i) {
+				xmean[i] += weights[k] * x[order[k]][i];
+			}
+		}
+		double[] step = new double[n];
+		for (int i = 0; i < n; ++i) {
+			step[i] = (xmean[i] - xold[i]) / sigma;
+		}
+		double normPs = 0.0;
+		double csFactor = Math.sqrt(cs * (2 - cs) * mueff);
+		for (int i = 0; i < n; ++i) {
+			double sum = 0.0;
+			for (int j = 0; j < n; ++j) {
+				sum += invsqrtC[i][j] * step[j];
+			}
+			ps[i] = (1 - cs) * ps[i] + csFactor * sum;
+			normPs += ps[i] * ps[i];
+		}
+		normPs = Math.sqrt(normPs);
+		boolean hsig = normPs / Math.sqrt(1 - Math.pow(1 - cs, 2.0 * counteval / lambda)) / chiN < 1.4 + 2.0 / (n + 1);
+		double ccFactor = Math.sqrt(cc * (2 - cc) * mueff);
+		for (int i = 0; i < n; ++i) {
+			pc[i] = (1 - cc) * pc[i] + (hsig ? ccFactor * step[i] : 0.0);
+		}
+		double[][] artmp = new double[mu][n];
+		for (int k = 0; k < mu; ++k) {
+			for (int i = 0; i < n; ++i) {
+				artmp[k][i] = (x[order[k]][i] - xold[i]) / sigma;
+			}
+		}
+		for (int i = 0; i < n; ++i) {
+			for (int j = 0; j <= i; ++j) {
+				double rankMu = 0.0;
+				for (int k = 0; k < mu; ++k) {
+					rankMu += weights[k] * artmp[k][i] * artmp[k][j];
+				}
+				double value = (1 - c1 - cmu) * C[i][j] + c1 * (pc[i] * pc[j] + (hsig ? 0.0 : cc * (2 - cc) * C[i][j])) + cmu * rankMu;
+				C[i][j] = value;
+				C[j][i] = value;
+			}
+		}
+		sigma *= Math.exp((cs / damps) * (normPs / chiN - 1));
+		sigma = Math.max(MIN_SIGMA, Math.min(MAX_SIGMA, sigma));
+		decompose();
+		mainLog.println(String.format("CMA-ES generation %d: sigma %f best in generation %f", counteval / lambda, sigma, results[order[0]].value));
+		finishIteration(improvement);
+	}
+
+	@Override
+	protected void saveStrategyState(DataOutput out) throws IOException
+	{
+		out.writeDouble(sigma);
+		out.writeInt(counteval);
+		Checkpoint.writeDoubles(out, xmean);
+		Checkpoint.writeDoubles(out, pc);
+		Checkpoint.writeDoubles(out, ps);
+		Checkpoint.writeMatrix(out, C);
+	}
+
+	@Override
+	protected void loadStrategyState(DataInput in) throws IOException
+	{
+		sigma = in.readDouble();
+		counteval = in.readInt();
+		xmean = Checkpoint.readDoubles(in);
+		pc = Checkpoint.readDoubles(in);
+		ps = Checkpoint.readDoubles(in);
+		C = Checkpoint.readMatrix(in);
+		B = identity(branchCount);
+		invsqrtC = identity(branchCount);
+		D = new double[branchCount];
+		//B, D and C^-1/2 are determined by C
+		decompose();
+	}
+
+	/**
+	 * Compute B, D and C^-1/2 from the covariance matrix.
+	 */
+	private void decompose()
+	{
+		int n = branchCount;
+		DoubleMatrix2D matrix = new DenseDoubleMatrix2D(C);
+		EigenvalueDecomposition decomposition = new EigenvalueDecomposition(matrix);
+		DoubleMatrix2D V = decomposition.getV();
+		DoubleMatrix1D eigenvalues = decomposition.getRealEigenvalues();
+		for (int i = 0; i < n; ++i) {
+			//numerical errors may give small negative eigenvalues
+			D[i] = Math.sqrt(Math.max(eigenvalues.getQuick(i), 1e-20));
+			for (int j = 0; j < n; ++j) {
+				B[i][j] = V.getQuick(i, j);
+			}
+		}
+		for (int i = 0; i < n; ++i) {
+			for (int j = 0; j < n; ++j) {
+				double sum = 0.0;
+				for (int k = 0; k < n; ++k) {
+					sum += B[i][k] * B[j][k] / D[k];
+				}
+				invsqrtC[i][j] = sum;
+			}
+		}
+	}
+
+	private static double[][] identity(int n)
+	{
+		double[][] matrix = new double[n][n];
+		for (int i = 0; i < n; ++i) {
+			matrix[i][i] = 1.0;
+		}
+		return matrix;
+	}
+}
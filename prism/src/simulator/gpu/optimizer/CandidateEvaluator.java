@@ -0,0 +1,66 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import prism.PrismException;
+
+/**
+ * Evaluates probability vectors of adaptive commands by simulation.
+ * Saved state contains counters of samples and PRNG offsets.
+ */
+public interface CandidateEvaluator extends Checkpointable
+{
+	/**
+	 * Estimate the probability of property for each candidate.
+	 * @param candidates probability vectors
+	 * @param numberOfSamples number of samples for each candidate
+	 * @return results, i-th result corresponds to i-th candidate
+	 * @throws PrismException
+	 */
+	CandidateResult[] evaluate(float[][] candidates, int numberOfSamples) throws PrismException;
+
+	/**
+	 * Estimate the probability of property for each candidate again, only from new samples.
+	 * Samples saved for candidates (e.g. in a cache) are not used for the result, so the estimate
+	 * of a point selected as the best one is free of the selection bias of its previous samples.
+	 * New samples are added to the saved ones afterwards.
+	 * @param candidates probability vectors
+	 * @param numberOfSamples number of new samples for each candidate
+	 * @return results, i-th result corresponds to i-th candidate
+	 * @throws PrismException
+	 */
+	CandidateResult[] reevaluate(float[][] candidates, int numberOfSamples) throws PrismException;
+
+	/**
+	 * @return total number of samples generated by evaluator
+	 */
+	long getSamplesProcessed();
+
+	/**
+	 * @return total time of simulation, in seconds
+	 */
+	double getSimulationTime();
+}
@@ -0,0 +1,181 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import prism.PrismException;
+
+/**
+ * Binary checkpoint of the search for probabilities of adaptive commands.
+ * Contains state of the runner, stopping rule, optimizer and evaluator (including PRNG offsets),
+ * so a resumed search continues exactly from the last saved iteration.
+ */
+public class Checkpoint
+{
+	private static final int MAGIC = 0x50414443;
+	private static final int VERSION = 3;
+
+	/**
+	 * Write checkpoint. The file is replaced atomically, so a crash during writing keeps the previous checkpoint.
+	 * @param file
+	 * @param optimizer
+	 * @param branchCount
+	 * @param parts states to save, in order
+	 * @throws PrismException
+	 */
+	public static void save(File file, AdaptOptimizer optimizer, int branchCount, Checkpointable... parts) throws PrismException
+	{
+		try {
+			File absolute = file.getAbsoluteFile();
+			File temp = new File(absolute.getParentFile(), absolute.getName() + ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(optimizer.getName());
+				out.writeInt(branchCount);
+				for (Checkpointable part : parts) {
+					part.saveState(out);
+				}
+			}
+			Files.move(temp.toPath(), absolute.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException exc) {
+			throw new PrismException("Can't write checkpoint " + file.getPath() + ": " + exc.getMessage());
+		}
+	}
+
+	/**
+	 * Read checkpoint.
+	 * @param file
+	 * @param optimizer optimizer of the same strategy as the saved one
+	 * @param branchCount
+	 * @param parts states to restore, in the same order as when saving
+	 * @throws PrismException
+	 */
+	public static void load(File file, AdaptOptimizer optimizer, int branchCount, Checkpointable... parts) throws PrismException
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new PrismException(file.getPath() + " is not a valid checkpoint of adaptive search");
+			}
+			String name = in.readUTF();
+			if (!name.equals(optimizer.getName())) {
+				throw new PrismException(String.format("Checkpoint %s was created by strategy %s, not %s", file.getPath(), name, optimizer.getName()));
+			}
+			int count = in.readInt();
+			if (count != branchCount) {
+				throw new PrismException(String.format("Checkpoint %s has %d branches, model has %d", file.getPath(), count, branchCount));
+			}
+			for (Checkpointable part : parts) {
+				part.loadState(in);
+			}
+		} catch (IOException exc) {
+			throw new PrismException("Can't read checkpoint " + file.getPath() + ": " + exc.getMessage());
+		}
+	}
+
+	public static void writeFloats(DataOutput out, float[] array) throws IOException
+	{
+		out.writeInt(array.length);
+		for (float value : array) {
+			out.writeFloat(value);
+		}
+	}
+
+	public static float[] readFloats(DataInput in) throws IOException
+	{
+		float[] array = new float[in.readInt()];
+		for (int i = 0; i < array.length; ++i) {
+			array[i] = in.readFloat();
+		}
+		return array;
+	}
+
+	public static void writeDoubles(DataOutput out, double[] array) throws IOException
+	{
+		out.writeInt(array.length);
+		for (double value : array) {
+			out.writeDouble(value);
+		}
+	}
+
+	public static double[] readDoubles(DataInput in) throws IOException
+	{
+		double[] array = new double[in.readInt()];
+		for (int i = 0; i < array.length; ++i) {
+			array[i] = in.readDouble();
+		}
+		return array;
+	}
+
+	public static void writeMatrix(DataOutput out, double[][] matrix) throws IOException
+	{
+		out.writeInt(matrix.length);
+		for (double[] row : matrix) {
+			writeDoubles(out, row);
+		}
+	}
+
+	public static double[][] readMatrix(DataInput in) throws IOException
+	{
+		double[][] matrix = new double[in.readInt()][];
+		for (int i = 0; i < matrix.length; ++i) {
+			matrix[i] = readDoubles(in);
+		}
+		return matrix;
+	}
+
+	/**
+	 * Save the exact state of generator, so the resumed search makes identical random choices.
+	 * @param out
+	 * @param rnd
+	 * @throws IOException
+	 */
+	public static void writeRandom(DataOutput out, SearchRandom rnd) throws IOException
+	{
+		out.writeLong(rnd.getSeed());
+		out.writeLong(rnd.getState());
+	}
+
+	public static SearchRandom readRandom(DataInput in) throws IOException
+	{
+		SearchRandom rnd = new SearchRandom(0);
+		long seed = in.readLong();
+		rnd.setState(seed, in.readLong());
+		return rnd;
+	}
+}
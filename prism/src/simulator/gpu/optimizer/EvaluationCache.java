@@ -0,0 +1,225 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Accumulated statistics of already simulated candidates.
+ * Candidates are quantised, so the same point of the search grid reached in a different way
+ * (clamping, extension, repeated evaluation of the best point) is found in the cache.
+ * An evaluator extends cached statistics instead of sampling the candidate from scratch.
+ * The least recently used entries are removed when the cache is full.
+ */
+public class EvaluationCache implements Checkpointable
+{
+	/**
+	 * Default quantisation: 1e-4 is much finer than steps of optimizers,
+	 * but hides rounding errors of floats.
+	 */
+	public static final int DEFAULT_RESOLUTION = 10000;
+	public static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+
+	/**
+	 * Statistics of a single point.
+	 */
+	public static class Entry
+	{
+		public int numTrue;
+		public int numSamples;
+
+		public Entry(int numTrue, int numSamples)
+		{
+			this.numTrue = numTrue;
+			this.numSamples = numSamples;
+		}
+	}
+
+	/**
+	 * Quantised point, usable as a key of hash map.
+	 */
+	private static class Key
+	{
+		private final int[] values;
+
+		public Key(int[] values)
+		{
+			this.values = values;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj instanceof Key && Arrays.equals(values, ((Key) obj).values);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Arrays.hashCode(values);
+		}
+	}
+
+	private final int resolution;
+	private final Map<Key, Entry> entries;
+	private long hits = 0;
+	private long reusedSamples = 0;
+
+	public EvaluationCache()
+	{
+		this(DEFAULT_RESOLUTION, DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * @param resolution number of quantisation levels in [0,1]
+	 * @param maxEntries maximal number of saved points
+	 */
+	public EvaluationCache(int resolution, final int maxEntries)
+	{
+		this.resolution = resolution;
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, EvaluationCache.Entry> eldest)
+			{
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @param point
+	 * @return statistics of point, or null when the point has not been simulated yet
+	 */
+	public Entry get(float[] point)
+	{
+		Entry entry = entries.get(quantise(point));
+		if (entry != null) {
+			++hits;
+			reusedSamples += entry.numSamples;
+		}
+		return entry;
+	}
+
+	/**
+	 * Save statistics of point. They should contain all samples, including the ones returned by get.
+	 * @param point
+	 * @param numTrue
+	 * @param numSamples
+	 */
+	public void put(float[] point, int numTrue, int numSamples)
+	{
+		if (numSamples > 0) {
+			entries.put(quantise(point), new Entry(numTrue, numSamples));
+		}
+	}
+
+	/**
+	 * Add statistics of new samples of point to the saved ones.
+	 * Unlike get, this isn't counted as a reuse of samples.
+	 * @param point
+	 * @param numTrue
+	 * @param numSamples
+	 */
+	public void add(float[] point, int numTrue, int numSamples)
+	{
+		Key key = quantise(point);
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			put(point, numTrue, numSamples);
+		} else {
+			entry.numTrue += numTrue;
+			entry.numSamples += numSamples;
+		}
+	}
+
+	/**
+	 * @return number of lookups which found a simulated point
+	 */
+	public long getHits()
+	{
+		return hits;
+	}
+
+	/**
+	 * @return number of samples which were reused instead of simulated again
+	 */
+	public long getReusedSamples()
+	{
+		return reusedSamples;
+	}
+
+	private Key quantise(float[] point)
+	{
+		int[] values = new int[point.length];
+		for (int i = 0; i < point.length; ++i) {
+			values[i] = Math.round(point[i] * resolution);
+		}
+		return new Key(values);
+	}
+
+	@Override
+	public void saveState(DataOutput out) throws IOException
+	{
+		out.writeLong(hits);
+		out.writeLong(reusedSamples);
+		out.writeInt(entries.size());
+		//iteration order is the access order, so the restored cache removes the same entries
+		for (Map.Entry<Key, EvaluationCache.Entry> entry : entries.entrySet()) {
+			int[] values = entry.getKey().values;
+			out.writeInt(values.length);
+			for (int value : values) {
+				out.writeInt(value);
+			}
+			out.writeInt(entry.getValue().numTrue);
+			out.writeInt(entry.getValue().numSamples);
+		}
+	}
+
+	@Override
+	public void loadState(DataInput in) throws IOException
+	{
+		hits = in.readLong();
+		reusedSamples = in.readLong();
+		entries.clear();
+		int size = in.readInt();
+		for (int i = 0; i < size; ++i) {
+			int[] values = new int[in.readInt()];
+			for (int j = 0; j < values.length; ++j) {
+				values[j] = in.readInt();
+			}
+			int numTrue = in.readInt();
+			entries.put(new Key(values), new Entry(numTrue, in.readInt()));
+		}
+	}
+}
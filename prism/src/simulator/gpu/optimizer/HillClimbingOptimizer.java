@@ -0,0 +1,154 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import java.util.Arrays;
+
+import prism.PrismException;
+import prism.PrismLog;
+
+/**
+ * Hill climbing: in each iteration, a random subset of s coordinates is moved by +/- step,
+ * which gives 2^s candidates. When the best candidate improves the result,
+ * the search continues in the same direction as long as the result improves ("przedłużanie").
+ * Without improvement, the current best point is estimated again from new samples only,
+ * since its previous estimate is biased upwards (it is the maximum of noisy estimates).
+ */
+public class HillClimbingOptimizer extends AbstractAdaptOptimizer
+{
+	static public final float DEFAULT_STEP = 0.05f;
+	private final float step;
+	/**
+	 * Maximal size of the subset of changed coordinates.
+	 */
+	private final int m;
+
+	public HillClimbingOptimizer(int branchCount, PrismLog mainLog)
+	{
+		this(branchCount, mainLog, DEFAULT_STEP);
+	}
+
+	public HillClimbingOptimizer(int branchCount, PrismLog mainLog, float step)
+	{
+		super(branchCount, mainLog);
+		this.step = step;
+		if (branchCount > 5) {
+			m = 3;
+		} else {
+			m = (int) Math.floor((float) branchCount / 2) + 1;
+		}
+	}
+
+	@Override
+	public String getName()
+	{
+		return "Hill climbing";
+	}
+
+	@Override
+	public String getParametersString()
+	{
+		return String.format("e_max: %d I_max: %d e_increase: %f step: %f", 0, 0, 0.0f, step);
+	}
+
+	@Override
+	public int getMaxCandidates()
+	{
+		return 1 << m;
+	}
+
+	@Override
+	public void iterate(CandidateEvaluator evaluator) throws PrismException
+	{
+		int s = rnd.nextInt(m) + 1;
+		int[] changedPositions = new int[s];
+		for (int i = 0; i < s; ++i) {
+			changedPositions[i] = rnd.nextInt(branchCount);
+		}
+		int combinations = 1 << s;
+		float[][] current = new float[combinations][];
+		for (int i = 0; i < combinations; ++i) {
+			current[i] = Arrays.copyOf(bestPoint, branchCount);
+			for (int j = 0; j < s; ++j) {
+				if (((i >> j) & 1) == 1) {
+					current[i][changedPositions[j]] += step;
+				} else {
+					current[i][changedPositions[j]] -= step;
+				}
+				current[i][changedPositions[j]] = clamp(current[i][changedPositions[j]]);
+			}
+		}
+		mainLog.println(String.format("%d COMBINATIONS", combinations));
+		CandidateResult[] results = evaluator.evaluate(current, numberOfSamples);
+		int posMax = -1;
+		for (int i = 0; i < combinations; ++i) {
+			if (updateBest(current[i], results[i])) {
+				posMax = i;
+			}
+		}
+		if (posMax != -1) {
+			extend(evaluator, changedPositions, posMax);
+			finishIteration(true);
+		} else {
+			finishIteration(false);
+			double oldValue = bestValue;
+			CandidateResult result = evaluator.reevaluate(new float[][] { bestPoint }, numberOfSamples)[0];
+			bestValue = result.value;
+			bestWidth = result.width;
+			mainLog.println(String.format("Re-evaluation of best point with %d new samples: %f (previous estimate %f)", numberOfSamples, bestValue, oldValue));
+		}
+	}
+
+	/**
+	 * Continue in the direction of the best candidate, as long as the result improves.
+	 * @param evaluator
+	 * @param changedPositions
+	 * @param direction index of best candidate; j-th bit determines the sign of move in j-th changed position
+	 * @throws PrismException
+	 */
+	private void extend(CandidateEvaluator evaluator, int[] changedPositions, int direction) throws PrismException
+	{
+		float[] temp = Arrays.copyOf(bestPoint, branchCount);
+		while (true) {
+			for (int j = 0; j < changedPositions.length; ++j) {
+				if (((direction >> j) & 1) == 1) {
+					temp[changedPositions[j]] += step;
+				} else {
+					temp[changedPositions[j]] -= step;
+				}
+				if (temp[changedPositions[j]] < 0 || temp[changedPositions[j]] > 1.0) {
+					return;
+				}
+			}
+			double oldResult = bestValue;
+			CandidateResult result = evaluator.evaluate(new float[][] { temp }, numberOfSamples)[0];
+			mainLog.println(String.format("ADDITIONAL APPLICATION OF BEST, NEW PROBABILITY %f CURRENT BEST %f", result.value, oldResult));
+			if (!updateBest(temp, result)) {
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,82 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import prism.PrismException;
+
+/**
+ * Evaluator which can generate samples for candidates in several steps.
+ * Statistics of a candidate are accumulated between calls to extendRace.
+ */
+public interface IncrementalEvaluator extends CandidateEvaluator
+{
+	/**
+	 * Start sampling of new candidates; statistics from previous candidates are discarded.
+	 * @param candidates
+	 * @throws PrismException
+	 */
+	void startRace(float[][] candidates) throws PrismException;
+
+	/**
+	 * Generate additional samples for candidates.
+	 * @param counts number of additional samples for each candidate, 0 for candidates which should not be sampled
+	 * @throws PrismException
+	 */
+	void extendRace(int[] counts) throws PrismException;
+
+	/**
+	 * @param candidate
+	 * @return number of samples of candidate since the start of race, including samples reused from a cache
+	 */
+	int getNumSamples(int candidate);
+
+	/**
+	 * @param candidate
+	 * @return number of successful samples for candidate since the start of race
+	 */
+	int getNumTrue(int candidate);
+
+	/**
+	 * @return true if i-th samples of all candidates use the same random numbers (common random numbers),
+	 * so getNumDiscordant can be used
+	 */
+	boolean hasPairedSamples();
+
+	/**
+	 * Compare paired samples of two candidates with the same number of samples.
+	 * @param first
+	 * @param second
+	 * @return number of pairs where exactly one of candidates was successful
+	 */
+	int getNumDiscordant(int first, int second);
+
+	/**
+	 * @param candidate
+	 * @return estimate and confidence interval computed from all samples of the candidate
+	 * @throws PrismException
+	 */
+	CandidateResult getResult(int candidate) throws PrismException;
+}
@@ -0,0 +1,235 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import prism.Pair;
+import prism.PrismException;
+import prism.PrismLog;
+
+/**
+ * Main loop of the search for probabilities of adaptive commands.
+ * Runs iterations of selected strategy until a stopping rule is satisfied
+ * and keeps history of the best points.
+ * When a checkpoint file is set, the whole state of search is saved periodically
+ * and the search may be resumed from it later.
+ */
+public class OptimizationRunner implements Checkpointable
+{
+	/**
+	 * Names of available strategies, as used in PrismSettings.
+	 */
+	public static final String HILL_CLIMBING = "Hill climbing";
+	public static final String SPSA = "SPSA";
+	public static final String CMA_ES = "CMA-ES";
+	public static final String ANNEALING = "Annealing";
+
+	private final AdaptOptimizer optimizer;
+	private final StoppingRule stoppingRule;
+	private final PrismLog mainLog;
+	private List<Pair<String, float[]>> history = new ArrayList<>();
+	private int iterations = 0;
+	/**
+	 * Time spent in search before it was resumed, in ms.
+	 */
+	private long previousTime = 0;
+	private long elapsedTime = 0;
+	private File checkpointFile = null;
+	private int checkpointPeriod = 1;
+
+	public OptimizationRunner(AdaptOptimizer optimizer, StoppingRule stoppingRule, PrismLog mainLog)
+	{
+		this.optimizer = optimizer;
+		this.stoppingRule = stoppingRule;
+		this.mainLog = mainLog;
+	}
+
+	/**
+	 * Save state of search after each period iterations.
+	 * @param file checkpoint file, null disables checkpoints
+	 * @param period
+	 */
+	public void setCheckpoint(File file, int period)
+	{
+		this.checkpointFile = file;
+		this.checkpointPeriod = Math.max(period, 1);
+	}
+
+	/**
+	 * Create a search strategy.
+	 * @param name name of strategy
+	 * @param branchCount number of optimized probabilities
+	 * @param mainLog
+	 * @return optimizer
+	 * @throws PrismException for unknown strategy
+	 */
+	public static AdaptOptimizer createOptimizer(String name, int branchCount, PrismLog mainLog) throws PrismException
+	{
+		if (name.equalsIgnoreCase(HILL_CLIMBING)) {
+			return new HillClimbingOptimizer(branchCount, mainLog);
+		} else if (name.equalsIgnoreCase(SPSA)) {
+			return new SPSAOptimizer(branchCount, mainLog);
+		} else if (name.equalsIgnoreCase(CMA_ES)) {
+			return new CMAESOptimizer(branchCount, mainLog);
+		} else if (name.equalsIgnoreCase(ANNEALING)) {
+			return new AnnealingOptimizer(branchCount, mainLog);
+		}
+		throw new PrismException("Unknown search strategy for adaptive commands: " + name);
+	}
+
+	/**
+	 * Run the search from a random starting point.
+	 * @param evaluator
+	 * @param branchCount number of optimized probabilities
+	 * @param numberOfSamples initial number of samples for each candidate
+	 * @param rnd
+	 * @return best point
+	 * @throws PrismException
+	 */
+	public float[] run(CandidateEvaluator evaluator, int branchCount, int numberOfSamples, SearchRandom rnd) throws PrismException
+	{
+		float[] start = new float[branchCount];
+		for (int i = 0; i < branchCount; ++i) {
+			start[i] = rnd.nextFloat();
+		}
+		optimizer.initialize(start, numberOfSamples, rnd);
+		return run(evaluator);
+	}
+
+	/**
+	 * Continue the search saved in checkpoint.
+	 * @param evaluator evaluator for the same model and property as the saved one
+	 * @param file checkpoint file
+	 * @param branchCount number of optimized probabilities
+	 * @return best point
+	 * @throws PrismException when the checkpoint can't be read or doesn't match the search
+	 */
+	public float[] resume(CandidateEvaluator evaluator, File file, int branchCount) throws PrismException
+	{
+		Checkpoint.load(file, optimizer, branchCount, this, stoppingRule, optimizer, evaluator);
+		mainLog.println(String.format("Resuming search from %s after %d iterations", file.getPath(), iterations));
+		// The saved search may have stopped already
+		if (stoppingRule.limitReached(iterations, evaluator.getSamplesProcessed(), elapsedTime, optimizer)) {
+			return finish();
+		}
+		return run(evaluator);
+	}
+
+	/**
+	 * Run the search with an initialized optimizer.
+	 * @param evaluator
+	 * @return best point
+	 * @throws PrismException
+	 */
+	public float[] run(CandidateEvaluator evaluator) throws PrismException
+	{
+		mainLog.println(String.format("Search strategy: %s, stopping rule: %s", optimizer.getName(), stoppingRule));
+		long startTime = System.currentTimeMillis();
+		while (true) {
+			mainLog.println(String.format("%d ITERATION", iterations));
+			optimizer.iterate(evaluator);
+			double width = optimizer.getBestWidth();
+			double max = optimizer.getBestValue();
+			float[] best = optimizer.getBestPoint();
+			history.add(new Pair<String, float[]>(String.format("%d %d %f %d %f %f %f", iterations, optimizer.getNumberOfSamples(),
+					evaluator.getSimulationTime(), evaluator.getSamplesProcessed(), max, max - width, max + width), Arrays.copyOf(best, best.length)));
+			mainLog.println(String.format("MAX %f [%f,%f]", max, max - width, max + width));
+			mainLog.print(String.format("c_i: "));
+			for (int j = 0; j < best.length; ++j) {
+				mainLog.print(best[j] + " ");
+			}
+			mainLog.println();
+			++iterations;
+			elapsedTime = previousTime + System.currentTimeMillis() - startTime;
+			boolean stop = stoppingRule.shouldStop(iterations, evaluator.getSamplesProcessed(), elapsedTime, optimizer);
+			if (checkpointFile != null && (stop || iterations % checkpointPeriod == 0)) {
+				Checkpoint.save(checkpointFile, optimizer, best.length, this, stoppingRule, optimizer, evaluator);
+			}
+			if (stop) {
+				break;
+			}
+			mainLog.println("-----------");
+			mainLog.flush();
+		}
+		return finish();
+	}
+
+	/**
+	 * Print the reason of stopping and the history of the search.
+	 * @return best point
+	 */
+	private float[] finish()
+	{
+		mainLog.println("Search stopped: " + stoppingRule.getReason());
+		mainLog.println(optimizer.getParametersString());
+		for (Pair<String, float[]> entry : history) {
+			mainLog.print(entry.first + " ");
+			for (int j = 0; j < entry.second.length; ++j) {
+				mainLog.print(entry.second[j] + " ");
+			}
+			mainLog.println();
+		}
+		return optimizer.getBestPoint();
+	}
+
+	@Override
+	public void saveState(DataOutput out) throws IOException
+	{
+		out.writeInt(iterations);
+		out.writeLong(elapsedTime);
+		out.writeInt(history.size());
+		for (Pair<String, float[]> entry : history) {
+			out.writeUTF(entry.first);
+			Checkpoint.writeFloats(out, entry.second);
+		}
+	}
+
+	@Override
+	public void loadState(DataInput in) throws IOException
+	{
+		iterations = in.readInt();
+		previousTime = in.readLong();
+		elapsedTime = previousTime;
+		int size = in.readInt();
+		history = new ArrayList<>(size);
+		for (int i = 0; i < size; ++i) {
+			String line = in.readUTF();
+			history.add(new Pair<String, float[]>(line, Checkpoint.readFloats(in)));
+		}
+	}
+
+	public int getIterations()
+	{
+		return iterations;
+	}
+}
@@ -0,0 +1,231 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import prism.PrismException;
+import prism.PrismLog;
+
+/**
+ * Statistical racing of candidates (Maron & Moore; Mnih, Szepesvari & Audibert).
+ * All candidates are sampled in small increments. After each round, a candidate is dropped when
+ * its upper confidence bound is below the lower bound of the leader. The last remaining candidates
+ * are sampled up to the full number of samples, so the winner is estimated as precisely as without racing.
+ * Cached samples of a candidate count towards its number of samples, both for elimination and for the full number.
+ * Bounds hold simultaneously for all candidates and rounds with probability 1 - delta (union bound).
+ * With common random numbers, candidates are compared with the leader using the paired difference
+ * of samples, which has much lower variance than the difference of two independent estimates.
+ */
+public class Race implements CandidateEvaluator
+{
+	/**
+	 * Type of confidence bound.
+	 */
+	public enum BoundType {
+		/**
+		 * Hoeffding bound, uses only range of samples.
+		 */
+		HOEFFDING,
+		/**
+		 * Empirical Bernstein bound, tighter for probabilities close to 0 or 1.
+		 */
+		BERNSTEIN
+	}
+
+	static public final int DEFAULT_INCREMENT = 5000;
+	private final IncrementalEvaluator evaluator;
+	private final BoundType boundType;
+	private final int increment;
+	private final double delta;
+	private final PrismLog mainLog;
+
+	/**
+	 * @param evaluator evaluator used to generate samples
+	 * @param boundType
+	 * @param increment number of samples for each active candidate in a round
+	 * @param delta probability that any bound doesn't hold
+	 * @param mainLog
+	 */
+	public Race(IncrementalEvaluator evaluator, BoundType boundType, int increment, double delta, PrismLog mainLog)
+	{
+		this.evaluator = evaluator;
+		this.boundType = boundType;
+		this.increment = increment;
+		this.delta = delta;
+		this.mainLog = mainLog;
+	}
+
+	@Override
+	public CandidateResult[] evaluate(float[][] candidates, int numberOfSamples) throws PrismException
+	{
+		int count = candidates.length;
+		evaluator.startRace(candidates);
+		boolean[] active = new boolean[count];
+		for (int i = 0; i < count; ++i) {
+			active[i] = true;
+		}
+		int activeCount = count;
+		int rounds = (numberOfSamples + increment - 1) / increment;
+		double logTerm = Math.log((boundType == BoundType.HOEFFDING ? 2.0 : 3.0) * count * rounds / delta);
+		int[] counts = new int[count];
+		int round = 0;
+		while (true) {
+			//samples of a candidate include the cached ones, so only the missing samples are generated
+			boolean missing = false;
+			for (int i = 0; i < count; ++i) {
+				int remaining = active[i] ? Math.max(numberOfSamples - evaluator.getNumSamples(i), 0) : 0;
+				//no competition - sample the remaining candidates at once
+				counts[i] = activeCount > 1 ? Math.min(increment, remaining) : remaining;
+				missing |= counts[i] > 0;
+			}
+			if (!missing) {
+				break;
+			}
+			evaluator.extendRace(counts);
+			++round;
+			if (activeCount == 1) {
+				break;
+			}
+			if (evaluator.hasPairedSamples()) {
+				activeCount = eliminatePaired(active, activeCount, logTerm);
+				mainLog.println(String.format("Race: %d of %d candidates after %d rounds", activeCount, count, round));
+				continue;
+			}
+			double leaderBound = Double.NEGATIVE_INFINITY;
+			double[] means = new double[count];
+			double[] bounds = new double[count];
+			for (int i = 0; i < count; ++i) {
+				if (active[i]) {
+					int n = evaluator.getNumSamples(i);
+					means[i] = evaluator.getNumTrue(i) / (double) n;
+					bounds[i] = bound(means[i], n, logTerm);
+					leaderBound = Math.max(leaderBound, means[i] - bounds[i]);
+				}
+			}
+			for (int i = 0; i < count; ++i) {
+				if (active[i] && means[i] + bounds[i] < leaderBound) {
+					active[i] = false;
+					--activeCount;
+				}
+			}
+			mainLog.println(String.format("Race: %d of %d candidates after %d rounds", activeCount, count, round));
+		}
+		CandidateResult[] results = new CandidateResult[count];
+		for (int i = 0; i < count; ++i) {
+			results[i] = evaluator.getResult(i);
+		}
+		return results;
+	}
+
+	/**
+	 * Drop candidates which are worse than the leader, using the paired difference estimator.
+	 * Difference of i-th samples belongs to [-1,1]; for n pairs with d discordant ones,
+	 * mean of differences is the difference of means and its variance is d/n - mean^2.
+	 * @param active
+	 * @param activeCount
+	 * @param logTerm
+	 * @return new number of active candidates
+	 */
+	private int eliminatePaired(boolean[] active, int activeCount, double logTerm)
+	{
+		int leader = -1;
+		for (int i = 0; i < active.length; ++i) {
+			if (active[i] && (leader == -1 || evaluator.getNumTrue(i) > evaluator.getNumTrue(leader))) {
+				leader = i;
+			}
+		}
+		int n = evaluator.getNumSamples(leader);
+		for (int i = 0; i < active.length; ++i) {
+			if (!active[i] || i == leader) {
+				continue;
+			}
+			double mean = (evaluator.getNumTrue(leader) - evaluator.getNumTrue(i)) / (double) n;
+			double bound;
+			if (boundType == BoundType.HOEFFDING) {
+				bound = Math.sqrt(2.0 * logTerm / n);
+			} else {
+				double variance = Math.max(0.0, evaluator.getNumDiscordant(leader, i) / (double) n - mean * mean);
+				bound = Math.sqrt(2.0 * variance * logTerm / n) + 6.0 * logTerm / n;
+			}
+			if (mean - bound > 0) {
+				active[i] = false;
+				--activeCount;
+			}
+		}
+		return activeCount;
+	}
+
+	/**
+	 * @param mean empirical mean of samples from [0,1]
+	 * @param n number of samples
+	 * @param logTerm log(c / delta'), where delta' is the share of delta for one bound
+	 * @return half-width of confidence interval
+	 */
+	private double bound(double mean, int n, double logTerm)
+	{
+		if (boundType == BoundType.HOEFFDING) {
+			return Math.sqrt(logTerm / (2.0 * n));
+		} else {
+			//variance of Bernoulli samples
+			double variance = mean * (1.0 - mean);
+			return Math.sqrt(2.0 * variance * logTerm / n) + 3.0 * logTerm / n;
+		}
+	}
+
+	@Override
+	public void saveState(DataOutput out) throws IOException
+	{
+		evaluator.saveState(out);
+	}
+
+	@Override
+	public void loadState(DataInput in) throws IOException
+	{
+		evaluator.loadState(in);
+	}
+
+	@Override
+	public CandidateResult[] reevaluate(float[][] candidates, int numberOfSamples) throws PrismException
+	{
+		//all candidates need the full number of new samples, there is nothing to race for
+		return evaluator.reevaluate(candidates, numberOfSamples);
+	}
+
+	@Override
+	public long getSamplesProcessed()
+	{
+		return evaluator.getSamplesProcessed();
+	}
+
+	@Override
+	public double getSimulationTime()
+	{
+		return evaluator.getSimulationTime();
+	}
+}
@@ -0,0 +1,166 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import prism.PrismException;
+import prism.PrismLog;
+
+/**
+ * Simultaneous perturbation stochastic approximation (Spall).
+ * Each iteration estimates the gradient from two candidates, theta + c_k * delta and theta - c_k * delta,
+ * where delta is a random vector of +/-1. The cost of an iteration doesn't depend on the number of branches.
+ * Gains are a_k = a / (k + 1 + A)^alpha and c_k = c / (k + 1)^gamma. The constant a is calibrated
+ * in the first iteration, so that the first move changes probabilities by initialStep.
+ */
+public class SPSAOptimizer extends AbstractAdaptOptimizer
+{
+	static public final double DEFAULT_ALPHA = 0.602;
+	static public final double DEFAULT_GAMMA = 0.101;
+	static public final double DEFAULT_C = 0.05;
+	static public final double DEFAULT_A = 10.0;
+	static public final double DEFAULT_INITIAL_STEP = 0.05;
+	private double alpha = DEFAULT_ALPHA;
+	private double gamma = DEFAULT_GAMMA;
+	private double c = DEFAULT_C;
+	private double stabilityA = DEFAULT_A;
+	private double initialStep = DEFAULT_INITIAL_STEP;
+	/**
+	 * Computed in the first iteration.
+	 */
+	private double a = 0.0;
+	private double[] theta = null;
+	private int k = 0;
+
+	public SPSAOptimizer(int branchCount, PrismLog mainLog)
+	{
+		super(branchCount, mainLog);
+	}
+
+	@Override
+	public String getName()
+	{
+		return "SPSA";
+	}
+
+	@Override
+	public String getParametersString()
+	{
+		return String.format("a: %f A: %f c: %f alpha: %f gamma: %f", a, stabilityA, c, alpha, gamma);
+	}
+
+	@Override
+	public int getMaxCandidates()
+	{
+		return 2;
+	}
+
+	@Override
+	public void initialize(float[] start, int numberOfSamples, SearchRandom rnd)
+	{
+		super.initialize(start, numberOfSamples, rnd);
+		theta = new double[branchCount];
+		for (int i = 0; i < branchCount; ++i) {
+			theta[i] = start[i];
+		}
+		k = 0;
+	}
+
+	@Override
+	public void iterate(CandidateEvaluator evaluator) throws PrismException
+	{
+		double ck = c / Math.pow(k + 1, gamma);
+		int[] delta = new int[branchCount];
+		float[][] candidates = new float[2][branchCount];
+		for (int i = 0; i < branchCount; ++i) {
+			delta[i] = rnd.nextBoolean() ? 1 : -1;
+			candidates[0][i] = (float) clamp(theta[i] + ck * delta[i]);
+			candidates[1][i] = (float) clamp(theta[i] - ck * delta[i]);
+		}
+		CandidateResult[] results = evaluator.evaluate(candidates, numberOfSamples);
+		boolean improvement = updateBest(candidates[0], results[0]);
+		improvement |= updateBest(candidates[1], results[1]);
+
+		double[] gradient = new double[branchCount];
+		double maxGradient = 0.0;
+		for (int i = 0; i < branchCount; ++i) {
+			//actual distance may be smaller than 2 * ck, because of clamping
+			double distance = candidates[0][i] - candidates[1][i];
+			gradient[i] = distance != 0.0 ? (results[0].value - results[1].value) / distance : 0.0;
+			maxGradient = Math.max(maxGradient, Math.abs(gradient[i]));
+		}
+		if (a == 0.0 && maxGradient > 0.0) {
+			a = initialStep * Math.pow(stabilityA + 1, alpha) / maxGradient;
+		}
+		double ak = a / Math.pow(k + 1 + stabilityA, alpha);
+		for (int i = 0; i < branchCount; ++i) {
+			theta[i] = clamp(theta[i] + ak * gradient[i]);
+		}
+		mainLog.println(String.format("SPSA iteration %d: a_k %f c_k %f difference %f", k, ak, ck, results[0].value - results[1].value));
+		//difference hidden by noise - more samples are necessary
+		boolean significant = Math.abs(results[0].value - results[1].value) > results[0].width + results[1].width;
+		finishIteration(improvement || significant);
+		++k;
+	}
+
+	@Override
+	protected void saveStrategyState(DataOutput out) throws IOException
+	{
+		Checkpoint.writeDoubles(out, theta);
+		out.writeInt(k);
+		out.writeDouble(a);
+	}
+
+	@Override
+	protected void loadStrategyState(DataInput in) throws IOException
+	{
+		theta = Checkpoint.readDoubles(in);
+		k = in.readInt();
+		a = in.readDouble();
+	}
+
+	/**
+	 * @return current point of stochastic approximation
+	 */
+	public float[] getCurrentPoint()
+	{
+		float[] point = new float[branchCount];
+		for (int i = 0; i < branchCount; ++i) {
+			point[i] = (float) theta[i];
+		}
+		return point;
+	}
+
+	@Override
+	public String toString()
+	{
+		return getName() + " " + Arrays.toString(theta);
+	}
+}
@@ -0,0 +1,352 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import parser.ast.Expression;
+import parser.ast.ModulesFile;
+import prism.PrismException;
+import prism.PrismLog;
+import simulator.method.CIMethod;
+import simulator.method.CIwidth;
+import simulator.method.SimulationMethod;
+import simulator.sampler.Sampler;
+import simulator.sampler.SamplerBoolean;
+
+/**
+ * Evaluator which accumulates samples of each candidate in a sampler, independently of the simulation backend.
+ * A backend implements only the generation of samples; PRNG offsets of samples, common random numbers,
+ * the evaluation cache and checkpoints are handled here.
+ */
+public abstract class SamplingEvaluator implements IncrementalEvaluator
+{
+	protected final Expression property;
+	protected final ModulesFile modulesFile;
+	protected final SimulationMethod method;
+	protected final PrismLog mainLog;
+	protected long samplesProcessed = 0;
+	protected double simulationTime = 0.0;
+	protected float[][] candidates = null;
+	protected SamplerBoolean[] samplers = null;
+	/**
+	 * Values of samples, saved only for common random numbers.
+	 */
+	protected BitSet[] outcomes = null;
+	private final boolean pairedSamples;
+	/**
+	 * First PRNG offset which has not been used yet.
+	 */
+	private int prngOffset = 0;
+	/**
+	 * PRNG offset of the first sample in current race, used with common random numbers.
+	 */
+	private int raceOffset = 0;
+	/**
+	 * Statistics of simulated candidates, null when disabled.
+	 */
+	private EvaluationCache cache = null;
+	/**
+	 * True when samplers of the current race ignore the cache (re-evaluation).
+	 */
+	private boolean bypassCache = false;
+
+	/**
+	 * @param property property with expanded formulas, labels and constants
+	 * @param modulesFile
+	 * @param method simulation method, cloned for each candidate
+	 * @param pairedSamples use common random numbers: i-th samples of all candidates in a race use the same PRNG offset
+	 * @param mainLog
+	 */
+	public SamplingEvaluator(Expression property, ModulesFile modulesFile, SimulationMethod method, boolean pairedSamples, PrismLog mainLog)
+	{
+		this.property = property;
+		this.modulesFile = modulesFile;
+		this.method = method;
+		this.pairedSamples = pairedSamples;
+		this.mainLog = mainLog;
+	}
+
+	/**
+	 * Generate samples of candidates and add them to their samplers.
+	 * When samples are paired, value of each sample is saved in outcomes, starting from the current number of samples.
+	 * @param indices candidates to simulate
+	 * @param counts number of samples for each candidate in indices
+	 * @param offsets PRNG offset of the first sample for each candidate in indices
+	 * @throws PrismException
+	 */
+	protected abstract void simulate(int[] indices, int[] counts, int[] offsets) throws PrismException;
+
+	/**
+	 * Save state of the backend which determines generated samples, e.g. the PRNG seed.
+	 * @param out
+	 * @throws IOException
+	 */
+	protected void saveBackendState(DataOutput out) throws IOException
+	{
+	}
+
+	/**
+	 * Restore state of the backend.
+	 * @param in
+	 * @throws IOException
+	 */
+	protected void loadBackendState(DataInput in) throws IOException
+	{
+	}
+
+	/**
+	 * Reuse samples of candidates simulated in previous iterations.
+	 * @param cache
+	 */
+	public void setCache(EvaluationCache cache)
+	{
+		this.cache = cache;
+	}
+
+	/**
+	 * @return simulation method of the property
+	 */
+	public SimulationMethod getMethod()
+	{
+		return method;
+	}
+
+	@Override
+	public CandidateResult[] evaluate(float[][] candidates, int numberOfSamples) throws PrismException
+	{
+		startRace(candidates);
+		//cached candidates need only the missing samples
+		int[] counts = new int[candidates.length];
+		for (int i = 0; i < candidates.length; ++i) {
+			counts[i] = Math.max(numberOfSamples - samplers[i].getNumSamples(), 0);
+		}
+		sample(counts);
+		CandidateResult[] results = new CandidateResult[candidates.length];
+		for (int i = 0; i < candidates.length; ++i) {
+			results[i] = getResult(i);
+		}
+		return results;
+	}
+
+	@Override
+	public CandidateResult[] reevaluate(float[][] candidates, int numberOfSamples) throws PrismException
+	{
+		//samplers start empty, so only the new samples are used for the result
+		bypassCache = true;
+		try {
+			startRace(candidates);
+			int[] counts = new int[candidates.length];
+			Arrays.fill(counts, numberOfSamples);
+			sample(counts);
+		} finally {
+			bypassCache = false;
+		}
+		CandidateResult[] results = new CandidateResult[candidates.length];
+		for (int i = 0; i < candidates.length; ++i) {
+			results[i] = getResult(i);
+			if (cache != null) {
+				cache.add(candidates[i], samplers[i].getNumTrue(), samplers[i].getNumSamples());
+			}
+		}
+		return results;
+	}
+
+	@Override
+	public void startRace(float[][] candidates) throws PrismException
+	{
+		this.candidates = candidates;
+		samplers = new SamplerBoolean[candidates.length];
+		for (int i = 0; i < candidates.length; ++i) {
+			samplers[i] = createSampler();
+			if (cache != null && !bypassCache) {
+				EvaluationCache.Entry entry = cache.get(candidates[i]);
+				if (entry != null) {
+					samplers[i].addStats(entry.numTrue, entry.numSamples);
+				}
+			}
+		}
+		raceOffset = prngOffset;
+		outcomes = null;
+		if (pairedSamples) {
+			outcomes = new BitSet[candidates.length];
+			for (int i = 0; i < candidates.length; ++i) {
+				outcomes[i] = new BitSet();
+			}
+		}
+	}
+
+	/**
+	 * @return new sampler for the property
+	 * @throws PrismException when the property is not a P property
+	 */
+	protected SamplerBoolean createSampler() throws PrismException
+	{
+		Sampler sampler = Sampler.createSampler(property, modulesFile);
+		if (!(sampler instanceof SamplerBoolean)) {
+			throw new PrismException("Search for probabilities of adaptive commands supports only P properties!");
+		}
+		sampler.setSimulationMethod(method.clone());
+		return (SamplerBoolean) sampler;
+	}
+
+	@Override
+	public void extendRace(int[] counts) throws PrismException
+	{
+		sample(counts);
+	}
+
+	/**
+	 * Assign PRNG offsets, generate samples for candidates and save accumulated statistics in the cache.
+	 * @param counts number of new samples for each candidate
+	 * @throws PrismException
+	 */
+	private void sample(int[] counts) throws PrismException
+	{
+		List<Integer> active = new ArrayList<>();
+		for (int i = 0; i < counts.length; ++i) {
+			if (counts[i] > 0) {
+				active.add(i);
+			}
+		}
+		int[] indices = new int[active.size()];
+		int[] activeCounts = new int[indices.length];
+		int[] offsets = new int[indices.length];
+		for (int i = 0; i < indices.length; ++i) {
+			int candidate = active.get(i);
+			indices[i] = candidate;
+			activeCounts[i] = counts[candidate];
+			if (pairedSamples) {
+				//i-th sample of each candidate uses the same PRNG counter
+				offsets[i] = raceOffset + samplers[candidate].getNumSamples();
+				prngOffset = Math.max(prngOffset, offsets[i] + counts[candidate]);
+			} else {
+				offsets[i] = prngOffset;
+				prngOffset += counts[candidate];
+			}
+		}
+		long iterationStart = System.currentTimeMillis();
+		simulate(indices, activeCounts, offsets);
+		mainLog.println(String.format("Evaluation: %d candidates in %d miliseconds.", indices.length, System.currentTimeMillis() - iterationStart));
+		if (cache != null && !bypassCache) {
+			for (int candidate : indices) {
+				cache.put(candidates[candidate], samplers[candidate].getNumTrue(), samplers[candidate].getNumSamples());
+			}
+		}
+	}
+
+	@Override
+	public int getNumSamples(int candidate)
+	{
+		return samplers[candidate].getNumSamples();
+	}
+
+	@Override
+	public int getNumTrue(int candidate)
+	{
+		return samplers[candidate].getNumTrue();
+	}
+
+	@Override
+	public boolean hasPairedSamples()
+	{
+		return pairedSamples;
+	}
+
+	@Override
+	public int getNumDiscordant(int first, int second)
+	{
+		BitSet difference = (BitSet) outcomes[first].clone();
+		difference.xor(outcomes[second]);
+		return difference.cardinality();
+	}
+
+	@Override
+	public CandidateResult getResult(int candidate) throws PrismException
+	{
+		SamplerBoolean sampler = samplers[candidate];
+		int numSamples = sampler.getNumSamples();
+		CIMethod sm_ = (CIMethod) sampler.getSimulationMethod();
+		sm_.setNumberOfSamples(numSamples);
+		//TODO: temporal fix to avoid wrong width computation
+		sm_.shouldStopNow(numSamples, sampler);
+		sm_.computeMissingParameterAfterSim();
+		Double result = (Double) sm_.getResult(sampler);
+		double width = (double) ((CIwidth) sm_).getMissingParameter();
+		mainLog.println(String.format("Result: %f", result.doubleValue()));
+		mainLog.print("For: ");
+		for (int j = 0; j < candidates[candidate].length; ++j) {
+			mainLog.print(candidates[candidate][j] + " ");
+		}
+		mainLog.println();
+		return new CandidateResult(result, width, numSamples);
+	}
+
+	@Override
+	public long getSamplesProcessed()
+	{
+		return samplesProcessed;
+	}
+
+	@Override
+	public double getSimulationTime()
+	{
+		return simulationTime;
+	}
+
+	@Override
+	public void saveState(DataOutput out) throws IOException
+	{
+		saveBackendState(out);
+		out.writeInt(prngOffset);
+		out.writeLong(samplesProcessed);
+		out.writeDouble(simulationTime);
+		out.writeBoolean(cache != null);
+		if (cache != null) {
+			cache.saveState(out);
+		}
+	}
+
+	@Override
+	public void loadState(DataInput in) throws IOException
+	{
+		loadBackendState(in);
+		prngOffset = in.readInt();
+		samplesProcessed = in.readLong();
+		simulationTime = in.readDouble();
+		if (in.readBoolean()) {
+			//saved statistics are skipped when the cache is disabled now
+			EvaluationCache saved = cache != null ? cache : new EvaluationCache();
+			saved.loadState(in);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import java.util.Random;
+
+import simulator.RandomNumberGenerator;
+
+/**
+ * Source of randomness for the search strategies, with the interface of {@link java.util.Random}.
+ * Values are generated by a SplitMix64 {@link RandomNumberGenerator}, so the whole state is a single long,
+ * which is saved in checkpoints explicitly instead of relying on serialization of java.util.Random.
+ */
+public class SearchRandom extends Random
+{
+	private static final long serialVersionUID = 1L;
+	// Not initialised here: Random's constructor sets it (via setSeed) before field initialisers would run
+	private RandomNumberGenerator rng;
+
+	public SearchRandom(long seed)
+	{
+		super(seed);
+	}
+
+	@Override
+	public synchronized void setSeed(long seed)
+	{
+		if (rng == null) {
+			rng = new RandomNumberGenerator(seed);
+		} else {
+			rng.setSeed(seed);
+		}
+	}
+
+	@Override
+	protected int next(int bits)
+	{
+		return (int) (rng.nextLong() >>> (64 - bits));
+	}
+
+	/**
+	 * Polar method, as in java.util.Random, but the second value is discarded,
+	 * so that no state is kept besides that of the generator.
+	 */
+	@Override
+	public double nextGaussian()
+	{
+		double v1, v2, s;
+		do {
+			v1 = 2 * nextDouble() - 1;
+			v2 = 2 * nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		} while (s >= 1 || s == 0);
+		return v1 * StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+	}
+
+	/**
+	 * @return seed of the generator
+	 */
+	public long getSeed()
+	{
+		return rng.getSeed();
+	}
+
+	/**
+	 * @return current state of the generator
+	 */
+	public long getState()
+	{
+		return rng.getState();
+	}
+
+	/**
+	 * Restore the generator saved with {@link #getSeed()} and {@link #getState()}.
+	 * @param seed
+	 * @param state
+	 */
+	public void setState(long seed, long state)
+	{
+		rng.setSeed(seed);
+		rng.setState(state);
+	}
+}
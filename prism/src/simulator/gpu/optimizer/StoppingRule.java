@@ -0,0 +1,140 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator.gpu.optimizer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Stopping rules for the search. Each limit equal to zero is disabled.
+ * The search stops when any of enabled limits is reached.
+ */
+public class StoppingRule implements Checkpointable
+{
+	/**
+	 * Default limit of samples for a single candidate.
+	 * The search increases number of samples when there is no improvement.
+	 */
+	static public final int DEFAULT_MAX_SAMPLES_PER_CANDIDATE = 1800000;
+	public int maxSamplesPerCandidate = DEFAULT_MAX_SAMPLES_PER_CANDIDATE;
+	/**
+	 * Limit of samples generated by the whole search.
+	 */
+	public long maxSamples = 0;
+	/**
+	 * Limit of time, in seconds.
+	 */
+	public long maxTime = 0;
+	/**
+	 * Limit of iterations.
+	 */
+	public int maxIterations = 0;
+	/**
+	 * Stop when best value did not improve more than tolerance in the last patience iterations.
+	 */
+	public double tolerance = 0.0;
+	static public final int DEFAULT_PATIENCE = 10;
+	public int patience = DEFAULT_PATIENCE;
+
+	private double lastBest = Double.NEGATIVE_INFINITY;
+	private int stagnantIterations = 0;
+	private String reason = null;
+
+	/**
+	 * Check stopping conditions after an iteration.
+	 * @param iterations number of finished iterations
+	 * @param samples number of generated samples
+	 * @param elapsedTime time since the start, in miliseconds
+	 * @param optimizer
+	 * @return true if the search should stop
+	 */
+	public boolean shouldStop(int iterations, long samples, long elapsedTime, AdaptOptimizer optimizer)
+	{
+		double best = optimizer.getBestValue();
+		if (best > lastBest + tolerance) {
+			lastBest = best;
+			stagnantIterations = 0;
+		} else {
+			++stagnantIterations;
+		}
+		return limitReached(iterations, samples, elapsedTime, optimizer);
+	}
+
+	/**
+	 * Check stopping conditions without counting a new iteration,
+	 * e.g. for a search resumed from a checkpoint, before its first iteration.
+	 * @param iterations number of finished iterations
+	 * @param samples number of generated samples
+	 * @param elapsedTime time since the start, in miliseconds
+	 * @param optimizer
+	 * @return true if the search should stop
+	 */
+	public boolean limitReached(int iterations, long samples, long elapsedTime, AdaptOptimizer optimizer)
+	{
+		if (maxSamplesPerCandidate > 0 && optimizer.getNumberOfSamples() > maxSamplesPerCandidate) {
+			reason = String.format("number of samples for a candidate exceeded %d", maxSamplesPerCandidate);
+		} else if (maxSamples > 0 && samples >= maxSamples) {
+			reason = String.format("budget of %d samples exhausted", maxSamples);
+		} else if (maxTime > 0 && elapsedTime >= maxTime * 1000) {
+			reason = String.format("time limit of %d seconds exceeded", maxTime);
+		} else if (maxIterations > 0 && iterations >= maxIterations) {
+			reason = String.format("limit of %d iterations reached", maxIterations);
+		} else if (tolerance > 0 && stagnantIterations >= patience) {
+			reason = String.format("no improvement greater than %g in %d iterations", tolerance, patience);
+		}
+		return reason != null;
+	}
+
+	/**
+	 * @return description of the condition which stopped the search; null when search has not been stopped
+	 */
+	public String getReason()
+	{
+		return reason;
+	}
+
+	@Override
+	public void saveState(DataOutput out) throws IOException
+	{
+		out.writeDouble(lastBest);
+		out.writeInt(stagnantIterations);
+	}
+
+	@Override
+	public void loadState(DataInput in) throws IOException
+	{
+		lastBest = in.readDouble();
+		stagnantIterations = in.readInt();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("max samples per candidate: %d, max samples: %d, max time: %d s, max iterations: %d, tolerance: %g (%d iterations)",
+				maxSamplesPerCandidate, maxSamples, maxTime, maxIterations, tolerance, patience);
+	}
+}
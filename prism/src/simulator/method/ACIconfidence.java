@@ -110,6 +110,7 @@ public final class ACIconfidence extends CIMethod
 		m.missingParameterComputed = missingParameterComputed;
 		m.prOp = prOp;
 		m.theta = theta;
+		m.groupSize = groupSize;
 		// Local stuff
 		m.varEstimator = varEstimator;
 		return m;
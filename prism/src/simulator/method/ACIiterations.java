@@ -151,8 +151,14 @@ public final class ACIiterations extends CIMethod
 				return false;
 		}
 
+		// In group-sequential mode, the first check is only a pilot estimating the variance
+		// (as in Stein's two-stage procedure) and later ones use their share of the confidence
+		numChecks++;
+		if (groupSize > 0 && numChecks == 1)
+			return false;
+
 		// The required number of iterations for the expected confidence is not reached yet
-		quantile = Probability.normalInverse(1.0 - confidence / 2.0);
+		quantile = Probability.normalInverse(1.0 - getCheckConfidence(numChecks - 1) / 2.0);
 		squaredQuantile = quantile * quantile;
 		if (sampler.getVariance() > 0.0 && (iters + 1) < sampler.getVariance() * squaredQuantile / (width * width))
 			return false;
@@ -162,6 +168,22 @@ public final class ACIiterations extends CIMethod
 		return true;
 	}
 
+	@Override
+	public int getNextCheck(int iters, Sampler sampler)
+	{
+		int next = super.getNextCheck(iters, sampler);
+		// In group-sequential mode, after the pilot, go straight to the number of samples
+		// that the variance estimate requires at the next check (using the normal approximation),
+		// plus some slack for the error of the estimate, which would otherwise cost another check
+		if (groupSize > 0 && numChecks > 0 && sampler.getVariance() > 0.0) {
+			double quantile = Probability.normalInverse(1.0 - getCheckConfidence(numChecks) / 2.0);
+			double required = 1.1 * sampler.getVariance() * quantile * quantile / (width * width);
+			if (required > next)
+				next = (int) Math.min(Math.ceil(required), Integer.MAX_VALUE);
+		}
+		return next;
+	}
+
 	@Override
 	public int getProgress(int iters, Sampler sampler)
 	{
@@ -180,6 +202,8 @@ public final class ACIiterations extends CIMethod
 		m.missingParameterComputed = missingParameterComputed;
 		m.prOp = prOp;
 		m.theta = theta;
+		m.groupSize = groupSize;
+		m.numChecks = numChecks;
 		// Local stuff
 		m.reqIterToConclude = reqIterToConclude;
 		m.reqIterToConcludeGiven = reqIterToConcludeGiven;
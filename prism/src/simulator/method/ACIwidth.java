@@ -130,6 +130,7 @@ public final class ACIwidth extends CIMethod
 		m.missingParameterComputed = missingParameterComputed;
 		m.prOp = prOp;
 		m.theta = theta;
+		m.groupSize = groupSize;
 		// Local stuff
 		m.varEstimator = varEstimator;
 		return m;
@@ -141,6 +141,15 @@ public abstract class APMCMethod extends SimulationMethod
 		return iters >= numSamples;
 	}
 
+	@Override
+	public int getNextCheck(int iters, Sampler sampler)
+	{
+		// No need to check before the (fixed) number of samples is reached,
+		// but still stop there exactly if it falls inside the next group
+		int next = super.getNextCheck(iters, sampler);
+		return numSamples > iters ? Math.min(next, numSamples) : next;
+	}
+
 	@Override
 	public int getProgress(int iters, Sampler sampler)
 	{
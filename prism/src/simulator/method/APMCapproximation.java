@@ -85,6 +85,7 @@ public class APMCapproximation extends APMCMethod
 		m.missingParameterComputed = missingParameterComputed;
 		m.prOp = prOp;
 		m.theta = theta;
+		m.groupSize = groupSize;
 		return m;
 	}
 }
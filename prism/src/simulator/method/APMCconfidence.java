@@ -79,6 +79,7 @@ public class APMCconfidence extends APMCMethod
 		m.missingParameterComputed = missingParameterComputed;
 		m.prOp = prOp;
 		m.theta = theta;
+		m.groupSize = groupSize;
 		return m;
 	}
 }
@@ -48,6 +48,8 @@ public abstract class CIMethod extends SimulationMethod
 	protected double confidence;
 	// Number of samples
 	protected int numSamples;
+	// Number of checks of the stopping criteria so far (group-sequential mode)
+	protected int numChecks;
 
 	// Property info
 	// Operator in P/R: 0=quantitative, -1=lower bound, 1=upper bound
@@ -61,6 +63,7 @@ public abstract class CIMethod extends SimulationMethod
 		width = 0.0;
 		confidence = 0.0;
 		numSamples = 0;
+		numChecks = 0;
 	}
 
 	@Override
@@ -79,6 +82,7 @@ public abstract class CIMethod extends SimulationMethod
 	public void reset()
 	{
 		missingParameterComputed = false;
+		numChecks = 0;
 	}
 
 	@Override
@@ -128,6 +132,29 @@ public abstract class CIMethod extends SimulationMethod
 
 	public abstract int getProgress(int iters, Sampler sampler);
 
+	@Override
+	public int getNextCheck(int iters, Sampler sampler)
+	{
+		// No need to check before the (fixed) number of samples is reached,
+		// but still stop there exactly if it falls inside the next group
+		int next = super.getNextCheck(iters, sampler);
+		return numSamples > iters ? Math.min(next, numSamples) : next;
+	}
+
+	/**
+	 * Get the confidence parameter (error probability) to use for the {@code check}th (1-based)
+	 * check of a sequential stopping criterion that can stop the simulation. When checking after
+	 * every sample, this is just {@code confidence}. In group-sequential mode, the error probability
+	 * is spent over the checks, a fraction 6/(pi^2 k^2) of it at the kth check, so that the sum
+	 * over any number of checks stays below {@code confidence}.
+	 */
+	protected double getCheckConfidence(int check)
+	{
+		if (groupSize <= 0)
+			return confidence;
+		return confidence * 6.0 / (Math.PI * Math.PI * check * check);
+	}
+
 	public int getNumberOfSamples()
 	{
 		return numSamples;
@@ -138,6 +165,11 @@ public abstract class CIMethod extends SimulationMethod
 		this.numSamples = numSamples;
 	}
 
+	public double getConfidence()
+	{
+		return confidence;
+	}
+
 	@Override
 	public Object getResult(Sampler sampler) throws PrismException
 	{
@@ -115,6 +115,7 @@ public final class CIconfidence extends CIMethod
 		m.missingParameterComputed = missingParameterComputed;
 		m.prOp = prOp;
 		m.theta = theta;
+		m.groupSize = groupSize;
 		// Local stuff
 		m.varEstimator = varEstimator;
 		return m;
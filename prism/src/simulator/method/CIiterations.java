@@ -139,14 +139,21 @@ public final class CIiterations extends CIMethod
 				return false;
 		}
 
+		// In group-sequential mode, the first check is only a pilot estimating the variance
+		// (as in Stein's two-stage procedure) and later ones use their share of the confidence
+		numChecks++;
+		if (groupSize > 0 && numChecks == 1)
+			return false;
+
 		// See if required number of iterations for the expected confidence is reached yet
 		// (Note: Colt's studentTinverse seems to break for v=1 so do manually)
+		double checkConfidence = getCheckConfidence(numChecks - 1);
 		if (iters - 1 > 1) {
-			quantile = Probability.studentTInverse(confidence, iters - 1);
+			quantile = Probability.studentTInverse(checkConfidence, iters - 1);
 		} else {
 			// PDF for v=1 is 1/2 + arctan(x)/pi
 			// Want x for pdf = 1-conf/2 
-			quantile = Math.tan((0.5 - confidence / 2) * Math.PI);
+			quantile = Math.tan((0.5 - checkConfidence / 2) * Math.PI);
 		}
 		squaredQuantile = quantile * quantile;
 		if (sampler.getVariance() > 0.0 && iters < sampler.getVariance() * squaredQuantile / (width * width))
@@ -157,6 +164,22 @@ public final class CIiterations extends CIMethod
 		return true;
 	}
 
+	@Override
+	public int getNextCheck(int iters, Sampler sampler)
+	{
+		int next = super.getNextCheck(iters, sampler);
+		// In group-sequential mode, after the pilot, go straight to the number of samples
+		// that the variance estimate requires at the next check (using the normal approximation),
+		// plus some slack for the error of the estimate, which would otherwise cost another check
+		if (groupSize > 0 && numChecks > 0 && sampler.getVariance() > 0.0) {
+			double quantile = Probability.normalInverse(1.0 - getCheckConfidence(numChecks) / 2.0);
+			double required = 1.1 * sampler.getVariance() * quantile * quantile / (width * width);
+			if (required > next)
+				next = (int) Math.min(Math.ceil(required), Integer.MAX_VALUE);
+		}
+		return next;
+	}
+
 	@Override
 	public int getProgress(int iters, Sampler sampler)
 	{
@@ -175,6 +198,8 @@ public final class CIiterations extends CIMethod
 		m.missingParameterComputed = missingParameterComputed;
 		m.prOp = prOp;
 		m.theta = theta;
+		m.groupSize = groupSize;
+		m.numChecks = numChecks;
 		// Local stuff
 		m.reqIterToConclude = reqIterToConclude;
 		m.reqIterToConcludeGiven = reqIterToConcludeGiven;
@@ -131,6 +131,7 @@ public final class CIwidth extends CIMethod
 		m.missingParameterComputed = missingParameterComputed;
 		m.prOp = prOp;
 		m.theta = theta;
+		m.groupSize = groupSize;
 		// Local stuff
 		m.varEstimator = varEstimator;
 		return m;
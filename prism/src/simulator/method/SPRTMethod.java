@@ -38,6 +38,9 @@ import simulator.sampler.SamplerDouble;
  * SimulationMethod class for the SPRT (Sequential probability ratio test) approach,
  * as used by Younes/Simmons (CAV'02).
  * See also Younes/Kwiatkowska/Norman/Parker (TACAS'04) and Vincent Nimal's MSc thesis.
+ * Wald's bounds on the error probabilities hold whenever the test stops on crossing a threshold,
+ * so in group-sequential mode (likelihood ratio only checked after each group of samples)
+ * the thresholds need no adjustment: the test may just use a few more samples than needed.
  */
 public final class SPRTMethod extends SimulationMethod
 {
@@ -242,6 +245,7 @@ public final class SPRTMethod extends SimulationMethod
 		m.h0true = h0true;
 		m.computedIterations = computedIterations;
 		m.missingParameterComputed = missingParameterComputed;
+		m.groupSize = groupSize;
 		return m;
 	}
 }
@@ -36,6 +36,10 @@ import simulator.sampler.Sampler;
  */
 public abstract class SimulationMethod implements Cloneable
 {
+	// Number of samples between two checks of the stopping criteria
+	// ("group-sequential" mode); 0 means check after every sample
+	protected int groupSize = 0;
+
 	/**
 	 * Get the (short) name of this method.
 	 */
@@ -105,6 +109,38 @@ public abstract class SimulationMethod implements Cloneable
 	 */
 	public abstract boolean shouldStopNow(int iters, Sampler sampler);
 
+	/**
+	 * Set the number of samples between two checks of the stopping criteria ("group-sequential" mode).
+	 * If 0 (the default), shouldStopNow(...) may be called after every sample.
+	 * Otherwise, it is only called at the check points given by {@link #getNextCheck(int, Sampler)},
+	 * and methods whose guarantees depend on the number of checks must account for this.
+	 */
+	public void setGroupSize(int groupSize)
+	{
+		this.groupSize = groupSize;
+	}
+
+	/**
+	 * Get the number of samples between two checks of the stopping criteria (0 if checked after every sample).
+	 */
+	public int getGroupSize()
+	{
+		return groupSize;
+	}
+
+	/**
+	 * Get the number of iterations (samples) at which the stopping criteria should be checked next,
+	 * i.e. shouldStopNow(...) need not be called again before this many samples have been generated.
+	 * By default, this is after the next sample, or after the next group of samples in group-sequential mode.
+	 * The value returned is always greater than {@code iters}.
+	 * @param iters The number of iterations (samples) done so far
+	 * @param sampler The Sampler object for this simulation
+	 */
+	public int getNextCheck(int iters, Sampler sampler)
+	{
+		return iters + Math.max(groupSize, 1);
+	}
+
 	/**
 	 * Get an indication of progress so far for simulation, i.e. an approximate value
 	 * for the percentage of work (samples) done. The value is a multiple of 10 in the range [0,100].
@@ -27,6 +27,10 @@
 
 package simulator.sampler;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import parser.ast.Expression;
 import parser.ast.ExpressionProb;
 import parser.ast.ExpressionReward;
@@ -93,6 +97,25 @@ public abstract class Sampler
 	 */
 	public abstract void updateStats();
 
+	/**
+	 * Update the statistics for the sampler, assuming that the current path is finished,
+	 * with the value of the path multiplied by a weight, e.g. its likelihood ratio under importance sampling.
+	 * The statistics (mean, variance) are then those of the weighted values,
+	 * whose mean is still an unbiased estimate of the value of the property.
+	 */
+	public abstract void updateStats(double weight);
+
+	/**
+	 * Are the statistics of this sampler those of weighted values (see {@link #updateStats(double)})?
+	 */
+	public abstract boolean isWeighted();
+
+	/**
+	 * Add the statistics of another sampler for the same property,
+	 * e.g. one which generated a part of the paths in another thread.
+	 */
+	public abstract void addStats(Sampler sampler);
+
 	/**
 	 * Get the current value of the sampler.
 	 */
@@ -143,6 +166,26 @@ public abstract class Sampler
 
 	// Static methods for sampler creation
 
+	/**
+	 * Make samplers of a list whose until formulas have the same operands (e.g. instances of a property
+	 * for several time bounds, as in an experiment) share them, so that the operands are evaluated
+	 * only once per path step, however many samplers there are.
+	 */
+	public static void shareOperands(List<Sampler> samplers)
+	{
+		Map<String, UntilOperands> shared = new HashMap<String, UntilOperands>();
+		for (Sampler sampler : samplers) {
+			if (sampler instanceof SamplerBoolean && ((SamplerBoolean) sampler).operands != null) {
+				SamplerBoolean samplerBool = (SamplerBoolean) sampler;
+				UntilOperands operands = shared.get(samplerBool.operands.getKey());
+				if (operands == null)
+					shared.put(samplerBool.operands.getKey(), samplerBool.operands);
+				else
+					samplerBool.operands = operands;
+			}
+		}
+	}
+
 	/**
 	 * Create a sampler for an expression (P=? or R=?).
 	 * Expression should contain no constants/formula/etc.
@@ -40,15 +40,23 @@ public abstract class SamplerBoolean extends Sampler
 	protected boolean value;
 	// Whether the actual value should be the negation of 'value'
 	protected boolean negated = false;
+	// Operands, for until formulas (possibly shared with other samplers)
+	protected UntilOperands operands;
 	// Stats over all paths
 	protected int numSamples;
 	protected int numTrue;
+	// Stats of weighted values (see updateStats(double)) over all paths
+	protected boolean weighted = false;
+	protected double weightSum;
+	protected double weightSumSq;
 
 	@Override
 	public void reset()
 	{
 		valueKnown = false;
 		value = false;
+		if (operands != null)
+			operands.invalidate();
 	}
 
 	@Override
@@ -56,6 +64,9 @@ public abstract class SamplerBoolean extends Sampler
 	{
 		numSamples = 0;
 		numTrue = 0;
+		weighted = false;
+		weightSum = 0.0;
+		weightSumSq = 0.0;
 	}
 
 	@Override
@@ -70,13 +81,48 @@ public abstract class SamplerBoolean extends Sampler
 		updateStats();
 	}
 
+	/**
+	 * Add a sample whose (weighted) value is given directly, rather than computed from a path,
+	 * e.g. an estimate of the probability of the property obtained by one run of splitting.
+	 */
+	public void addWeightedSample(double weight)
+	{
+		weighted = true;
+		numSamples++;
+		if (weight != 0.0)
+			numTrue++;
+		weightSum += weight;
+		weightSumSq += weight * weight;
+	}
+
 	@Override
 	public void updateStats()
 	{
 		numSamples++;
 		// XOR: value && !negated || !value && negated 
-		if (value != negated)
+		if (value != negated) {
 			numTrue++;
+			weightSum += 1.0;
+			weightSumSq += 1.0;
+		}
+	}
+
+	@Override
+	public void updateStats(double weight)
+	{
+		weighted = true;
+		numSamples++;
+		if (value != negated) {
+			numTrue++;
+			weightSum += weight;
+			weightSumSq += weight * weight;
+		}
+	}
+
+	@Override
+	public boolean isWeighted()
+	{
+		return weighted;
 	}
 
 	@Override
@@ -89,6 +135,8 @@ public abstract class SamplerBoolean extends Sampler
 	@Override
 	public double getMeanValue()
 	{
+		if (weighted)
+			return weightSum / numSamples;
 		return numTrue / (double) numSamples;
 	}
 
@@ -98,6 +146,10 @@ public abstract class SamplerBoolean extends Sampler
 		// Estimator to the variance (see p.24 of Vincent Nimal's MSc thesis)
 		if (numSamples <= 1) {
 			return 0.0;
+		} else if (weighted) {
+			// Sample variance of the weighted values
+			double mean = weightSum / numSamples;
+			return Math.max(0.0, (weightSumSq - numSamples * mean * mean) / (numSamples - 1.0));
 		} else {
 			return (numTrue * ((double) numSamples - numTrue) / (numSamples * (numSamples - 1.0)));
 		}
@@ -111,10 +163,52 @@ public abstract class SamplerBoolean extends Sampler
 	@Override
 	public double getLikelihoodRatio(double p1, double p0) throws PrismException
 	{
+		if (weighted)
+			throw new PrismException("Likelihood ratio cannot be computed for weighted samples");
 		// See Sec 5.3 of Vincent Nimal's MSc thesis for details
 		return Math.pow(p1 / p0, numTrue) * Math.pow((1 - p1) / (1 - p0), numSamples - numTrue);
 	}
 
+	/**
+	 * @return number of samples added since the last reset of statistics
+	 */
+	public int getNumSamples()
+	{
+		return numSamples;
+	}
+
+	/**
+	 * @return number of samples with value true (after negation), since the last reset of statistics
+	 */
+	public int getNumTrue()
+	{
+		return numTrue;
+	}
+
+	/**
+	 * Add statistics of samples collected earlier, e.g. by another sampler for the same property.
+	 * @param numTrue number of samples with value true (after negation)
+	 * @param numSamples
+	 */
+	public void addStats(int numTrue, int numSamples)
+	{
+		this.numTrue += numTrue;
+		this.numSamples += numSamples;
+		weightSum += numTrue;
+		weightSumSq += numTrue;
+	}
+
+	@Override
+	public void addStats(Sampler sampler)
+	{
+		SamplerBoolean other = (SamplerBoolean) sampler;
+		numTrue += other.numTrue;
+		numSamples += other.numSamples;
+		weighted |= other.weighted;
+		weightSum += other.weightSum;
+		weightSumSq += other.weightSumSq;
+	}
+
 	/**
 	 * Negate the meaning of this sampler.
 	 */
@@ -58,6 +58,7 @@ public class SamplerBoundedUntilCont extends SamplerBoolean
 			throw new PrismException("Error creating Sampler");
 		left = expr.getOperand1();
 		right = expr.getOperand2();
+		operands = new UntilOperands(left, right);
 		lb = expr.getLowerBound() == null ? 0.0 : expr.getLowerBound().evaluateDouble();
 		ub = expr.getUpperBound() == null ? Double.POSITIVE_INFINITY : expr.getUpperBound().evaluateDouble();
 		// Initialise sampler info
@@ -80,14 +81,14 @@ public class SamplerBoundedUntilCont extends SamplerBoolean
 			// Initially, zero time has elapsed so to satisfy the until,
 			// we need a lower time bound of 0 and the RHS to be satisfied 
 			if (lb == 0.0) {
-				if (right.evaluateBoolean(path.getCurrentState())) {
+				if (operands.evaluateRight(path)) {
 					valueKnown = true;
 					value = true;
 				}
 			}
 			// If LHS of the until violated, will never be true
 			else {
-				if (!left.evaluateBoolean(path.getCurrentState())) {
+				if (!operands.evaluateLeft(path)) {
 					valueKnown = true;
 					value = false;
 				}
@@ -113,7 +114,7 @@ public class SamplerBoundedUntilCont extends SamplerBoolean
 			// Lower bound not yet exceeded but LHS of until violated
 			// (no need to check RHS because too early)
 			else if (timeSoFar <= lb) {
-				if (!left.evaluateBoolean(path.getCurrentState())) {
+				if (!operands.evaluateLeft(path)) {
 					valueKnown = true;
 					value = false;
 				}
@@ -121,12 +122,12 @@ public class SamplerBoundedUntilCont extends SamplerBoolean
 			// Current time is between lower/upper bounds...
 			else {
 				// Have we reached the target (i.e. RHS of until)?
-				if (right.evaluateBoolean(path.getCurrentState())) {
+				if (operands.evaluateRight(path)) {
 					valueKnown = true;
 					value = true;
 				}
 				// Or, if not, have we violated the LHS of the until?
-				else if (!left.evaluateBoolean(path.getCurrentState())) {
+				else if (!operands.evaluateLeft(path)) {
 					valueKnown = true;
 					value = false;
 				}
@@ -26,7 +26,6 @@
 
 package simulator.sampler;
 
-import parser.State;
 import parser.ast.Expression;
 import parser.ast.ExpressionTemporal;
 import prism.PrismException;
@@ -54,6 +53,7 @@ public class SamplerBoundedUntilDisc extends SamplerBoolean
 			throw new PrismException("Error creating Sampler");
 		left = expr.getOperand1();
 		right = expr.getOperand2();
+		operands = new UntilOperands(left, right);
 		lb = expr.getLowerBound() == null ? 0 : expr.getLowerBound().evaluateInt();
 		ub = expr.getUpperBound() == null ? Integer.MAX_VALUE : expr.getUpperBound().evaluateInt();
 		// Initialise sampler info
@@ -77,21 +77,20 @@ public class SamplerBoundedUntilDisc extends SamplerBoolean
 		// Lower bound not yet exceeded but LHS of until violated
 		// (no need to check RHS because too early)
 		else if (pathSize < lb) {
-			if (!left.evaluateBoolean(path.getCurrentState())) {
+			if (!operands.evaluateLeft(path)) {
 				valueKnown = true;
 				value = false;
 			}
 		}
 		// Current time is between lower/upper bounds...
 		else {
-			State currentState = path.getCurrentState();
 			// Have we reached the target (i.e. RHS of until)?
-			if (right.evaluateBoolean(currentState)) {
+			if (operands.evaluateRight(path)) {
 				valueKnown = true;
 				value = true;
 			}
 			// Or, if not, have we violated the LJS of the until?
-			else if (!left.evaluateBoolean(currentState)) {
+			else if (!operands.evaluateLeft(path)) {
 				valueKnown = true;
 				value = false;
 			}
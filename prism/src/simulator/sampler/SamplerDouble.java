@@ -42,6 +42,8 @@ public abstract class SamplerDouble extends Sampler
 	protected double valueSum;
 	protected double valueSumSq;
 	protected int numSamples;
+	// Are the values weighted (see updateStats(double))?
+	protected boolean weighted = false;
 
 	@Override
 	public void reset()
@@ -56,6 +58,7 @@ public abstract class SamplerDouble extends Sampler
 		valueSum = 0.0;
 		valueSumSq = 0.0;
 		numSamples = 0;
+		weighted = false;
 	}
 
 	@Override
@@ -69,6 +72,45 @@ public abstract class SamplerDouble extends Sampler
 		numSamples++;
 	}
 
+	@Override
+	public void updateStats(double weight)
+	{
+		weighted = true;
+		valueSum += value * weight;
+		valueSumSq += value * weight * value * weight;
+		numSamples++;
+	}
+
+	@Override
+	public boolean isWeighted()
+	{
+		return weighted;
+	}
+
+	@Override
+	public void addStats(Sampler sampler)
+	{
+		SamplerDouble other = (SamplerDouble) sampler;
+		valueSum += other.valueSum;
+		valueSumSq += other.valueSumSq;
+		numSamples += other.numSamples;
+		weighted |= other.weighted;
+	}
+
+	/**
+	 * Add statistics of samples collected elsewhere, e.g. reduced on an OpenCL device.
+	 * The sums are rebuilt from the mean and M2 in doubles, so the partial variance doesn't lose precision.
+	 * @param numSamples
+	 * @param mean mean value of samples
+	 * @param m2 sum of squared deviations of samples from their mean
+	 */
+	public void addMoments(int numSamples, double mean, double m2)
+	{
+		valueSum += mean * numSamples;
+		valueSumSq += m2 + mean * mean * numSamples;
+		this.numSamples += numSamples;
+	}
+
 	@Override
 	public Object getCurrentValue()
 	{
@@ -103,6 +145,8 @@ public abstract class SamplerDouble extends Sampler
 	{
 		// See Sec 6.3 of Vincent Nimal's MSc thesis for details
 		// (in which mu1=p1 and mu0=p0)
+		if (weighted)
+			throw new PrismException("Likelihood ratio cannot be computed for weighted samples");
 		if (numSamples <= 1)
 			return 0.0;
 		if (valueSumSq == 0)
@@ -89,4 +89,14 @@ public class SamplerRewardCumulCont extends SamplerDouble
 		// Always bounded (although we don't know the exact num steps, just the time bound)
 		return true;
 	}
+
+	public double getTimeBound()
+	{
+		return timeBound;
+	}
+
+	public int getRewardStructIndex()
+	{
+		return rewardStructIndex;
+	}
 }
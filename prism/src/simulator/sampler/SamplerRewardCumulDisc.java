@@ -77,4 +77,14 @@ public class SamplerRewardCumulDisc extends SamplerDouble
 		// Always bounded
 		return true;
 	}
+
+	public int getTimeBound()
+	{
+		return timeBound;
+	}
+
+	public int getRewardStructIndex()
+	{
+		return rewardStructIndex;
+	}
 }
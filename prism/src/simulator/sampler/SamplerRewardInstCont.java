@@ -90,4 +90,14 @@ public class SamplerRewardInstCont extends SamplerDouble
 		// Always bounded (although we don't know the exact num steps, just the time bound)
 		return true;
 	}
+
+	public double getTime()
+	{
+		return time;
+	}
+
+	public int getRewardStructIndex()
+	{
+		return rewardStructIndex;
+	}
 }
@@ -82,4 +82,14 @@ public class SamplerRewardInstDisc extends SamplerDouble
 		// Always bounded
 		return true;
 	}
+
+	public int getTime()
+	{
+		return time;
+	}
+
+	public int getRewardStructIndex()
+	{
+		return rewardStructIndex;
+	}
 }
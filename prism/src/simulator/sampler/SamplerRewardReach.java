@@ -72,4 +72,14 @@ public class SamplerRewardReach extends SamplerDouble
 		
 		return valueKnown;
 	}
+
+	public Expression getTarget()
+	{
+		return target.deepCopy();
+	}
+
+	public int getRewardStructIndex()
+	{
+		return rewardStructIndex;
+	}
 }
@@ -26,7 +26,6 @@
 
 package simulator.sampler;
 
-import parser.State;
 import parser.ast.Expression;
 import parser.ast.ExpressionTemporal;
 import prism.PrismException;
@@ -52,6 +51,7 @@ public class SamplerUntil extends SamplerBoolean
 			throw new PrismException("Error creating Sampler");
 		left = expr.getOperand1();
 		right = expr.getOperand2();
+		operands = new UntilOperands(left, right);
 		// Initialise sampler info
 		reset();
 		resetStats();
@@ -74,14 +74,13 @@ public class SamplerUntil extends SamplerBoolean
 		if (valueKnown)
 			return true;
 
-		State currentState = path.getCurrentState();
 		// Have we reached the target (i.e. RHS of until)?
-		if (right.evaluateBoolean(currentState)) {
+		if (operands.evaluateRight(path)) {
 			valueKnown = true;
 			value = true;
 		}
 		// Or, if not, have we violated the LHS of the until?
-		else if (!left.evaluateBoolean(currentState)) {
+		else if (!operands.evaluateLeft(path)) {
 			valueKnown = true;
 			value = false;
 		}
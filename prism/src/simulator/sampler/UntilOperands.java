@@ -0,0 +1,106 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Marcin Copik <mcopik@gmail.com> (Silesian University of Technology)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package simulator.sampler;
+
+import parser.ast.Expression;
+import prism.PrismLangException;
+import simulator.Path;
+
+/**
+ * Operands (left/right sides) of an until formula, possibly shared by the samplers of several
+ * properties with the same operands, e.g. instances of a property for a range of time bounds
+ * in an experiment. Their values in the current state of the path are computed once per step,
+ * whichever sampler asks first, and reused by the others.
+ */
+class UntilOperands
+{
+	private final Expression left;
+	private final Expression right;
+	// Size of the path for which the values below are stored (-1 if none)
+	private int size = -1;
+	private boolean leftComputed;
+	private boolean leftValue;
+	private boolean rightComputed;
+	private boolean rightValue;
+
+	public UntilOperands(Expression left, Expression right)
+	{
+		this.left = left;
+		this.right = right;
+	}
+
+	/**
+	 * Forget the values stored, e.g. when a new path starts.
+	 */
+	public void invalidate()
+	{
+		size = -1;
+	}
+
+	/**
+	 * Evaluate the left operand in the current state of a path.
+	 */
+	public boolean evaluateLeft(Path path) throws PrismLangException
+	{
+		if (path.size() != size)
+			advance(path.size());
+		if (!leftComputed) {
+			leftValue = left.evaluateBoolean(path.getCurrentState());
+			leftComputed = true;
+		}
+		return leftValue;
+	}
+
+	/**
+	 * Evaluate the right operand in the current state of a path.
+	 */
+	public boolean evaluateRight(Path path) throws PrismLangException
+	{
+		if (path.size() != size)
+			advance(path.size());
+		if (!rightComputed) {
+			rightValue = right.evaluateBoolean(path.getCurrentState());
+			rightComputed = true;
+		}
+		return rightValue;
+	}
+
+	private void advance(int size)
+	{
+		this.size = size;
+		leftComputed = false;
+		rightComputed = false;
+	}
+
+	/**
+	 * Get a key identifying the operands, such that samplers with equal keys can share them.
+	 */
+	public String getKey()
+	{
+		return left + " U " + right;
+	}
+}
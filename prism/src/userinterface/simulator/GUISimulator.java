@@ -28,6 +28,7 @@
 
 package userinterface.simulator;
 
+import java.io.File;
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
@@ -56,6 +57,8 @@ public class GUISimulator extends GUIPlugin implements MouseListener, ListSelect
 	private GUIMultiModel guiMultiModel; //reference to the model plugin
 	private SimulatorEngine engine;
 	private GUIPrismFileFilter[] txtFilter;
+	private GUIPrismFileFilter[] binFilter;
+	private GUIPrismFileFilter[] pathFilter;
 	private JMenu simulatorMenu;
 	private JPopupMenu pathPopupMenu;
 
@@ -75,7 +78,7 @@ public class GUISimulator extends GUIPlugin implements MouseListener, ListSelect
 
 	//Actions
 	private Action randomExploration, backtrack, backtrackToHere, removeToHere, newPath, newPathFromState, newPathPlot, newPathPlotFromState, resetPath,
-			exportPath, plotPath, configureView;
+			exportPath, importPath, plotPath, configureView;
 
 	/** Creates a new instance of GUISimulator */
 	public GUISimulator(GUIPrism gui)
@@ -179,6 +182,10 @@ public class GUISimulator extends GUIPlugin implements MouseListener, ListSelect
 		txtFilter = new GUIPrismFileFilter[1];
 		txtFilter[0] = new GUIPrismFileFilter("Text files (*.txt)");
 		txtFilter[0].addExtension("txt");
+		binFilter = new GUIPrismFileFilter[1];
+		binFilter[0] = new GUIPrismFileFilter("Binary path files (*.bin)");
+		binFilter[0].addExtension("bin");
+		pathFilter = new GUIPrismFileFilter[] { txtFilter[0], binFilter[0] };
 
 		displayStyleFast = true;
 		displayPathLoops = true;
@@ -631,6 +638,22 @@ public class GUISimulator extends GUIPlugin implements MouseListener, ListSelect
 	}
 
 	public void a_loadPath(PathFullInfo pathNew)
+	{
+		a_loadPath(pathNew, null);
+	}
+
+	public void a_importPath()
+	{
+		if (showOpenFileDialog(binFilter, binFilter[0]) != JFileChooser.APPROVE_OPTION)
+			return;
+		a_loadPath(null, getChooserFile());
+	}
+
+	/**
+	 * Load a path into the simulator, either matching a PathFullInfo object
+	 * or, if {@code file} is non-null, from a file in binary format.
+	 */
+	private void a_loadPath(PathFullInfo pathNew, File file)
 	{
 		try {
 			// get properties constants/labels
@@ -647,7 +670,10 @@ public class GUISimulator extends GUIPlugin implements MouseListener, ListSelect
 			displayPathLoops = true;
 
 			// Load new path into the simulator 
-			engine.loadPath(parsedModel, pathNew);
+			if (file != null)
+				engine.loadPath(parsedModel, file);
+			else
+				engine.loadPath(parsedModel, pathNew);
 			// Update model/path/tables/lists
 			setPathActive(true);
 			pathTableModel.setPath(engine.getPathFull());
@@ -670,10 +696,14 @@ public class GUISimulator extends GUIPlugin implements MouseListener, ListSelect
 	public void a_exportPath()
 	{
 		try {
-			if (showSaveFileDialog(txtFilter, txtFilter[0]) != JFileChooser.APPROVE_OPTION)
+			if (showSaveFileDialog(pathFilter, txtFilter[0]) != JFileChooser.APPROVE_OPTION)
 				return;
 			setComputing(true);
-			engine.exportPath(getChooserFile());
+			File file = getChooserFile();
+			if (getGUI().getChooser().getFileFilter() == binFilter[0] || file.getName().endsWith(".bin"))
+				engine.exportPathBinary(file);
+			else
+				engine.exportPath(file);
 			setComputing(false);
 		} catch (PrismException e) {
 			error(e.getMessage());
@@ -914,6 +944,7 @@ public class GUISimulator extends GUIPlugin implements MouseListener, ListSelect
 		newPathPlotFromState.setEnabled(parsedModel != null && !computing);
 		resetPath.setEnabled(pathActive && !computing);
 		exportPath.setEnabled(pathActive && !computing);
+		importPath.setEnabled(parsedModel != null && !computing);
 		plotPath.setEnabled(pathActive && !computing);
 		randomExploration.setEnabled(pathActive && !computing);
 		backtrack.setEnabled(pathActive && !computing);
@@ -1595,6 +1626,19 @@ public class GUISimulator extends GUIPlugin implements MouseListener, ListSelect
 		exportPath.putValue(Action.NAME, "Export path");
 		exportPath.putValue(Action.SMALL_ICON, GUIPrism.getIconFromImage("smallExport.png"));
 
+		importPath = new AbstractAction()
+		{
+			public void actionPerformed(ActionEvent e)
+			{
+				a_importPath();
+			}
+		};
+
+		importPath.putValue(Action.LONG_DESCRIPTION, "Imports a path previously exported in binary format.");
+		importPath.putValue(Action.MNEMONIC_KEY, new Integer(KeyEvent.VK_I));
+		importPath.putValue(Action.NAME, "Import path");
+		importPath.putValue(Action.SMALL_ICON, GUIPrism.getIconFromImage("smallImport.png"));
+
 		plotPath = new AbstractAction()
 		{
 			public void actionPerformed(ActionEvent e)
@@ -1682,6 +1726,7 @@ public class GUISimulator extends GUIPlugin implements MouseListener, ListSelect
 		pathPopupMenu.addSeparator();
 		pathPopupMenu.add(resetPath);
 		pathPopupMenu.add(exportPath);
+		pathPopupMenu.add(importPath);
 		pathPopupMenu.add(plotPath);
 		pathPopupMenu.addSeparator();
 		pathPopupMenu.add(randomExploration);
@@ -1699,6 +1744,7 @@ public class GUISimulator extends GUIPlugin implements MouseListener, ListSelect
 		simulatorMenu.addSeparator();
 		simulatorMenu.add(resetPath);
 		simulatorMenu.add(exportPath);
+		simulatorMenu.add(importPath);
 		simulatorMenu.add(plotPath);
 		simulatorMenu.addSeparator();
 		simulatorMenu.add(randomExploration);